@@ -0,0 +1,175 @@
+package com.siddhartha.practice.Benchmark;
+
+import com.siddhartha.practice.DAO.InMemoryPTLogStorageEngine;
+import com.siddhartha.practice.DAO.PTLogService;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.Page;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the PTLogService operations on the InMemoryPTLogStorageEngine, which stands in for the database so
+ * the results show the cost of the service and the engine without network or disk. The service is built with the query
+ * cache and the other in-memory views turned off, so every call reaches the engine instead of returning a cached
+ * result. The rowCount parameter is the number of pt logs loaded before measuring.
+ *
+ * @author sid
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PTLogServiceBenchmark {
+	private static final int MANAGER_COUNT = 10;
+	private static final int EMPLOYEE_COUNT = 100;
+	private static final int BATCH_SIZE = 100;
+	private static final int RANGE_DAYS = 30;
+	private static final int DAYS_LOGGED = 3 * 365;
+	private static final LocalDate FIRST_LOGGED_DATE = LocalDate.of(2020, 1, 1);
+	private static final int EMPLOYEE_ID = MANAGER_COUNT + 1;
+	private static final int MANAGER_ID = 1;
+	private static final Date START_DATE = Date.valueOf(FIRST_LOGGED_DATE.plusDays(DAYS_LOGGED / 2));
+	private static final Date END_DATE = Date.valueOf(FIRST_LOGGED_DATE.plusDays(DAYS_LOGGED / 2 + RANGE_DAYS));
+
+	/**
+	 * Service the read benchmarks run on, loaded once per trial.
+	 */
+	@State(Scope.Benchmark)
+	public static class ReadState {
+		@Param({"1000", "10000", "100000"})
+		public int rowCount;
+
+		PTLogService ptLogService;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			ptLogService = buildService(rowCount);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			ptLogService.closeConnection();
+		}
+	}
+
+	/**
+	 * Service the write benchmarks run on, reloaded every iteration so the pt logs added by one iteration do not grow
+	 * the data set the next one measures.
+	 */
+	@State(Scope.Benchmark)
+	public static class WriteState {
+		@Param({"1000", "10000", "100000"})
+		public int rowCount;
+
+		PTLogService ptLogService;
+		Random random;
+		ArrayList<PTLog> batch;
+
+		@Setup(Level.Iteration)
+		public void setUp() {
+			ptLogService = buildService(rowCount);
+			random = new Random(rowCount);
+			batch = new ArrayList<>(BATCH_SIZE);
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				batch.add(randomPTLog(random));
+			}
+		}
+
+		@TearDown(Level.Iteration)
+		public void tearDown() {
+			ptLogService.closeConnection();
+		}
+	}
+
+	@Benchmark
+	public ArrayList<PTLog> listPTLogOfEmployee(ReadState state) {
+		return state.ptLogService.listPTLogOfEmployee(EMPLOYEE_ID);
+	}
+
+	@Benchmark
+	public ArrayList<PTLog> listPTLogOfEmployeeInRange(ReadState state) {
+		return state.ptLogService.listPTLogOfEmployeeInRange(EMPLOYEE_ID, START_DATE, END_DATE);
+	}
+
+	@Benchmark
+	public ArrayList<PTLog> listPTLogUnderManager(ReadState state) {
+		return state.ptLogService.listPTLogUnderManager(MANAGER_ID);
+	}
+
+	@Benchmark
+	public ArrayList<PTLog> listPTLogUnderManagerInRange(ReadState state) {
+		return state.ptLogService.listPTLogUnderManagerInRange(MANAGER_ID, START_DATE, END_DATE);
+	}
+
+	@Benchmark
+	public Page<PTLog> listPTLogUnderManagerPage(ReadState state) {
+		return state.ptLogService.listPTLogUnderManagerPage(MANAGER_ID, null, 20);
+	}
+
+	@Benchmark
+	public int addPTLogEmployee(WriteState state) {
+		PTLog ptLog = randomPTLog(state.random);
+		return state.ptLogService.addPTLogEmployee(ptLog.getEmployeeId(), ptLog.getDetails(), ptLog.getLoggedDate());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public int[] addPTLogsBatch(WriteState state) {
+		return state.ptLogService.addPTLogsBatch(state.batch);
+	}
+
+	/**
+	 * Creates a service on a fresh in-memory engine with MANAGER_COUNT managers, each managing an equal share of the
+	 * other employees, and rowCount pt logs spread over the employees. Write-behind, the journal, the rollups, the
+	 * search index, the snapshot, the change feed and the query cache are all off.
+	 */
+	private static PTLogService buildService(int rowCount) {
+		PTLogService ptLogService = new PTLogService(new InMemoryPTLogStorageEngine(), false, false, false, false,
+				false, false, false);
+		for (int i = 1; i <= EMPLOYEE_COUNT; i++) {
+			ptLogService.addEmployee("employee" + i);
+		}
+		for (int managerId = 1; managerId <= MANAGER_COUNT; managerId++) {
+			ptLogService.promoteToManager(managerId);
+		}
+		for (int employeeId = MANAGER_COUNT + 1; employeeId <= EMPLOYEE_COUNT; employeeId++) {
+			ptLogService.assignEmployeeToManager(employeeId, 1 + (employeeId - MANAGER_COUNT - 1) % MANAGER_COUNT);
+		}
+		Random random = new Random(-rowCount);
+		ArrayList<PTLog> batch = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < rowCount; i++) {
+			batch.add(randomPTLog(random));
+			if (batch.size() == BATCH_SIZE || i == rowCount - 1) {
+				ptLogService.addPTLogsBatch(batch);
+				batch.clear();
+			}
+		}
+		return ptLogService;
+	}
+
+	private static PTLog randomPTLog(Random random) {
+		PTLog ptLog = PTLogStoreFootprintBenchmark.randomPTLog(random, 0);
+		ptLog.setEmployeeId(MANAGER_COUNT + 1 + random.nextInt(EMPLOYEE_COUNT - MANAGER_COUNT));
+		ptLog.setLoggedDate(Date.valueOf(FIRST_LOGGED_DATE.plusDays(random.nextInt(DAYS_LOGGED))));
+		return ptLog;
+	}
+}
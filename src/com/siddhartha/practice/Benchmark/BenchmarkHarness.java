@@ -0,0 +1,97 @@
+package com.siddhartha.practice.Benchmark;
+
+import com.siddhartha.practice.Helpers.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small benchmark harness running an operation for a warmup period and then a measured period, printing throughput
+ * and latency percentiles of the measured calls. Results of the operations are passed to consume() so the JIT cannot
+ * drop the work as dead code. Every call is timed with System.nanoTime, so latencies of operations taking less than
+ * about a hundred nanoseconds include the cost of the timer itself.
+ *
+ * @author sid
+ */
+final class BenchmarkHarness {
+	private static final String ROW_FORMAT = "|%-40s |%-10s |%-14s |%-10s |%-10s |%-10s |%-10s|\n";
+
+	private static volatile int sink;
+
+	private final long warmupNanos;
+	private final long measureNanos;
+
+	/**
+	 * @param warmupMillis
+	 * 		time the operation runs before measuring, letting the JIT compile it.
+	 * @param measureMillis
+	 * 		time the operation is measured for.
+	 */
+	BenchmarkHarness(long warmupMillis, long measureMillis) {
+		this.warmupNanos = TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+		this.measureNanos = TimeUnit.MILLISECONDS.toNanos(measureMillis);
+	}
+
+	/**
+	 * Prints the header of the result table.
+	 */
+	void printHeader() {
+		System.out.printf(ROW_FORMAT, "BENCHMARK", "SIZE", "OPS/S", "P50_US", "P99_US", "P999_US", "MAX_US");
+	}
+
+	/**
+	 * Runs the operation and prints a row of the result table.
+	 *
+	 * @param name
+	 * 		name of the benchmark.
+	 * @param size
+	 * 		number of rows in the data set the operation runs on.
+	 * @param operation
+	 * 		operation to measure, its result is consumed.
+	 */
+	void run(String name, int size, Operation operation) {
+		long warmupEnd = System.nanoTime() + warmupNanos;
+		while (System.nanoTime() < warmupEnd) {
+			consume(operation.run());
+		}
+		LatencyHistogram histogram = new LatencyHistogram();
+		long start = System.nanoTime();
+		long measureEnd = start + measureNanos;
+		long now = start;
+		while (now < measureEnd) {
+			Object result = operation.run();
+			long end = System.nanoTime();
+			histogram.record(end - now);
+			consume(result);
+			now = end;
+		}
+		double seconds = (now - start) / 1e9;
+		System.out.printf(ROW_FORMAT,
+				name,
+				size,
+				String.format("%.0f", histogram.getCount() / seconds),
+				String.format("%.2f", histogram.getPercentileNanos(50) / 1e3),
+				String.format("%.2f", histogram.getPercentileNanos(99) / 1e3),
+				String.format("%.2f", histogram.getPercentileNanos(99.9) / 1e3),
+				String.format("%.2f", histogram.getMaxNanos() / 1e3));
+	}
+
+	/**
+	 * Keeps the result of an operation alive.
+	 *
+	 * @param result
+	 * 		result of the operation.
+	 */
+	static void consume(Object result) {
+		if (result != null) {
+			sink += System.identityHashCode(result);
+		}
+	}
+
+	/**
+	 * Operation to benchmark.
+	 */
+	@FunctionalInterface
+	interface Operation {
+		Object run();
+	}
+}
@@ -0,0 +1,79 @@
+package com.siddhartha.practice.Benchmark;
+
+import com.siddhartha.practice.Helpers.EmployeeFactory;
+import com.siddhartha.practice.Helpers.RowFormatter;
+import com.siddhartha.practice.Models.Designation;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.TeamMember;
+
+import java.util.Random;
+
+/**
+ * Measures the model level code run for every row of a listing: creating employees through the EmployeeFactory, the
+ * toString builders of the models and the row formatting of the CLI. Data sizes are the number of distinct objects the
+ * operations cycle through, so larger sizes show the cost once the objects no longer fit in the CPU caches.
+ *
+ * @author sid
+ */
+public final class ModelBenchmark {
+	private static final int[] ROW_COUNTS = {1_000, 100_000};
+	private static final long WARMUP_MILLIS = 1_000;
+	private static final long MEASURE_MILLIS = 2_000;
+
+	private ModelBenchmark() {
+
+	}
+
+	public static void main(String[] args) {
+		BenchmarkHarness harness = new BenchmarkHarness(WARMUP_MILLIS, MEASURE_MILLIS);
+		harness.printHeader();
+		for (int rowCount : ROW_COUNTS) {
+			runAll(harness, rowCount);
+		}
+	}
+
+	private static void runAll(BenchmarkHarness harness, int rowCount) {
+		Random random = new Random(rowCount);
+		PTLog[] ptLogs = new PTLog[rowCount];
+		TeamMember[] teamMembers = new TeamMember[rowCount];
+		Designation[] designations = new Designation[rowCount];
+		for (int i = 0; i < rowCount; i++) {
+			ptLogs[i] = PTLogStoreFootprintBenchmark.randomPTLog(random, i + 1);
+			teamMembers[i] = new TeamMember(i + 1, "employee" + (i + 1));
+			designations[i] = random.nextBoolean() ? Designation.TeamMember : Designation.Manager;
+		}
+		Cursor cursor = new Cursor(rowCount);
+
+		harness.run("EmployeeFactory.getEmployee", rowCount,
+				() -> EmployeeFactory.getEmployee(designations[cursor.next()]));
+		harness.run("PTLog.toString", rowCount,
+				() -> ptLogs[cursor.next()].toString());
+		harness.run("TeamMember.toString", rowCount,
+				() -> teamMembers[cursor.next()].toString());
+		harness.run("RowFormatter.formatEmployee", rowCount,
+				() -> RowFormatter.formatEmployee(teamMembers[cursor.next()]));
+		harness.run("RowFormatter.formatPTLog", rowCount,
+				() -> RowFormatter.formatPTLog(ptLogs[cursor.next()]));
+		harness.run("RowFormatter.formatTeamPTLog", rowCount,
+				() -> RowFormatter.formatTeamPTLog(ptLogs[cursor.next()]));
+	}
+
+	/**
+	 * Cycles through the indexes of the data set.
+	 */
+	private static final class Cursor {
+		private final int size;
+		private int index = 0;
+
+		private Cursor(int size) {
+			this.size = size;
+		}
+
+		private int next() {
+			if (++index == size) {
+				index = 0;
+			}
+			return index;
+		}
+	}
+}
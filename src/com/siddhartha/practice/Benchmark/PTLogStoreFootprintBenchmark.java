@@ -0,0 +1,99 @@
+package com.siddhartha.practice.Benchmark;
+
+import com.siddhartha.practice.DAO.ColumnarPTLogStore;
+import com.siddhartha.practice.Models.PTLog;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Compares the heap used by ArrayList of PTLog with the ColumnarPTLogStore holding the same pt logs. Run it with a fixed
+ * heap (for example -Xms2g -Xmx2g) so collections between measurements are not resizing the heap.
+ *
+ * @author sid
+ */
+public final class PTLogStoreFootprintBenchmark {
+	private static final int[] ROW_COUNTS = {10_000, 100_000, 1_000_000};
+	private static final int EMPLOYEE_COUNT = 1_000;
+	private static final String[] DETAILS = {"Ran 5km", "Chest and triceps", "Yoga 30 minutes", "Cycling 20km",
+			"Leg day", "Swimming 1km", "HIIT 25 minutes", "Back and biceps"};
+
+	private PTLogStoreFootprintBenchmark() {
+
+	}
+
+	public static void main(String[] args) {
+		System.out.printf("|%-12s |%-22s |%-22s |%-22s |%-10s|\n", "ROWS", "ARRAYLIST_BYTES", "COLUMNAR_BYTES",
+				"COLUMNAR_ESTIMATE", "RATIO");
+		for (int rowCount : ROW_COUNTS) {
+			long listBytes = measureArrayList(rowCount);
+			long storeBytes = measureColumnarStore(rowCount);
+			ColumnarPTLogStore estimateStore = buildStore(rowCount);
+			System.out.printf("|%-12d |%-22d |%-22d |%-22d |%-10.2f|\n",
+					rowCount,
+					listBytes,
+					storeBytes,
+					estimateStore.estimateFootprintBytes(),
+					storeBytes == 0 ? 0 : (double) listBytes / storeBytes);
+		}
+	}
+
+	private static long measureArrayList(int rowCount) {
+		long before = usedHeap();
+		ArrayList<PTLog> listPTLog = new ArrayList<>(rowCount);
+		Random random = new Random(rowCount);
+		for (int i = 1; i <= rowCount; i++) {
+			listPTLog.add(randomPTLog(random, i));
+		}
+		long after = usedHeap();
+		if (listPTLog.size() != rowCount) {
+			throw new IllegalStateException("Unexpected list size " + listPTLog.size());
+		}
+		return after - before;
+	}
+
+	private static long measureColumnarStore(int rowCount) {
+		long before = usedHeap();
+		ColumnarPTLogStore store = buildStore(rowCount);
+		long after = usedHeap();
+		if (store.size() != rowCount) {
+			throw new IllegalStateException("Unexpected store size " + store.size());
+		}
+		return after - before;
+	}
+
+	private static ColumnarPTLogStore buildStore(int rowCount) {
+		ColumnarPTLogStore store = new ColumnarPTLogStore();
+		Random random = new Random(rowCount);
+		for (int i = 1; i <= rowCount; i++) {
+			store.add(randomPTLog(random, i));
+		}
+		store.trimToSize();
+		return store;
+	}
+
+	/**
+	 * Creates a pt log with fresh details and date instances, as a JDBC driver would for every row.
+	 */
+	static PTLog randomPTLog(Random random, int id) {
+		return new PTLog(id,
+				1 + random.nextInt(EMPLOYEE_COUNT),
+				new String(DETAILS[random.nextInt(DETAILS.length)].toCharArray()),
+				Date.valueOf(LocalDate.of(2020, 1, 1).plusDays(random.nextInt(3 * 365))));
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException interruptedException) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,247 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.ExecutorFactory;
+import com.siddhartha.practice.Models.*;
+import config.DatabaseConfig;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AsyncPTLogService class running the operations of a PTLogService on virtual threads and returning CompletableFutures,
+ * so callers never block on the database. Every operation takes one permit of concurrencyLimit per connection it may
+ * hold at once, bulk reads taking DatabaseConfig.bulkReadParallelism of them. Further operations wait on their own
+ * virtual thread for their permits, which keeps the connection pool from being flooded by borrowers timing out.
+ * Results are the same as the matching PTLogService method, failures thrown by an operation complete its future
+ * exceptionally.
+ *
+ * @author sid
+ */
+public final class AsyncPTLogService implements AutoCloseable {
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+	private final PTLogService ptLogService;
+	private final Semaphore concurrencyLimit;
+	private final int maxConcurrency;
+	private final int bulkReadPermits;
+	private final ExecutorService executor;
+
+	/**
+	 * Constructor class for AsyncPTLogService limiting the operations running at once to
+	 * DatabaseConfig.asyncConcurrencyLimit.
+	 *
+	 * @param ptLogService
+	 * 		service running the operations.
+	 */
+	public AsyncPTLogService(PTLogService ptLogService) {
+		this(ptLogService, DatabaseConfig.asyncConcurrencyLimit);
+	}
+
+	/**
+	 * Constructor class for AsyncPTLogService.
+	 *
+	 * @param ptLogService
+	 * 		service running the operations.
+	 * @param maxConcurrency
+	 * 		maximum number of connections held by the running operations, usually the maximum size of the connection
+	 * 		pool.
+	 */
+	public AsyncPTLogService(PTLogService ptLogService, int maxConcurrency) {
+		this.ptLogService = ptLogService;
+		this.maxConcurrency = Math.max(1, maxConcurrency);
+		this.bulkReadPermits = Math.min(this.maxConcurrency, Math.max(1, DatabaseConfig.bulkReadParallelism));
+		this.concurrencyLimit = new Semaphore(this.maxConcurrency, true);
+		this.executor = ExecutorFactory.newVirtualThreadExecutor("async-ptlog-service", this.maxConcurrency);
+	}
+
+	/**
+	 * @return service running the operations.
+	 */
+	public PTLogService getPTLogService() {
+		return ptLogService;
+	}
+
+	/**
+	 * @return number of permits held by the operations running at the moment.
+	 */
+	public int getRunningCount() {
+		return maxConcurrency - concurrencyLimit.availablePermits();
+	}
+
+	/**
+	 * @return estimated number of operations waiting for a permit to run.
+	 */
+	public int getWaitingCount() {
+		return concurrencyLimit.getQueueLength();
+	}
+
+	public CompletableFuture<Integer> addEmployee(String name) {
+		return submit(() -> ptLogService.addEmployee(name));
+	}
+
+	public CompletableFuture<Integer> addPTLogEmployee(int employeeId, String details, Date loggedDate) {
+		return submit(() -> ptLogService.addPTLogEmployee(employeeId, details, loggedDate));
+	}
+
+	public CompletableFuture<int[]> addPTLogsBatch(Collection<PTLog> ptLogs) {
+		return submit(() -> ptLogService.addPTLogsBatch(ptLogs));
+	}
+
+	public CompletableFuture<Integer> promoteToManager(int id) {
+		return submit(() -> ptLogService.promoteToManager(id));
+	}
+
+	public CompletableFuture<Integer> assignEmployeeToManager(int employeeId, int managerId) {
+		return submit(() -> ptLogService.assignEmployeeToManager(employeeId, managerId));
+	}
+
+	public CompletableFuture<ArrayList<Employee>> listEmployees() {
+		return submit(ptLogService::listEmployees);
+	}
+
+	public CompletableFuture<Page<Employee>> listEmployeesPage(String pageToken, int pageSize) {
+		return submit(() -> ptLogService.listEmployeesPage(pageToken, pageSize));
+	}
+
+	public CompletableFuture<ArrayList<PTLog>> listPTLogOfEmployee(int id) {
+		return submit(() -> ptLogService.listPTLogOfEmployee(id));
+	}
+
+	public CompletableFuture<ArrayList<PTLog>> listPTLogOfEmployeeInRange(int id, Date startDate, Date endDate) {
+		return submit(() -> ptLogService.listPTLogOfEmployeeInRange(id, startDate, endDate));
+	}
+
+	public CompletableFuture<ArrayList<PTLog>> listPTLogUnderManager(int id) {
+		return submit(() -> ptLogService.listPTLogUnderManager(id));
+	}
+
+	public CompletableFuture<ArrayList<PTLog>> listPTLogUnderManagerInRange(int id, Date startDate, Date endDate) {
+		return submit(() -> ptLogService.listPTLogUnderManagerInRange(id, startDate, endDate));
+	}
+
+	public CompletableFuture<LinkedHashMap<Integer, ArrayList<PTLog>>> listPTLogOfEmployeesInRange(
+			Collection<Integer> ids, Date startDate, Date endDate) {
+		return submit(bulkReadPermits, () -> ptLogService.listPTLogOfEmployeesInRange(ids, startDate, endDate));
+	}
+
+	public CompletableFuture<LinkedHashMap<Integer, ArrayList<PTLog>>> listPTLogUnderManagersInRange(
+			Collection<Integer> ids, Date startDate, Date endDate) {
+		return submit(bulkReadPermits, () -> ptLogService.listPTLogUnderManagersInRange(ids, startDate, endDate));
+	}
+
+	public CompletableFuture<Page<PTLog>> listPTLogOfEmployeePage(int id, String pageToken, int pageSize) {
+		return submit(() -> ptLogService.listPTLogOfEmployeePage(id, pageToken, pageSize));
+	}
+
+	public CompletableFuture<Page<PTLog>> listPTLogOfEmployeeInRangePage(int id, Date startDate, Date endDate,
+			String pageToken, int pageSize) {
+		return submit(() -> ptLogService.listPTLogOfEmployeeInRangePage(id, startDate, endDate, pageToken, pageSize));
+	}
+
+	public CompletableFuture<Page<PTLog>> listPTLogUnderManagerPage(int id, String pageToken, int pageSize) {
+		return submit(() -> ptLogService.listPTLogUnderManagerPage(id, pageToken, pageSize));
+	}
+
+	public CompletableFuture<Page<PTLog>> listPTLogUnderManagerInRangePage(int id, Date startDate, Date endDate,
+			String pageToken, int pageSize) {
+		return submit(() -> ptLogService.listPTLogUnderManagerInRangePage(id, startDate, endDate, pageToken, pageSize));
+	}
+
+	public CompletableFuture<Integer> deletePTLogOfEmployeeInRange(int id, Date startDate, Date endDate) {
+		return submit(() -> ptLogService.deletePTLogOfEmployeeInRange(id, startDate, endDate));
+	}
+
+	public CompletableFuture<Integer> dropPTLogsBefore(Date cutoff) {
+		return submit(() -> ptLogService.dropPTLogsBefore(cutoff));
+	}
+
+	public CompletableFuture<ArrayList<PTLog>> searchPTLogs(String text, Integer employeeId, Integer managerId,
+			Date startDate, Date endDate, int limit) {
+		return submit(() -> ptLogService.searchPTLogs(text, employeeId, managerId, startDate, endDate, limit));
+	}
+
+	public CompletableFuture<ActivitySummary> getActivityOfEmployee(int id, RollupPeriod period, Date date) {
+		return submit(() -> ptLogService.getActivityOfEmployee(id, period, date));
+	}
+
+	public CompletableFuture<ActivitySummary> getActivityUnderManager(int id, RollupPeriod period, Date date) {
+		return submit(() -> ptLogService.getActivityUnderManager(id, period, date));
+	}
+
+	public CompletableFuture<Boolean> checkEmployeeQuery(int id, Designation designation, Boolean checkDesignation) {
+		return submit(() -> ptLogService.checkEmployeeQuery(id, designation, checkDesignation));
+	}
+
+	/**
+	 * Stops accepting operations and waits for the submitted ones to finish. The PTLogService is not closed.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				System.out.println("Async operations still running after " + SHUTDOWN_TIMEOUT_SECONDS + " seconds.");
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException interruptedException) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Runs an operation holding one connection at a time.
+	 */
+	private <T> CompletableFuture<T> submit(Callable<T> operation) {
+		return submit(1, operation);
+	}
+
+	/**
+	 * Runs the operation on the executor once enough permits of the concurrency limit are free. The permits are
+	 * released before the future completes, so stages chained on the future do not hold them.
+	 *
+	 * @param permits
+	 * 		number of connections the operation may hold at once, at most maxConcurrency.
+	 * @param operation
+	 * 		operation to run.
+	 * @return future completed with the result of the operation.
+	 */
+	private <T> CompletableFuture<T> submit(int permits, Callable<T> operation) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				try {
+					concurrencyLimit.acquire(permits);
+				} catch (InterruptedException interruptedException) {
+					future.completeExceptionally(interruptedException);
+					return;
+				}
+				T result = null;
+				Throwable failure = null;
+				try {
+					result = operation.call();
+				} catch (Throwable throwable) {
+					failure = throwable;
+				} finally {
+					concurrencyLimit.release(permits);
+				}
+				if (failure != null) {
+					future.completeExceptionally(failure);
+				} else {
+					future.complete(result);
+				}
+			});
+		} catch (RejectedExecutionException rejectedExecutionException) {
+			future.completeExceptionally(rejectedExecutionException);
+		}
+		return future;
+	}
+}
@@ -0,0 +1,488 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.IntArrayList;
+import com.siddhartha.practice.Models.PTLog;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory store of pt logs kept in columns of primitive arrays instead of PTLog objects. Ids, employee ids and
+ * logged dates (as epoch days) are int columns and details are UTF-8 bytes in one shared byte pool, so a row costs
+ * about 20 bytes plus its details instead of three objects and their headers. PTLog objects are only created when rows
+ * are read.
+ * <p>
+ * Rows of each employee are indexed in order of (logged date, id), which answers the same queries PTLogService exposes
+ * (by employee, by date range and by manager) without scanning other employees.
+ *
+ * @author sid
+ */
+public final class ColumnarPTLogStore {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private int[] ids = new int[INITIAL_CAPACITY];
+	private int[] employeeIds = new int[INITIAL_CAPACITY];
+	private int[] loggedDays = new int[INITIAL_CAPACITY];
+	private int[] detailsOffsets = new int[INITIAL_CAPACITY];
+	private int[] detailsLengths = new int[INITIAL_CAPACITY];
+	private byte[] detailsPool = new byte[INITIAL_CAPACITY * 16];
+	private int detailsPoolSize = 0;
+	private int rowCount = 0;
+	private final BitSet deletedRows = new BitSet();
+	private int deletedCount = 0;
+
+	private final HashMap<Integer, IntArrayList> rowsByEmployee = new HashMap<>();
+	private final HashMap<Integer, IntArrayList> employeesByManager = new HashMap<>();
+
+	/**
+	 * Adds a pt log to the store.
+	 *
+	 * @param ptLog
+	 * 		pt log to add, only its values are kept.
+	 */
+	public void add(PTLog ptLog) {
+		add(ptLog.getId(), ptLog.getEmployeeId(), ptLog.getDetails(), ptLog.getLoggedDate());
+	}
+
+	/**
+	 * Adds a pt log to the store.
+	 *
+	 * @param id
+	 * 		id of the pt log.
+	 * @param employeeId
+	 * 		id of employee who logged it.
+	 * @param details
+	 * 		details of the log.
+	 * @param loggedDate
+	 * 		date when log is added.
+	 */
+	public void add(int id, int employeeId, String details, Date loggedDate) {
+		byte[] detailsBytes = details == null ? null : details.getBytes(StandardCharsets.UTF_8);
+		int loggedDay = toDay(loggedDate);
+		lock.writeLock().lock();
+		try {
+			ensureRowCapacity(rowCount + 1);
+			int row = rowCount++;
+			ids[row] = id;
+			employeeIds[row] = employeeId;
+			loggedDays[row] = loggedDay;
+			if (detailsBytes == null) {
+				detailsOffsets[row] = 0;
+				detailsLengths[row] = -1;
+			} else {
+				ensurePoolCapacity(detailsPoolSize + detailsBytes.length);
+				System.arraycopy(detailsBytes, 0, detailsPool, detailsPoolSize, detailsBytes.length);
+				detailsOffsets[row] = detailsPoolSize;
+				detailsLengths[row] = detailsBytes.length;
+				detailsPoolSize += detailsBytes.length;
+			}
+			IntArrayList employeeRows = rowsByEmployee.computeIfAbsent(employeeId, key -> new IntArrayList(4));
+			employeeRows.insert(upperBound(employeeRows, loggedDay, id), row);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds employee under manager, so the logs of the employee are returned by the manager queries.
+	 *
+	 * @param employeeId
+	 * 		employee id to be added under manager.
+	 * @param managerId
+	 * 		manager id under whom employee is added.
+	 */
+	public void assignEmployeeToManager(int employeeId, int managerId) {
+		lock.writeLock().lock();
+		try {
+			IntArrayList team = employeesByManager.computeIfAbsent(managerId, key -> new IntArrayList(4));
+			if (!team.contains(employeeId)) {
+				team.add(employeeId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Fetches list of pt logs, logged by an employee, in order of logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @return list of pt logs.
+	 */
+	public ArrayList<PTLog> listPTLogOfEmployee(int id) {
+		ArrayList<PTLog> listPTLog = new ArrayList<>();
+		forEachPTLogOfEmployee(id, listPTLog::add);
+		return listPTLog;
+	}
+
+	/**
+	 * Hands pt logs, logged by an employee, to the consumer in order of logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param consumer
+	 * 		receives each pt log.
+	 */
+	public void forEachPTLogOfEmployee(int id, Consumer<PTLog> consumer) {
+		lock.readLock().lock();
+		try {
+			IntArrayList employeeRows = rowsByEmployee.get(id);
+			if (employeeRows == null) {
+				return;
+			}
+			for (int i = 0; i < employeeRows.size(); i++) {
+				consumer.accept(read(employeeRows.get(i)));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Fetches list of pt logs, logged by an employee in between a range of date, in descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @return list of pt logs.
+	 */
+	public ArrayList<PTLog> listPTLogOfEmployeeInRange(int id, Date startDate, Date endDate) {
+		ArrayList<PTLog> listPTLog = new ArrayList<>();
+		forEachPTLogOfEmployeeInRange(id, startDate, endDate, listPTLog::add);
+		return listPTLog;
+	}
+
+	/**
+	 * Hands pt logs, logged by an employee in between a range of date, to the consumer in descending order of logged
+	 * date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param consumer
+	 * 		receives each pt log.
+	 */
+	public void forEachPTLogOfEmployeeInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		int startDay = toDay(startDate);
+		int endDay = toDay(endDate);
+		lock.readLock().lock();
+		try {
+			IntArrayList employeeRows = rowsByEmployee.get(id);
+			if (employeeRows == null) {
+				return;
+			}
+			int from = upperBound(employeeRows, startDay - 1, Integer.MAX_VALUE);
+			int to = upperBound(employeeRows, endDay, Integer.MAX_VALUE);
+			for (int i = to - 1; i >= from; i--) {
+				consumer.accept(read(employeeRows.get(i)));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Fetches list of pt logs, logged by all employees under a manager, in descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @return list of pt logs.
+	 */
+	public ArrayList<PTLog> listPTLogUnderManager(int id) {
+		ArrayList<PTLog> listPTLog = new ArrayList<>();
+		forEachPTLogUnderManagerInRange(id, Integer.MIN_VALUE, Integer.MAX_VALUE, listPTLog::add);
+		return listPTLog;
+	}
+
+	/**
+	 * Hands pt logs, logged by all employees under a manager, to the consumer in descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param consumer
+	 * 		receives each pt log.
+	 */
+	public void forEachPTLogUnderManager(int id, Consumer<PTLog> consumer) {
+		forEachPTLogUnderManagerInRange(id, Integer.MIN_VALUE, Integer.MAX_VALUE, consumer);
+	}
+
+	/**
+	 * Fetches list of pt logs, logged by all employees under a manager in a range of date, in descending order of
+	 * logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @return list of pt logs.
+	 */
+	public ArrayList<PTLog> listPTLogUnderManagerInRange(int id, Date startDate, Date endDate) {
+		ArrayList<PTLog> listPTLog = new ArrayList<>();
+		forEachPTLogUnderManagerInRange(id, toDay(startDate), toDay(endDate), listPTLog::add);
+		return listPTLog;
+	}
+
+	/**
+	 * Hands pt logs, logged by all employees under a manager in a range of date, to the consumer in descending order
+	 * of logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param consumer
+	 * 		receives each pt log.
+	 */
+	public void forEachPTLogUnderManagerInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		forEachPTLogUnderManagerInRange(id, toDay(startDate), toDay(endDate), consumer);
+	}
+
+	/**
+	 * Deletes pt logs logged by an employee in a range of date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are deleted.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @return number of deleted pt logs.
+	 */
+	public int deletePTLogOfEmployeeInRange(int id, Date startDate, Date endDate) {
+		int startDay = toDay(startDate);
+		int endDay = toDay(endDate);
+		lock.writeLock().lock();
+		try {
+			IntArrayList employeeRows = rowsByEmployee.get(id);
+			if (employeeRows == null) {
+				return 0;
+			}
+			int from = upperBound(employeeRows, startDay - 1, Integer.MAX_VALUE);
+			int to = upperBound(employeeRows, endDay, Integer.MAX_VALUE);
+			for (int i = from; i < to; i++) {
+				deletedRows.set(employeeRows.get(i));
+			}
+			// shift the rows after the range down in one pass and cut the tail once
+			int write = from;
+			for (int read = to; read < employeeRows.size(); read++) {
+				employeeRows.set(write++, employeeRows.get(read));
+			}
+			employeeRows.truncate(write);
+			deletedCount += to - from;
+			if (deletedCount > rowCount / 2 && deletedCount > INITIAL_CAPACITY) {
+				compact();
+			}
+			return to - from;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return number of pt logs in the store.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return rowCount - deletedCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Estimates the heap used by the columns, the byte pool and the indexes.
+	 *
+	 * @return estimated bytes used by the store.
+	 */
+	public long estimateFootprintBytes() {
+		lock.readLock().lock();
+		try {
+			long bytes = 4L * (ids.length + employeeIds.length + loggedDays.length + detailsOffsets.length + detailsLengths.length);
+			bytes += detailsPool.length;
+			bytes += deletedRows.size() / 8;
+			for (IntArrayList employeeRows : rowsByEmployee.values()) {
+				bytes += employeeRows.capacityBytes() + 64;
+			}
+			for (IntArrayList team : employeesByManager.values()) {
+				bytes += team.capacityBytes() + 64;
+			}
+			return bytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Shrinks the columns and the byte pool to their used size, dropping deleted rows.
+	 */
+	public void trimToSize() {
+		lock.writeLock().lock();
+		try {
+			compact();
+			ids = Arrays.copyOf(ids, Math.max(1, rowCount));
+			employeeIds = Arrays.copyOf(employeeIds, Math.max(1, rowCount));
+			loggedDays = Arrays.copyOf(loggedDays, Math.max(1, rowCount));
+			detailsOffsets = Arrays.copyOf(detailsOffsets, Math.max(1, rowCount));
+			detailsLengths = Arrays.copyOf(detailsLengths, Math.max(1, rowCount));
+			detailsPool = Arrays.copyOf(detailsPool, Math.max(1, detailsPoolSize));
+			for (IntArrayList employeeRows : rowsByEmployee.values()) {
+				employeeRows.trimToSize();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void forEachPTLogUnderManagerInRange(int id, int startDay, int endDay, Consumer<PTLog> consumer) {
+		lock.readLock().lock();
+		try {
+			IntArrayList team = employeesByManager.get(id);
+			if (team == null) {
+				return;
+			}
+			// Merges the date sorted rows of every team member from the latest row backwards.
+			PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(1, team.size()),
+					(first, second) -> compareRows(second[0], first[0]));
+			for (int i = 0; i < team.size(); i++) {
+				IntArrayList employeeRows = rowsByEmployee.get(team.get(i));
+				if (employeeRows == null) {
+					continue;
+				}
+				int from = startDay == Integer.MIN_VALUE ? 0 : upperBound(employeeRows, startDay - 1, Integer.MAX_VALUE);
+				int to = upperBound(employeeRows, endDay, Integer.MAX_VALUE);
+				if (to > from) {
+					cursors.add(new int[]{employeeRows.get(to - 1), to - 1, from, team.get(i)});
+				}
+			}
+			while (!cursors.isEmpty()) {
+				int[] cursor = cursors.poll();
+				consumer.accept(read(cursor[0]));
+				if (cursor[1] > cursor[2]) {
+					cursor[1]--;
+					cursor[0] = rowsByEmployee.get(cursor[3]).get(cursor[1]);
+					cursors.add(cursor);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Creates the PTLog of a row. Only called under the lock.
+	 */
+	private PTLog read(int row) {
+		String details = detailsLengths[row] < 0 ? null :
+				new String(detailsPool, detailsOffsets[row], detailsLengths[row], StandardCharsets.UTF_8);
+		return new PTLog(ids[row], employeeIds[row], details, toDate(loggedDays[row]));
+	}
+
+	/**
+	 * @return position of the first row of the list ordered after (loggedDay, id).
+	 */
+	private int upperBound(IntArrayList employeeRows, int loggedDay, int id) {
+		int low = 0;
+		int high = employeeRows.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			int row = employeeRows.get(middle);
+			if (loggedDays[row] < loggedDay || (loggedDays[row] == loggedDay && ids[row] <= id)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int compareRows(int firstRow, int secondRow) {
+		int compare = Integer.compare(loggedDays[firstRow], loggedDays[secondRow]);
+		return compare != 0 ? compare : Integer.compare(ids[firstRow], ids[secondRow]);
+	}
+
+	/**
+	 * Moves live rows to the front of the columns and the byte pool and rebuilds the employee indexes. Only called
+	 * under the write lock.
+	 */
+	private void compact() {
+		if (deletedCount == 0) {
+			return;
+		}
+		int[] newRowOf = new int[rowCount];
+		int liveRows = 0;
+		int poolSize = 0;
+		for (int row = 0; row < rowCount; row++) {
+			if (deletedRows.get(row)) {
+				newRowOf[row] = -1;
+				continue;
+			}
+			ids[liveRows] = ids[row];
+			employeeIds[liveRows] = employeeIds[row];
+			loggedDays[liveRows] = loggedDays[row];
+			detailsLengths[liveRows] = detailsLengths[row];
+			if (detailsLengths[row] > 0) {
+				System.arraycopy(detailsPool, detailsOffsets[row], detailsPool, poolSize, detailsLengths[row]);
+			}
+			detailsOffsets[liveRows] = poolSize;
+			poolSize += Math.max(0, detailsLengths[row]);
+			newRowOf[row] = liveRows++;
+		}
+		for (IntArrayList employeeRows : rowsByEmployee.values()) {
+			for (int i = 0; i < employeeRows.size(); i++) {
+				employeeRows.set(i, newRowOf[employeeRows.get(i)]);
+			}
+		}
+		rowsByEmployee.values().removeIf(IntArrayList::isEmpty);
+		rowCount = liveRows;
+		detailsPoolSize = poolSize;
+		deletedRows.clear();
+		deletedCount = 0;
+	}
+
+	private void ensureRowCapacity(int capacity) {
+		if (capacity > ids.length) {
+			int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+			ids = Arrays.copyOf(ids, newCapacity);
+			employeeIds = Arrays.copyOf(employeeIds, newCapacity);
+			loggedDays = Arrays.copyOf(loggedDays, newCapacity);
+			detailsOffsets = Arrays.copyOf(detailsOffsets, newCapacity);
+			detailsLengths = Arrays.copyOf(detailsLengths, newCapacity);
+		}
+	}
+
+	private void ensurePoolCapacity(int capacity) {
+		if (capacity > detailsPool.length) {
+			detailsPool = Arrays.copyOf(detailsPool, Math.max(capacity, detailsPool.length + (detailsPool.length >> 1)));
+		}
+	}
+
+	private static int toDay(Date date) {
+		return (int) date.toLocalDate().toEpochDay();
+	}
+
+	private static Date toDate(int day) {
+		return Date.valueOf(LocalDate.ofEpochDay(day));
+	}
+}
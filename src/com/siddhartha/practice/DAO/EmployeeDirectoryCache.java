@@ -0,0 +1,224 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.Designation;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread safe cache of employee id to Designation. Entries expire after the time to live, and when the cache
+ * grows over its maximum size the oldest loaded entries are evicted in one pass down to 90% of the maximum size, which
+ * keeps the cost of eviction spread over many puts without a global LRU list.
+ *
+ * @author sid
+ */
+public final class EmployeeDirectoryCache {
+	private static final int TRIM_TARGET_PERCENT = 90;
+
+	private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+	private final int maxSize;
+	private final long ttlMillis;
+	private final AtomicBoolean evicting = new AtomicBoolean(false);
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param maxSize
+	 * 		maximum number of employees kept in the cache.
+	 * @param ttlMillis
+	 * 		time after which a cached employee is loaded again from the database.
+	 */
+	public EmployeeDirectoryCache(int maxSize, long ttlMillis) {
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlMillis;
+	}
+
+	/**
+	 * Fetches the designation of an employee.
+	 *
+	 * @param id
+	 * 		employee id.
+	 * @return designation of the employee, null if it is not cached or has expired.
+	 */
+	public Designation get(int id) {
+		Entry entry = entries.get(id);
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+		if (System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+			entries.remove(id, entry);
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return entry.designation;
+	}
+
+	/**
+	 * Stores the designation of an employee, replacing any cached value.
+	 *
+	 * @param id
+	 * 		employee id.
+	 * @param designation
+	 * 		designation of the employee.
+	 */
+	public void put(int id, Designation designation) {
+		put(id, designation, System.currentTimeMillis());
+	}
+
+	/**
+	 * Stores the designation of an employee read from the database earlier, replacing any cached value. It expires as
+	 * if it had been cached when it was read, and is not stored if it already has.
+	 *
+	 * @param id
+	 * 		employee id.
+	 * @param designation
+	 * 		designation of the employee.
+	 * @param loadedAt
+	 * 		time in milliseconds the designation was read from the database.
+	 */
+	public void put(int id, Designation designation, long loadedAt) {
+		if (maxSize <= 0 || System.currentTimeMillis() - loadedAt > ttlMillis) {
+			return;
+		}
+		entries.put(id, new Entry(designation, loadedAt));
+		if (entries.size() > maxSize) {
+			evictOverflow();
+		}
+	}
+
+	/**
+	 * Removes an employee from the cache.
+	 *
+	 * @param id
+	 * 		employee id.
+	 */
+	public void invalidate(int id) {
+		entries.remove(id);
+	}
+
+	/**
+	 * Removes all employees from the cache.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Hands every cached employee that has not expired to the consumer.
+	 *
+	 * @param consumer
+	 * 		receives the id, designation and time the designation was read from the database of each employee.
+	 */
+	public void forEach(EntryConsumer consumer) {
+		long now = System.currentTimeMillis();
+		entries.forEach((id, entry) -> {
+			if (now - entry.loadedAt <= ttlMillis) {
+				consumer.accept(id, entry.designation, entry.loadedAt);
+			}
+		});
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return share of lookups answered by the cache, between 0 and 1.
+	 */
+	public double getHitRatio() {
+		long hitCount = hits.sum();
+		long lookups = hitCount + misses.sum();
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+
+	private void evictOverflow() {
+		if (!evicting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			long now = System.currentTimeMillis();
+			entries.entrySet().removeIf(entry -> {
+				boolean expired = now - entry.getValue().loadedAt > ttlMillis;
+				if (expired) {
+					evictions.increment();
+				}
+				return expired;
+			});
+			int overflow = entries.size() - maxSize * TRIM_TARGET_PERCENT / 100;
+			if (overflow <= 0) {
+				return;
+			}
+			long[] loadedAts = new long[entries.size()];
+			int count = 0;
+			for (Entry entry : entries.values()) {
+				if (count == loadedAts.length) {
+					break;
+				}
+				loadedAts[count++] = entry.loadedAt;
+			}
+			if (count == 0) {
+				return;
+			}
+			Arrays.sort(loadedAts, 0, count);
+			long threshold = loadedAts[Math.min(overflow, count) - 1];
+			entries.entrySet().removeIf(entry -> {
+				boolean old = entry.getValue().loadedAt <= threshold;
+				if (old) {
+					evictions.increment();
+				}
+				return old;
+			});
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("EmployeeDirectoryCache{")
+				.append("size=").append(entries.size())
+				.append(", hits=").append(hits.sum())
+				.append(", misses=").append(misses.sum())
+				.append(", evictions=").append(evictions.sum())
+				.append(", hitRatio=").append(String.format("%.3f", getHitRatio()))
+				.append('}')
+				.toString();
+	}
+
+	/**
+	 * Receives the cached employees handed by forEach.
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer {
+		void accept(int id, Designation designation, long loadedAt);
+	}
+
+	private static final class Entry {
+		private final Designation designation;
+		private final long loadedAt;
+
+		private Entry(Designation designation, long loadedAt) {
+			this.designation = designation;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
@@ -0,0 +1,444 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.EmployeeFactory;
+import com.siddhartha.practice.Helpers.PageToken;
+import com.siddhartha.practice.Models.Designation;
+import com.siddhartha.practice.Models.Employee;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.Page;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Storage engine keeping employees, assignments and pt logs in concurrent in-memory maps, for edge and test deployments
+ * without a database and as a baseline to benchmark the database path against. Pt logs of each employee are indexed in
+ * a skip list ordered by (logged date, id), so range queries and pages are a sub map lookup. Teams of managers,
+ * direct and transitive, are resolved from a ManagerHierarchyIndex. Nothing is persisted.
+ *
+ * @author sid
+ */
+public final class InMemoryPTLogStorageEngine implements PTLogStorageEngine {
+	private final static int COMMAND_EXECUTION_RESULT_FAIL = 0;
+	private final static int COMMAND_EXECUTION_RESULT_SUCCESS = 1;
+
+	private final AtomicInteger employeeSequence = new AtomicInteger();
+	private final AtomicInteger ptLogSequence = new AtomicInteger();
+	private final ConcurrentSkipListMap<Integer, Employee> employees = new ConcurrentSkipListMap<>();
+	private final ConcurrentHashMap<Integer, ConcurrentSkipListMap<Long, PTLog>> ptLogsByEmployee = new ConcurrentHashMap<>();
+	private final ManagerHierarchyIndex managerHierarchy = new ManagerHierarchyIndex();
+
+	@Override
+	public int addEmployee(String name) {
+		Employee employee = EmployeeFactory.getEmployee(Designation.TeamMember);
+		employee.setId(employeeSequence.incrementAndGet());
+		employee.setName(name);
+		employees.put(employee.getId(), employee);
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public int addPTLog(PTLog ptLog) {
+		if (!checkEmployee(ptLog.getEmployeeId(), Designation.TeamMember, false)) {
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		insert(ptLog);
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public int[] addPTLogsBatch(Collection<PTLog> ptLogs, int batchSize) {
+		int[] results = new int[ptLogs.size()];
+		int row = 0;
+		for (PTLog ptLog : ptLogs) {
+			if (employees.containsKey(ptLog.getEmployeeId())) {
+				insert(ptLog);
+				results[row++] = COMMAND_EXECUTION_RESULT_SUCCESS;
+			} else {
+				System.out.println("Id " + ptLog.getEmployeeId() + " doesn't exists in database.");
+				results[row++] = COMMAND_EXECUTION_RESULT_FAIL;
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public int promoteToManager(int id) {
+		if (!checkEmployee(id, Designation.TeamMember, true)) {
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		employees.computeIfPresent(id, (key, employee) -> {
+			Employee manager = EmployeeFactory.getEmployee(Designation.Manager);
+			manager.setId(employee.getId());
+			manager.setName(employee.getName());
+			return manager;
+		});
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public int assignEmployeeToManager(int employeeId, int managerId) {
+		if (!(checkEmployee(employeeId, Designation.TeamMember, false) &&
+				checkEmployee(managerId, Designation.Manager, true))) {
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		if (!managerHierarchy.addAssignment(employeeId, managerId)) {
+			System.out.println("Assigning employee " + employeeId + " to manager " + managerId + " would create a reporting cycle.");
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public ArrayList<Employee> listEmployees() {
+		ArrayList<Employee> listEmployee = new ArrayList<>();
+		for (Employee employee : employees.values()) {
+			listEmployee.add(copyOf(employee));
+		}
+		return listEmployee;
+	}
+
+	@Override
+	public Page<Employee> listEmployeesPage(String pageToken, int pageSize) {
+		pageSize = Math.max(1, pageSize);
+		int lastId;
+		try {
+			lastId = pageToken == null ? Integer.MIN_VALUE : PageToken.decode(pageToken).getId();
+		} catch (IllegalArgumentException illegalArgumentException) {
+			System.out.println("Failed to fetch page of employees.\n" + illegalArgumentException.toString());
+			return null;
+		}
+		ArrayList<Employee> listEmployee = new ArrayList<>();
+		for (Employee employee : employees.tailMap(lastId, false).values()) {
+			if (listEmployee.size() == pageSize) {
+				return new Page<>(listEmployee, PageToken.encode(listEmployee.get(pageSize - 1).getId()));
+			}
+			listEmployee.add(copyOf(employee));
+		}
+		return new Page<>(listEmployee, null);
+	}
+
+	@Override
+	public int forEachPTLog(Consumer<PTLog> consumer) {
+		for (NavigableMap<Long, PTLog> ptLogs : ptLogsByEmployee.values()) {
+			for (PTLog ptLog : ptLogs.values()) {
+				consumer.accept(copyOf(ptLog));
+			}
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public int forEachPTLogInRange(Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		for (NavigableMap<Long, PTLog> ptLogs : ptLogsByEmployee.values()) {
+			for (PTLog ptLog : range(ptLogs, startDate, endDate).values()) {
+				consumer.accept(copyOf(ptLog));
+			}
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public int forEachPTLogAfter(int id, Consumer<PTLog> consumer) {
+		ArrayList<PTLog> found = new ArrayList<>();
+		for (NavigableMap<Long, PTLog> ptLogs : ptLogsByEmployee.values()) {
+			for (PTLog ptLog : ptLogs.values()) {
+				if (ptLog.getId() > id) {
+					found.add(ptLog);
+				}
+			}
+		}
+		found.sort(Comparator.comparingInt(PTLog::getId));
+		for (PTLog ptLog : found) {
+			consumer.accept(copyOf(ptLog));
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public long[] countPTLogsUpTo(int id) {
+		long count = 0;
+		long idSum = 0;
+		for (NavigableMap<Long, PTLog> ptLogs : ptLogsByEmployee.values()) {
+			for (PTLog ptLog : ptLogs.values()) {
+				if (ptLog.getId() <= id) {
+					count++;
+					idSum += ptLog.getId();
+				}
+			}
+		}
+		return new long[]{count, idSum};
+	}
+
+	@Override
+	public int forEachPTLogOfEmployee(int id, Consumer<PTLog> consumer) {
+		if (!checkEmployee(id, Designation.TeamMember, false)) {
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		NavigableMap<Long, PTLog> ptLogs = ptLogsByEmployee.get(id);
+		if (ptLogs != null) {
+			for (PTLog ptLog : ptLogs.values()) {
+				consumer.accept(copyOf(ptLog));
+			}
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public int forEachPTLogOfEmployeeInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		if (!checkEmployee(id, Designation.TeamMember, false)) {
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		NavigableMap<Long, PTLog> ptLogs = ptLogsByEmployee.get(id);
+		if (ptLogs != null) {
+			for (PTLog ptLog : range(ptLogs, startDate, endDate).descendingMap().values()) {
+				consumer.accept(copyOf(ptLog));
+			}
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public int forEachPTLogUnderManager(int id, Consumer<PTLog> consumer) {
+		if (!checkEmployee(id, Designation.Manager, true)) {
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		mergeDescending(teamLogs(id, null, null, null), Integer.MAX_VALUE, consumer);
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public int forEachPTLogUnderManagerInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		if (!checkEmployee(id, Designation.Manager, true)) {
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		mergeDescending(teamLogs(id, startDate, endDate, null), Integer.MAX_VALUE, consumer);
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public LinkedHashMap<Integer, ArrayList<PTLog>> listPTLogOfEmployeesInRange(Collection<Integer> ids,
+			Date startDate, Date endDate) {
+		LinkedHashMap<Integer, ArrayList<PTLog>> ptLogsById = new LinkedHashMap<>();
+		for (Integer id : ids) {
+			if (ptLogsById.containsKey(id) || !checkEmployee(id, Designation.TeamMember, false)) {
+				continue;
+			}
+			ArrayList<PTLog> listPTLog = new ArrayList<>();
+			NavigableMap<Long, PTLog> ptLogs = ptLogsByEmployee.get(id);
+			if (ptLogs != null) {
+				mergeDescending(List.of(restrict(ptLogs, startDate, endDate, null)), Integer.MAX_VALUE, listPTLog::add);
+			}
+			ptLogsById.put(id, listPTLog);
+		}
+		return ptLogsById;
+	}
+
+	@Override
+	public LinkedHashMap<Integer, ArrayList<PTLog>> listPTLogUnderManagersInRange(Collection<Integer> ids,
+			Date startDate, Date endDate) {
+		LinkedHashMap<Integer, ArrayList<PTLog>> ptLogsById = new LinkedHashMap<>();
+		for (Integer id : ids) {
+			if (ptLogsById.containsKey(id) || !checkEmployee(id, Designation.Manager, true)) {
+				continue;
+			}
+			ArrayList<PTLog> listPTLog = new ArrayList<>();
+			mergeDescending(teamLogs(id, startDate, endDate, null), Integer.MAX_VALUE, listPTLog::add);
+			ptLogsById.put(id, listPTLog);
+		}
+		return ptLogsById;
+	}
+
+	@Override
+	public Page<PTLog> listPTLogOfEmployeePage(int id, String pageToken, int pageSize) {
+		return ptLogPage(id, Designation.TeamMember, false, null, null, pageToken, pageSize);
+	}
+
+	@Override
+	public Page<PTLog> listPTLogOfEmployeeInRangePage(int id, Date startDate, Date endDate, String pageToken, int pageSize) {
+		return ptLogPage(id, Designation.TeamMember, false, startDate, endDate, pageToken, pageSize);
+	}
+
+	@Override
+	public Page<PTLog> listPTLogUnderManagerPage(int id, String pageToken, int pageSize) {
+		return ptLogPage(id, Designation.Manager, true, null, null, pageToken, pageSize);
+	}
+
+	@Override
+	public Page<PTLog> listPTLogUnderManagerInRangePage(int id, Date startDate, Date endDate, String pageToken, int pageSize) {
+		return ptLogPage(id, Designation.Manager, true, startDate, endDate, pageToken, pageSize);
+	}
+
+	@Override
+	public int deletePTLogOfEmployeeInRange(int id, Date startDate, Date endDate) {
+		NavigableMap<Long, PTLog> ptLogs = ptLogsByEmployee.get(id);
+		if (ptLogs != null) {
+			range(ptLogs, startDate, endDate).clear();
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public int dropPTLogsBefore(Date cutoff) {
+		for (ConcurrentSkipListMap<Long, PTLog> ptLogs : ptLogsByEmployee.values()) {
+			ptLogs.headMap(key(cutoff, 0), false).clear();
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	@Override
+	public Boolean checkEmployeeQuery(int id, Designation designation, Boolean checkDesignation) {
+		return checkEmployee(id, designation, checkDesignation);
+	}
+
+	@Override
+	public ManagerHierarchyIndex getManagerHierarchy() {
+		return managerHierarchy;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	private boolean checkEmployee(int id, Designation designation, Boolean checkDesignation) {
+		Employee employee = employees.get(id);
+		if (employee == null) {
+			System.out.println("Id doesn't exists in database.");
+			return false;
+		} else if (checkDesignation && employee.getDesignation() != designation) {
+			System.out.println("Employee entered is not of correct designation " + designation.name());
+			return false;
+		}
+		return true;
+	}
+
+	private void insert(PTLog ptLog) {
+		ptLog.setId(ptLogSequence.incrementAndGet());
+		ptLogsByEmployee.computeIfAbsent(ptLog.getEmployeeId(), key -> new ConcurrentSkipListMap<>())
+				.put(key(ptLog.getLoggedDate(), ptLog.getId()), copyOf(ptLog));
+	}
+
+	/**
+	 * Fetches one page of logs of an employee, or of the team of a manager when the designation is Manager.
+	 */
+	private Page<PTLog> ptLogPage(int id, Designation designation, Boolean checkDesignation, Date startDate, Date endDate,
+			String pageToken, int pageSize) {
+		pageSize = Math.max(1, pageSize);
+		Long beforeKey;
+		try {
+			PageToken position = pageToken == null ? null : PageToken.decode(pageToken);
+			beforeKey = position == null ? null : key(position.getLoggedDate(), position.getId());
+		} catch (IllegalArgumentException illegalArgumentException) {
+			System.out.println("Failed to fetch page of ptlogs.\n" + illegalArgumentException.toString());
+			return null;
+		}
+		if (!checkEmployee(id, designation, checkDesignation)) {
+			return null;
+		}
+		ArrayList<NavigableMap<Long, PTLog>> sources = new ArrayList<>();
+		if (designation == Designation.Manager) {
+			sources = teamLogs(id, startDate, endDate, beforeKey);
+		} else if (ptLogsByEmployee.containsKey(id)) {
+			sources.add(restrict(ptLogsByEmployee.get(id), startDate, endDate, beforeKey));
+		}
+		ArrayList<PTLog> listPTLog = new ArrayList<>();
+		mergeDescending(sources, pageSize + 1, listPTLog::add);
+		String nextPageToken = null;
+		if (listPTLog.size() > pageSize) {
+			listPTLog.remove(pageSize);
+			PTLog last = listPTLog.get(pageSize - 1);
+			nextPageToken = PageToken.encode(last.getLoggedDate(), last.getId());
+		}
+		return new Page<>(listPTLog, nextPageToken);
+	}
+
+	/**
+	 * Fetches the logs of every employee under the manager, directly or through other managers, restricted to the range
+	 * and to keys before beforeKey.
+	 */
+	private ArrayList<NavigableMap<Long, PTLog>> teamLogs(int managerId, Date startDate, Date endDate, Long beforeKey) {
+		ArrayList<NavigableMap<Long, PTLog>> sources = new ArrayList<>();
+		for (int employeeId : managerHierarchy.resolveTeam(managerId)) {
+			NavigableMap<Long, PTLog> ptLogs = ptLogsByEmployee.get(employeeId);
+			if (ptLogs != null) {
+				sources.add(restrict(ptLogs, startDate, endDate, beforeKey));
+			}
+		}
+		return sources;
+	}
+
+	private static NavigableMap<Long, PTLog> restrict(NavigableMap<Long, PTLog> ptLogs, Date startDate, Date endDate,
+			Long beforeKey) {
+		NavigableMap<Long, PTLog> restricted = startDate == null ? ptLogs : range(ptLogs, startDate, endDate);
+		return beforeKey == null ? restricted : restricted.headMap(beforeKey, false);
+	}
+
+	private static NavigableMap<Long, PTLog> range(NavigableMap<Long, PTLog> ptLogs, Date startDate, Date endDate) {
+		return ptLogs.subMap(key(startDate, 0), true, key(endDate, -1), true);
+	}
+
+	/**
+	 * Hands the logs of all sources to the consumer in descending order of (logged date, id), at most limit logs.
+	 */
+	private static void mergeDescending(Collection<NavigableMap<Long, PTLog>> sources, int limit, Consumer<PTLog> consumer) {
+		PriorityQueue<Cursor> cursors = new PriorityQueue<>(Math.max(1, sources.size()),
+				(first, second) -> Long.compare(second.current.getKey(), first.current.getKey()));
+		for (NavigableMap<Long, PTLog> source : sources) {
+			Cursor cursor = new Cursor(source.descendingMap().entrySet().iterator());
+			if (cursor.advance()) {
+				cursors.add(cursor);
+			}
+		}
+		for (int count = 0; count < limit && !cursors.isEmpty(); count++) {
+			Cursor cursor = cursors.poll();
+			consumer.accept(copyOf(cursor.current.getValue()));
+			if (cursor.advance()) {
+				cursors.add(cursor);
+			}
+		}
+	}
+
+	/**
+	 * Orders logs by logged date first and id second. Ids are compared as unsigned, so -1 is the highest id of a day.
+	 */
+	private static long key(Date loggedDate, int id) {
+		return (loggedDate.toLocalDate().toEpochDay() << 32) | (id & 0xffffffffL);
+	}
+
+	private static PTLog copyOf(PTLog ptLog) {
+		return new PTLog(ptLog.getId(), ptLog.getEmployeeId(), ptLog.getDetails(), ptLog.getLoggedDate());
+	}
+
+	private static Employee copyOf(Employee employee) {
+		Employee copy = EmployeeFactory.getEmployee(employee.getDesignation());
+		copy.setId(employee.getId());
+		copy.setName(employee.getName());
+		return copy;
+	}
+
+	private static final class Cursor {
+		private final Iterator<Map.Entry<Long, PTLog>> iterator;
+		private Map.Entry<Long, PTLog> current;
+
+		private Cursor(Iterator<Map.Entry<Long, PTLog>> iterator) {
+			this.iterator = iterator;
+		}
+
+		private boolean advance() {
+			current = iterator.hasNext() ? iterator.next() : null;
+			return current != null;
+		}
+	}
+}
@@ -0,0 +1,1627 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.*;
+import com.siddhartha.practice.Service.DBConnectionService;
+import com.siddhartha.practice.Service.PooledConnection;
+import com.siddhartha.practice.Service.PoolStats;
+import com.siddhartha.practice.Helpers.EmployeeFactory;
+import com.siddhartha.practice.Helpers.ExecutorFactory;
+import com.siddhartha.practice.Helpers.IntArrayList;
+import com.siddhartha.practice.Helpers.PageToken;
+import config.DatabaseConfig;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Storage engine running the operations of PTLogService as SQL queries on a MySQL database. Every operation borrows a
+ * connection from the pool of DBConnectionService and returns it once done, so operations can run in parallel from
+ * many threads. Statements are taken from the statement cache of the borrowed connection and must not be closed here,
+ * only their result sets. Listings hand every row to a consumer while it is read through a server side cursor, so
+ * memory use does not grow with the size of the result. Page variants use keyset pagination on (logged_date,
+ * ptlog_id), so fetching a deep page costs the same as fetching the first one. Employee checks are answered from an
+ * in-memory EmployeeDirectoryCache when possible, which is kept up to date by the operations changing employees.
+ * Teams of managers are resolved from a ManagerHierarchyIndex loaded from employee_managers, and their logs are read
+ * with one indexed emp_id in (...) lookup instead of joining employee_managers on every call. The schema is created
+ * and migrated on start by PTLogSchemaMigrator, with indexes matching these queries, and explainQueries reports any
+ * of them the database would still answer with a full scan. When
+ * DatabaseConfig.ptLogPartitioningEnabled is set, ptlogs is partitioned by month through PTLogPartitionManager, so date
+ * range queries only read the partitions of their range and retention drops whole partitions. Deletes run in chunks of
+ * DatabaseConfig.deleteChunkSize rows, each committed on its own, so they never hold row locks on a whole range.
+ *
+ * @author sid
+ */
+public final class JdbcPTLogStorageEngine implements PTLogStorageEngine {
+	private final EmployeeDirectoryCache employeeDirectory =
+			new EmployeeDirectoryCache(DatabaseConfig.employeeCacheSize, DatabaseConfig.employeeCacheTtlMillis);
+	private final ManagerHierarchyIndex managerHierarchy = new ManagerHierarchyIndex();
+	private final PTLogPartitionManager partitionManager = new PTLogPartitionManager();
+	private final ExecutorService bulkReadExecutor =
+			ExecutorFactory.newVirtualThreadExecutor("ptlog-bulk-read", DatabaseConfig.bulkReadParallelism);
+	private final static int COMMAND_EXECUTION_RESULT_FAIL = 0;
+	private final static int COMMAND_EXECUTION_RESULT_SUCCESS = 1;
+	private final static int EMPLOYEE_ID_CHECK_CHUNK_SIZE = 100;
+	private final static int TEAM_ID_MIN_BUCKET_SIZE = 8;
+	private final static int TEAM_ID_MAX_BUCKET_SIZE = 1024;
+	private final static Date FIRST_PAGE_LOGGED_DATE = Date.valueOf("9999-12-31");
+	private final static String PROMOTE_TO_MANAGER_QUERY = "UPDATE employees set designation = (?) where emp_id = (?)";
+	private final static String EMPLOYEE_PAGE_QUERY = "select * from employees where emp_id > (?) order by emp_id limit ?";
+	private final static String PTLOG_IN_RANGE_QUERY = "select * from ptlogs where logged_date >= (?) and logged_date <= (?) order by logged_date, ptlog_id";
+	private final static String PTLOG_AFTER_QUERY = "select * from ptlogs where ptlog_id > (?) order by ptlog_id";
+	private final static String PTLOG_COUNT_UP_TO_QUERY = "select count(*), coalesce(sum(ptlog_id), 0) from ptlogs where ptlog_id <= (?)";
+	private final static String PTLOG_OF_EMPLOYEE_QUERY = "select * from ptlogs where emp_id = (?) order by logged_date";
+	private final static String PTLOG_OF_EMPLOYEE_IN_RANGE_QUERY = "select * from ptlogs where emp_id = (?) and (logged_date >= (?) and logged_date <= (?)) order by logged_date desc";
+	private final static String PTLOG_PAGE_OF_EMPLOYEE_QUERY = "select p.* from ptlogs as p where p.emp_id = (?)";
+	private final static String PTLOG_PAGE_OF_EMPLOYEE_IN_RANGE_QUERY = "select p.* from ptlogs as p where p.emp_id = (?) and (p.logged_date >= (?) and p.logged_date <= (?))";
+	private final static String DELETE_PTLOG_OF_EMPLOYEE_IN_RANGE_QUERY = "delete from ptlogs where emp_id = (?) and (logged_date >= (?) and logged_date <= (?)) limit ?";
+	private final static String DELETE_PTLOGS_BEFORE_QUERY = "delete from ptlogs where logged_date < (?) limit ?";
+	private final static String EMPLOYEE_CHECK_QUERY = "select * from employees where emp_id = (?)";
+	private final static String EMPLOYEE_LOCK_QUERY = "select emp_id from employees where emp_id in (?,?) for update";
+	private final static String MANAGERS_OF_EMPLOYEE_LOCK_QUERY = "select mgr_id from employee_managers where emp_id = (?) for update";
+	private final static Comparator<PTLog> LATEST_FIRST = Comparator.comparing(PTLog::getLoggedDate)
+			.thenComparingInt(PTLog::getId).reversed();
+	private final static String TEAM_PTLOG_ORDER_CLAUSE = " order by p.logged_date desc, p.ptlog_id desc";
+	private final static String PTLOG_KEYSET_PAGE_CLAUSE = " and (p.logged_date < (?) or (p.logged_date = (?) and p.ptlog_id < (?)))" +
+			" order by p.logged_date desc, p.ptlog_id desc limit ?";
+
+	/**
+	 * Constructor class for JdbcPTLogStorageEngine. It makes sure the connection pool of DBConnectionService can reach
+	 * the database, migrates the schema to the latest version and partitions ptlogs by month when enabled and returns
+	 * the instance.
+	 */
+	public JdbcPTLogStorageEngine() throws RuntimeException {
+		try {
+			DBConnectionService.getPool();
+		} catch (RuntimeException runtimeException) {
+			System.out.println("Failed to fetch database connection.");
+			throw runtimeException;
+		}
+		if (DatabaseConfig.schemaMigrationsEnabled) {
+			migrateSchema();
+		}
+		if (DatabaseConfig.ptLogPartitioningEnabled) {
+			preparePartitions();
+		}
+	}
+
+	/**
+	 * Stops the threads of the engine. The connection pool of DBConnectionService is shared by the whole process and
+	 * is left open, it is closed when the application shuts down.
+	 */
+	@Override
+	public void close() throws RuntimeException {
+		bulkReadExecutor.shutdown();
+	}
+
+	/**
+	 * Adds new employee to the database. By default, the designation of the employee is TeamMember.
+	 *
+	 * @param name
+	 * 		name of the employee being added.
+	 * @return result of the data insertion in the database.
+	 */
+	@Override
+	public int addEmployee(String name) {
+		String query = "insert into employees (name,designation) values (?,?)";
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			PreparedStatement statement = pooledConnection.prepareStatementReturningKeys(query);
+			statement.setString(1, name);
+			statement.setString(2, String.valueOf(Designation.TeamMember));
+			statement.executeUpdate();
+			try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+				if (generatedKeys.next()) {
+					employeeDirectory.put(generatedKeys.getInt(1), Designation.TeamMember);
+				}
+			}
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to add Employee in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Adds Pt log by an employee.
+	 *
+	 * @param ptLog
+	 * 		log to add, its id is set to the generated id.
+	 * @return result of the data insertion in the database.
+	 */
+	@Override
+	public int addPTLog(PTLog ptLog) {
+		String query = "insert into ptlogs (emp_id, details, logged_date) values (?,?,?)";
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			if (!checkEmployeeQuery(pooledConnection, ptLog.getEmployeeId(), Designation.TeamMember, false)) {
+				return COMMAND_EXECUTION_RESULT_FAIL;
+			}
+			PreparedStatement statement = pooledConnection.prepareStatementReturningKeys(query);
+			statement.setInt(1, ptLog.getEmployeeId());
+			statement.setString(2, ptLog.getDetails());
+			statement.setDate(3, ptLog.getLoggedDate());
+			statement.executeUpdate();
+			try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+				if (generatedKeys.next()) {
+					ptLog.setId(generatedKeys.getInt(1));
+				}
+			}
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to add PTLog of Employee " + ptLog.getEmployeeId() + " in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Adds many Pt logs in a single transaction. Employee ids of all logs are checked with one set based query, then the
+	 * logs of existing employees are inserted in JDBC batches.
+	 *
+	 * @param ptLogs
+	 * 		logs to add, the id of each inserted log is set to the generated id. Ids are set back to 0 when the
+	 * 		transaction is rolled back.
+	 * @param batchSize
+	 * 		number of rows sent to the database per round trip.
+	 * @return result of each log in iteration order of ptLogs, or null if the transaction failed and nothing was added.
+	 */
+	@Override
+	public int[] addPTLogsBatch(Collection<PTLog> ptLogs, int batchSize) {
+		String query = "insert into ptlogs (emp_id, details, logged_date) values (?,?,?)";
+		int[] results = new int[ptLogs.size()];
+		if (ptLogs.isEmpty()) {
+			return results;
+		}
+		batchSize = Math.max(1, batchSize);
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			Set<Integer> requestedIds = new HashSet<>();
+			for (PTLog ptLog : ptLogs) {
+				requestedIds.add(ptLog.getEmployeeId());
+			}
+			Set<Integer> existingIds = findExistingEmployeeIds(pooledConnection, requestedIds);
+
+			Connection connection = pooledConnection.getConnection();
+			connection.setAutoCommit(false);
+			try {
+				PreparedStatement statement = pooledConnection.prepareStatementReturningKeys(query);
+				PTLog[] pending = new PTLog[batchSize];
+				int pendingCount = 0;
+				int row = 0;
+				for (PTLog ptLog : ptLogs) {
+					if (!existingIds.contains(ptLog.getEmployeeId())) {
+						System.out.println("Id " + ptLog.getEmployeeId() + " doesn't exists in database.");
+						results[row++] = COMMAND_EXECUTION_RESULT_FAIL;
+						continue;
+					}
+					statement.setInt(1, ptLog.getEmployeeId());
+					statement.setString(2, ptLog.getDetails());
+					statement.setDate(3, ptLog.getLoggedDate());
+					statement.addBatch();
+					pending[pendingCount++] = ptLog;
+					results[row++] = COMMAND_EXECUTION_RESULT_SUCCESS;
+					if (pendingCount == batchSize) {
+						executeBatch(statement, pending, pendingCount);
+						pendingCount = 0;
+					}
+				}
+				if (pendingCount > 0) {
+					executeBatch(statement, pending, pendingCount);
+				}
+				connection.commit();
+			} catch (SQLException sqlException) {
+				connection.rollback();
+				int row = 0;
+				for (PTLog ptLog : ptLogs) {
+					if (results[row++] == COMMAND_EXECUTION_RESULT_SUCCESS) {
+						ptLog.setId(0);
+					}
+				}
+				throw sqlException;
+			} finally {
+				connection.setAutoCommit(true);
+			}
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to add batch of " + ptLogs.size() + " PTLogs in database.\n" + sqlException.toString());
+			return null;
+		}
+		return results;
+	}
+
+	/**
+	 * Changes the Designation of employee from TeamMember to Manager.
+	 *
+	 * @param id
+	 * 		employee id to be promoted to manager.
+	 * @return result of the update query executed on the database.
+	 */
+	@Override
+	public int promoteToManager(int id) {
+		String query = PROMOTE_TO_MANAGER_QUERY;
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			if (!checkEmployeeQuery(pooledConnection, id, Designation.TeamMember, true)) {
+				return COMMAND_EXECUTION_RESULT_FAIL;
+			}
+			PreparedStatement statement = pooledConnection.prepareStatement(query);
+			statement.setString(1, String.valueOf(Designation.Manager));
+			statement.setInt(2, id);
+			statement.executeUpdate();
+			employeeDirectory.put(id, Designation.Manager);
+		} catch (SQLException sqlException) {
+			employeeDirectory.invalidate(id);
+			System.out.println("Failed to promote Employee to Manager in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Adds employee under manager. The employee may be a manager itself, unless the manager already reports to it. The
+	 * check and the insert run in one transaction holding the rows of both employees and every assignment above the
+	 * manager with select ... for update, so two concurrent assignments can not close a reporting cycle together.
+	 *
+	 * @param employeeId
+	 * 		employee id to be added under manager.
+	 * @param managerId
+	 * 		manager id under whom employee is added.
+	 * @return result of the insert query executed on the database.
+	 */
+	@Override
+	public int assignEmployeeToManager(int employeeId, int managerId) {
+		String query = "insert into employee_managers (emp_id,mgr_id) values (?,?)";
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			Connection connection = pooledConnection.getConnection();
+			connection.setAutoCommit(false);
+			boolean committed = false;
+			try {
+				PreparedStatement lockStatement = pooledConnection.prepareStatement(EMPLOYEE_LOCK_QUERY);
+				lockStatement.setInt(1, employeeId);
+				lockStatement.setInt(2, managerId);
+				lockStatement.executeQuery().close();
+				if (!(checkEmployeeQuery(pooledConnection, employeeId, Designation.TeamMember, false) &&
+						checkEmployeeQuery(pooledConnection, managerId, Designation.Manager, true))) {
+					return COMMAND_EXECUTION_RESULT_FAIL;
+				}
+				if (reportsToLocked(pooledConnection, managerId, employeeId)) {
+					System.out.println("Assigning employee " + employeeId + " to manager " + managerId + " would create a reporting cycle.");
+					return COMMAND_EXECUTION_RESULT_FAIL;
+				}
+				PreparedStatement statement = pooledConnection.prepareStatement(query);
+				statement.setInt(1, employeeId);
+				statement.setInt(2, managerId);
+				statement.executeUpdate();
+				connection.commit();
+				committed = true;
+			} finally {
+				if (!committed) {
+					connection.rollback();
+				}
+				connection.setAutoCommit(true);
+			}
+			managerHierarchy.addAssignment(employeeId, managerId);
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to assign Employee to manager in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Walks the assignments above an employee inside the current transaction, locking every employee_managers row it
+	 * reads and the index gap after it, so no assignment above the employee can be added until the transaction ends.
+	 *
+	 * @return true if the employee is the given manager or reports to it, directly or through other managers.
+	 */
+	private static boolean reportsToLocked(PooledConnection pooledConnection, int employeeId, int managerId)
+			throws SQLException {
+		PreparedStatement statement = pooledConnection.prepareStatement(MANAGERS_OF_EMPLOYEE_LOCK_QUERY);
+		HashSet<Integer> visited = new HashSet<>();
+		ArrayDeque<Integer> pending = new ArrayDeque<>();
+		pending.add(employeeId);
+		while (!pending.isEmpty()) {
+			int id = pending.poll();
+			if (id == managerId) {
+				return true;
+			}
+			if (!visited.add(id)) {
+				continue;
+			}
+			statement.setInt(1, id);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					pending.add(resultSet.getInt("mgr_id"));
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Fetches list of employees in database.
+	 *
+	 * @return list of employees.
+	 */
+	@Override
+	public ArrayList<Employee> listEmployees() {
+		String query = "select * from employees";
+		ArrayList<Employee> listEmployee = new ArrayList<>();
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			PreparedStatement statement = pooledConnection.prepareStatement(query);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					Employee employee = EmployeeFactory.getEmployee(Designation.valueOf(resultSet.getString("designation")));
+					employee.setId(resultSet.getInt("emp_id"));
+					employee.setName(resultSet.getString("name"));
+					employeeDirectory.put(employee.getId(), employee.getDesignation());
+					listEmployee.add(employee);
+				}
+			}
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to employees in database.\n" + sqlException.toString());
+		}
+		return listEmployee;
+	}
+
+	/**
+	 * Fetches one page of employees in database, in order of employee id.
+	 *
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of employees in the page.
+	 * @return page of employees, null if the token is invalid or the query failed.
+	 */
+	@Override
+	public Page<Employee> listEmployeesPage(String pageToken, int pageSize) {
+		String query = EMPLOYEE_PAGE_QUERY;
+		pageSize = Math.max(1, pageSize);
+		ArrayList<Employee> listEmployee = new ArrayList<>();
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			PreparedStatement statement = pooledConnection.prepareStatement(query);
+			statement.setInt(1, pageToken == null ? Integer.MIN_VALUE : PageToken.decode(pageToken).getId());
+			statement.setInt(2, pageSize + 1);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					Employee employee = EmployeeFactory.getEmployee(Designation.valueOf(resultSet.getString("designation")));
+					employee.setId(resultSet.getInt("emp_id"));
+					employee.setName(resultSet.getString("name"));
+					employeeDirectory.put(employee.getId(), employee.getDesignation());
+					listEmployee.add(employee);
+				}
+			}
+		} catch (SQLException | IllegalArgumentException exception) {
+			System.out.println("Failed to fetch page of employees in database.\n" + exception.toString());
+			return null;
+		}
+		String nextPageToken = null;
+		if (listEmployee.size() > pageSize) {
+			listEmployee.remove(pageSize);
+			nextPageToken = PageToken.encode(listEmployee.get(pageSize - 1).getId());
+		}
+		return new Page<>(listEmployee, nextPageToken);
+	}
+
+	/**
+	 * Streams every pt log in database to the consumer, in no particular order.
+	 *
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	@Override
+	public int forEachPTLog(Consumer<PTLog> consumer) {
+		String query = "select * from ptlogs";
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			streamPTLogs(pooledConnection, query, statement -> {
+			}, consumer);
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to fetch ptlogs in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Streams pt logs logged in a range of date in database to the consumer, in order of logged date read from the
+	 * logged_date index.
+	 *
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	@Override
+	public int forEachPTLogInRange(Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			streamPTLogs(pooledConnection, PTLOG_IN_RANGE_QUERY, statement -> {
+				statement.setDate(1, startDate);
+				statement.setDate(2, endDate);
+			}, consumer);
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to fetch ptlogs for a range of date in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Streams pt logs with an id greater than the given one in database to the consumer, in order of id read from the
+	 * primary key.
+	 *
+	 * @param id
+	 * 		id after which logs are fetched.
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	@Override
+	public int forEachPTLogAfter(int id, Consumer<PTLog> consumer) {
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			streamPTLogs(pooledConnection, PTLOG_AFTER_QUERY, statement -> statement.setInt(1, id), consumer);
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to fetch ptlogs in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Counts pt logs with an id up to the given one in database and sums their ids, reading a range of the primary
+	 * key.
+	 *
+	 * @param id
+	 * 		greatest id counted.
+	 * @return number of logs and sum of their ids, null if the query failed.
+	 */
+	@Override
+	public long[] countPTLogsUpTo(int id) {
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			PreparedStatement statement = pooledConnection.prepareStatement(PTLOG_COUNT_UP_TO_QUERY);
+			statement.setInt(1, id);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return new long[]{resultSet.getLong(1), resultSet.getLong(2)};
+			}
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to count ptlogs in database.\n" + sqlException.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Streams pt logs, logged by an employee in database, to the consumer in order of logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	@Override
+	public int forEachPTLogOfEmployee(int id, Consumer<PTLog> consumer) {
+		String query = PTLOG_OF_EMPLOYEE_QUERY;
+		try {
+			if (!queryPTLogs(query, id, Designation.TeamMember, false, statement -> statement.setInt(1, id), consumer)) {
+				return COMMAND_EXECUTION_RESULT_FAIL;
+			}
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to fetch ptlogs of employee in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Streams pt logs, logged by an employee in between a range of date in database, to the consumer in descending
+	 * order of logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	@Override
+	public int forEachPTLogOfEmployeeInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		String query = PTLOG_OF_EMPLOYEE_IN_RANGE_QUERY;
+		try {
+			if (!queryPTLogs(query, id, Designation.TeamMember, false, statement -> {
+				statement.setInt(1, id);
+				statement.setDate(2, startDate);
+				statement.setDate(3, endDate);
+			}, consumer)) {
+				return COMMAND_EXECUTION_RESULT_FAIL;
+			}
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to fetch ptlogs of employee for a range of date in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Streams pt logs, logged by all employees under a manager directly or through other managers in database, to the
+	 * consumer in descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	@Override
+	public int forEachPTLogUnderManager(int id, Consumer<PTLog> consumer) {
+		try {
+			if (!queryTeamPTLogs(id, null, null, consumer)) {
+				return COMMAND_EXECUTION_RESULT_FAIL;
+			}
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to fetch ptlogs of employees under manager in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Streams pt logs, logged by all employees under a manager directly or through other managers in a range of date in
+	 * database, to the consumer in descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		endDate end point of date range.
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	@Override
+	public int forEachPTLogUnderManagerInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		try {
+			if (!queryTeamPTLogs(id, startDate, endDate, consumer)) {
+				return COMMAND_EXECUTION_RESULT_FAIL;
+			}
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to fetch ptlogs of employees under manager for a range of date in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Fetches pt logs, logged by many employees in a range of date in database, grouped by employee in descending order
+	 * of logged date. The employees are checked together, then their logs are read in chunks of
+	 * DatabaseConfig.bulkReadChunkSize ids, running up to DatabaseConfig.bulkReadParallelism chunks at once, each on
+	 * its own connection of the pool.
+	 *
+	 * @param ids
+	 * 		employee ids whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range, null for no range.
+	 * @param endDate
+	 * 		end point of date range, null for no range.
+	 * @return logs of every employee found, in the order of ids, null if the query failed.
+	 */
+	@Override
+	public LinkedHashMap<Integer, ArrayList<PTLog>> listPTLogOfEmployeesInRange(Collection<Integer> ids,
+			Date startDate, Date endDate) {
+		return queryGroupedPTLogs(ids, false, startDate, endDate);
+	}
+
+	/**
+	 * Fetches pt logs, logged by all employees under many managers directly or through other managers in a range of
+	 * date in database, grouped by manager in descending order of logged date. The managers are checked together and
+	 * their teams resolved from the hierarchy index, then the logs of every member of any team are read once, like
+	 * the ones of listPTLogOfEmployeesInRange.
+	 *
+	 * @param ids
+	 * 		manager ids whose teams' logs are fetched.
+	 * @param startDate
+	 * 		start point of date range, null for no range.
+	 * @param endDate
+	 * 		end point of date range, null for no range.
+	 * @return logs of the team of every manager found, in the order of ids, null if the query failed.
+	 */
+	@Override
+	public LinkedHashMap<Integer, ArrayList<PTLog>> listPTLogUnderManagersInRange(Collection<Integer> ids,
+			Date startDate, Date endDate) {
+		return queryGroupedPTLogs(ids, true, startDate, endDate);
+	}
+
+	/**
+	 * Fetches one page of pt logs, logged by an employee in database, in descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the employee check, the token or the query failed.
+	 */
+	@Override
+	public Page<PTLog> listPTLogOfEmployeePage(int id, String pageToken, int pageSize) {
+		String query = PTLOG_PAGE_OF_EMPLOYEE_QUERY;
+		try {
+			return queryPTLogPage(query, id, Designation.TeamMember, false, statement -> {
+				statement.setInt(1, id);
+				return 2;
+			}, pageToken, pageSize);
+		} catch (SQLException | IllegalArgumentException exception) {
+			System.out.println("Failed to fetch page of ptlogs of employee in database.\n" + exception.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Fetches one page of pt logs, logged by an employee in between a range of date in database, in descending order of
+	 * logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the employee check, the token or the query failed.
+	 */
+	@Override
+	public Page<PTLog> listPTLogOfEmployeeInRangePage(int id, Date startDate, Date endDate, String pageToken, int pageSize) {
+		String query = PTLOG_PAGE_OF_EMPLOYEE_IN_RANGE_QUERY;
+		try {
+			return queryPTLogPage(query, id, Designation.TeamMember, false, statement -> {
+				statement.setInt(1, id);
+				statement.setDate(2, startDate);
+				statement.setDate(3, endDate);
+				return 4;
+			}, pageToken, pageSize);
+		} catch (SQLException | IllegalArgumentException exception) {
+			System.out.println("Failed to fetch page of ptlogs of employee for a range of date in database.\n" + exception.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Fetches one page of pt logs, logged by all employees under a manager directly or through other managers in
+	 * database, in descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the manager check, the token or the query failed.
+	 */
+	@Override
+	public Page<PTLog> listPTLogUnderManagerPage(int id, String pageToken, int pageSize) {
+		try {
+			return queryTeamPTLogPage(id, null, null, pageToken, pageSize);
+		} catch (SQLException | IllegalArgumentException exception) {
+			System.out.println("Failed to fetch page of ptlogs of employees under manager in database.\n" + exception.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Fetches one page of pt logs, logged by all employees under a manager directly or through other managers in a range
+	 * of date in database, in descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		endDate end point of date range.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the manager check, the token or the query failed.
+	 */
+	@Override
+	public Page<PTLog> listPTLogUnderManagerInRangePage(int id, Date startDate, Date endDate, String pageToken, int pageSize) {
+		try {
+			return queryTeamPTLogPage(id, startDate, endDate, pageToken, pageSize);
+		} catch (SQLException | IllegalArgumentException exception) {
+			System.out.println("Failed to fetch page of ptlogs of employees under manager for a range of date in database.\n" + exception.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Deletes pt logs logged by an employee in a range of date in database. Rows are deleted through the (emp_id,
+	 * logged_date) index in chunks, each committed on its own.
+	 *
+	 * @param id
+	 * 		employee id whose logs are deleted.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		endDate end point of date range.
+	 * @return result of delete query executed on database.
+	 */
+	@Override
+	public int deletePTLogOfEmployeeInRange(int id, Date startDate, Date endDate) {
+		String query = DELETE_PTLOG_OF_EMPLOYEE_IN_RANGE_QUERY;
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			deleteInChunks(pooledConnection, query, statement -> {
+				statement.setInt(1, id);
+				statement.setDate(2, startDate);
+				statement.setDate(3, endDate);
+				return 4;
+			});
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to delete ptlogs of employee for a range of date in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+
+	/**
+	 * Deletes pt logs logged before a date in database. When ptlogs is partitioned, partitions holding only older logs
+	 * are dropped and the older logs left in the partition of the cutoff are deleted in chunks, otherwise all older
+	 * logs are deleted in chunks.
+	 *
+	 * @param cutoff
+	 * 		first logged date of the logs kept.
+	 * @return result of the deletion executed on database.
+	 */
+	@Override
+	public int dropPTLogsBefore(Date cutoff) {
+		String query = DELETE_PTLOGS_BEFORE_QUERY;
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			if (partitionManager.isPartitioned(pooledConnection)) {
+				partitionManager.dropPartitionsBefore(pooledConnection, cutoff.toLocalDate());
+				partitionManager.ensurePartitionsThrough(pooledConnection,
+						LocalDate.now().plusMonths(DatabaseConfig.ptLogPartitionMonthsAhead));
+			}
+			deleteInChunks(pooledConnection, query, statement -> {
+				statement.setDate(1, cutoff);
+				return 2;
+			});
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to drop ptlogs before " + cutoff + " in database.\n" + sqlException.toString());
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Checks if the Employee id exists in the database or not. Also checks the designation of employee when needed and
+	 * compare with designation required.
+	 *
+	 * @param id
+	 * 		Employee id to check whether exists in database.
+	 * @param designation
+	 * 		required designation to compare with required employee designation from database.
+	 * @param checkDesignation
+	 * 		signal to compare or skip designation check of employee.
+	 * @return Status that the given employee id satisfies all the checks.
+	 * @throws SQLException
+	 */
+	@Override
+	public Boolean checkEmployeeQuery(int id, Designation designation, Boolean checkDesignation) throws SQLException {
+		Designation cachedDesignation = employeeDirectory.get(id);
+		if (cachedDesignation != null) {
+			return matchesDesignation(cachedDesignation, designation, checkDesignation);
+		}
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			return checkEmployeeQuery(pooledConnection, id, designation, checkDesignation);
+		}
+	}
+
+	@Override
+	public PoolStats getPoolStats() {
+		return DBConnectionService.getPoolStats();
+	}
+
+	@Override
+	public EmployeeDirectoryCache getEmployeeDirectory() {
+		return employeeDirectory;
+	}
+
+	/**
+	 * @return index of the employee to manager assignments, loaded again from employee_managers first when it is
+	 * stale.
+	 */
+	@Override
+	public ManagerHierarchyIndex getManagerHierarchy() {
+		if (System.currentTimeMillis() - managerHierarchy.getLoadedAt() > DatabaseConfig.managerHierarchyRefreshMillis) {
+			try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+				refreshManagerHierarchy(pooledConnection);
+			} catch (SQLException sqlException) {
+				System.out.println("Failed to load manager hierarchy from database.\n" + sqlException.toString());
+			}
+		}
+		return managerHierarchy;
+	}
+
+	/**
+	 * Restores the hierarchy index from a copy when it was loaded after the index of the engine and is not stale yet.
+	 */
+	@Override
+	public void restoreManagerHierarchy(IntArrayList employeeIds, IntArrayList managerIds, long loadedAt) {
+		synchronized (managerHierarchy) {
+			if (loadedAt > managerHierarchy.getLoadedAt() &&
+					System.currentTimeMillis() - loadedAt <= DatabaseConfig.managerHierarchyRefreshMillis) {
+				managerHierarchy.load(employeeIds, managerIds, loadedAt);
+			}
+		}
+	}
+
+	/**
+	 * Fetches the plan the database chose for every query filtering rows, bound to sample parameters, and flags the
+	 * queries falling back to a full scan. Listings of whole tables read every row by design and are not checked.
+	 *
+	 * @return plan of every table read by each query, null if the database could not be reached.
+	 */
+	@Override
+	public ArrayList<QueryPlan> explainQueries() {
+		Date endDate = Date.valueOf(LocalDate.now());
+		Date startDate = Date.valueOf(LocalDate.now().minusMonths(1));
+		int[] team = {1};
+		ArrayList<QueryPlan> plans = new ArrayList<>();
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			explain(pooledConnection, plans, "promoteToManager", PROMOTE_TO_MANAGER_QUERY, statement -> {
+				statement.setString(1, String.valueOf(Designation.Manager));
+				statement.setInt(2, 1);
+				return 3;
+			});
+			explain(pooledConnection, plans, "listEmployeesPage", EMPLOYEE_PAGE_QUERY, statement -> {
+				statement.setInt(1, 0);
+				statement.setInt(2, 100);
+				return 3;
+			});
+			explain(pooledConnection, plans, "checkEmployeeQuery", EMPLOYEE_CHECK_QUERY, statement -> {
+				statement.setInt(1, 1);
+				return 2;
+			});
+			explain(pooledConnection, plans, "addPTLogsBatch", employeeIdCheckQuery(), statement -> {
+				for (int i = 1; i <= EMPLOYEE_ID_CHECK_CHUNK_SIZE; i++) {
+					statement.setInt(i, i);
+				}
+				return EMPLOYEE_ID_CHECK_CHUNK_SIZE + 1;
+			});
+			explain(pooledConnection, plans, "forEachPTLogInRange", PTLOG_IN_RANGE_QUERY, statement -> {
+				statement.setDate(1, startDate);
+				statement.setDate(2, endDate);
+				return 3;
+			});
+			explain(pooledConnection, plans, "forEachPTLogAfter", PTLOG_AFTER_QUERY, statement -> {
+				statement.setInt(1, Integer.MAX_VALUE - 1);
+				return 2;
+			});
+			explain(pooledConnection, plans, "countPTLogsUpTo", PTLOG_COUNT_UP_TO_QUERY, statement -> {
+				statement.setInt(1, 1);
+				return 2;
+			});
+			explain(pooledConnection, plans, "forEachPTLogOfEmployee", PTLOG_OF_EMPLOYEE_QUERY, statement -> {
+				statement.setInt(1, 1);
+				return 2;
+			});
+			explain(pooledConnection, plans, "forEachPTLogOfEmployeeInRange", PTLOG_OF_EMPLOYEE_IN_RANGE_QUERY,
+					statement -> bindEmployeeInRange(statement, startDate, endDate));
+			explain(pooledConnection, plans, "forEachPTLogUnderManager", teamPTLogQuery(team.length, false) +
+					TEAM_PTLOG_ORDER_CLAUSE, statement -> bindTeam(statement, team, null, null));
+			explain(pooledConnection, plans, "forEachPTLogUnderManagerInRange", teamPTLogQuery(team.length, true) +
+					TEAM_PTLOG_ORDER_CLAUSE, statement -> bindTeam(statement, team, startDate, endDate));
+			explain(pooledConnection, plans, "listPTLogOfEmployeePage", PTLOG_PAGE_OF_EMPLOYEE_QUERY +
+					PTLOG_KEYSET_PAGE_CLAUSE, statement -> {
+				statement.setInt(1, 1);
+				return bindFirstPage(statement, 2);
+			});
+			explain(pooledConnection, plans, "listPTLogOfEmployeeInRangePage", PTLOG_PAGE_OF_EMPLOYEE_IN_RANGE_QUERY +
+					PTLOG_KEYSET_PAGE_CLAUSE, statement -> bindFirstPage(statement,
+					bindEmployeeInRange(statement, startDate, endDate)));
+			explain(pooledConnection, plans, "listPTLogUnderManagerPage", teamPTLogQuery(team.length, false) +
+					PTLOG_KEYSET_PAGE_CLAUSE, statement -> bindFirstPage(statement,
+					bindTeam(statement, team, null, null)));
+			explain(pooledConnection, plans, "listPTLogUnderManagerInRangePage", teamPTLogQuery(team.length, true) +
+					PTLOG_KEYSET_PAGE_CLAUSE, statement -> bindFirstPage(statement,
+					bindTeam(statement, team, startDate, endDate)));
+			explain(pooledConnection, plans, "deletePTLogOfEmployeeInRange", DELETE_PTLOG_OF_EMPLOYEE_IN_RANGE_QUERY,
+					statement -> {
+						int parameterIndex = bindEmployeeInRange(statement, startDate, endDate);
+						statement.setInt(parameterIndex, DatabaseConfig.deleteChunkSize);
+						return parameterIndex + 1;
+					});
+			explain(pooledConnection, plans, "dropPTLogsBefore", DELETE_PTLOGS_BEFORE_QUERY, statement -> {
+				statement.setDate(1, startDate);
+				statement.setInt(2, DatabaseConfig.deleteChunkSize);
+				return 3;
+			});
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to explain queries in database.\n" + sqlException.toString());
+			return null;
+		}
+		return plans;
+	}
+
+	/**
+	 * Brings the schema to the latest migration. A failure stops the engine from starting, as its queries would fail
+	 * on a schema they do not match.
+	 */
+	private void migrateSchema() throws RuntimeException {
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			new PTLogSchemaMigrator().migrate(pooledConnection);
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to migrate database schema.\n" + sqlException.toString());
+			throw new RuntimeException(sqlException);
+		}
+	}
+
+	/**
+	 * Runs EXPLAIN on a query and adds the plan of every table it reads. A table read without index, or through a
+	 * whole index, is flagged as a full scan.
+	 */
+	private static void explain(PooledConnection pooledConnection, ArrayList<QueryPlan> plans, String operation,
+			String query, PageStatementBinder binder) throws SQLException {
+		PreparedStatement statement = pooledConnection.prepareStatement("explain " + query);
+		binder.bind(statement);
+		try (ResultSet resultSet = statement.executeQuery()) {
+			while (resultSet.next()) {
+				String accessType = resultSet.getString("type");
+				plans.add(new QueryPlan(operation, resultSet.getString("table"), accessType,
+						resultSet.getString("key"), resultSet.getLong("rows"),
+						"ALL".equals(accessType) || "index".equals(accessType)));
+			}
+		}
+	}
+
+	/**
+	 * Binds an employee id and a date range.
+	 *
+	 * @return index of the first parameter left.
+	 */
+	private static int bindEmployeeInRange(PreparedStatement statement, Date startDate, Date endDate)
+			throws SQLException {
+		statement.setInt(1, 1);
+		statement.setDate(2, startDate);
+		statement.setDate(3, endDate);
+		return 4;
+	}
+
+	/**
+	 * Binds the keyset clause to the start of the first page.
+	 *
+	 * @return index of the first parameter left.
+	 */
+	private static int bindFirstPage(PreparedStatement statement, int parameterIndex) throws SQLException {
+		statement.setDate(parameterIndex++, FIRST_PAGE_LOGGED_DATE);
+		statement.setDate(parameterIndex++, FIRST_PAGE_LOGGED_DATE);
+		statement.setInt(parameterIndex++, Integer.MAX_VALUE);
+		statement.setInt(parameterIndex++, 100);
+		return parameterIndex;
+	}
+
+	/**
+	 * Partitions ptlogs by month if it is not yet, or adds the partitions of the coming months. Each change is a single
+	 * alter table, so a failure is reported and leaves the table as the last completed change left it. Queries and
+	 * deletes work the same on an unpartitioned table.
+	 */
+	private void preparePartitions() {
+		LocalDate lastMonth = LocalDate.now().plusMonths(DatabaseConfig.ptLogPartitionMonthsAhead);
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			if (partitionManager.isPartitioned(pooledConnection)) {
+				partitionManager.ensurePartitionsThrough(pooledConnection, lastMonth);
+			} else {
+				partitionManager.partitionTable(pooledConnection, lastMonth);
+			}
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to partition ptlogs in database.\n" + sqlException.toString());
+		}
+	}
+
+	/**
+	 * Runs a delete statement ending in "limit ?" until it deletes fewer rows than a chunk. The connection is in auto
+	 * commit, so every chunk is its own short transaction.
+	 *
+	 * @return number of rows deleted.
+	 */
+	private static long deleteInChunks(PooledConnection pooledConnection, String query, PageStatementBinder binder)
+			throws SQLException {
+		int chunkSize = Math.max(1, DatabaseConfig.deleteChunkSize);
+		PreparedStatement statement = pooledConnection.prepareStatement(query);
+		long deletedCount = 0;
+		int deleted;
+		do {
+			statement.setInt(binder.bind(statement), chunkSize);
+			deleted = statement.executeUpdate();
+			deletedCount += deleted;
+		} while (deleted == chunkSize);
+		return deletedCount;
+	}
+
+	/**
+	 * Runs the employee check on a connection already borrowed by the calling operation, so an operation never holds
+	 * two connections of the pool at once. The database is only queried when the employee is not cached.
+	 */
+	private Boolean checkEmployeeQuery(PooledConnection pooledConnection, int id, Designation designation,
+			Boolean checkDesignation) throws SQLException {
+		Designation employeeDesignation = employeeDirectory.get(id);
+		if (employeeDesignation == null) {
+			String checkQuery = EMPLOYEE_CHECK_QUERY;
+			PreparedStatement statement = pooledConnection.prepareStatement(checkQuery);
+			statement.setInt(1, id);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				if (!resultSet.next()) {
+					System.out.println("Id doesn't exists in database.");
+					return false;
+				}
+				employeeDesignation = Designation.valueOf(resultSet.getString("designation"));
+			}
+			employeeDirectory.put(id, employeeDesignation);
+		}
+		return matchesDesignation(employeeDesignation, designation, checkDesignation);
+	}
+
+	private static Boolean matchesDesignation(Designation employeeDesignation, Designation designation,
+			Boolean checkDesignation) {
+		if (checkDesignation && employeeDesignation != designation) {
+			System.out.println("Employee entered is not of correct designation " + designation.name());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Fetches which of the given employee ids exist.
+	 */
+	private Set<Integer> findExistingEmployeeIds(PooledConnection pooledConnection, Set<Integer> ids) throws SQLException {
+		return findEmployeeDesignations(pooledConnection, ids).keySet();
+	}
+
+	/**
+	 * Fetches the designation of the given employees that exist. Ids found in the employee directory cache are not
+	 * queried, the rest are checked in chunks of fixed size, padding the last chunk with a repeated id, so every chunk
+	 * reuses the same cached statement.
+	 */
+	private HashMap<Integer, Designation> findEmployeeDesignations(PooledConnection pooledConnection, Set<Integer> ids)
+			throws SQLException {
+		HashMap<Integer, Designation> designations = new HashMap<>();
+		ArrayList<Integer> uncachedIds = new ArrayList<>();
+		for (Integer id : ids) {
+			Designation designation = employeeDirectory.get(id);
+			if (designation != null) {
+				designations.put(id, designation);
+			} else {
+				uncachedIds.add(id);
+			}
+		}
+		if (uncachedIds.isEmpty()) {
+			return designations;
+		}
+
+		PreparedStatement statement = pooledConnection.prepareStatement(employeeIdCheckQuery());
+		for (int chunkStart = 0; chunkStart < uncachedIds.size(); chunkStart += EMPLOYEE_ID_CHECK_CHUNK_SIZE) {
+			for (int i = 0; i < EMPLOYEE_ID_CHECK_CHUNK_SIZE; i++) {
+				int index = Math.min(chunkStart + i, uncachedIds.size() - 1);
+				statement.setInt(i + 1, uncachedIds.get(index));
+			}
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					int id = resultSet.getInt("emp_id");
+					Designation designation = Designation.valueOf(resultSet.getString("designation"));
+					employeeDirectory.put(id, designation);
+					designations.put(id, designation);
+				}
+			}
+		}
+		return designations;
+	}
+
+	/**
+	 * Builds the query checking a chunk of employee ids.
+	 */
+	private static String employeeIdCheckQuery() {
+		StringBuilder query = new StringBuilder("select emp_id, designation from employees where emp_id in (?");
+		for (int i = 1; i < EMPLOYEE_ID_CHECK_CHUNK_SIZE; i++) {
+			query.append(",?");
+		}
+		return query.append(')').toString();
+	}
+
+	/**
+	 * Sends the pending batch and sets the generated ids on the pending logs.
+	 */
+	private static void executeBatch(PreparedStatement statement, PTLog[] pending, int pendingCount) throws SQLException {
+		statement.executeBatch();
+		try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+			for (int i = 0; i < pendingCount && generatedKeys.next(); i++) {
+				pending[i].setId(generatedKeys.getInt(1));
+			}
+		}
+	}
+
+	/**
+	 * Runs a ptlogs query after checking the employee and hands every row to the consumer while it is read.
+	 *
+	 * @return false if the employee check failed and the query was not run.
+	 */
+	private boolean queryPTLogs(String query, int employeeId, Designation designation, Boolean checkDesignation,
+			StatementBinder binder, Consumer<PTLog> consumer) throws SQLException {
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			if (!checkEmployeeQuery(pooledConnection, employeeId, designation, checkDesignation)) {
+				return false;
+			}
+			streamPTLogs(pooledConnection, query, binder, consumer);
+		}
+		return true;
+	}
+
+	/**
+	 * Streams the logs of every employee under the manager, directly or through other managers, after checking the
+	 * manager. The team is resolved from the hierarchy index and its logs are read with one emp_id in (...) lookup,
+	 * without running any query when the team is empty. Teams larger than TEAM_ID_MAX_BUCKET_SIZE are read in chunks
+	 * merged by streamTeamChunks.
+	 *
+	 * @return false if the manager check failed and the query was not run.
+	 */
+	private boolean queryTeamPTLogs(int managerId, Date startDate, Date endDate, Consumer<PTLog> consumer)
+			throws SQLException {
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			if (!checkEmployeeQuery(pooledConnection, managerId, Designation.Manager, true)) {
+				return false;
+			}
+			int[] team = resolveTeam(pooledConnection, managerId);
+			if (team.length == 0) {
+				return true;
+			}
+			if (team.length > TEAM_ID_MAX_BUCKET_SIZE) {
+				streamTeamChunks(pooledConnection, team, startDate, endDate, consumer);
+				return true;
+			}
+			String query = teamPTLogQuery(team.length, startDate != null) + TEAM_PTLOG_ORDER_CLAUSE;
+			streamPTLogs(pooledConnection, query, statement -> bindTeam(statement, team, startDate, endDate), consumer);
+		}
+		return true;
+	}
+
+	/**
+	 * Streams the logs of a team too large for one emp_id in (...) lookup, latest first. Each chunk of the team is
+	 * read in keyset pages of DatabaseConfig.fetchSize rows, and the heads of the chunks are merged so the rows come
+	 * in the same order as a single query. Only one query is open on the connection at a time.
+	 */
+	private static void streamTeamChunks(PooledConnection pooledConnection, int[] team, Date startDate, Date endDate,
+			Consumer<PTLog> consumer) throws SQLException {
+		int pageSize = Math.max(1, DatabaseConfig.fetchSize);
+		PriorityQueue<TeamChunkCursor> cursors =
+				new PriorityQueue<>(Comparator.comparing(TeamChunkCursor::head, LATEST_FIRST));
+		for (int[] chunk : teamChunks(team)) {
+			TeamChunkCursor cursor = new TeamChunkCursor(chunk);
+			if (cursor.fill(pooledConnection, startDate, endDate, pageSize)) {
+				cursors.add(cursor);
+			}
+		}
+		while (!cursors.isEmpty()) {
+			TeamChunkCursor cursor = cursors.poll();
+			consumer.accept(cursor.next());
+			if (cursor.fill(pooledConnection, startDate, endDate, pageSize)) {
+				cursors.add(cursor);
+			}
+		}
+	}
+
+	/**
+	 * Fetches the logs of many employees, or of the teams of many managers, grouped by requested id. The ids are
+	 * checked on one connection, released before the logs are read by readPTLogsInChunks, so the call never holds two
+	 * connections of the pool at once.
+	 *
+	 * @return logs of every id found, null if a query failed.
+	 */
+	private LinkedHashMap<Integer, ArrayList<PTLog>> queryGroupedPTLogs(Collection<Integer> ids, boolean managers,
+			Date startDate, Date endDate) {
+		LinkedHashMap<Integer, int[]> membersById = new LinkedHashMap<>();
+		HashSet<Integer> memberIds = new HashSet<>();
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			HashMap<Integer, Designation> designations = findEmployeeDesignations(pooledConnection, new HashSet<>(ids));
+			for (Integer id : ids) {
+				Designation designation = designations.get(id);
+				if (designation == null) {
+					System.out.println("Id " + id + " doesn't exists in database.");
+				} else if (managers && !matchesDesignation(designation, Designation.Manager, true)) {
+					continue;
+				} else if (!membersById.containsKey(id)) {
+					int[] members = managers ? resolveTeam(pooledConnection, id) : new int[]{id};
+					membersById.put(id, members);
+					for (int member : members) {
+						memberIds.add(member);
+					}
+				}
+			}
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to check employees in database.\n" + sqlException.toString());
+			return null;
+		}
+
+		HashMap<Integer, ArrayList<PTLog>> ptLogsByEmployee = readPTLogsInChunks(memberIds, startDate, endDate);
+		if (ptLogsByEmployee == null) {
+			return null;
+		}
+		LinkedHashMap<Integer, ArrayList<PTLog>> ptLogsById = new LinkedHashMap<>();
+		for (Map.Entry<Integer, int[]> entry : membersById.entrySet()) {
+			ArrayList<PTLog> listPTLog = new ArrayList<>();
+			for (int member : entry.getValue()) {
+				listPTLog.addAll(ptLogsByEmployee.getOrDefault(member, new ArrayList<>()));
+			}
+			if (managers) {
+				listPTLog.sort(LATEST_FIRST);
+			}
+			ptLogsById.put(entry.getKey(), listPTLog);
+		}
+		return ptLogsById;
+	}
+
+	/**
+	 * Reads the logs of the given employees, grouped by employee in descending order of logged date. The ids are split
+	 * in chunks of DatabaseConfig.bulkReadChunkSize read with one emp_id in (...) lookup each, by up to
+	 * DatabaseConfig.bulkReadParallelism workers taking the next chunk left, the calling thread being one of them.
+	 * Every chunk borrows a connection of the pool for its query only.
+	 *
+	 * @return logs of the employees having any, null if a query failed.
+	 */
+	private HashMap<Integer, ArrayList<PTLog>> readPTLogsInChunks(Set<Integer> employeeIds, Date startDate,
+			Date endDate) {
+		int[] ids = employeeIds.stream().mapToInt(Integer::intValue).sorted().toArray();
+		int chunkSize = Math.min(TEAM_ID_MAX_BUCKET_SIZE, Math.max(1, DatabaseConfig.bulkReadChunkSize));
+		int chunkCount = (ids.length + chunkSize - 1) / chunkSize;
+		AtomicInteger nextChunk = new AtomicInteger();
+		Callable<HashMap<Integer, ArrayList<PTLog>>> worker = () -> {
+			HashMap<Integer, ArrayList<PTLog>> ptLogsByEmployee = new HashMap<>();
+			try {
+				for (int chunk = nextChunk.getAndIncrement(); chunk < chunkCount; chunk = nextChunk.getAndIncrement()) {
+					int[] chunkIds = Arrays.copyOfRange(ids, chunk * chunkSize,
+							Math.min(ids.length, (chunk + 1) * chunkSize));
+					String query = teamPTLogQuery(chunkIds.length, startDate != null) + TEAM_PTLOG_ORDER_CLAUSE;
+					try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+						streamPTLogs(pooledConnection, query,
+								statement -> bindTeam(statement, chunkIds, startDate, endDate),
+								ptLog -> ptLogsByEmployee.computeIfAbsent(ptLog.getEmployeeId(),
+										key -> new ArrayList<>()).add(ptLog));
+					}
+				}
+			} catch (SQLException | RuntimeException exception) {
+				nextChunk.set(chunkCount);
+				throw exception;
+			}
+			return ptLogsByEmployee;
+		};
+
+		ArrayList<Future<HashMap<Integer, ArrayList<PTLog>>>> helpers = new ArrayList<>();
+		int helperCount = Math.min(chunkCount, Math.max(1, DatabaseConfig.bulkReadParallelism)) - 1;
+		for (int i = 0; i < helperCount; i++) {
+			helpers.add(bulkReadExecutor.submit(worker));
+		}
+		HashMap<Integer, ArrayList<PTLog>> ptLogsByEmployee = null;
+		Exception failure = null;
+		try {
+			ptLogsByEmployee = worker.call();
+		} catch (Exception exception) {
+			failure = exception;
+		}
+		for (Future<HashMap<Integer, ArrayList<PTLog>>> helper : helpers) {
+			try {
+				HashMap<Integer, ArrayList<PTLog>> helperPTLogs = helper.get();
+				if (ptLogsByEmployee != null) {
+					ptLogsByEmployee.putAll(helperPTLogs);
+				}
+			} catch (ExecutionException executionException) {
+				failure = failure == null && executionException.getCause() instanceof Exception
+						? (Exception) executionException.getCause() : failure;
+			} catch (InterruptedException interruptedException) {
+				Thread.currentThread().interrupt();
+				failure = interruptedException;
+			}
+		}
+		if (failure != null) {
+			System.out.println("Failed to fetch ptlogs of employees in database.\n" + failure.toString());
+			return null;
+		}
+		return ptLogsByEmployee;
+	}
+
+	/**
+	 * Hands every row of a ptlogs query to the consumer while it is read. The fetch size makes the driver read rows
+	 * through a server side cursor instead of loading the whole result.
+	 */
+	private static void streamPTLogs(PooledConnection pooledConnection, String query, StatementBinder binder,
+			Consumer<PTLog> consumer) throws SQLException {
+		PreparedStatement statement = pooledConnection.prepareStatement(query);
+		statement.setFetchSize(DatabaseConfig.fetchSize);
+		binder.bind(statement);
+		try (ResultSet resultSet = statement.executeQuery()) {
+			while (resultSet.next()) {
+				consumer.accept(readPTLog(resultSet));
+			}
+		}
+	}
+
+	/**
+	 * Runs one page of a ptlogs query after checking the employee.
+	 *
+	 * @return page of pt logs, null if the employee check failed and the query was not run.
+	 */
+	private Page<PTLog> queryPTLogPage(String query, int employeeId, Designation designation, Boolean checkDesignation,
+			PageStatementBinder binder, String pageToken, int pageSize) throws SQLException {
+		PageToken position = pageToken == null ? null : PageToken.decode(pageToken);
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			if (!checkEmployeeQuery(pooledConnection, employeeId, designation, checkDesignation)) {
+				return null;
+			}
+			return readPTLogPage(pooledConnection, query, binder, position, pageSize);
+		}
+	}
+
+	/**
+	 * Runs one page of the logs of every employee under the manager, directly or through other managers, after checking
+	 * the manager. Teams larger than TEAM_ID_MAX_BUCKET_SIZE read one page from each chunk, and the pages are merged
+	 * in keyset order before the page is cut.
+	 *
+	 * @return page of pt logs, null if the manager check failed and the query was not run.
+	 */
+	private Page<PTLog> queryTeamPTLogPage(int managerId, Date startDate, Date endDate, String pageToken, int pageSize)
+			throws SQLException {
+		PageToken position = pageToken == null ? null : PageToken.decode(pageToken);
+		try (PooledConnection pooledConnection = DBConnectionService.getConnection()) {
+			if (!checkEmployeeQuery(pooledConnection, managerId, Designation.Manager, true)) {
+				return null;
+			}
+			int[] team = resolveTeam(pooledConnection, managerId);
+			if (team.length == 0) {
+				return new Page<>(new ArrayList<>(), null);
+			}
+			if (team.length <= TEAM_ID_MAX_BUCKET_SIZE) {
+				return readPTLogPage(pooledConnection, teamPTLogQuery(team.length, startDate != null),
+						statement -> bindTeam(statement, team, startDate, endDate), position, pageSize);
+			}
+			pageSize = Math.max(1, pageSize);
+			Date lastLoggedDate = position == null ? FIRST_PAGE_LOGGED_DATE : position.getLoggedDate();
+			int lastId = position == null ? Integer.MAX_VALUE : position.getId();
+			ArrayList<PTLog> listPTLog = new ArrayList<>();
+			for (int[] chunk : teamChunks(team)) {
+				listPTLog.addAll(readPTLogRows(pooledConnection, teamPTLogQuery(chunk.length, startDate != null),
+						statement -> bindTeam(statement, chunk, startDate, endDate), lastLoggedDate, lastId,
+						pageSize + 1));
+			}
+			listPTLog.sort(LATEST_FIRST);
+			if (listPTLog.size() > pageSize + 1) {
+				listPTLog.subList(pageSize + 1, listPTLog.size()).clear();
+			}
+			return toPage(listPTLog, pageSize);
+		}
+	}
+
+	/**
+	 * Reads one page of a ptlogs query. The keyset clause starts the page right after the row stored in the page token,
+	 * and one extra row is fetched to know whether a next page exists.
+	 */
+	private static Page<PTLog> readPTLogPage(PooledConnection pooledConnection, String query, PageStatementBinder binder,
+			PageToken position, int pageSize) throws SQLException {
+		pageSize = Math.max(1, pageSize);
+		Date lastLoggedDate = position == null ? FIRST_PAGE_LOGGED_DATE : position.getLoggedDate();
+		int lastId = position == null ? Integer.MAX_VALUE : position.getId();
+		return toPage(readPTLogRows(pooledConnection, query, binder, lastLoggedDate, lastId, pageSize + 1), pageSize);
+	}
+
+	/**
+	 * Reads up to limit rows of a ptlogs query, latest first, starting right after the given logged date and id.
+	 */
+	private static ArrayList<PTLog> readPTLogRows(PooledConnection pooledConnection, String query,
+			PageStatementBinder binder, Date lastLoggedDate, int lastId, int limit) throws SQLException {
+		ArrayList<PTLog> listPTLog = new ArrayList<>();
+		PreparedStatement statement = pooledConnection.prepareStatement(query + PTLOG_KEYSET_PAGE_CLAUSE);
+		int parameterIndex = binder.bind(statement);
+		statement.setDate(parameterIndex++, lastLoggedDate);
+		statement.setDate(parameterIndex++, lastLoggedDate);
+		statement.setInt(parameterIndex++, lastId);
+		statement.setInt(parameterIndex, limit);
+		try (ResultSet resultSet = statement.executeQuery()) {
+			while (resultSet.next()) {
+				listPTLog.add(readPTLog(resultSet));
+			}
+		}
+		return listPTLog;
+	}
+
+	/**
+	 * Cuts rows read with one extra row into a page, the extra row telling that a next page exists.
+	 */
+	private static Page<PTLog> toPage(ArrayList<PTLog> listPTLog, int pageSize) {
+		String nextPageToken = null;
+		if (listPTLog.size() > pageSize) {
+			listPTLog.remove(pageSize);
+			PTLog last = listPTLog.get(pageSize - 1);
+			nextPageToken = PageToken.encode(last.getLoggedDate(), last.getId());
+		}
+		return new Page<>(listPTLog, nextPageToken);
+	}
+
+	/**
+	 * Resolves the team of a manager from the hierarchy index, loading it first when it is stale.
+	 */
+	private int[] resolveTeam(PooledConnection pooledConnection, int managerId) throws SQLException {
+		refreshManagerHierarchy(pooledConnection);
+		return managerHierarchy.resolveTeam(managerId);
+	}
+
+	/**
+	 * Loads the hierarchy index from employee_managers when it was never loaded, or was loaded longer than
+	 * DatabaseConfig.managerHierarchyRefreshMillis ago so assignments made by other processes are picked up.
+	 */
+	private void refreshManagerHierarchy(PooledConnection pooledConnection) throws SQLException {
+		if (System.currentTimeMillis() - managerHierarchy.getLoadedAt() <= DatabaseConfig.managerHierarchyRefreshMillis) {
+			return;
+		}
+		synchronized (managerHierarchy) {
+			if (System.currentTimeMillis() - managerHierarchy.getLoadedAt() <= DatabaseConfig.managerHierarchyRefreshMillis) {
+				return;
+			}
+			String query = "select emp_id, mgr_id from employee_managers";
+			IntArrayList employeeIds = new IntArrayList();
+			IntArrayList managerIds = new IntArrayList();
+			PreparedStatement statement = pooledConnection.prepareStatement(query);
+			statement.setFetchSize(DatabaseConfig.fetchSize);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					employeeIds.add(resultSet.getInt("emp_id"));
+					managerIds.add(resultSet.getInt("mgr_id"));
+				}
+			}
+			managerHierarchy.load(employeeIds, managerIds);
+		}
+	}
+
+	/**
+	 * Builds a query of the logs of a team of given size. The number of ids is rounded up to a power of two, padding
+	 * with a repeated id, so teams of similar size reuse the same cached statement. The bucket stops growing at
+	 * TEAM_ID_MAX_BUCKET_SIZE, larger teams are split by teamChunks and read one chunk per query.
+	 */
+	private static String teamPTLogQuery(int teamSize, boolean inRange) {
+		StringBuilder query = new StringBuilder("select p.* from ptlogs as p where p.emp_id in (?");
+		for (int i = 1; i < teamBucketSize(teamSize); i++) {
+			query.append(",?");
+		}
+		query.append(')');
+		if (inRange) {
+			query.append(" and (p.logged_date >= (?) and p.logged_date <= (?))");
+		}
+		return query.toString();
+	}
+
+	/**
+	 * Binds the team ids, padded to the bucket size, and the date range when there is one.
+	 *
+	 * @return index of the first parameter left.
+	 */
+	private static int bindTeam(PreparedStatement statement, int[] team, Date startDate, Date endDate)
+			throws SQLException {
+		int bucketSize = teamBucketSize(team.length);
+		for (int i = 0; i < bucketSize; i++) {
+			statement.setInt(i + 1, team[Math.min(i, team.length - 1)]);
+		}
+		int parameterIndex = bucketSize + 1;
+		if (startDate != null) {
+			statement.setDate(parameterIndex++, startDate);
+			statement.setDate(parameterIndex++, endDate);
+		}
+		return parameterIndex;
+	}
+
+	private static int teamBucketSize(int teamSize) {
+		return Math.min(TEAM_ID_MAX_BUCKET_SIZE,
+				Math.max(TEAM_ID_MIN_BUCKET_SIZE, Integer.highestOneBit(Math.max(1, teamSize - 1)) << 1));
+	}
+
+	/**
+	 * Splits a team in chunks of at most TEAM_ID_MAX_BUCKET_SIZE ids.
+	 */
+	private static List<int[]> teamChunks(int[] team) {
+		ArrayList<int[]> chunks = new ArrayList<>();
+		for (int from = 0; from < team.length; from += TEAM_ID_MAX_BUCKET_SIZE) {
+			chunks.add(Arrays.copyOfRange(team, from, Math.min(team.length, from + TEAM_ID_MAX_BUCKET_SIZE)));
+		}
+		return chunks;
+	}
+
+	/**
+	 * Sets the parameters of a prepared statement.
+	 */
+	@FunctionalInterface
+	private interface StatementBinder {
+		void bind(PreparedStatement statement) throws SQLException;
+	}
+
+	/**
+	 * Sets the leading parameters of a page statement.
+	 */
+	@FunctionalInterface
+	private interface PageStatementBinder {
+		/**
+		 * @return index of the first parameter left for the keyset clause.
+		 */
+		int bind(PreparedStatement statement) throws SQLException;
+	}
+
+	/**
+	 * Maps the current row of a ptlogs result set to a PTLog.
+	 */
+	private static PTLog readPTLog(ResultSet resultSet) throws SQLException {
+		return new PTLog(resultSet.getInt("ptlog_id"),
+				resultSet.getInt("emp_id"),
+				resultSet.getString("details"),
+				resultSet.getDate("logged_date"));
+	}
+
+	/**
+	 * Keyset position in the logs of one chunk of a team, holding the page of rows read last.
+	 */
+	private static final class TeamChunkCursor {
+		private final int[] ids;
+		private ArrayList<PTLog> rows = new ArrayList<>();
+		private int next;
+		private boolean exhausted;
+
+		private TeamChunkCursor(int[] ids) {
+			this.ids = ids;
+		}
+
+		/**
+		 * Reads the next page of the chunk when every row read so far was handed out.
+		 *
+		 * @return true if a row is left to hand out.
+		 */
+		private boolean fill(PooledConnection pooledConnection, Date startDate, Date endDate, int pageSize)
+				throws SQLException {
+			if (next < rows.size()) {
+				return true;
+			}
+			if (exhausted) {
+				return false;
+			}
+			PTLog last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+			rows = readPTLogRows(pooledConnection, teamPTLogQuery(ids.length, startDate != null),
+					statement -> bindTeam(statement, ids, startDate, endDate),
+					last == null ? FIRST_PAGE_LOGGED_DATE : last.getLoggedDate(),
+					last == null ? Integer.MAX_VALUE : last.getId(), pageSize);
+			next = 0;
+			exhausted = rows.size() < pageSize;
+			return !rows.isEmpty();
+		}
+
+		private PTLog head() {
+			return rows.get(next);
+		}
+
+		private PTLog next() {
+			return rows.get(next++);
+		}
+	}
+}
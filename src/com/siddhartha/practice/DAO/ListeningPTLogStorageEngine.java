@@ -0,0 +1,236 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.IntArrayList;
+import com.siddhartha.practice.Models.Designation;
+import com.siddhartha.practice.Models.Employee;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.Page;
+import com.siddhartha.practice.Models.QueryPlan;
+import com.siddhartha.practice.Service.PoolStats;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Storage engine wrapping another engine to tell listeners, like PTLogRollups, PTLogSearchIndex and PTLogChangeFeed,
+ * about every pt log it adds or deletes and every employee it promotes or assigns. Wrapping the engine, rather than
+ * notifying from PTLogService, also covers the logs added later by the write-behind buffer and the journal replayer.
+ * Listeners are only told about changes the engine made.
+ *
+ * @author sid
+ */
+final class ListeningPTLogStorageEngine implements PTLogStorageEngine {
+	private final static int COMMAND_EXECUTION_RESULT_FAIL = 0;
+
+	private final PTLogStorageEngine storageEngine;
+	private final List<PTLogChangeListener> listeners;
+
+	ListeningPTLogStorageEngine(PTLogStorageEngine storageEngine, List<PTLogChangeListener> listeners) {
+		this.storageEngine = storageEngine;
+		this.listeners = new ArrayList<>(listeners);
+	}
+
+	@Override
+	public int addEmployee(String name) {
+		return storageEngine.addEmployee(name);
+	}
+
+	@Override
+	public int addPTLog(PTLog ptLog) {
+		int result = storageEngine.addPTLog(ptLog);
+		if (result != COMMAND_EXECUTION_RESULT_FAIL) {
+			recordAdded(ptLog);
+		}
+		return result;
+	}
+
+	@Override
+	public int[] addPTLogsBatch(Collection<PTLog> ptLogs, int batchSize) {
+		int[] results = storageEngine.addPTLogsBatch(ptLogs, batchSize);
+		if (results != null) {
+			Iterator<PTLog> iterator = ptLogs.iterator();
+			for (int result : results) {
+				PTLog ptLog = iterator.next();
+				if (result != COMMAND_EXECUTION_RESULT_FAIL) {
+					recordAdded(ptLog);
+				}
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public int promoteToManager(int id) {
+		int result = storageEngine.promoteToManager(id);
+		if (result != COMMAND_EXECUTION_RESULT_FAIL) {
+			for (PTLogChangeListener listener : listeners) {
+				listener.recordPromoted(id);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public int assignEmployeeToManager(int employeeId, int managerId) {
+		int result = storageEngine.assignEmployeeToManager(employeeId, managerId);
+		if (result != COMMAND_EXECUTION_RESULT_FAIL) {
+			for (PTLogChangeListener listener : listeners) {
+				listener.recordAssigned(employeeId, managerId);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public ArrayList<Employee> listEmployees() {
+		return storageEngine.listEmployees();
+	}
+
+	@Override
+	public Page<Employee> listEmployeesPage(String pageToken, int pageSize) {
+		return storageEngine.listEmployeesPage(pageToken, pageSize);
+	}
+
+	@Override
+	public int forEachPTLog(Consumer<PTLog> consumer) {
+		return storageEngine.forEachPTLog(consumer);
+	}
+
+	@Override
+	public int forEachPTLogInRange(Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		return storageEngine.forEachPTLogInRange(startDate, endDate, consumer);
+	}
+
+	@Override
+	public int forEachPTLogAfter(int id, Consumer<PTLog> consumer) {
+		return storageEngine.forEachPTLogAfter(id, consumer);
+	}
+
+	@Override
+	public long[] countPTLogsUpTo(int id) {
+		return storageEngine.countPTLogsUpTo(id);
+	}
+
+	@Override
+	public int forEachPTLogOfEmployee(int id, Consumer<PTLog> consumer) {
+		return storageEngine.forEachPTLogOfEmployee(id, consumer);
+	}
+
+	@Override
+	public int forEachPTLogOfEmployeeInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		return storageEngine.forEachPTLogOfEmployeeInRange(id, startDate, endDate, consumer);
+	}
+
+	@Override
+	public int forEachPTLogUnderManager(int id, Consumer<PTLog> consumer) {
+		return storageEngine.forEachPTLogUnderManager(id, consumer);
+	}
+
+	@Override
+	public int forEachPTLogUnderManagerInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		return storageEngine.forEachPTLogUnderManagerInRange(id, startDate, endDate, consumer);
+	}
+
+	@Override
+	public LinkedHashMap<Integer, ArrayList<PTLog>> listPTLogOfEmployeesInRange(Collection<Integer> ids,
+			Date startDate, Date endDate) {
+		return storageEngine.listPTLogOfEmployeesInRange(ids, startDate, endDate);
+	}
+
+	@Override
+	public LinkedHashMap<Integer, ArrayList<PTLog>> listPTLogUnderManagersInRange(Collection<Integer> ids,
+			Date startDate, Date endDate) {
+		return storageEngine.listPTLogUnderManagersInRange(ids, startDate, endDate);
+	}
+
+	@Override
+	public Page<PTLog> listPTLogOfEmployeePage(int id, String pageToken, int pageSize) {
+		return storageEngine.listPTLogOfEmployeePage(id, pageToken, pageSize);
+	}
+
+	@Override
+	public Page<PTLog> listPTLogOfEmployeeInRangePage(int id, Date startDate, Date endDate, String pageToken,
+			int pageSize) {
+		return storageEngine.listPTLogOfEmployeeInRangePage(id, startDate, endDate, pageToken, pageSize);
+	}
+
+	@Override
+	public Page<PTLog> listPTLogUnderManagerPage(int id, String pageToken, int pageSize) {
+		return storageEngine.listPTLogUnderManagerPage(id, pageToken, pageSize);
+	}
+
+	@Override
+	public Page<PTLog> listPTLogUnderManagerInRangePage(int id, Date startDate, Date endDate, String pageToken,
+			int pageSize) {
+		return storageEngine.listPTLogUnderManagerInRangePage(id, startDate, endDate, pageToken, pageSize);
+	}
+
+	@Override
+	public int deletePTLogOfEmployeeInRange(int id, Date startDate, Date endDate) {
+		int result = storageEngine.deletePTLogOfEmployeeInRange(id, startDate, endDate);
+		if (result != COMMAND_EXECUTION_RESULT_FAIL) {
+			for (PTLogChangeListener listener : listeners) {
+				listener.recordDeleted(id, startDate, endDate);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public int dropPTLogsBefore(Date cutoff) {
+		int result = storageEngine.dropPTLogsBefore(cutoff);
+		if (result != COMMAND_EXECUTION_RESULT_FAIL) {
+			for (PTLogChangeListener listener : listeners) {
+				listener.recordDeletedBefore(cutoff);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Boolean checkEmployeeQuery(int id, Designation designation, Boolean checkDesignation) throws SQLException {
+		return storageEngine.checkEmployeeQuery(id, designation, checkDesignation);
+	}
+
+	@Override
+	public PoolStats getPoolStats() {
+		return storageEngine.getPoolStats();
+	}
+
+	@Override
+	public EmployeeDirectoryCache getEmployeeDirectory() {
+		return storageEngine.getEmployeeDirectory();
+	}
+
+	@Override
+	public ManagerHierarchyIndex getManagerHierarchy() {
+		return storageEngine.getManagerHierarchy();
+	}
+
+	@Override
+	public void restoreManagerHierarchy(IntArrayList employeeIds, IntArrayList managerIds, long loadedAt) {
+		storageEngine.restoreManagerHierarchy(employeeIds, managerIds, loadedAt);
+	}
+
+	@Override
+	public ArrayList<QueryPlan> explainQueries() {
+		return storageEngine.explainQueries();
+	}
+
+	@Override
+	public void close() {
+		storageEngine.close();
+	}
+
+	private void recordAdded(PTLog ptLog) {
+		for (PTLogChangeListener listener : listeners) {
+			listener.recordAdded(ptLog);
+		}
+	}
+}
@@ -0,0 +1,346 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.IntArrayList;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory graph of the employee to manager assignments, answering which employees report to a manager directly or
+ * through a chain of managers. The team of a manager is resolved with one breadth first walk over its reports, which
+ * costs O(team size), and the resolved ids are cached until an assignment below that manager changes. Adding an
+ * assignment updates the graph in place and only drops the cached teams of the managers above it.
+ *
+ * @author sid
+ */
+public final class ManagerHierarchyIndex {
+	private static final int[] NO_REPORTS = new int[0];
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final HashMap<Integer, Set<Integer>> reportsByManager = new HashMap<>();
+	private final HashMap<Integer, Set<Integer>> managersByEmployee = new HashMap<>();
+	private final ConcurrentHashMap<Integer, int[]> resolvedTeams = new ConcurrentHashMap<>();
+	private int assignmentCount = 0;
+	private volatile long loadedAt = 0;
+	private volatile long version = 0;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Replaces the whole graph with the given assignments.
+	 *
+	 * @param employeeIds
+	 * 		employee id of every assignment.
+	 * @param managerIds
+	 * 		manager id of every assignment, in the same order as employeeIds.
+	 */
+	public void load(IntArrayList employeeIds, IntArrayList managerIds) {
+		load(employeeIds, managerIds, System.currentTimeMillis());
+	}
+
+	/**
+	 * Replaces the whole graph with assignments read from the database earlier.
+	 *
+	 * @param employeeIds
+	 * 		employee id of every assignment.
+	 * @param managerIds
+	 * 		manager id of every assignment, in the same order as employeeIds.
+	 * @param loadedAt
+	 * 		time in milliseconds the assignments were read from the database.
+	 */
+	public void load(IntArrayList employeeIds, IntArrayList managerIds, long loadedAt) {
+		lock.writeLock().lock();
+		try {
+			reportsByManager.clear();
+			managersByEmployee.clear();
+			resolvedTeams.clear();
+			assignmentCount = 0;
+			for (int i = 0; i < employeeIds.size(); i++) {
+				link(employeeIds.get(i), managerIds.get(i));
+			}
+			this.loadedAt = loadedAt;
+			version++;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return time the graph was last loaded in milliseconds, 0 if it never was.
+	 */
+	public long getLoadedAt() {
+		return loadedAt;
+	}
+
+	/**
+	 * @return number increased every time the graph is loaded or an assignment is added.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Adds an assignment of an employee to a manager.
+	 *
+	 * @param employeeId
+	 * 		employee id added under the manager.
+	 * @param managerId
+	 * 		manager id under whom the employee is added.
+	 * @return false if the assignment would make a manager report to itself, in which case nothing is changed.
+	 */
+	public boolean addAssignment(int employeeId, int managerId) {
+		lock.writeLock().lock();
+		try {
+			if (createsCycle(employeeId, managerId)) {
+				return false;
+			}
+			if (link(employeeId, managerId)) {
+				invalidateManagersAbove(managerId);
+				version++;
+			}
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Copies every assignment of the graph.
+	 *
+	 * @param employeeIds
+	 * 		receives the employee id of every assignment.
+	 * @param managerIds
+	 * 		receives the manager id of every assignment, in the same order as employeeIds.
+	 */
+	public void copyAssignments(IntArrayList employeeIds, IntArrayList managerIds) {
+		lock.readLock().lock();
+		try {
+			for (Map.Entry<Integer, Set<Integer>> reports : reportsByManager.entrySet()) {
+				for (Integer employeeId : reports.getValue()) {
+					employeeIds.add(employeeId);
+					managerIds.add(reports.getKey());
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Checks whether assigning the employee to the manager would make a manager report to itself.
+	 *
+	 * @param employeeId
+	 * 		employee id to be added under the manager.
+	 * @param managerId
+	 * 		manager id under whom the employee is to be added.
+	 * @return true if the manager is the employee or reports to the employee.
+	 */
+	public boolean wouldCreateCycle(int employeeId, int managerId) {
+		lock.readLock().lock();
+		try {
+			return createsCycle(employeeId, managerId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Fetches the employees reporting to a manager directly.
+	 *
+	 * @param managerId
+	 * 		manager id.
+	 * @return ids of the direct reports, in no particular order.
+	 */
+	public int[] getDirectReports(int managerId) {
+		lock.readLock().lock();
+		try {
+			return toArray(reportsByManager.get(managerId));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Fetches the managers an employee reports to directly.
+	 *
+	 * @param employeeId
+	 * 		employee id.
+	 * @return ids of the managers, in no particular order.
+	 */
+	public int[] getManagers(int employeeId) {
+		lock.readLock().lock();
+		try {
+			return toArray(managersByEmployee.get(employeeId));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Fetches every employee reporting to a manager, directly or through other managers. The returned array is shared
+	 * with the cache and must not be modified.
+	 *
+	 * @param managerId
+	 * 		manager id.
+	 * @return ids of the team, sorted ascending, not including the manager.
+	 */
+	public int[] resolveTeam(int managerId) {
+		int[] team = resolvedTeams.get(managerId);
+		if (team != null) {
+			hits.increment();
+			return team;
+		}
+		misses.increment();
+		lock.readLock().lock();
+		try {
+			team = walkTeam(managerId);
+			resolvedTeams.put(managerId, team);
+		} finally {
+			lock.readLock().unlock();
+		}
+		return team;
+	}
+
+	/**
+	 * @return number of assignments in the graph.
+	 */
+	public int getAssignmentCount() {
+		lock.readLock().lock();
+		try {
+			return assignmentCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getCachedTeamCount() {
+		return resolvedTeams.size();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Breadth first walk collecting every report below the manager once, so shared reports and diamonds are only
+	 * visited once. Runs under the read lock, which keeps writers from invalidating teams while one is being cached.
+	 */
+	private int[] walkTeam(int managerId) {
+		Set<Integer> direct = reportsByManager.get(managerId);
+		if (direct == null || direct.isEmpty()) {
+			return NO_REPORTS;
+		}
+		HashSet<Integer> visited = new HashSet<>();
+		visited.add(managerId);
+		IntArrayList team = new IntArrayList(direct.size());
+		IntArrayList frontier = new IntArrayList(direct.size());
+		frontier.add(managerId);
+		for (int head = 0; head < frontier.size(); head++) {
+			Set<Integer> reports = reportsByManager.get(frontier.get(head));
+			if (reports == null) {
+				continue;
+			}
+			for (Integer reportId : reports) {
+				if (visited.add(reportId)) {
+					team.add(reportId);
+					frontier.add(reportId);
+				}
+			}
+		}
+		team.sort();
+		return team.toArray();
+	}
+
+	private boolean createsCycle(int employeeId, int managerId) {
+		if (employeeId == managerId) {
+			return true;
+		}
+		HashSet<Integer> visited = new HashSet<>();
+		IntArrayList frontier = new IntArrayList();
+		frontier.add(managerId);
+		for (int head = 0; head < frontier.size(); head++) {
+			Set<Integer> managers = managersByEmployee.get(frontier.get(head));
+			if (managers == null) {
+				continue;
+			}
+			for (Integer aboveId : managers) {
+				if (aboveId == employeeId) {
+					return true;
+				}
+				if (visited.add(aboveId)) {
+					frontier.add(aboveId);
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return false if the assignment already existed.
+	 */
+	private boolean link(int employeeId, int managerId) {
+		if (!reportsByManager.computeIfAbsent(managerId, key -> new HashSet<>()).add(employeeId)) {
+			return false;
+		}
+		managersByEmployee.computeIfAbsent(employeeId, key -> new HashSet<>()).add(managerId);
+		assignmentCount++;
+		return true;
+	}
+
+	/**
+	 * Drops the cached teams of the manager and of every manager it reports to, directly or not.
+	 */
+	private void invalidateManagersAbove(int managerId) {
+		HashSet<Integer> visited = new HashSet<>();
+		IntArrayList frontier = new IntArrayList();
+		frontier.add(managerId);
+		visited.add(managerId);
+		for (int head = 0; head < frontier.size(); head++) {
+			int id = frontier.get(head);
+			resolvedTeams.remove(id);
+			Set<Integer> managers = managersByEmployee.get(id);
+			if (managers == null) {
+				continue;
+			}
+			for (Integer aboveId : managers) {
+				if (visited.add(aboveId)) {
+					frontier.add(aboveId);
+				}
+			}
+		}
+	}
+
+	private static int[] toArray(Set<Integer> ids) {
+		if (ids == null || ids.isEmpty()) {
+			return NO_REPORTS;
+		}
+		int[] array = new int[ids.size()];
+		int index = 0;
+		for (Integer id : ids) {
+			array[index++] = id;
+		}
+		return array;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("ManagerHierarchyIndex{")
+				.append("assignments=").append(getAssignmentCount())
+				.append(", cachedTeams=").append(resolvedTeams.size())
+				.append(", hits=").append(hits.sum())
+				.append(", misses=").append(misses.sum())
+				.append('}')
+				.toString();
+	}
+}
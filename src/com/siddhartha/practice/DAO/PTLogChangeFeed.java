@@ -0,0 +1,173 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.ChangeEvent;
+import com.siddhartha.practice.Models.ChangeEventType;
+import com.siddhartha.practice.Models.PTLog;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process feed of the changes made through the storage engine: pt logs added and deleted, employees promoted and
+ * assigned to managers. It listens to the engine like PTLogRollups, so logs added later by the write-behind buffer
+ * and the journal replayer are published too, once they are stored.
+ * <p>
+ * Clients subscribe to the changes of an employee, of the team under a manager, or to every change, and read them
+ * from the bounded queue of their PTLogChangeSubscription. Publishing never blocks: when the queue of a subscription
+ * is full the event is dropped for that subscription only and it is flagged, telling the client its view missed
+ * changes and must be read again.
+ *
+ * @author sid
+ */
+public final class PTLogChangeFeed implements PTLogChangeListener {
+	private final ManagerHierarchyIndex managerHierarchy;
+	private final CopyOnWriteArrayList<PTLogChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final LongAdder publishedEvents = new LongAdder();
+	private final LongAdder droppedEvents = new LongAdder();
+	private long sequence = 0;
+
+	/**
+	 * @param managerHierarchy
+	 * 		index resolving the teams of managers, null if subscriptions to a team match no pt log change.
+	 */
+	public PTLogChangeFeed(ManagerHierarchyIndex managerHierarchy) {
+		this.managerHierarchy = managerHierarchy;
+	}
+
+	/**
+	 * Subscribes to the changes of an employee, of the team under a manager, or to every change when neither is
+	 * given. Logs dropped before a date are published to every subscription.
+	 *
+	 * @param employeeId
+	 * 		employee whose changes are received, null for any.
+	 * @param managerId
+	 * 		manager whose team's changes are received, null for any. Ignored when employeeId is given.
+	 * @param capacity
+	 * 		maximum number of events waiting to be read by the subscriber.
+	 * @return subscription, receiving the changes published from now on until it is closed.
+	 */
+	public PTLogChangeSubscription subscribe(Integer employeeId, Integer managerId, int capacity) {
+		PTLogChangeSubscription subscription = new PTLogChangeSubscription(this, employeeId,
+				employeeId == null ? managerId : null, capacity);
+		subscriptions.add(subscription);
+		return subscription;
+	}
+
+	/**
+	 * Stops publishing to a subscription. Called when the subscription is closed.
+	 */
+	void unsubscribe(PTLogChangeSubscription subscription) {
+		subscriptions.remove(subscription);
+	}
+
+	/**
+	 * Counts an event dropped because the queue of a subscription was full.
+	 */
+	void recordDropped() {
+		droppedEvents.increment();
+	}
+
+	@Override
+	public void recordAdded(PTLog ptLog) {
+		if (!subscriptions.isEmpty()) {
+			PTLog copy = new PTLog(ptLog.getId(), ptLog.getEmployeeId(), ptLog.getDetails(), ptLog.getLoggedDate());
+			publish(ChangeEventType.PTLogAdded, copy, ptLog.getEmployeeId(), null, null, null);
+		}
+	}
+
+	@Override
+	public void recordDeleted(int employeeId, Date startDate, Date endDate) {
+		if (!subscriptions.isEmpty()) {
+			publish(ChangeEventType.PTLogsDeleted, null, employeeId, null, startDate, endDate);
+		}
+	}
+
+	@Override
+	public void recordDeletedBefore(Date cutoff) {
+		if (!subscriptions.isEmpty()) {
+			publish(ChangeEventType.PTLogsDroppedBefore, null, null, null, null, cutoff);
+		}
+	}
+
+	@Override
+	public void recordPromoted(int id) {
+		if (!subscriptions.isEmpty()) {
+			publish(ChangeEventType.EmployeePromoted, null, id, null, null, null);
+		}
+	}
+
+	@Override
+	public void recordAssigned(int employeeId, int managerId) {
+		if (!subscriptions.isEmpty()) {
+			publish(ChangeEventType.EmployeeAssigned, null, employeeId, managerId, null, null);
+		}
+	}
+
+	/**
+	 * @return number of open subscriptions.
+	 */
+	public int getSubscriptionCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * @return number of events published to at least one subscription.
+	 */
+	public long getPublishedEvents() {
+		return publishedEvents.sum();
+	}
+
+	/**
+	 * @return number of events dropped for a subscription whose queue was full.
+	 */
+	public long getDroppedEvents() {
+		return droppedEvents.sum();
+	}
+
+	/**
+	 * Hands an event to every subscription matching it. Events are numbered and handed out under the lock of the
+	 * feed, so every subscription receives them in the order of their sequence.
+	 */
+	private synchronized void publish(ChangeEventType type, PTLog ptLog, Integer employeeId, Integer managerId,
+			Date startDate, Date endDate) {
+		ChangeEvent event = null;
+		for (PTLogChangeSubscription subscription : subscriptions) {
+			if (matches(subscription, type, employeeId, managerId)) {
+				if (event == null) {
+					event = new ChangeEvent(++sequence, type, System.currentTimeMillis(), ptLog, employeeId, managerId,
+							startDate, endDate);
+					publishedEvents.increment();
+				}
+				subscription.offer(event);
+			}
+		}
+	}
+
+	/**
+	 * Tells whether a change concerns the employee or the team a subscription filters on. An assignment concerns the
+	 * team of a manager when the employee or their new manager belongs to it, or is the manager.
+	 */
+	private boolean matches(PTLogChangeSubscription subscription, ChangeEventType type, Integer employeeId,
+			Integer managerId) {
+		if (type == ChangeEventType.PTLogsDroppedBefore) {
+			return true;
+		}
+		if (subscription.getEmployeeId() != null) {
+			return subscription.getEmployeeId().equals(employeeId);
+		}
+		Integer teamManagerId = subscription.getManagerId();
+		if (teamManagerId == null) {
+			return true;
+		}
+		if (managerHierarchy == null) {
+			return false;
+		}
+		int[] team = managerHierarchy.resolveTeam(teamManagerId);
+		if (teamManagerId.equals(employeeId) || Arrays.binarySearch(team, employeeId) >= 0) {
+			return true;
+		}
+		return managerId != null && (teamManagerId.equals(managerId) || Arrays.binarySearch(team, managerId) >= 0);
+	}
+}
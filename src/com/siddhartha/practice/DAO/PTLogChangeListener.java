@@ -0,0 +1,63 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.PTLog;
+
+import java.sql.Date;
+
+/**
+ * Listener told about every pt log added to or deleted from a storage engine, and every promotion and assignment of
+ * an employee, used to keep in-memory views of the logs up to date without reading them again. Calls are made after
+ * the engine made the change, from the thread that made it, so implementations must be thread safe.
+ *
+ * @author sid
+ */
+public interface PTLogChangeListener {
+
+	/**
+	 * Called after a pt log was added.
+	 *
+	 * @param ptLog
+	 * 		log added to the storage engine, with its id set.
+	 */
+	void recordAdded(PTLog ptLog);
+
+	/**
+	 * Called after the pt logs of an employee in a range of date were deleted.
+	 *
+	 * @param employeeId
+	 * 		employee id whose logs were deleted.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 */
+	void recordDeleted(int employeeId, Date startDate, Date endDate);
+
+	/**
+	 * Called after the pt logs of all employees logged before a date were deleted.
+	 *
+	 * @param cutoff
+	 * 		first logged date of the logs kept.
+	 */
+	void recordDeletedBefore(Date cutoff);
+
+	/**
+	 * Called after an employee was promoted to manager.
+	 *
+	 * @param id
+	 * 		id of the employee promoted.
+	 */
+	default void recordPromoted(int id) {
+	}
+
+	/**
+	 * Called after an employee was assigned to a manager.
+	 *
+	 * @param employeeId
+	 * 		id of the employee assigned.
+	 * @param managerId
+	 * 		id of the manager the employee now reports to.
+	 */
+	default void recordAssigned(int employeeId, int managerId) {
+	}
+}
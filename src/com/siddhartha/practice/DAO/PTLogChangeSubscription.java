@@ -0,0 +1,124 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.ChangeEvent;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Subscription to the changes of a PTLogChangeFeed, filtered on an employee or the team under a manager. Events wait
+ * in a bounded queue until the subscriber reads them. When the queue is full new events are dropped and the
+ * subscription is flagged as overflowed, so a subscriber keeping a live view checks takeOverflow, reads the view again
+ * from PTLogService when it is set, then keeps applying events.
+ *
+ * @author sid
+ */
+public final class PTLogChangeSubscription implements AutoCloseable {
+	private final PTLogChangeFeed feed;
+	private final Integer employeeId;
+	private final Integer managerId;
+	private final ArrayBlockingQueue<ChangeEvent> events;
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicBoolean overflowed = new AtomicBoolean(false);
+
+	PTLogChangeSubscription(PTLogChangeFeed feed, Integer employeeId, Integer managerId, int capacity) {
+		this.feed = feed;
+		this.employeeId = employeeId;
+		this.managerId = managerId;
+		this.events = new ArrayBlockingQueue<>(Math.max(1, capacity));
+	}
+
+	/**
+	 * @return employee whose changes are received, null for any.
+	 */
+	public Integer getEmployeeId() {
+		return employeeId;
+	}
+
+	/**
+	 * @return manager whose team's changes are received, null for any.
+	 */
+	public Integer getManagerId() {
+		return managerId;
+	}
+
+	/**
+	 * Queues an event without waiting, dropping it when the queue is full.
+	 */
+	void offer(ChangeEvent event) {
+		if (!events.offer(event)) {
+			droppedCount.incrementAndGet();
+			overflowed.set(true);
+			feed.recordDropped();
+		}
+	}
+
+	/**
+	 * @return next event, null if none is waiting.
+	 */
+	public ChangeEvent poll() {
+		return events.poll();
+	}
+
+	/**
+	 * Waits for the next event.
+	 *
+	 * @param timeout
+	 * 		time to wait for an event.
+	 * @param unit
+	 * 		unit of timeout.
+	 * @return next event, null if none was published in time.
+	 * @throws InterruptedException
+	 * 		if interrupted while waiting.
+	 */
+	public ChangeEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return events.poll(timeout, unit);
+	}
+
+	/**
+	 * Moves the waiting events to a collection without waiting.
+	 *
+	 * @param sink
+	 * 		collection receiving the events in order.
+	 * @param maxEvents
+	 * 		maximum number of events moved.
+	 * @return number of events moved.
+	 */
+	public int drainTo(Collection<? super ChangeEvent> sink, int maxEvents) {
+		return events.drainTo(sink, maxEvents);
+	}
+
+	/**
+	 * Tells whether events were dropped since the last call, clearing the flag.
+	 *
+	 * @return true if the subscriber missed events and must read its view again.
+	 */
+	public boolean takeOverflow() {
+		return overflowed.getAndSet(false);
+	}
+
+	/**
+	 * @return number of events dropped because the queue was full.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return number of events waiting to be read.
+	 */
+	public int getPendingCount() {
+		return events.size();
+	}
+
+	/**
+	 * Stops receiving events. Events already queued can still be read.
+	 */
+	@Override
+	public void close() {
+		feed.unsubscribe(this);
+	}
+}
@@ -0,0 +1,383 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.PTLog;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Compact columnar file of pt logs. Logs are written in blocks of up to blockRows rows, a block storing each column
+ * after the other so alike values sit together: ids as deltas from the previous id, employee ids as indexes into the
+ * sorted distinct employee ids of the block, logged dates as deltas in days from the previous date, and details as
+ * their lengths followed by their UTF-8 bytes. Integers are written as varints, signed ones zigzag encoded. Each block
+ * decodes on its own, so a writer only holds one block in memory and so does a reader.
+ * <p>
+ * The file starts with "PTLC" and a version byte. A block is its row count, the length of its body, the body and the
+ * CRC32 of the body. A row count of 0 followed by the number of rows in the file ends it, so a truncated or damaged
+ * file is reported instead of being read as a shorter one.
+ *
+ * @author sid
+ */
+public final class PTLogColumnarFile {
+	private static final byte[] MAGIC = {'P', 'T', 'L', 'C'};
+	private static final int VERSION = 1;
+
+	private final WritableByteChannel channel;
+	private final int blockRows;
+	private final int[] ids;
+	private final int[] employeeIds;
+	private final int[] loggedDays;
+	/**
+	 * Length in bytes of the details of each row of the block, -1 for null details.
+	 */
+	private final int[] detailsLengths;
+	private final ByteSink details = new ByteSink(1024);
+	private final ByteSink body = new ByteSink(1024);
+	private final CRC32 crc = new CRC32();
+	private int rowCount = 0;
+	private long totalRowCount = 0;
+	private boolean finished = false;
+	private long lastDateMillis = Long.MIN_VALUE;
+	private int lastDay;
+
+	/**
+	 * Starts a file on the channel by writing its header.
+	 *
+	 * @param channel
+	 * 		channel the file is written to, left open by finish.
+	 * @param blockRows
+	 * 		maximum number of rows per block.
+	 */
+	public PTLogColumnarFile(WritableByteChannel channel, int blockRows) throws IOException {
+		this.channel = channel;
+		this.blockRows = Math.max(1, blockRows);
+		this.ids = new int[this.blockRows];
+		this.employeeIds = new int[this.blockRows];
+		this.loggedDays = new int[this.blockRows];
+		this.detailsLengths = new int[this.blockRows];
+		ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1);
+		header.put(MAGIC).put((byte) VERSION).flip();
+		writeFully(header);
+	}
+
+	/**
+	 * Appends a log, writing the block once it is full.
+	 *
+	 * @param ptLog
+	 * 		log to append.
+	 */
+	public void write(PTLog ptLog) throws IOException {
+		ids[rowCount] = ptLog.getId();
+		employeeIds[rowCount] = ptLog.getEmployeeId();
+		if (ptLog.getLoggedDate().getTime() != lastDateMillis) {
+			lastDateMillis = ptLog.getLoggedDate().getTime();
+			lastDay = (int) ptLog.getLoggedDate().toLocalDate().toEpochDay();
+		}
+		loggedDays[rowCount] = lastDay;
+		if (ptLog.getDetails() == null) {
+			detailsLengths[rowCount] = -1;
+		} else {
+			byte[] detailsBytes = ptLog.getDetails().getBytes(StandardCharsets.UTF_8);
+			detailsLengths[rowCount] = detailsBytes.length;
+			details.write(detailsBytes, 0, detailsBytes.length);
+		}
+		if (++rowCount == blockRows) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Writes the last block and the end of the file. The channel is left open.
+	 *
+	 * @return number of logs in the file.
+	 */
+	public long finish() throws IOException {
+		if (!finished) {
+			writeBlock();
+			body.size = 0;
+			body.writeVarint(0);
+			body.writeVarint(totalRowCount);
+			writeFully(ByteBuffer.wrap(body.bytes, 0, body.size));
+			finished = true;
+		}
+		return totalRowCount;
+	}
+
+	private void writeBlock() throws IOException {
+		if (rowCount == 0) {
+			return;
+		}
+		body.size = 0;
+		int previous = 0;
+		for (int row = 0; row < rowCount; row++) {
+			body.writeZigzag((long) ids[row] - previous);
+			previous = ids[row];
+		}
+		int[] dictionary = Arrays.copyOf(employeeIds, rowCount);
+		Arrays.sort(dictionary);
+		int dictionarySize = 0;
+		for (int i = 0; i < rowCount; i++) {
+			if (i == 0 || dictionary[i] != dictionary[dictionarySize - 1]) {
+				dictionary[dictionarySize++] = dictionary[i];
+			}
+		}
+		body.writeVarint(dictionarySize);
+		previous = 0;
+		for (int i = 0; i < dictionarySize; i++) {
+			body.writeZigzag((long) dictionary[i] - previous);
+			previous = dictionary[i];
+		}
+		for (int row = 0; row < rowCount; row++) {
+			body.writeVarint(Arrays.binarySearch(dictionary, 0, dictionarySize, employeeIds[row]));
+		}
+		previous = 0;
+		for (int row = 0; row < rowCount; row++) {
+			body.writeZigzag((long) loggedDays[row] - previous);
+			previous = loggedDays[row];
+		}
+		for (int row = 0; row < rowCount; row++) {
+			body.writeVarint(detailsLengths[row] + 1L);
+		}
+		body.write(details.bytes, 0, details.size);
+
+		crc.reset();
+		crc.update(body.bytes, 0, body.size);
+		ByteSink blockHeader = new ByteSink(16);
+		blockHeader.writeVarint(rowCount);
+		blockHeader.writeVarint(body.size);
+		writeFully(ByteBuffer.wrap(blockHeader.bytes, 0, blockHeader.size));
+		writeFully(ByteBuffer.wrap(body.bytes, 0, body.size));
+		writeFully(ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip());
+		totalRowCount += rowCount;
+		rowCount = 0;
+		details.size = 0;
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Reads the logs of a file, block after block.
+	 *
+	 * @param file
+	 * 		file to read.
+	 * @param consumer
+	 * 		receives each log in the order it was written.
+	 * @return number of logs read.
+	 * @throws IOException
+	 * 		if the file can not be read, is not a columnar pt log file, or is truncated or damaged.
+	 */
+	public static long read(Path file, Consumer<PTLog> consumer) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+				DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),
+						64 * 1024))) {
+			byte[] magic = new byte[MAGIC.length];
+			input.readFully(magic);
+			if (!Arrays.equals(magic, MAGIC) || input.readUnsignedByte() != VERSION) {
+				throw new IOException(file + " is not a version " + VERSION + " columnar pt log file.");
+			}
+			CRC32 crc = new CRC32();
+			byte[] body = new byte[0];
+			long totalRowCount = 0;
+			while (true) {
+				int rowCount = (int) readVarint(input);
+				if (rowCount == 0) {
+					if (readVarint(input) != totalRowCount) {
+						throw new IOException(file + " ends with a row count not matching its blocks.");
+					}
+					return totalRowCount;
+				}
+				int bodyLength = (int) readVarint(input);
+				if (body.length < bodyLength) {
+					body = new byte[bodyLength];
+				}
+				input.readFully(body, 0, bodyLength);
+				crc.reset();
+				crc.update(body, 0, bodyLength);
+				if (input.readInt() != (int) crc.getValue()) {
+					throw new IOException(file + " has a damaged block after row " + totalRowCount + ".");
+				}
+				readBlock(ByteBuffer.wrap(body, 0, bodyLength), rowCount, consumer);
+				totalRowCount += rowCount;
+			}
+		} catch (EOFException eofException) {
+			throw new IOException(file + " is truncated.", eofException);
+		}
+	}
+
+	/**
+	 * Reads the logs of a file held in a buffer, like a file mapped in memory, from its position to its limit.
+	 *
+	 * @param buffer
+	 * 		buffer holding the file, left at the end of the file.
+	 * @param consumer
+	 * 		receives each log in the order it was written.
+	 * @return number of logs read.
+	 * @throws IOException
+	 * 		if the buffer does not hold a columnar pt log file, or holds a truncated or damaged one.
+	 */
+	public static long read(ByteBuffer buffer, Consumer<PTLog> consumer) throws IOException {
+		try {
+			byte[] magic = new byte[MAGIC.length];
+			buffer.get(magic);
+			if (!Arrays.equals(magic, MAGIC) || buffer.get() != VERSION) {
+				throw new IOException("Buffer does not hold a version " + VERSION + " columnar pt log file.");
+			}
+			CRC32 crc = new CRC32();
+			byte[] body = new byte[0];
+			long totalRowCount = 0;
+			while (true) {
+				int rowCount = (int) readVarint(buffer);
+				if (rowCount == 0) {
+					if (readVarint(buffer) != totalRowCount) {
+						throw new IOException("Columnar pt log file ends with a row count not matching its blocks.");
+					}
+					return totalRowCount;
+				}
+				int bodyLength = (int) readVarint(buffer);
+				if (body.length < bodyLength) {
+					body = new byte[bodyLength];
+				}
+				buffer.get(body, 0, bodyLength);
+				crc.reset();
+				crc.update(body, 0, bodyLength);
+				if (buffer.getInt() != (int) crc.getValue()) {
+					throw new IOException("Columnar pt log file has a damaged block after row " + totalRowCount + ".");
+				}
+				readBlock(ByteBuffer.wrap(body, 0, bodyLength), rowCount, consumer);
+				totalRowCount += rowCount;
+			}
+		} catch (BufferUnderflowException bufferUnderflowException) {
+			throw new IOException("Columnar pt log file is truncated.", bufferUnderflowException);
+		}
+	}
+
+	private static void readBlock(ByteBuffer body, int rowCount, Consumer<PTLog> consumer) {
+		int[] ids = new int[rowCount];
+		int previous = 0;
+		for (int row = 0; row < rowCount; row++) {
+			ids[row] = previous += (int) readZigzag(body);
+		}
+		int[] dictionary = new int[(int) readVarint(body)];
+		previous = 0;
+		for (int i = 0; i < dictionary.length; i++) {
+			dictionary[i] = previous += (int) readZigzag(body);
+		}
+		int[] employeeIds = new int[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			employeeIds[row] = dictionary[(int) readVarint(body)];
+		}
+		int[] loggedDays = new int[rowCount];
+		previous = 0;
+		for (int row = 0; row < rowCount; row++) {
+			loggedDays[row] = previous += (int) readZigzag(body);
+		}
+		int[] detailsLengths = new int[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			detailsLengths[row] = (int) readVarint(body) - 1;
+		}
+		byte[] bytes = body.array();
+		int position = body.position();
+		int cachedDay = Integer.MIN_VALUE;
+		long cachedMillis = 0;
+		for (int row = 0; row < rowCount; row++) {
+			String details = null;
+			if (detailsLengths[row] >= 0) {
+				details = new String(bytes, position, detailsLengths[row], StandardCharsets.UTF_8);
+				position += detailsLengths[row];
+			}
+			if (loggedDays[row] != cachedDay) {
+				cachedDay = loggedDays[row];
+				cachedMillis = Date.valueOf(LocalDate.ofEpochDay(cachedDay)).getTime();
+			}
+			consumer.accept(new PTLog(ids[row], employeeIds[row], details, new Date(cachedMillis)));
+		}
+	}
+
+	private static long readVarint(InputStream input) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = input.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint.");
+	}
+
+	private static long readVarint(ByteBuffer buffer) {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+
+	private static long readZigzag(ByteBuffer buffer) {
+		long value = readVarint(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Growable byte array the columns of a block are encoded into.
+	 */
+	private static final class ByteSink {
+		private byte[] bytes;
+		private int size = 0;
+
+		private ByteSink(int capacity) {
+			this.bytes = new byte[capacity];
+		}
+
+		private void ensureCapacity(int extra) {
+			if (size + extra > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+			}
+		}
+
+		private void write(byte[] source, int offset, int length) {
+			ensureCapacity(length);
+			System.arraycopy(source, offset, bytes, size, length);
+			size += length;
+		}
+
+		private void writeVarint(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[size++] = (byte) value;
+		}
+
+		private void writeZigzag(long value) {
+			writeVarint((value << 1) ^ (value >> 63));
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.JsonWriter;
+import com.siddhartha.practice.Models.ExportFormat;
+import com.siddhartha.practice.Models.PTLog;
+import config.DatabaseConfig;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports pt logs of an employee, of the team under a manager or of all employees, optionally in a range of date, to
+ * a file. Logs are streamed from the storage engine, through a server side cursor for the JDBC engine, straight into a
+ * FileChannel, so memory use does not grow with the number of logs exported. Formats are ndjson, ndjson compressed
+ * with gzip, and the columnar blocks of PTLogColumnarFile.
+ * <p>
+ * The file is written next to its destination and moved in place once complete, so a failed export leaves no partial
+ * file and never replaces an earlier export.
+ *
+ * @author sid
+ */
+public final class PTLogExporter {
+	private final static int COMMAND_EXECUTION_RESULT_FAIL = 0;
+
+	private final PTLogService ptLogService;
+	private final int bufferBytes;
+	private final int blockRows;
+
+	public PTLogExporter(PTLogService ptLogService) {
+		this(ptLogService, DatabaseConfig.exportBufferBytes, DatabaseConfig.exportBlockRows);
+	}
+
+	/**
+	 * @param ptLogService
+	 * 		service the logs are read from.
+	 * @param bufferBytes
+	 * 		size of the buffer logs are written through.
+	 * @param blockRows
+	 * 		number of rows per block of columnar files.
+	 */
+	public PTLogExporter(PTLogService ptLogService, int bufferBytes, int blockRows) {
+		this.ptLogService = ptLogService;
+		this.bufferBytes = Math.max(1024, bufferBytes);
+		this.blockRows = Math.max(1, blockRows);
+	}
+
+	/**
+	 * Exports the pt logs of an employee, of all the team members under a manager, or of all employees when neither
+	 * is given.
+	 *
+	 * @param file
+	 * 		file to write, replaced if it exists.
+	 * @param format
+	 * 		format of the file.
+	 * @param employeeId
+	 * 		employee whose logs are exported, null for any.
+	 * @param managerId
+	 * 		manager whose team's logs are exported, null for any. Ignored when employeeId is given.
+	 * @param startDate
+	 * 		start point of date range, null for no range.
+	 * @param endDate
+	 * 		end point of date range, null for no range.
+	 * @return number of logs exported, -1 if they could not be read, in which case no file is written.
+	 * @throws IOException
+	 * 		if the file could not be written.
+	 */
+	public long export(Path file, ExportFormat format, Integer employeeId, Integer managerId, Date startDate,
+			Date endDate) throws IOException {
+		boolean inRange = startDate != null && endDate != null;
+		ToIntFunction<Consumer<PTLog>> listing;
+		if (employeeId != null) {
+			listing = inRange
+					? consumer -> ptLogService.forEachPTLogOfEmployeeInRange(employeeId, startDate, endDate, consumer)
+					: consumer -> ptLogService.forEachPTLogOfEmployee(employeeId, consumer);
+		} else if (managerId != null) {
+			listing = inRange
+					? consumer -> ptLogService.forEachPTLogUnderManagerInRange(managerId, startDate, endDate, consumer)
+					: consumer -> ptLogService.forEachPTLogUnderManager(managerId, consumer);
+		} else {
+			listing = inRange
+					? consumer -> ptLogService.forEachPTLogInRange(startDate, endDate, consumer)
+					: ptLogService::forEachPTLog;
+		}
+
+		Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+		long rowCount = -1;
+		try {
+			try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				rowCount = format == ExportFormat.Columnar
+						? exportColumnar(channel, listing)
+						: exportNdjson(channel, format == ExportFormat.NdjsonGzip, listing);
+			} catch (UncheckedIOException uncheckedIOException) {
+				throw uncheckedIOException.getCause();
+			}
+			if (rowCount >= 0) {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			return rowCount;
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	private long exportNdjson(FileChannel channel, boolean gzip, ToIntFunction<Consumer<PTLog>> listing)
+			throws IOException {
+		OutputStream output = Channels.newOutputStream(channel);
+		output = gzip ? new GZIPOutputStream(output, bufferBytes) : new BufferedOutputStream(output, bufferBytes);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), bufferBytes);
+		JsonWriter jsonWriter = new JsonWriter(writer);
+		long[] rowCount = {0};
+		int result = listing.applyAsInt(ptLog -> {
+			try {
+				jsonWriter.ptLog(ptLog);
+				writer.write('\n');
+				rowCount[0]++;
+			} catch (IOException ioException) {
+				throw new UncheckedIOException(ioException);
+			}
+		});
+		if (result == COMMAND_EXECUTION_RESULT_FAIL) {
+			return -1;
+		}
+		jsonWriter.close();
+		return rowCount[0];
+	}
+
+	private long exportColumnar(FileChannel channel, ToIntFunction<Consumer<PTLog>> listing) throws IOException {
+		PTLogColumnarFile columnarFile = new PTLogColumnarFile(channel, blockRows);
+		int result = listing.applyAsInt(ptLog -> {
+			try {
+				columnarFile.write(ptLog);
+			} catch (IOException ioException) {
+				throw new UncheckedIOException(ioException);
+			}
+		});
+		if (result == COMMAND_EXECUTION_RESULT_FAIL) {
+			return -1;
+		}
+		return columnarFile.finish();
+	}
+}
@@ -0,0 +1,683 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.ExecutorFactory;
+import com.siddhartha.practice.Helpers.JsonParser;
+import com.siddhartha.practice.Helpers.ValidationHelper;
+import com.siddhartha.practice.Models.Employee;
+import com.siddhartha.practice.Models.ImportFormat;
+import com.siddhartha.practice.Models.ImportReport;
+import com.siddhartha.practice.Models.PTLog;
+import config.DatabaseConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Bulk imports employees and pt logs from csv or ndjson files through a pipeline of three stages joined by bounded
+ * queues. One thread reads the file through a FileChannel and cuts it into chunks of rows, parser threads turn the rows
+ * of each chunk into employee names or pt logs and reject the invalid ones, and writer threads add each chunk to the
+ * database, pt logs in one addPTLogsBatch transaction per chunk. The queues hold a few chunks at most, so a slow
+ * database slows the reading down instead of filling the heap.
+ * <p>
+ * Csv files start with a header row naming their columns, in any order, and may quote fields holding commas, quotes
+ * or line breaks. Ndjson files hold one object per line. Employees are read from a name column, pt logs from
+ * employeeId or employeeName, details and loggedDate columns. Employee names are resolved to ids through a cache of all
+ * employees loaded on the first name met, and a name shared by several employees is rejected as ambiguous.
+ * <p>
+ * Chunks are added as soon as they are parsed, so rows are not added in the order of the file. Rejected rows, and the
+ * rows of a chunk the database failed to add, are counted and reported without stopping the import.
+ *
+ * @author sid
+ */
+public final class PTLogImporter {
+	private final static int COMMAND_EXECUTION_RESULT_SUCCESS = 1;
+	private static final int AMBIGUOUS_NAME = -1;
+	private static final int MAX_CACHED_DATES = 100_000;
+	private static final RowChunk END_OF_ROWS = new RowChunk(0);
+
+	private final PTLogService ptLogService;
+	private final int parserThreads;
+	private final int writerThreads;
+	private final int chunkRows;
+	private final int queueCapacity;
+	private final int readBufferBytes;
+	private final long progressIntervalMillis;
+	private final int maxReportedRejections;
+
+	public PTLogImporter(PTLogService ptLogService) {
+		this(ptLogService, DatabaseConfig.importParserThreads, DatabaseConfig.importWriterThreads,
+				DatabaseConfig.importChunkRows, DatabaseConfig.importQueueCapacity, DatabaseConfig.importReadBufferBytes,
+				DatabaseConfig.importProgressIntervalMillis, DatabaseConfig.importMaxReportedRejections);
+	}
+
+	/**
+	 * @param ptLogService
+	 * 		service adding the imported rows.
+	 * @param parserThreads
+	 * 		number of threads parsing and validating rows.
+	 * @param writerThreads
+	 * 		number of threads adding chunks to the database, each holding a pooled connection while it adds one.
+	 * @param chunkRows
+	 * 		number of rows per chunk, the pt logs of a chunk being added in one transaction.
+	 * @param queueCapacity
+	 * 		number of chunks waiting between two stages before the earlier stage blocks.
+	 * @param readBufferBytes
+	 * 		initial size of the read buffer, grown when a single row is longer.
+	 * @param progressIntervalMillis
+	 * 		time between two progress reports.
+	 * @param maxReportedRejections
+	 * 		number of rejected rows whose line and reason are kept in the report.
+	 */
+	public PTLogImporter(PTLogService ptLogService, int parserThreads, int writerThreads, int chunkRows,
+			int queueCapacity, int readBufferBytes, long progressIntervalMillis, int maxReportedRejections) {
+		this.ptLogService = ptLogService;
+		this.parserThreads = Math.max(1, parserThreads);
+		this.writerThreads = Math.max(1, writerThreads);
+		this.chunkRows = Math.max(1, chunkRows);
+		this.queueCapacity = Math.max(1, queueCapacity);
+		this.readBufferBytes = Math.max(1024, readBufferBytes);
+		this.progressIntervalMillis = Math.max(1, progressIntervalMillis);
+		this.maxReportedRejections = Math.max(0, maxReportedRejections);
+	}
+
+	/**
+	 * Adds an employee, with the default designation, for every row of a file.
+	 *
+	 * @param file
+	 * 		file to import.
+	 * @param format
+	 * 		format of the file.
+	 * @param progress
+	 * 		receives the progress of the import every progress interval, may be null.
+	 * @return outcome of the import.
+	 */
+	public ImportReport importEmployees(Path file, ImportFormat format, Consumer<ImportReport> progress) {
+		ImportTarget<String> target = new ImportTarget<>(new String[]{"name"}, "a name column",
+				indexes -> indexes[0] >= 0, PTLogImporter::readEmployeeName, this::addEmployees,
+				name -> "failed to add employee '" + name + "'");
+		return run(file, format, target, progress);
+	}
+
+	/**
+	 * Adds a pt log for every row of a file.
+	 *
+	 * @param file
+	 * 		file to import.
+	 * @param format
+	 * 		format of the file.
+	 * @param progress
+	 * 		receives the progress of the import every progress interval, may be null.
+	 * @return outcome of the import.
+	 */
+	public ImportReport importPTLogs(Path file, ImportFormat format, Consumer<ImportReport> progress) {
+		EmployeeNames employeeNames = new EmployeeNames();
+		ConcurrentHashMap<String, Long> loggedDateMillis = new ConcurrentHashMap<>();
+		ImportTarget<PTLog> target = new ImportTarget<>(
+				new String[]{"employeeId", "employeeName", "details", "loggedDate"},
+				"an employeeId or employeeName column and a loggedDate column",
+				indexes -> (indexes[0] >= 0 || indexes[1] >= 0) && indexes[3] >= 0,
+				values -> readPTLog(values, employeeNames, loggedDateMillis), ptLogService::addPTLogsBatch,
+				ptLog -> "employee id " + ptLog.getEmployeeId() + " doesn't exist");
+		return run(file, format, target, progress);
+	}
+
+	private <T> ImportReport run(Path file, ImportFormat format, ImportTarget<T> target,
+			Consumer<ImportReport> progress) {
+		Run<T> run = new Run<>(format, target);
+		ExecutorService executor = Executors.newFixedThreadPool(1 + parserThreads + writerThreads,
+				ExecutorFactory.daemonThreadFactory("ptlog-import"));
+		try {
+			executor.execute(() -> run.read(file));
+			for (int i = 0; i < parserThreads; i++) {
+				executor.execute(run::parse);
+			}
+			for (int i = 0; i < writerThreads; i++) {
+				executor.execute(run::write);
+			}
+			while (!run.writersDone.await(progressIntervalMillis, TimeUnit.MILLISECONDS)) {
+				if (progress != null) {
+					progress.accept(run.report(false));
+				}
+			}
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+			run.fail("Import interrupted.");
+		} finally {
+			executor.shutdownNow();
+		}
+		return run.report(true);
+	}
+
+	private int[] addEmployees(ArrayList<String> names) {
+		int[] results = new int[names.size()];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = ptLogService.addEmployee(names.get(i));
+		}
+		return results;
+	}
+
+	private static String readEmployeeName(String[] values) {
+		String name = trimToNull(values[0]);
+		if (name == null) {
+			throw new IllegalArgumentException("missing name");
+		}
+		if (!ValidationHelper.validateName(name)) {
+			throw new IllegalArgumentException("invalid name '" + name + "'");
+		}
+		return name;
+	}
+
+	/**
+	 * @param loggedDateMillis
+	 * 		time of each logged date already parsed, files holding far fewer dates than rows.
+	 */
+	private static PTLog readPTLog(String[] values, EmployeeNames employeeNames,
+			ConcurrentHashMap<String, Long> loggedDateMillis) {
+		String employeeIdString = trimToNull(values[0]);
+		String employeeName = trimToNull(values[1]);
+		String loggedDateString = trimToNull(values[3]);
+		int employeeId;
+		if (employeeIdString != null) {
+			try {
+				employeeId = Integer.parseInt(employeeIdString);
+			} catch (NumberFormatException numberFormatException) {
+				throw new IllegalArgumentException("invalid employeeId '" + employeeIdString + "'");
+			}
+		} else if (employeeName != null) {
+			employeeId = employeeNames.resolve(employeeName);
+		} else {
+			throw new IllegalArgumentException("missing employeeId and employeeName");
+		}
+		if (loggedDateString == null) {
+			throw new IllegalArgumentException("missing loggedDate");
+		}
+		Long millis = loggedDateMillis.get(loggedDateString);
+		if (millis == null) {
+			try {
+				millis = Date.valueOf(loggedDateString).getTime();
+			} catch (IllegalArgumentException illegalArgumentException) {
+				throw new IllegalArgumentException("invalid loggedDate '" + loggedDateString + "'");
+			}
+			if (loggedDateMillis.size() < MAX_CACHED_DATES) {
+				loggedDateMillis.put(loggedDateString, millis);
+			}
+		}
+		return new PTLog(0, employeeId, values[2] == null ? "" : values[2], new Date(millis));
+	}
+
+	private static String trimToNull(String value) {
+		if (value == null) {
+			return null;
+		}
+		value = value.trim();
+		return value.isEmpty() ? null : value;
+	}
+
+	/**
+	 * Splits a csv row into its fields. Quoted fields may hold commas, line breaks and quotes written twice.
+	 *
+	 * @throws IllegalArgumentException
+	 * 		if a quoted field is not closed.
+	 */
+	static String[] splitCsvRow(String row) throws IllegalArgumentException {
+		ArrayList<String> fields = new ArrayList<>();
+		int position = 0;
+		while (true) {
+			int end;
+			if (position < row.length() && row.charAt(position) == '"') {
+				int closingQuote = row.indexOf('"', position + 1);
+				StringBuilder field = null;
+				while (closingQuote >= 0 && closingQuote + 1 < row.length() && row.charAt(closingQuote + 1) == '"') {
+					// A quote written twice, the field is copied with one of them dropped.
+					if (field == null) {
+						field = new StringBuilder();
+						field.append(row, position + 1, closingQuote + 1);
+					} else {
+						field.append(row, position, closingQuote + 1);
+					}
+					position = closingQuote + 2;
+					closingQuote = row.indexOf('"', position);
+				}
+				if (closingQuote < 0) {
+					throw new IllegalArgumentException("unterminated quoted field");
+				}
+				fields.add(field == null ? row.substring(position + 1, closingQuote) :
+						field.append(row, position, closingQuote).toString());
+				end = row.indexOf(',', closingQuote + 1);
+			} else {
+				end = row.indexOf(',', position);
+				fields.add(row.substring(position, end < 0 ? row.length() : end));
+			}
+			if (end < 0) {
+				return fields.toArray(new String[0]);
+			}
+			position = end + 1;
+		}
+	}
+
+	/**
+	 * Columns read from the rows of a file, how they are turned into items and how items are added.
+	 */
+	private static final class ImportTarget<T> {
+		private final String[] columns;
+		private final String requiredColumns;
+		private final Predicate<int[]> hasRequiredColumns;
+		private final Function<String[], T> rowReader;
+		private final Function<ArrayList<T>, int[]> chunkWriter;
+		private final Function<T, String> rejectionReason;
+
+		/**
+		 * @param columns
+		 * 		names of the columns read, values of a row are passed to the row reader in this order.
+		 * @param requiredColumns
+		 * 		description of the columns a csv header must name.
+		 * @param hasRequiredColumns
+		 * 		checks the index of each column in a csv header, -1 for the columns missing.
+		 * @param rowReader
+		 * 		turns the values of a row into an item, throwing an IllegalArgumentException with the reason of its
+		 * 		rejection if the row is invalid.
+		 * @param chunkWriter
+		 * 		adds the items of a chunk, returning the result of each item or null if none was added.
+		 * @param rejectionReason
+		 * 		reason of the rejection of an item the chunk writer failed to add.
+		 */
+		private ImportTarget(String[] columns, String requiredColumns, Predicate<int[]> hasRequiredColumns,
+				Function<String[], T> rowReader, Function<ArrayList<T>, int[]> chunkWriter,
+				Function<T, String> rejectionReason) {
+			this.columns = columns;
+			this.requiredColumns = requiredColumns;
+			this.hasRequiredColumns = hasRequiredColumns;
+			this.rowReader = rowReader;
+			this.chunkWriter = chunkWriter;
+			this.rejectionReason = rejectionReason;
+		}
+	}
+
+	/**
+	 * State of one import, shared by the threads of its stages.
+	 */
+	private final class Run<T> {
+		private final ImportFormat format;
+		private final ImportTarget<T> target;
+		private final ArrayBlockingQueue<RowChunk> rowChunks = new ArrayBlockingQueue<>(queueCapacity);
+		private final ArrayBlockingQueue<ItemChunk<T>> itemChunks = new ArrayBlockingQueue<>(queueCapacity);
+		private final ItemChunk<T> endOfItems = new ItemChunk<>(0);
+		private final AtomicInteger runningParsers = new AtomicInteger(parserThreads);
+		private final CountDownLatch writersDone = new CountDownLatch(writerThreads);
+		private final LongAdder rowsRead = new LongAdder();
+		private final LongAdder rowsImported = new LongAdder();
+		private final LongAdder rowsRejected = new LongAdder();
+		private final ArrayList<String> rejections = new ArrayList<>();
+		private final long startNanos = System.nanoTime();
+		private volatile String failure;
+		/**
+		 * Index of each column in the csv header, written by the reader before it queues the first chunk.
+		 */
+		private int[] columnIndexes;
+
+		private Run(ImportFormat format, ImportTarget<T> target) {
+			this.format = format;
+			this.target = target;
+		}
+
+		/**
+		 * Reads the file and queues its rows in chunks. A row ends at a line break outside of a quoted csv field.
+		 */
+		private void read(Path file) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				boolean csv = format == ImportFormat.Csv;
+				ByteBuffer buffer = ByteBuffer.allocate(readBufferBytes);
+				RowChunk chunk = new RowChunk(chunkRows);
+				boolean inQuotes = false;
+				boolean startOfFile = true;
+				long line = 1;
+				long rowLine = 1;
+				int rowStart = 0;
+				int scanned = 0;
+				while (failure == null) {
+					boolean endOfFile = channel.read(buffer) < 0;
+					byte[] bytes = buffer.array();
+					int end = buffer.position();
+					if (startOfFile && end < 3 && !endOfFile) {
+						continue;
+					}
+					if (startOfFile) {
+						startOfFile = false;
+						if (end >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF) {
+							rowStart = scanned = 3;
+						}
+					}
+					for (int i = scanned; i < end; i++) {
+						byte b = bytes[i];
+						if (b == '"' && csv) {
+							inQuotes = !inQuotes;
+						} else if (b == '\n') {
+							line++;
+							if (!inQuotes) {
+								chunk = addRow(chunk, bytes, rowStart, i, rowLine);
+								rowStart = i + 1;
+								rowLine = line;
+							}
+						}
+					}
+					if (endOfFile) {
+						if (rowStart < end) {
+							chunk = addRow(chunk, bytes, rowStart, end, rowLine);
+						}
+						break;
+					}
+					if (rowStart == 0 && end == bytes.length) {
+						buffer = ByteBuffer.allocate(bytes.length * 2).put(bytes, 0, end);
+					} else {
+						System.arraycopy(bytes, rowStart, bytes, 0, end - rowStart);
+						buffer.position(end - rowStart);
+					}
+					scanned = end - rowStart;
+					rowStart = 0;
+				}
+				if (chunk.count > 0 && failure == null) {
+					rowChunks.put(chunk);
+				}
+			} catch (IOException ioException) {
+				fail("Failed to read " + file + ".\n" + ioException.toString());
+			} catch (IllegalArgumentException illegalArgumentException) {
+				fail(illegalArgumentException.getMessage());
+			} catch (InterruptedException interruptedException) {
+				Thread.currentThread().interrupt();
+				fail("Import interrupted.");
+			} finally {
+				for (int i = 0; i < parserThreads; i++) {
+					putQuietly(rowChunks, END_OF_ROWS);
+				}
+			}
+		}
+
+		/**
+		 * Appends a row to the chunk, queuing the chunk once full. The first row of a csv file is its header.
+		 *
+		 * @return chunk the next row is appended to.
+		 */
+		private RowChunk addRow(RowChunk chunk, byte[] bytes, int start, int end, long line)
+				throws InterruptedException, IllegalArgumentException {
+			if (end > start && bytes[end - 1] == '\r') {
+				end--;
+			}
+			String row = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+			if (row.isBlank()) {
+				return chunk;
+			}
+			if (format == ImportFormat.Csv && columnIndexes == null) {
+				columnIndexes = readHeader(row);
+				return chunk;
+			}
+			chunk.add(row, line);
+			if (chunk.count < chunkRows) {
+				return chunk;
+			}
+			rowChunks.put(chunk);
+			return new RowChunk(chunkRows);
+		}
+
+		private int[] readHeader(String row) throws IllegalArgumentException {
+			String[] names = splitCsvRow(row);
+			int[] indexes = new int[target.columns.length];
+			for (int column = 0; column < indexes.length; column++) {
+				indexes[column] = -1;
+				for (int i = 0; i < names.length; i++) {
+					if (names[i].trim().equalsIgnoreCase(target.columns[column])) {
+						indexes[column] = i;
+					}
+				}
+			}
+			if (!target.hasRequiredColumns.test(indexes)) {
+				throw new IllegalArgumentException("The header row of the csv file needs " + target.requiredColumns +
+						", found: " + row);
+			}
+			return indexes;
+		}
+
+		/**
+		 * Turns the rows of queued chunks into items until the reader is done, queuing the valid items of each chunk.
+		 */
+		private void parse() {
+			try {
+				while (true) {
+					RowChunk chunk = rowChunks.take();
+					if (chunk == END_OF_ROWS) {
+						return;
+					}
+					if (failure != null) {
+						continue;
+					}
+					ItemChunk<T> items = new ItemChunk<>(chunk.count);
+					for (int i = 0; i < chunk.count; i++) {
+						try {
+							items.add(target.rowReader.apply(values(chunk.rows[i])), chunk.lines[i]);
+						} catch (IllegalArgumentException illegalArgumentException) {
+							reject(chunk.lines[i], illegalArgumentException.getMessage());
+						} catch (IllegalStateException illegalStateException) {
+							fail(illegalStateException.getMessage());
+							break;
+						}
+					}
+					rowsRead.add(chunk.count);
+					if (items.items.size() > 0) {
+						itemChunks.put(items);
+					}
+				}
+			} catch (InterruptedException interruptedException) {
+				Thread.currentThread().interrupt();
+				fail("Import interrupted.");
+			} finally {
+				if (runningParsers.decrementAndGet() == 0) {
+					for (int i = 0; i < writerThreads; i++) {
+						putQuietly(itemChunks, endOfItems);
+					}
+				}
+			}
+		}
+
+		/**
+		 * @return values of the columns of the target in a row, null for the columns the row does not have.
+		 */
+		private String[] values(String row) throws IllegalArgumentException {
+			String[] values = new String[target.columns.length];
+			if (format == ImportFormat.Csv) {
+				String[] fields = splitCsvRow(row);
+				for (int column = 0; column < values.length; column++) {
+					int index = columnIndexes[column];
+					values[column] = index >= 0 && index < fields.length ? fields[index] : null;
+				}
+				return values;
+			}
+			LinkedHashMap<String, Object> object = JsonParser.parseObject(row);
+			for (int column = 0; column < values.length; column++) {
+				Object value = object.get(target.columns[column]);
+				values[column] = value == null ? null : value.toString();
+			}
+			return values;
+		}
+
+		/**
+		 * Adds the items of queued chunks until the parsers are done.
+		 */
+		private void write() {
+			try {
+				while (true) {
+					ItemChunk<T> chunk = itemChunks.take();
+					if (chunk == endOfItems) {
+						return;
+					}
+					if (failure != null) {
+						continue;
+					}
+					int[] results;
+					try {
+						results = target.chunkWriter.apply(chunk.items);
+					} catch (RuntimeException runtimeException) {
+						System.out.println("Failed to import a chunk of " + chunk.items.size() + " rows.\n" +
+								runtimeException.toString());
+						results = null;
+					}
+					for (int i = 0; i < chunk.items.size(); i++) {
+						if (results == null) {
+							reject(chunk.lines[i], "chunk of rows failed to be added");
+						} else if (results[i] == COMMAND_EXECUTION_RESULT_SUCCESS) {
+							rowsImported.increment();
+						} else {
+							reject(chunk.lines[i], target.rejectionReason.apply(chunk.items.get(i)));
+						}
+					}
+				}
+			} catch (InterruptedException interruptedException) {
+				Thread.currentThread().interrupt();
+				fail("Import interrupted.");
+			} finally {
+				writersDone.countDown();
+			}
+		}
+
+		private void reject(long line, String reason) {
+			rowsRejected.increment();
+			synchronized (rejections) {
+				if (rejections.size() < maxReportedRejections) {
+					rejections.add("line " + line + ": " + reason);
+				}
+			}
+		}
+
+		private void fail(String reason) {
+			if (failure == null) {
+				failure = reason;
+			}
+		}
+
+		private ImportReport report(boolean finished) {
+			ArrayList<String> reportedRejections;
+			synchronized (rejections) {
+				reportedRejections = new ArrayList<>(rejections);
+			}
+			return new ImportReport(rowsRead.sum(), rowsImported.sum(), rowsRejected.sum(), reportedRejections,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), finished, failure);
+		}
+	}
+
+	/**
+	 * Queues an end marker, which must not be lost for the next stage to finish. Interruptions are kept for the caller.
+	 */
+	private static <E> void putQuietly(ArrayBlockingQueue<E> queue, E element) {
+		boolean interrupted = Thread.interrupted();
+		while (true) {
+			try {
+				queue.put(element);
+				break;
+			} catch (InterruptedException interruptedException) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Employee ids by name, loaded from all employees when the first name is resolved.
+	 */
+	private final class EmployeeNames {
+		private volatile HashMap<String, Integer> idsByName;
+
+		/**
+		 * @throws IllegalArgumentException
+		 * 		if no employee or several employees have the name.
+		 * @throws IllegalStateException
+		 * 		if the employees could not be loaded.
+		 */
+		private int resolve(String name) throws IllegalArgumentException, IllegalStateException {
+			HashMap<String, Integer> ids = idsByName;
+			if (ids == null) {
+				synchronized (this) {
+					if (idsByName == null) {
+						idsByName = load();
+					}
+					ids = idsByName;
+				}
+			}
+			Integer id = ids.get(name);
+			if (id == null) {
+				throw new IllegalArgumentException("unknown employeeName '" + name + "'");
+			}
+			if (id == AMBIGUOUS_NAME) {
+				throw new IllegalArgumentException("employeeName '" + name + "' is shared by several employees");
+			}
+			return id;
+		}
+
+		private HashMap<String, Integer> load() throws IllegalStateException {
+			ArrayList<Employee> employees = ptLogService.listEmployees();
+			if (employees == null) {
+				throw new IllegalStateException("Failed to load employees to resolve their names.");
+			}
+			HashMap<String, Integer> ids = new HashMap<>(employees.size() * 2);
+			for (Employee employee : employees) {
+				ids.merge(employee.getName().trim(), employee.getId(), (first, second) -> AMBIGUOUS_NAME);
+			}
+			return ids;
+		}
+	}
+
+	/**
+	 * Rows read from the file, with the line each starts on.
+	 */
+	private static final class RowChunk {
+		private final String[] rows;
+		private final long[] lines;
+		private int count = 0;
+
+		private RowChunk(int capacity) {
+			this.rows = new String[capacity];
+			this.lines = new long[capacity];
+		}
+
+		private void add(String row, long line) {
+			rows[count] = row;
+			lines[count++] = line;
+		}
+	}
+
+	/**
+	 * Valid items of a chunk of rows, with the line of the row of each.
+	 */
+	private static final class ItemChunk<T> {
+		private final ArrayList<T> items;
+		private final long[] lines;
+
+		private ItemChunk(int capacity) {
+			this.items = new ArrayList<>(capacity);
+			this.lines = new long[capacity];
+		}
+
+		private void add(T item, long line) {
+			lines[items.size()] = line;
+			items.add(item);
+		}
+	}
+}
@@ -0,0 +1,594 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.JsonWriter;
+import com.siddhartha.practice.Models.PTLog;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of pt log writes kept in memory-mapped segment files, so a write is accepted as soon as it is
+ * copied to the mapped page cache, even while the database is slow or down. A background replayer adds the journaled
+ * logs to the storage engine in batches and records the position of the last added log in a checkpoint file, forced to
+ * disk. Segments before the checkpoint are deleted, and on start the logs after it are replayed again, so every log
+ * reaches the database at least once.
+ * <p>
+ * When a batch fails, its logs are added one at a time. A log that still fails while the database answers other
+ * queries, like one whose details are too long, is appended to a dead-letter file of ndjson lines, which can be fixed
+ * and imported, and the checkpoint moves past it. While the database cannot be reached the replayer retries with
+ * backoff from the first log not added.
+ * <p>
+ * A record is [int length][int crc32][int employee id][int logged epoch day][details as UTF-8], length being the size
+ * of the whole record and the CRC covering everything after it. The length is written last, and a zero length, a
+ * length past the segment or a CRC mismatch ends the readable part of a segment, which drops a record torn by a
+ * crash. Mapped pages survive a crash of the process. They are forced to disk when a segment is full, on close, and
+ * after every append when syncOnAppend is set, which also covers a crash of the machine.
+ *
+ * @author sid
+ */
+public final class PTLogJournal implements AutoCloseable {
+	private final static int COMMAND_EXECUTION_RESULT_FAIL = 0;
+	private final static int COMMAND_EXECUTION_RESULT_SUCCESS = 1;
+	private static final String SEGMENT_SUFFIX = ".journal";
+	private static final String CHECKPOINT_FILE = "checkpoint";
+	private static final String DEAD_LETTER_FILE = "dead-letter.ndjson";
+	private static final int RECORD_HEADER_BYTES = 16;
+	private static final int CHECKPOINT_BYTES = 16;
+	private static final long IDLE_WAIT_MILLIS = 100;
+	private static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+	private static final long CLOSE_TIMEOUT_MILLIS = 30_000;
+
+	private final Path directory;
+	private final int segmentBytes;
+	private final boolean syncOnAppend;
+	private final PTLogStorageEngine storageEngine;
+	private final PTLogMetrics metrics;
+	private final int replayBatchSize;
+	private final long retryDelayMillis;
+	private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+	private final FileChannel checkpointChannel;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition appended = lock.newCondition();
+	private final Condition closing = lock.newCondition();
+	private final Thread replayer;
+
+	private final AtomicLong pending = new AtomicLong();
+	private final LongAdder replayed = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder replayFailures = new LongAdder();
+	private final LongAdder deadLettered = new LongAdder();
+
+	private FileChannel deadLetterChannel;
+	private Segment writeSegment;
+	private int writePosition;
+	private volatile long writeMark;
+	private int readSegment;
+	private int readPosition;
+	private volatile boolean closed = false;
+
+	/**
+	 * Opens the journal in the directory, recovering the segments left by an earlier run, and starts replaying them.
+	 *
+	 * @param directory
+	 * 		directory of the segment files, created if missing.
+	 * @param segmentBytes
+	 * 		size of a segment file.
+	 * @param syncOnAppend
+	 * 		whether every append is forced to disk before it is accepted.
+	 * @param storageEngine
+	 * 		engine the journaled logs are replayed into.
+	 * @param metrics
+	 * 		metrics the replays, backlog and segments are recorded in.
+	 * @param replayBatchSize
+	 * 		maximum number of logs added per replayed batch.
+	 * @param retryDelayMillis
+	 * 		time waited before retrying a failed batch, doubled on every further failure.
+	 * @throws IOException
+	 * 		if the journal files cannot be opened.
+	 */
+	public PTLogJournal(Path directory, int segmentBytes, boolean syncOnAppend, PTLogStorageEngine storageEngine,
+			PTLogMetrics metrics, int replayBatchSize, long retryDelayMillis) throws IOException {
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.syncOnAppend = syncOnAppend;
+		this.storageEngine = storageEngine;
+		this.metrics = metrics;
+		this.replayBatchSize = Math.max(1, replayBatchSize);
+		this.retryDelayMillis = Math.max(1, retryDelayMillis);
+		Files.createDirectories(directory);
+		this.checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		recover();
+		metrics.registerGauge("ptlog_journal_pending", "gauge", "Journaled PT logs not yet replayed.", pending::get);
+		metrics.registerGauge("ptlog_journal_segments", "gauge", "Journal segment files.", segments::size);
+		metrics.registerGauge("ptlog_journal_replayed_total", "counter", "Journaled PT logs replayed.", replayed::sum);
+		metrics.registerGauge("ptlog_journal_dropped_total", "counter",
+				"Journaled PT logs the database refused, such as logs of unknown employees.", dropped::sum);
+		metrics.registerGauge("ptlog_journal_replay_failures_total", "counter", "Replayed batches that failed.",
+				replayFailures::sum);
+		metrics.registerGauge("ptlog_journal_dead_lettered_total", "counter",
+				"Journaled PT logs moved to the dead-letter file after failing on their own.", deadLettered::sum);
+		this.replayer = new Thread(this::runReplayer, "ptlog-journal-replayer");
+		this.replayer.setDaemon(true);
+		this.replayer.start();
+	}
+
+	/**
+	 * Appends a pt log to the journal. The employee is checked when the log is replayed, logs of unknown employees are
+	 * dropped then.
+	 *
+	 * @param ptLog
+	 * 		log to append.
+	 * @return COMMAND_EXECUTION_RESULT_SUCCESS once the log is journaled.
+	 */
+	public int append(PTLog ptLog) {
+		byte[] details = ptLog.getDetails() == null ? new byte[0] : ptLog.getDetails().getBytes(StandardCharsets.UTF_8);
+		int length = RECORD_HEADER_BYTES + details.length;
+		if (length > segmentBytes || ptLog.getLoggedDate() == null) {
+			System.out.println("PT log can't be written to journal.");
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		lock.lock();
+		try {
+			if (closed) {
+				System.out.println("Journal is closed.");
+				return COMMAND_EXECUTION_RESULT_FAIL;
+			}
+			if (writePosition + length > writeSegment.capacity()) {
+				writeSegment.buffer.force();
+				writeSegment = openSegment(writeSegment.index + 1);
+				writePosition = 0;
+			}
+			MappedByteBuffer buffer = writeSegment.buffer;
+			buffer.putInt(writePosition + 8, ptLog.getEmployeeId());
+			buffer.putInt(writePosition + 12, (int) ptLog.getLoggedDate().toLocalDate().toEpochDay());
+			buffer.put(writePosition + RECORD_HEADER_BYTES, details);
+			buffer.putInt(writePosition + 4, crc(buffer, writePosition, length));
+			buffer.putInt(writePosition, length);
+			if (syncOnAppend) {
+				buffer.force(writePosition, length);
+			}
+			writePosition += length;
+			writeMark = mark(writeSegment.index, writePosition);
+			pending.incrementAndGet();
+			appended.signal();
+			return COMMAND_EXECUTION_RESULT_SUCCESS;
+		} catch (IOException ioException) {
+			System.out.println("Failed to write pt log to journal.");
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return number of journaled logs not yet replayed.
+	 */
+	public long getPendingCount() {
+		return pending.get();
+	}
+
+	/**
+	 * @return number of journaled logs moved to the dead-letter file.
+	 */
+	public long getDeadLetteredCount() {
+		return deadLettered.sum();
+	}
+
+	/**
+	 * @return number of segment files.
+	 */
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * Stops the replayer and closes the segment files. Logs not yet replayed are replayed on the next start.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			appended.signalAll();
+			closing.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			replayer.join(CLOSE_TIMEOUT_MILLIS);
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+		}
+		for (Segment segment : segments.values()) {
+			segment.buffer.force();
+			closeQuietly(segment.channel);
+		}
+		closeQuietly(checkpointChannel);
+		if (deadLetterChannel != null) {
+			closeQuietly(deadLetterChannel);
+		}
+		for (String gauge : new String[]{"ptlog_journal_pending", "ptlog_journal_segments", "ptlog_journal_replayed_total",
+				"ptlog_journal_dropped_total", "ptlog_journal_replay_failures_total", "ptlog_journal_dead_lettered_total"}) {
+			metrics.unregisterGauge(gauge);
+		}
+	}
+
+	private void runReplayer() {
+		long retryDelay = retryDelayMillis;
+		long[] endMarks = new long[replayBatchSize];
+		while (!closed) {
+			ArrayList<PTLog> batch = new ArrayList<>(replayBatchSize);
+			readBatch(batch, endMarks);
+			if (batch.isEmpty()) {
+				awaitAppend(IDLE_WAIT_MILLIS);
+				continue;
+			}
+			long start = System.nanoTime();
+			int[] results = addBatch(batch);
+			metrics.record("journalReplay", System.nanoTime() - start, results == null, 0);
+			int handled = batch.size();
+			if (results == null) {
+				replayFailures.increment();
+				handled = replaySeparately(batch);
+			} else {
+				for (int i = 0; i < results.length; i++) {
+					recordResult(batch.get(i), results[i]);
+				}
+			}
+			if (handled > 0) {
+				acknowledge(endMarks[handled - 1], handled);
+			}
+			if (handled < batch.size()) {
+				awaitRetry(retryDelay);
+				retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+			} else {
+				retryDelay = retryDelayMillis;
+			}
+		}
+	}
+
+	/**
+	 * Adds the logs of a failed batch one at a time, so one bad log does not hold back the others. A log that still
+	 * fails while the database answers is moved to the dead-letter file.
+	 *
+	 * @return number of logs at the start of the batch added, dropped or moved to the dead-letter file. The others are
+	 * replayed again later, as the database could not be reached.
+	 */
+	private int replaySeparately(List<PTLog> batch) {
+		for (int i = 0; i < batch.size(); i++) {
+			PTLog ptLog = batch.get(i);
+			int[] results = addBatch(List.of(ptLog));
+			if (results != null) {
+				recordResult(ptLog, results[0]);
+				continue;
+			}
+			if (!databaseAnswers() || !deadLetter(ptLog)) {
+				return i;
+			}
+		}
+		return batch.size();
+	}
+
+	private int[] addBatch(List<PTLog> batch) {
+		try {
+			return storageEngine.addPTLogsBatch(batch, replayBatchSize);
+		} catch (RuntimeException runtimeException) {
+			System.out.println("Failed to replay journal: " + runtimeException.getMessage());
+			return null;
+		}
+	}
+
+	private void recordResult(PTLog ptLog, int result) {
+		if (result == COMMAND_EXECUTION_RESULT_FAIL) {
+			dropped.increment();
+			System.out.println("Dropped journaled pt log of employee " + ptLog.getEmployeeId() + ".");
+		} else {
+			replayed.increment();
+		}
+	}
+
+	/**
+	 * Tells a log failing on its own from a database that cannot be reached, by reading the first employee.
+	 */
+	private boolean databaseAnswers() {
+		try {
+			return storageEngine.listEmployeesPage(null, 1) != null;
+		} catch (RuntimeException runtimeException) {
+			return false;
+		}
+	}
+
+	/**
+	 * Appends a log to the dead-letter file as a line of ndjson, forced to disk.
+	 *
+	 * @return false if the file could not be written, in which case the log must be kept in the journal.
+	 */
+	private boolean deadLetter(PTLog ptLog) {
+		StringWriter line = new StringWriter();
+		try {
+			new JsonWriter(line).ptLog(ptLog);
+			line.write('\n');
+			if (deadLetterChannel == null) {
+				deadLetterChannel = FileChannel.open(directory.resolve(DEAD_LETTER_FILE), StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			}
+			ByteBuffer bytes = ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8));
+			while (bytes.hasRemaining()) {
+				deadLetterChannel.write(bytes);
+			}
+			deadLetterChannel.force(false);
+		} catch (IOException ioException) {
+			System.out.println("Failed to write journal dead-letter file.\n" + ioException.toString());
+			return false;
+		}
+		deadLettered.increment();
+		System.out.println("Moved journaled pt log of employee " + ptLog.getEmployeeId() + " to the dead-letter file.");
+		return true;
+	}
+
+	/**
+	 * Reads the records after the checkpoint into the batch, without moving the checkpoint.
+	 *
+	 * @param endMarks
+	 * 		receives the mark of the position after each read record.
+	 */
+	private void readBatch(ArrayList<PTLog> batch, long[] endMarks) {
+		long limitMark = writeMark;
+		int segmentIndex = readSegment;
+		int position = readPosition;
+		while (batch.size() < replayBatchSize && mark(segmentIndex, position) < limitMark) {
+			Segment segment = segments.get(segmentIndex);
+			int length = segment == null ? 0 : recordLength(segment.buffer, position);
+			if (length == 0) {
+				if (segmentIndex >= segmentOf(limitMark)) {
+					break;
+				}
+				segmentIndex++;
+				position = 0;
+				continue;
+			}
+			batch.add(readRecord(segment.buffer, position, length));
+			position += length;
+			endMarks[batch.size() - 1] = mark(segmentIndex, position);
+		}
+	}
+
+	/**
+	 * Moves the checkpoint after a replayed batch and deletes the segments before it.
+	 */
+	private void acknowledge(long endMark, int count) {
+		readSegment = segmentOf(endMark);
+		readPosition = positionOf(endMark);
+		pending.addAndGet(-count);
+		try {
+			writeCheckpoint(endMark);
+		} catch (IOException ioException) {
+			System.out.println("Failed to write journal checkpoint.");
+			return;
+		}
+		for (Map.Entry<Integer, Segment> entry : segments.headMap(readSegment).entrySet()) {
+			Segment segment = entry.getValue();
+			closeQuietly(segment.channel);
+			segments.remove(entry.getKey());
+			try {
+				Files.deleteIfExists(segment.path);
+			} catch (IOException ioException) {
+				System.out.println("Failed to delete journal segment " + segment.path + ".");
+			}
+		}
+	}
+
+	/**
+	 * Waits until a log is appended, the time passed or the journal is closing.
+	 */
+	private void awaitAppend(long millis) {
+		lock.lock();
+		try {
+			if (!closed && mark(readSegment, readPosition) >= writeMark) {
+				appended.await(millis, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException interruptedException) {
+			closed = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until the time passed or the journal is closing, appends do not cut the wait short.
+	 */
+	private void awaitRetry(long millis) {
+		lock.lock();
+		try {
+			if (!closed) {
+				closing.await(millis, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException interruptedException) {
+			closed = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Opens the segments left by an earlier run, deletes those before the checkpoint and finds the end of the last
+	 * segment, which is where appending continues.
+	 */
+	private void recover() throws IOException {
+		ArrayList<Integer> indexes = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.map(path -> path.getFileName().toString())
+					.filter(name -> name.endsWith(SEGMENT_SUFFIX))
+					.forEach(name -> indexes.add(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+		}
+		indexes.sort(null);
+		long checkpoint = readCheckpoint();
+		int firstSegment = checkpoint >= 0 ? segmentOf(checkpoint) : (indexes.isEmpty() ? 0 : indexes.get(0));
+		for (int index : indexes) {
+			if (index < firstSegment) {
+				Files.deleteIfExists(segmentPath(index));
+			} else {
+				openSegment(index);
+			}
+		}
+		if (segments.isEmpty()) {
+			writeSegment = openSegment(firstSegment);
+			writePosition = 0;
+			readSegment = firstSegment;
+			readPosition = 0;
+		} else {
+			writeSegment = segments.lastEntry().getValue();
+			writePosition = scanEnd(writeSegment.buffer, 0);
+			boolean checkpointInSegments = checkpoint >= 0 && segments.containsKey(segmentOf(checkpoint));
+			readSegment = checkpointInSegments ? segmentOf(checkpoint) : segments.firstKey();
+			readPosition = checkpointInSegments ? positionOf(checkpoint) : 0;
+		}
+		writeMark = mark(writeSegment.index, writePosition);
+		long count = 0;
+		for (Segment segment : segments.tailMap(readSegment).values()) {
+			int position = segment.index == readSegment ? readPosition : 0;
+			int length;
+			while ((length = recordLength(segment.buffer, position)) > 0) {
+				position += length;
+				count++;
+			}
+		}
+		pending.set(count);
+	}
+
+	private Segment openSegment(int index) throws IOException {
+		Path path = segmentPath(index);
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		long size = Math.max(channel.size(), segmentBytes);
+		Segment segment = new Segment(index, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+		segments.put(index, segment);
+		return segment;
+	}
+
+	private Path segmentPath(int index) {
+		return directory.resolve(String.format("%010d%s", index, SEGMENT_SUFFIX));
+	}
+
+	private long readCheckpoint() throws IOException {
+		ByteBuffer checkpoint = ByteBuffer.allocate(CHECKPOINT_BYTES);
+		if (checkpointChannel.read(checkpoint, 0) < CHECKPOINT_BYTES) {
+			return -1;
+		}
+		long mark = checkpoint.getLong(0);
+		return checkpoint.getLong(8) == crc(mark) ? mark : -1;
+	}
+
+	private void writeCheckpoint(long mark) throws IOException {
+		ByteBuffer checkpoint = ByteBuffer.allocate(CHECKPOINT_BYTES);
+		checkpoint.putLong(mark).putLong(crc(mark)).flip();
+		while (checkpoint.hasRemaining()) {
+			checkpointChannel.write(checkpoint, checkpoint.position());
+		}
+		checkpointChannel.force(false);
+	}
+
+	/**
+	 * @return length of the valid record at the position, 0 if there is none.
+	 */
+	private static int recordLength(MappedByteBuffer buffer, int position) {
+		if (position + RECORD_HEADER_BYTES > buffer.capacity()) {
+			return 0;
+		}
+		int length = buffer.getInt(position);
+		if (length < RECORD_HEADER_BYTES || length > buffer.capacity() - position) {
+			return 0;
+		}
+		return buffer.getInt(position + 4) == crc(buffer, position, length) ? length : 0;
+	}
+
+	private static int scanEnd(MappedByteBuffer buffer, int position) {
+		int length;
+		while ((length = recordLength(buffer, position)) > 0) {
+			position += length;
+		}
+		return position;
+	}
+
+	private static PTLog readRecord(MappedByteBuffer buffer, int position, int length) {
+		byte[] details = new byte[length - RECORD_HEADER_BYTES];
+		buffer.get(position + RECORD_HEADER_BYTES, details);
+		return new PTLog(0,
+				buffer.getInt(position + 8),
+				new String(details, StandardCharsets.UTF_8),
+				Date.valueOf(LocalDate.ofEpochDay(buffer.getInt(position + 12))));
+	}
+
+	private static int crc(MappedByteBuffer buffer, int position, int length) {
+		ByteBuffer record = buffer.duplicate();
+		record.limit(position + length).position(position + 8);
+		CRC32 crc = new CRC32();
+		crc.update(record);
+		return (int) crc.getValue();
+	}
+
+	private static long crc(long mark) {
+		CRC32 crc = new CRC32();
+		crc.update(ByteBuffer.allocate(8).putLong(0, mark));
+		return crc.getValue();
+	}
+
+	private static long mark(int segmentIndex, int position) {
+		return ((long) segmentIndex << 32) | (position & 0xffffffffL);
+	}
+
+	private static int segmentOf(long mark) {
+		return (int) (mark >>> 32);
+	}
+
+	private static int positionOf(long mark) {
+		return (int) mark;
+	}
+
+	private static void closeQuietly(FileChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException ioException) {
+			System.out.println("Failed to close journal file.");
+		}
+	}
+
+	private static final class Segment {
+		private final int index;
+		private final Path path;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+
+		private Segment(int index, Path path, FileChannel channel, MappedByteBuffer buffer) {
+			this.index = index;
+			this.path = path;
+			this.channel = channel;
+			this.buffer = buffer;
+		}
+
+		private int capacity() {
+			return buffer.capacity();
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.LatencyHistogram;
+import com.siddhartha.practice.Helpers.OperationStats;
+import com.siddhartha.practice.Service.PoolStats;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Collects the OperationStats of every PTLogService operation and formats them, together with registered gauges and
+ * the statistics of the connection pool and the employee directory cache, as a CLI stats page or as a Prometheus text
+ * exposition.
+ *
+ * @author sid
+ */
+public final class PTLogMetrics {
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+	private static final String STATS_ROW_FORMAT = "|%-34s |%-10s |%-8s |%-10s |%-10s |%-10s |%-10s|\n";
+
+	private final ConcurrentHashMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+	/**
+	 * Records a finished call of an operation.
+	 *
+	 * @param operation
+	 * 		name of the operation.
+	 * @param nanos
+	 * 		time taken by the call in nanoseconds.
+	 * @param failed
+	 * 		whether the call failed.
+	 * @param rowCount
+	 * 		number of rows returned by the call.
+	 */
+	public void record(String operation, long nanos, boolean failed, long rowCount) {
+		getOperation(operation).record(nanos, failed, rowCount);
+	}
+
+	/**
+	 * Fetches the statistics of an operation, creating them on first use.
+	 *
+	 * @param operation
+	 * 		name of the operation.
+	 * @return statistics of the operation.
+	 */
+	public OperationStats getOperation(String operation) {
+		return operations.computeIfAbsent(operation, name -> new OperationStats());
+	}
+
+	/**
+	 * @return statistics of every called operation, in order of operation name.
+	 */
+	public Map<String, OperationStats> getOperations() {
+		return new TreeMap<>(operations);
+	}
+
+	/**
+	 * Registers a value read every time the metrics are formatted, replacing any value registered with the same name.
+	 *
+	 * @param name
+	 * 		Prometheus name of the value.
+	 * @param type
+	 * 		Prometheus type of the value, "gauge" or "counter".
+	 * @param help
+	 * 		description of the value.
+	 * @param value
+	 * 		supplies the current value.
+	 */
+	public void registerGauge(String name, String type, String help, LongSupplier value) {
+		gauges.put(name, new Gauge(type, help, value));
+	}
+
+	/**
+	 * Removes a value registered with registerGauge.
+	 *
+	 * @param name
+	 * 		Prometheus name of the value.
+	 */
+	public void unregisterGauge(String name) {
+		gauges.remove(name);
+	}
+
+	/**
+	 * Clears the statistics of all operations.
+	 */
+	public void reset() {
+		operations.values().forEach(OperationStats::reset);
+	}
+
+	/**
+	 * Formats the statistics as a table for the CLI.
+	 *
+	 * @param poolStats
+	 * 		statistics of the connection pool, null if there is none.
+	 * @param employeeDirectory
+	 * 		employee directory cache, null if there is none.
+	 * @return stats page.
+	 */
+	public String toStatsPage(PoolStats poolStats, EmployeeDirectoryCache employeeDirectory) {
+		StringBuilder statsPage = new StringBuilder();
+		statsPage.append(String.format(STATS_ROW_FORMAT, "OPERATION", "CALLS", "ERRORS", "ROWS", "P50_MS", "P99_MS",
+				"MAX_MS"));
+		for (Map.Entry<String, OperationStats> entry : getOperations().entrySet()) {
+			OperationStats stats = entry.getValue();
+			LatencyHistogram latency = stats.getLatency();
+			statsPage.append(String.format(STATS_ROW_FORMAT,
+					entry.getKey(),
+					stats.getCalls(),
+					stats.getErrors(),
+					stats.getRows(),
+					formatMillis(latency.getPercentileNanos(50)),
+					formatMillis(latency.getPercentileNanos(99)),
+					formatMillis(latency.getMaxNanos())));
+		}
+		new TreeMap<>(gauges).forEach((name, gauge) ->
+				statsPage.append(name).append('=').append(gauge.value.getAsLong()).append('\n'));
+		if (poolStats != null) {
+			statsPage.append(poolStats).append('\n');
+		}
+		if (employeeDirectory != null) {
+			statsPage.append(employeeDirectory).append('\n');
+		}
+		return statsPage.toString();
+	}
+
+	/**
+	 * Formats the statistics in the Prometheus text exposition format.
+	 *
+	 * @param poolStats
+	 * 		statistics of the connection pool, null if there is none.
+	 * @param employeeDirectory
+	 * 		employee directory cache, null if there is none.
+	 * @return metrics snapshot.
+	 */
+	public String toPrometheusText(PoolStats poolStats, EmployeeDirectoryCache employeeDirectory) {
+		StringBuilder text = new StringBuilder();
+		Map<String, OperationStats> snapshot = getOperations();
+
+		appendHeader(text, "ptlog_operation_calls_total", "counter", "Calls of each PTLogService operation.");
+		snapshot.forEach((operation, stats) ->
+				appendSample(text, "ptlog_operation_calls_total", operationLabel(operation), stats.getCalls()));
+		appendHeader(text, "ptlog_operation_errors_total", "counter", "Failed calls of each PTLogService operation.");
+		snapshot.forEach((operation, stats) ->
+				appendSample(text, "ptlog_operation_errors_total", operationLabel(operation), stats.getErrors()));
+		appendHeader(text, "ptlog_operation_rows_total", "counter", "Rows returned by each PTLogService operation.");
+		snapshot.forEach((operation, stats) ->
+				appendSample(text, "ptlog_operation_rows_total", operationLabel(operation), stats.getRows()));
+		appendHeader(text, "ptlog_operation_latency_seconds", "summary", "Latency of each PTLogService operation.");
+		snapshot.forEach((operation, stats) -> {
+			LatencyHistogram latency = stats.getLatency();
+			for (double quantile : QUANTILES) {
+				appendSample(text, "ptlog_operation_latency_seconds",
+						operationLabel(operation) + ",quantile=\"" + quantile + "\"",
+						latency.getPercentileNanos(quantile * 100) / 1e9);
+			}
+			appendSample(text, "ptlog_operation_latency_seconds_sum", operationLabel(operation),
+					latency.getTotalNanos() / 1e9);
+			appendSample(text, "ptlog_operation_latency_seconds_count", operationLabel(operation), latency.getCount());
+		});
+
+		new TreeMap<>(gauges).forEach((name, gauge) -> {
+			appendHeader(text, name, gauge.type, gauge.help);
+			appendSample(text, name, null, gauge.value.getAsLong());
+		});
+
+		if (poolStats != null) {
+			appendHeader(text, "ptlog_pool_connections", "gauge", "Connections of the pool by state.");
+			appendSample(text, "ptlog_pool_connections", "state=\"active\"", poolStats.getActiveConnections());
+			appendSample(text, "ptlog_pool_connections", "state=\"idle\"", poolStats.getIdleConnections());
+			appendHeader(text, "ptlog_pool_waiters", "gauge", "Threads waiting for a connection.");
+			appendSample(text, "ptlog_pool_waiters", null, poolStats.getWaiters());
+			appendHeader(text, "ptlog_pool_borrows_total", "counter", "Connections borrowed from the pool.");
+			appendSample(text, "ptlog_pool_borrows_total", null, poolStats.getBorrowCount());
+			appendHeader(text, "ptlog_pool_timeouts_total", "counter", "Borrows that timed out waiting for a connection.");
+			appendSample(text, "ptlog_pool_timeouts_total", null, poolStats.getTimeoutCount());
+			appendHeader(text, "ptlog_pool_wait_seconds", "summary", "Time waited to borrow a connection.");
+			appendSample(text, "ptlog_pool_wait_seconds", "quantile=\"0.5\"", poolStats.getWaitTimeP50Micros() / 1e6);
+			appendSample(text, "ptlog_pool_wait_seconds", "quantile=\"0.99\"", poolStats.getWaitTimeP99Micros() / 1e6);
+			appendSample(text, "ptlog_pool_wait_seconds", "quantile=\"1.0\"", poolStats.getWaitTimeMaxMicros() / 1e6);
+			appendSample(text, "ptlog_pool_wait_seconds_sum", null, poolStats.getWaitTimeTotalMicros() / 1e6);
+			appendSample(text, "ptlog_pool_wait_seconds_count", null, poolStats.getWaitCount());
+			appendHeader(text, "ptlog_statement_cache_hits_total", "counter", "Prepared statements served from cache.");
+			appendSample(text, "ptlog_statement_cache_hits_total", null, poolStats.getStatementCacheHits());
+			appendHeader(text, "ptlog_statement_cache_misses_total", "counter", "Prepared statements created.");
+			appendSample(text, "ptlog_statement_cache_misses_total", null, poolStats.getStatementCacheMisses());
+		}
+		if (employeeDirectory != null) {
+			appendHeader(text, "ptlog_employee_cache_hits_total", "counter", "Employee checks answered by the cache.");
+			appendSample(text, "ptlog_employee_cache_hits_total", null, employeeDirectory.getHits());
+			appendHeader(text, "ptlog_employee_cache_misses_total", "counter", "Employee checks missing the cache.");
+			appendSample(text, "ptlog_employee_cache_misses_total", null, employeeDirectory.getMisses());
+			appendHeader(text, "ptlog_employee_cache_evictions_total", "counter", "Employees evicted from the cache.");
+			appendSample(text, "ptlog_employee_cache_evictions_total", null, employeeDirectory.getEvictions());
+			appendHeader(text, "ptlog_employee_cache_size", "gauge", "Employees in the cache.");
+			appendSample(text, "ptlog_employee_cache_size", null, employeeDirectory.size());
+		}
+		return text.toString();
+	}
+
+	private static String operationLabel(String operation) {
+		return "operation=\"" + operation + "\"";
+	}
+
+	private static void appendHeader(StringBuilder text, String name, String type, String help) {
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void appendSample(StringBuilder text, String name, String labels, double value) {
+		text.append(name);
+		if (labels != null) {
+			text.append('{').append(labels).append('}');
+		}
+		text.append(' ');
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			text.append((long) value);
+		} else {
+			text.append(value);
+		}
+		text.append('\n');
+	}
+
+	private static String formatMillis(long nanos) {
+		return String.format("%.3f", nanos / 1e6);
+	}
+
+	private static final class Gauge {
+		private final String type;
+		private final String help;
+		private final LongSupplier value;
+
+		private Gauge(String type, String help, LongSupplier value) {
+			this.type = type;
+			this.help = help;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Service.PooledConnection;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Manages the monthly partitions of the ptlogs table. The table is partitioned by range columns on logged_date, one
+ * partition per month named pYYYYMM, a p_history partition holding everything before the first month and a p_future
+ * partition catching dates past the last month. Queries filtering on logged_date only read the partitions of their
+ * range, and retention drops whole partitions instead of deleting their rows one by one.
+ * <p>
+ * MySQL requires the logged_date column in the primary key of a partitioned table and does not allow foreign keys on
+ * it, so any foreign key of ptlogs has to be dropped before the table can be partitioned.
+ *
+ * @author sid
+ */
+final class PTLogPartitionManager {
+	private static final String HISTORY_PARTITION = "p_history";
+	private static final String FUTURE_PARTITION = "p_future";
+	private static final DateTimeFormatter PARTITION_NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+	/**
+	 * Checks whether the ptlogs table is partitioned.
+	 */
+	boolean isPartitioned(PooledConnection pooledConnection) throws SQLException {
+		String query = "select count(*) from information_schema.partitions" +
+				" where table_schema = database() and table_name = 'ptlogs' and partition_name is not null";
+		PreparedStatement statement = pooledConnection.prepareStatement(query);
+		try (ResultSet resultSet = statement.executeQuery()) {
+			return resultSet.next() && resultSet.getLong(1) > 0;
+		}
+	}
+
+	/**
+	 * Fetches the partitions of the ptlogs table by their upper bound, the first day not in the partition. The
+	 * p_future partition has no upper bound and is left out.
+	 *
+	 * @return partition names by upper bound, empty if the table is not partitioned.
+	 */
+	TreeMap<LocalDate, String> listPartitions(PooledConnection pooledConnection) throws SQLException {
+		String query = "select partition_name, partition_description from information_schema.partitions" +
+				" where table_schema = database() and table_name = 'ptlogs' and partition_name is not null";
+		TreeMap<LocalDate, String> partitions = new TreeMap<>();
+		PreparedStatement statement = pooledConnection.prepareStatement(query);
+		try (ResultSet resultSet = statement.executeQuery()) {
+			while (resultSet.next()) {
+				String upperBound = resultSet.getString("partition_description").replace("'", "").trim();
+				if (!upperBound.equalsIgnoreCase("MAXVALUE")) {
+					partitions.put(LocalDate.parse(upperBound), resultSet.getString("partition_name"));
+				}
+			}
+		}
+		return partitions;
+	}
+
+	/**
+	 * Partitions the ptlogs table by month, from the month of its oldest log up to the given last month. The primary
+	 * key is extended with logged_date, the (emp_id, logged_date, ptlog_id) index added by PTLogSchemaMigrator keeps
+	 * lookups and deletes of an employee bounded to its rows. Rebuilds the whole table, meant to run once.
+	 * <p>
+	 * The primary key change and the partitioning run as one alter table. DDL commits on its own, so as two statements a
+	 * failed partitioning would leave the primary key changed on an unpartitioned table.
+	 *
+	 * @param lastMonth
+	 * 		any day of the last month getting its own partition.
+	 */
+	void partitionTable(PooledConnection pooledConnection, LocalDate lastMonth) throws SQLException {
+		LocalDate firstMonth = lastMonth.withDayOfMonth(1);
+		PreparedStatement oldestStatement = pooledConnection.prepareStatement("select min(logged_date) from ptlogs");
+		try (ResultSet resultSet = oldestStatement.executeQuery()) {
+			if (resultSet.next() && resultSet.getDate(1) != null) {
+				LocalDate oldest = resultSet.getDate(1).toLocalDate().withDayOfMonth(1);
+				firstMonth = oldest.isBefore(firstMonth) ? oldest : firstMonth;
+			}
+		}
+		try (Statement statement = pooledConnection.getConnection().createStatement()) {
+			statement.executeUpdate("alter table ptlogs drop primary key, add primary key (ptlog_id, logged_date)" +
+					" partition by range columns(logged_date) (" + partitionDefinitions(firstMonth, lastMonth) + ")");
+		}
+	}
+
+	/**
+	 * Adds the monthly partitions missing up to the given month by splitting them off the p_future partition, which
+	 * only moves the rows already logged for those months. When p_future is the only partition left, the first added
+	 * partition also takes every older log.
+	 *
+	 * @param lastMonth
+	 * 		any day of the last month that must have its own partition.
+	 * @return number of partitions added.
+	 */
+	int ensurePartitionsThrough(PooledConnection pooledConnection, LocalDate lastMonth) throws SQLException {
+		if (!isPartitioned(pooledConnection)) {
+			return 0;
+		}
+		ArrayList<String> added = missingMonthPartitions(listPartitions(pooledConnection), lastMonth);
+		if (added.isEmpty()) {
+			return 0;
+		}
+		try (Statement statement = pooledConnection.getConnection().createStatement()) {
+			statement.executeUpdate("alter table ptlogs reorganize partition " + FUTURE_PARTITION + " into (" +
+					String.join(", ", added) + ", partition " + FUTURE_PARTITION + " values less than (maxvalue))");
+		}
+		return added.size();
+	}
+
+	/**
+	 * Drops every partition holding only logs logged before the cutoff. Logs before the cutoff in the partition holding
+	 * the cutoff are left for the caller to delete.
+	 *
+	 * @param cutoff
+	 * 		first day of the logs to keep.
+	 * @return number of partitions dropped.
+	 */
+	int dropPartitionsBefore(PooledConnection pooledConnection, LocalDate cutoff) throws SQLException {
+		ArrayList<String> dropped = partitionsBefore(listPartitions(pooledConnection), cutoff);
+		if (dropped.isEmpty()) {
+			return 0;
+		}
+		try (Statement statement = pooledConnection.getConnection().createStatement()) {
+			statement.executeUpdate("alter table ptlogs drop partition " + String.join(", ", dropped));
+		}
+		return dropped.size();
+	}
+
+	/**
+	 * Builds the partitions of a table partitioned from the first month up to the last month.
+	 *
+	 * @param firstMonth
+	 * 		first day of the first month getting its own partition, older logs go to p_history.
+	 * @param lastMonth
+	 * 		any day of the last month getting its own partition, later logs go to p_future.
+	 * @return partition definitions of the partition by clause.
+	 */
+	static String partitionDefinitions(LocalDate firstMonth, LocalDate lastMonth) {
+		StringBuilder partitions = new StringBuilder("partition ").append(HISTORY_PARTITION)
+				.append(" values less than ('").append(firstMonth).append("')");
+		for (LocalDate month = firstMonth; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+			partitions.append(", ").append(monthPartition(month));
+		}
+		partitions.append(", partition ").append(FUTURE_PARTITION).append(" values less than (maxvalue)");
+		return partitions.toString();
+	}
+
+	/**
+	 * Builds the monthly partitions to split off p_future so every month up to the last month has its own partition.
+	 * They start at the upper bound of the last existing partition, or at the last month when p_future is the only
+	 * partition.
+	 *
+	 * @param partitions
+	 * 		existing partitions by upper bound, as listed by listPartitions.
+	 * @param lastMonth
+	 * 		any day of the last month that must have its own partition.
+	 * @return definitions of the partitions to add, in order of month.
+	 */
+	static ArrayList<String> missingMonthPartitions(TreeMap<LocalDate, String> partitions, LocalDate lastMonth) {
+		LocalDate firstMonth = partitions.isEmpty() ? lastMonth.withDayOfMonth(1) : partitions.lastKey();
+		ArrayList<String> added = new ArrayList<>();
+		for (LocalDate month = firstMonth; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+			added.add(monthPartition(month));
+		}
+		return added;
+	}
+
+	/**
+	 * Selects the partitions whose upper bound is not after the cutoff, which only hold logs logged before it.
+	 *
+	 * @param partitions
+	 * 		existing partitions by upper bound, as listed by listPartitions.
+	 * @param cutoff
+	 * 		first day of the logs to keep.
+	 * @return names of the partitions that can be dropped.
+	 */
+	static ArrayList<String> partitionsBefore(TreeMap<LocalDate, String> partitions, LocalDate cutoff) {
+		ArrayList<String> dropped = new ArrayList<>();
+		for (Map.Entry<LocalDate, String> partition : partitions.headMap(cutoff, true).entrySet()) {
+			dropped.add(partition.getValue());
+		}
+		return dropped;
+	}
+
+	private static String monthPartition(LocalDate month) {
+		LocalDate first = month.withDayOfMonth(1);
+		return "partition " + PARTITION_NAME_FORMAT.format(first) + " values less than ('" + first.plusMonths(1) + "')";
+	}
+}
@@ -0,0 +1,486 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.PTLog;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the results of the pt log range queries of an employee and of the team under a manager, keyed by query,
+ * id and range of date. Entries are kept in least recently used order within a budget of estimated bytes, and a new
+ * result only replaces the entries it would evict when it was asked for more often than each of them, the frequency
+ * of every query being counted by a small count-min sketch halved periodically, as TinyLFU does. Entries also expire
+ * after a time to live, picking up changes made by other processes.
+ * <p>
+ * Registered as a PTLogChangeListener, the cache drops only the entries a change affects: a pt log added or deleted
+ * drops the entries of its employee, and of the managers whose team holds the employee, whose range covers its date,
+ * and an assignment drops the entries of the new manager and of the managers above it. The ids each entry depends on
+ * are indexed when it is stored. A result read while a change to one of those ids was made is not stored.
+ *
+ * @author sid
+ */
+public final class PTLogQueryCache implements PTLogChangeListener {
+	private static final int ENTRY_BYTES = 200;
+	private static final int PTLOG_BYTES = 104;
+	private static final int DEPENDENCY_BYTES = 48;
+	/**
+	 * Largest share of the budget a single result may take, larger results are never cached.
+	 */
+	private static final int MAX_ENTRY_SHARE = 8;
+	private static final int STRIPES = 64;
+	private static final int SKETCH_DEPTH = 4;
+	private static final int SKETCH_MAX_COUNT = 15;
+	private static final int SKETCH_SAMPLE_FACTOR = 10;
+	private static final int[] SKETCH_SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+	private final ManagerHierarchyIndex managerHierarchy;
+	private final long maxBytes;
+	private final long ttlMillis;
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * Keys of the entries depending on each id: the entries of the employee, and of the managers whose team holds the
+	 * employee or who are the employee.
+	 */
+	private final HashMap<Integer, HashSet<Key>> keysById = new HashMap<>();
+	/**
+	 * Number of changes made to the ids of each stripe, compared before storing a result.
+	 */
+	private final long[] changeCounts = new long[STRIPES];
+	private final int[] sketch;
+	private final int sketchMask;
+	private final int sketchSampleSize;
+	private int sketchAdditions = 0;
+	private long usedBytes = 0;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long rejections = 0;
+	private long invalidations = 0;
+
+	/**
+	 * @param managerHierarchy
+	 * 		index resolving the team of a manager, results of managers are not cached without it.
+	 * @param maxBytes
+	 * 		estimated bytes the cached results may take.
+	 * @param ttlMillis
+	 * 		time after which a cached result is read again from the storage engine.
+	 */
+	public PTLogQueryCache(ManagerHierarchyIndex managerHierarchy, long maxBytes, long ttlMillis) {
+		this.managerHierarchy = managerHierarchy;
+		this.maxBytes = Math.max(0, maxBytes);
+		this.ttlMillis = ttlMillis;
+		int sketchWidth = Integer.highestOneBit((int) Math.min(1 << 20, Math.max(1024, this.maxBytes / 4096)));
+		this.sketch = new int[SKETCH_DEPTH * sketchWidth];
+		this.sketchMask = sketchWidth - 1;
+		this.sketchSampleSize = SKETCH_SAMPLE_FACTOR * sketchWidth;
+	}
+
+	/**
+	 * Fetches the pt logs of an employee in a range of date from the cache, or from the loader when they are not
+	 * cached, caching them.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param loader
+	 * 		reads the logs from the storage engine, returning null on failure.
+	 * @return list of pt logs owned by the caller, null if the loader failed.
+	 */
+	public ArrayList<PTLog> getPTLogOfEmployeeInRange(int id, Date startDate, Date endDate,
+			Supplier<ArrayList<PTLog>> loader) {
+		return get(new Key(false, id, startDate, endDate), loader);
+	}
+
+	/**
+	 * Fetches the pt logs of the team under a manager in a range of date from the cache, or from the loader when they
+	 * are not cached, caching them.
+	 *
+	 * @param id
+	 * 		employee id of manager whose team's logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param loader
+	 * 		reads the logs from the storage engine, returning null on failure.
+	 * @return list of pt logs owned by the caller, null if the loader failed.
+	 */
+	public ArrayList<PTLog> getPTLogUnderManagerInRange(int id, Date startDate, Date endDate,
+			Supplier<ArrayList<PTLog>> loader) {
+		if (managerHierarchy == null) {
+			return loader.get();
+		}
+		return get(new Key(true, id, startDate, endDate), loader);
+	}
+
+	@Override
+	public void recordAdded(PTLog ptLog) {
+		long loggedAt = ptLog.getLoggedDate().getTime();
+		invalidateEmployee(ptLog.getEmployeeId(), loggedAt, loggedAt);
+	}
+
+	@Override
+	public void recordDeleted(int employeeId, Date startDate, Date endDate) {
+		invalidateEmployee(employeeId, startMillis(startDate), endMillis(endDate));
+	}
+
+	@Override
+	public synchronized void recordDeletedBefore(Date cutoff) {
+		for (int i = 0; i < STRIPES; i++) {
+			changeCounts[i]++;
+		}
+		long cutoffMillis = cutoff.getTime();
+		ArrayList<Key> affected = new ArrayList<>();
+		for (Key key : entries.keySet()) {
+			if (key.startMillis < cutoffMillis) {
+				affected.add(key);
+			}
+		}
+		invalidate(affected);
+	}
+
+	@Override
+	public synchronized void recordAssigned(int employeeId, int managerId) {
+		changeCounts[stripe(managerId)]++;
+		HashSet<Key> keys = keysById.get(managerId);
+		if (keys == null) {
+			return;
+		}
+		ArrayList<Key> affected = new ArrayList<>();
+		for (Key key : keys) {
+			if (key.manager) {
+				affected.add(key);
+			}
+		}
+		invalidate(affected);
+	}
+
+	/**
+	 * Removes all results from the cache.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		keysById.clear();
+		usedBytes = 0;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return estimated bytes taken by the cached results.
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of results evicted to make room for others or expired.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return number of results not cached because they were too large, or asked for less often than the results they
+	 * would evict.
+	 */
+	public synchronized long getRejections() {
+		return rejections;
+	}
+
+	/**
+	 * @return number of results dropped because a change affected them.
+	 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * @return share of lookups answered by the cache, between 0 and 1.
+	 */
+	public synchronized double getHitRatio() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	private ArrayList<PTLog> get(Key key, Supplier<ArrayList<PTLog>> loader) {
+		ArrayList<PTLog> cached = null;
+		long[] changeCountsBefore = null;
+		synchronized (this) {
+			incrementFrequency(key.hashCode());
+			Entry entry = entries.get(key);
+			if (entry != null && System.currentTimeMillis() - entry.loadedAt <= ttlMillis) {
+				hits++;
+				cached = entry.ptLogs;
+			} else {
+				if (entry != null) {
+					remove(key);
+					evictions++;
+				}
+				misses++;
+				changeCountsBefore = changeCounts.clone();
+			}
+		}
+		if (cached != null) {
+			return copyOf(cached);
+		}
+		long loadedAt = System.currentTimeMillis();
+		ArrayList<PTLog> ptLogs = loader.get();
+		if (ptLogs != null && maxBytes > 0) {
+			int[] dependencies;
+			if (key.manager) {
+				int[] team = managerHierarchy.resolveTeam(key.id);
+				dependencies = new int[team.length + 1];
+				System.arraycopy(team, 0, dependencies, 0, team.length);
+				dependencies[team.length] = key.id;
+			} else {
+				dependencies = new int[]{key.id};
+			}
+			store(key, copyOf(ptLogs), dependencies, loadedAt, changeCountsBefore);
+		}
+		return ptLogs;
+	}
+
+	/**
+	 * Stores a result, unless one of the ids it depends on changed since it was read, it is too large, or it was asked
+	 * for less often than the results it would evict.
+	 */
+	private synchronized void store(Key key, ArrayList<PTLog> ptLogs, int[] dependencies, long loadedAt,
+			long[] changeCountsBefore) {
+		for (int id : dependencies) {
+			if (changeCounts[stripe(id)] != changeCountsBefore[stripe(id)]) {
+				return;
+			}
+		}
+		long bytes = ENTRY_BYTES + (long) DEPENDENCY_BYTES * dependencies.length;
+		for (PTLog ptLog : ptLogs) {
+			bytes += PTLOG_BYTES + (ptLog.getDetails() == null ? 0 : ptLog.getDetails().length());
+		}
+		if (bytes > maxBytes / MAX_ENTRY_SHARE) {
+			rejections++;
+			return;
+		}
+		if (entries.containsKey(key)) {
+			remove(key);
+		}
+		if (usedBytes + bytes > maxBytes && !makeRoom(key, bytes)) {
+			rejections++;
+			return;
+		}
+		entries.put(key, new Entry(ptLogs, dependencies, bytes, loadedAt));
+		usedBytes += bytes;
+		for (int id : dependencies) {
+			keysById.computeIfAbsent(id, ignored -> new HashSet<>()).add(key);
+		}
+	}
+
+	/**
+	 * Evicts the least recently used results until the candidate fits, if none of them was asked for as often as the
+	 * candidate. Expired results are always evicted.
+	 *
+	 * @return false if the candidate is not admitted, in which case no live result is evicted.
+	 */
+	private boolean makeRoom(Key candidate, long bytes) {
+		int candidateFrequency = frequency(candidate.hashCode());
+		long now = System.currentTimeMillis();
+		ArrayList<Key> victims = new ArrayList<>();
+		ArrayList<Key> expired = new ArrayList<>();
+		long freedBytes = 0;
+		for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+			if (usedBytes - freedBytes + bytes <= maxBytes) {
+				break;
+			}
+			if (now - entry.getValue().loadedAt > ttlMillis) {
+				expired.add(entry.getKey());
+			} else if (frequency(entry.getKey().hashCode()) >= candidateFrequency) {
+				break;
+			} else {
+				victims.add(entry.getKey());
+			}
+			freedBytes += entry.getValue().bytes;
+		}
+		for (Key key : expired) {
+			remove(key);
+			evictions++;
+		}
+		if (usedBytes + bytes > maxBytes) {
+			return false;
+		}
+		for (Key key : victims) {
+			remove(key);
+			evictions++;
+		}
+		return true;
+	}
+
+	/**
+	 * Drops the entries of an employee, and of the managers whose team holds the employee, whose range overlaps the
+	 * given one.
+	 */
+	private synchronized void invalidateEmployee(int employeeId, long startMillis, long endMillis) {
+		changeCounts[stripe(employeeId)]++;
+		HashSet<Key> keys = keysById.get(employeeId);
+		if (keys == null) {
+			return;
+		}
+		ArrayList<Key> affected = new ArrayList<>();
+		for (Key key : keys) {
+			if ((!key.manager || key.id != employeeId) && key.startMillis <= endMillis && startMillis <= key.endMillis) {
+				affected.add(key);
+			}
+		}
+		invalidate(affected);
+	}
+
+	private void invalidate(ArrayList<Key> keys) {
+		for (Key key : keys) {
+			remove(key);
+			invalidations++;
+		}
+	}
+
+	private void remove(Key key) {
+		Entry entry = entries.remove(key);
+		if (entry == null) {
+			return;
+		}
+		usedBytes -= entry.bytes;
+		for (int id : entry.dependencies) {
+			HashSet<Key> keys = keysById.get(id);
+			if (keys != null && keys.remove(key) && keys.isEmpty()) {
+				keysById.remove(id);
+			}
+		}
+	}
+
+	private void incrementFrequency(int hash) {
+		int width = sketchMask + 1;
+		for (int row = 0; row < SKETCH_DEPTH; row++) {
+			int index = row * width + sketchIndex(hash, row);
+			if (sketch[index] < SKETCH_MAX_COUNT) {
+				sketch[index]++;
+			}
+		}
+		if (++sketchAdditions >= sketchSampleSize) {
+			for (int i = 0; i < sketch.length; i++) {
+				sketch[i] >>>= 1;
+			}
+			sketchAdditions /= 2;
+		}
+	}
+
+	private int frequency(int hash) {
+		int width = sketchMask + 1;
+		int count = SKETCH_MAX_COUNT;
+		for (int row = 0; row < SKETCH_DEPTH; row++) {
+			count = Math.min(count, sketch[row * width + sketchIndex(hash, row)]);
+		}
+		return count;
+	}
+
+	private int sketchIndex(int hash, int row) {
+		int spread = hash * SKETCH_SEEDS[row];
+		return (spread ^ (spread >>> 16)) & sketchMask;
+	}
+
+	private static int stripe(int id) {
+		return id & (STRIPES - 1);
+	}
+
+	private static long startMillis(Date startDate) {
+		return startDate == null ? Long.MIN_VALUE : startDate.getTime();
+	}
+
+	private static long endMillis(Date endDate) {
+		return endDate == null ? Long.MAX_VALUE : endDate.getTime();
+	}
+
+	private static ArrayList<PTLog> copyOf(ArrayList<PTLog> ptLogs) {
+		ArrayList<PTLog> copy = new ArrayList<>(ptLogs.size());
+		for (PTLog ptLog : ptLogs) {
+			copy.add(new PTLog(ptLog.getId(), ptLog.getEmployeeId(), ptLog.getDetails(), ptLog.getLoggedDate()));
+		}
+		return copy;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return new StringBuilder()
+				.append("PTLogQueryCache{")
+				.append("size=").append(entries.size())
+				.append(", usedBytes=").append(usedBytes)
+				.append(", hits=").append(hits)
+				.append(", misses=").append(misses)
+				.append(", evictions=").append(evictions)
+				.append(", rejections=").append(rejections)
+				.append(", invalidations=").append(invalidations)
+				.append(", hitRatio=").append(String.format("%.3f", getHitRatio()))
+				.append('}')
+				.toString();
+	}
+
+	private static final class Key {
+		private final boolean manager;
+		private final int id;
+		private final long startMillis;
+		private final long endMillis;
+
+		private Key(boolean manager, int id, Date startDate, Date endDate) {
+			this.manager = manager;
+			this.id = id;
+			this.startMillis = startMillis(startDate);
+			this.endMillis = endMillis(endDate);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return manager == key.manager && id == key.id && startMillis == key.startMillis
+					&& endMillis == key.endMillis;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = Boolean.hashCode(manager);
+			hash = 31 * hash + id;
+			hash = 31 * hash + Long.hashCode(startMillis);
+			return 31 * hash + Long.hashCode(endMillis);
+		}
+	}
+
+	private static final class Entry {
+		private final ArrayList<PTLog> ptLogs;
+		private final int[] dependencies;
+		private final long bytes;
+		private final long loadedAt;
+
+		private Entry(ArrayList<PTLog> ptLogs, int[] dependencies, long bytes, long loadedAt) {
+			this.ptLogs = ptLogs;
+			this.dependencies = dependencies;
+			this.bytes = bytes;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
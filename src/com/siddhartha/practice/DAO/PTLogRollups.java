@@ -0,0 +1,578 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.IntArrayList;
+import com.siddhartha.practice.Models.ActivitySummary;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.RollupPeriod;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * In-memory rollups of pt log activity per employee and per manager team, kept up to date on every added and deleted
+ * log so dashboards never count raw logs. For every employee it keeps the number of logs per day, the number of logs
+ * and active days per week and month, and the runs of consecutive active days with a count of runs by length. Bucket
+ * counts and totals are single map lookups, streaks are a floor lookup on the runs and the longest streak is the
+ * largest run length.
+ * <p>
+ * Team rollups of a manager hold the same counters over all employees reporting to it directly or through other
+ * managers, a day being active when anyone of the team logged on it. They are built from the employee rollups the
+ * first time a manager is queried and then updated along with its reports, until the manager hierarchy changes and
+ * they are built again.
+ * <p>
+ * The ids of the logs of each employee day are summed along with their count, so the rollups know the greatest id,
+ * the number and the id sum of the logs they hold. A snapshot of the rollups written by writeTo is restored instead of
+ * being rebuilt when the storage engine still holds the same logs up to that greatest id.
+ *
+ * @author sid
+ */
+public final class PTLogRollups implements PTLogChangeListener {
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ManagerHierarchyIndex managerHierarchy;
+	private final HashMap<Integer, Activity> employees = new HashMap<>();
+	private final HashMap<Integer, Activity> teams = new HashMap<>();
+	private long teamsHierarchyVersion = -1;
+	private int highWaterMark = 0;
+	private long logCount = 0;
+	private long idSum = 0;
+
+	/**
+	 * @param managerHierarchy
+	 * 		index resolving the teams of managers, null if teams are not rolled up.
+	 */
+	public PTLogRollups(ManagerHierarchyIndex managerHierarchy) {
+		this.managerHierarchy = managerHierarchy;
+	}
+
+	/**
+	 * Replaces all rollups with the ones of the logs the storage engine holds, reading every log once.
+	 *
+	 * @param storageEngine
+	 * 		engine whose logs are rolled up.
+	 * @return result of the scan of the logs.
+	 */
+	public int rebuild(PTLogStorageEngine storageEngine) {
+		return rebuild(storageEngine::forEachPTLog);
+	}
+
+	/**
+	 * Replaces all rollups with the ones of the logs handed by a source, like a snapshot of the logs.
+	 *
+	 * @param source
+	 * 		hands every log to the consumer and returns the result of the scan.
+	 * @return result of the scan of the logs.
+	 */
+	public int rebuild(ToIntFunction<Consumer<PTLog>> source) {
+		lock.writeLock().lock();
+		try {
+			clear();
+			return source.applyAsInt(this::addToEmployee);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts an added pt log.
+	 *
+	 * @param ptLog
+	 * 		log added to the storage engine.
+	 */
+	@Override
+	public void recordAdded(PTLog ptLog) {
+		lock.writeLock().lock();
+		try {
+			int day = addToEmployee(ptLog);
+			for (Activity team : materializedTeamsAbove(ptLog.getEmployeeId())) {
+				team.add(day, 1);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Uncounts all pt logs of an employee in a range of date, after they were deleted from the storage engine.
+	 *
+	 * @param employeeId
+	 * 		employee id whose logs were deleted.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 */
+	@Override
+	public void recordDeleted(int employeeId, Date startDate, Date endDate) {
+		lock.writeLock().lock();
+		try {
+			Activity activity = employees.get(employeeId);
+			int startDay = epochDay(startDate);
+			int endDay = epochDay(endDate);
+			if (activity == null || startDay > endDay) {
+				return;
+			}
+			ArrayList<Activity> teamsAbove = materializedTeamsAbove(employeeId);
+			for (Map.Entry<Integer, Integer> dayCount : new ArrayList<>(activity.dayCounts.subMap(startDay, true, endDay,
+					true).entrySet())) {
+				removeFromEmployee(activity, dayCount.getKey(), dayCount.getValue());
+				for (Activity team : teamsAbove) {
+					team.add(dayCount.getKey(), -dayCount.getValue());
+				}
+			}
+			if (activity.logCount == 0) {
+				employees.remove(employeeId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Uncounts all pt logs logged before a date, after they were deleted from the storage engine. Team rollups are
+	 * dropped and built again on their next query.
+	 *
+	 * @param cutoff
+	 * 		first logged date of the logs kept.
+	 */
+	@Override
+	public void recordDeletedBefore(Date cutoff) {
+		lock.writeLock().lock();
+		try {
+			int cutoffDay = epochDay(cutoff);
+			teams.clear();
+			employees.values().removeIf(activity -> {
+				for (Map.Entry<Integer, Integer> dayCount : new ArrayList<>(activity.dayCounts.headMap(cutoffDay)
+						.entrySet())) {
+					removeFromEmployee(activity, dayCount.getKey(), dayCount.getValue());
+				}
+				return activity.logCount == 0;
+			});
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Fetches the activity of an employee in the bucket holding the date.
+	 *
+	 * @param employeeId
+	 * 		employee id.
+	 * @param period
+	 * 		size of the bucket.
+	 * @param date
+	 * 		day in the bucket, also the last day of the current streak.
+	 * @return activity of the employee, all counts 0 if the employee has no logs.
+	 */
+	public ActivitySummary getEmployeeActivity(int employeeId, RollupPeriod period, Date date) {
+		lock.readLock().lock();
+		try {
+			return summarize(employeeId, employees.get(employeeId), period, epochDay(date));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Fetches the activity of the team of a manager in the bucket holding the date.
+	 *
+	 * @param managerId
+	 * 		manager id.
+	 * @param period
+	 * 		size of the bucket.
+	 * @param date
+	 * 		day in the bucket, also the last day of the current streak.
+	 * @return activity of the team, null if teams are not rolled up.
+	 */
+	public ActivitySummary getTeamActivity(int managerId, RollupPeriod period, Date date) {
+		if (managerHierarchy == null) {
+			return null;
+		}
+		lock.readLock().lock();
+		try {
+			if (teamsHierarchyVersion == managerHierarchy.getVersion() && teams.containsKey(managerId)) {
+				return summarize(managerId, teams.get(managerId), period, epochDay(date));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		lock.writeLock().lock();
+		try {
+			return summarize(managerId, materializeTeam(managerId), period, epochDay(date));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return number of employees with rolled up logs.
+	 */
+	public int getEmployeeCount() {
+		lock.readLock().lock();
+		try {
+			return employees.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return number of manager teams with rolled up logs.
+	 */
+	public int getTeamCount() {
+		lock.readLock().lock();
+		try {
+			return teams.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return greatest id of the logs rolled up since the rollups were built, including logs deleted since.
+	 */
+	public int getHighWaterMark() {
+		lock.readLock().lock();
+		try {
+			return highWaterMark;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return number of logs rolled up.
+	 */
+	public long getLogCount() {
+		lock.readLock().lock();
+		try {
+			return logCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes the employee rollups: the greatest id, the number and the id sum of the logs, then for every employee its
+	 * id and the count and id sum of each of its days. Team rollups are not written, they are built again from the
+	 * employee rollups when queried. Changes wait until the rollups are written.
+	 *
+	 * @param output
+	 * 		stream the rollups are written to.
+	 * @throws IOException
+	 * 		if the stream could not be written.
+	 */
+	void writeTo(DataOutputStream output) throws IOException {
+		lock.readLock().lock();
+		try {
+			output.writeInt(highWaterMark);
+			output.writeLong(logCount);
+			output.writeLong(idSum);
+			output.writeInt(employees.size());
+			for (Map.Entry<Integer, Activity> employee : employees.entrySet()) {
+				Activity activity = employee.getValue();
+				output.writeInt(employee.getKey());
+				output.writeInt(activity.dayCounts.size());
+				for (Map.Entry<Integer, Integer> dayCount : activity.dayCounts.entrySet()) {
+					output.writeInt(dayCount.getKey());
+					output.writeInt(dayCount.getValue());
+					output.writeLong(activity.dayIdSums.getOrDefault(dayCount.getKey(), 0L));
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Replaces all rollups with the ones written by writeTo.
+	 *
+	 * @param buffer
+	 * 		buffer positioned at the start of the written rollups.
+	 * @throws java.nio.BufferUnderflowException
+	 * 		if the buffer ends before the rollups, which are then left partly restored and must be rebuilt.
+	 */
+	void restore(ByteBuffer buffer) {
+		lock.writeLock().lock();
+		try {
+			clear();
+			int restoredHighWaterMark = buffer.getInt();
+			long restoredLogCount = buffer.getLong();
+			long restoredIdSum = buffer.getLong();
+			int employeeCount = buffer.getInt();
+			for (int i = 0; i < employeeCount; i++) {
+				Activity activity = activityOf(employees, buffer.getInt());
+				int dayCount = buffer.getInt();
+				for (int j = 0; j < dayCount; j++) {
+					int day = buffer.getInt();
+					activity.add(day, buffer.getInt());
+					activity.dayIdSums.put(day, buffer.getLong());
+				}
+			}
+			highWaterMark = restoredHighWaterMark;
+			logCount = restoredLogCount;
+			idSum = restoredIdSum;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts a log in the rollups of its employee. Runs under the write lock.
+	 *
+	 * @return epoch day of the log.
+	 */
+	private int addToEmployee(PTLog ptLog) {
+		int day = epochDay(ptLog.getLoggedDate());
+		Activity activity = activityOf(employees, ptLog.getEmployeeId());
+		activity.add(day, 1);
+		activity.dayIdSums.merge(day, (long) ptLog.getId(), Long::sum);
+		highWaterMark = Math.max(highWaterMark, ptLog.getId());
+		logCount++;
+		idSum += ptLog.getId();
+		return day;
+	}
+
+	/**
+	 * Uncounts every log of a day of an employee. Runs under the write lock.
+	 */
+	private void removeFromEmployee(Activity activity, int day, int count) {
+		activity.add(day, -count);
+		Long dayIdSum = activity.dayIdSums.remove(day);
+		logCount -= count;
+		idSum -= dayIdSum == null ? 0 : dayIdSum;
+	}
+
+	private void clear() {
+		employees.clear();
+		teams.clear();
+		teamsHierarchyVersion = -1;
+		highWaterMark = 0;
+		logCount = 0;
+		idSum = 0;
+	}
+
+	/**
+	 * Builds the team rollups of a manager from the rollups of its team, first dropping all team rollups if the
+	 * hierarchy changed since they were built. Runs under the write lock.
+	 */
+	private Activity materializeTeam(int managerId) {
+		syncTeamsWithHierarchy();
+		Activity team = teams.get(managerId);
+		if (team != null) {
+			return team;
+		}
+		team = new Activity();
+		for (int employeeId : managerHierarchy.resolveTeam(managerId)) {
+			Activity activity = employees.get(employeeId);
+			if (activity != null) {
+				for (Map.Entry<Integer, Integer> dayCount : activity.dayCounts.entrySet()) {
+					team.add(dayCount.getKey(), dayCount.getValue());
+				}
+			}
+		}
+		teams.put(managerId, team);
+		return team;
+	}
+
+	/**
+	 * Fetches the built team rollups of every manager the employee reports to, directly or through other managers.
+	 * Runs under the write lock.
+	 */
+	private ArrayList<Activity> materializedTeamsAbove(int employeeId) {
+		ArrayList<Activity> teamsAbove = new ArrayList<>();
+		if (managerHierarchy == null || !syncTeamsWithHierarchy()) {
+			return teamsAbove;
+		}
+		HashSet<Integer> visited = new HashSet<>();
+		IntArrayList frontier = new IntArrayList();
+		frontier.add(employeeId);
+		for (int head = 0; head < frontier.size(); head++) {
+			for (int managerId : managerHierarchy.getManagers(frontier.get(head))) {
+				if (visited.add(managerId)) {
+					frontier.add(managerId);
+					Activity team = teams.get(managerId);
+					if (team != null) {
+						teamsAbove.add(team);
+					}
+				}
+			}
+		}
+		return teamsAbove;
+	}
+
+	/**
+	 * Drops the team rollups when the hierarchy changed since they were built.
+	 *
+	 * @return false if no team rollups are left.
+	 */
+	private boolean syncTeamsWithHierarchy() {
+		long version = managerHierarchy.getVersion();
+		if (teamsHierarchyVersion != version) {
+			teams.clear();
+			teamsHierarchyVersion = version;
+		}
+		return !teams.isEmpty();
+	}
+
+	private static ActivitySummary summarize(int id, Activity activity, RollupPeriod period, int day) {
+		int periodStart = periodStart(period, day);
+		if (activity == null) {
+			return new ActivitySummary(id, period, toDate(periodStart), 0, 0, 0, 0, 0, 0);
+		}
+		int logCount;
+		int activeDays;
+		if (period == RollupPeriod.Day) {
+			logCount = activity.dayCounts.getOrDefault(day, 0);
+			activeDays = logCount > 0 ? 1 : 0;
+		} else {
+			int[] bucket = (period == RollupPeriod.Week ? activity.weeks : activity.months).get(periodStart);
+			logCount = bucket == null ? 0 : bucket[0];
+			activeDays = bucket == null ? 0 : bucket[1];
+		}
+		return new ActivitySummary(id, period, toDate(periodStart), logCount, activeDays, activity.streakEndingOn(day),
+				activity.longestStreak(), activity.logCount, activity.activeDayCount);
+	}
+
+	private static Activity activityOf(HashMap<Integer, Activity> activities, int id) {
+		return activities.computeIfAbsent(id, key -> new Activity());
+	}
+
+	private static int periodStart(RollupPeriod period, int day) {
+		switch (period) {
+			case Week:
+				return day - Math.floorMod(day + 3, 7);
+			case Month:
+				return (int) LocalDate.ofEpochDay(day).withDayOfMonth(1).toEpochDay();
+			default:
+				return day;
+		}
+	}
+
+	private static int epochDay(Date date) {
+		return (int) date.toLocalDate().toEpochDay();
+	}
+
+	private static Date toDate(int epochDay) {
+		return Date.valueOf(LocalDate.ofEpochDay(epochDay));
+	}
+
+	/**
+	 * Counters of one employee or one team.
+	 */
+	private static final class Activity {
+		private final TreeMap<Integer, Integer> dayCounts = new TreeMap<>();
+		/**
+		 * Sum of the ids of the logs of each day, only kept for employees.
+		 */
+		private final HashMap<Integer, Long> dayIdSums = new HashMap<>();
+		private final HashMap<Integer, int[]> weeks = new HashMap<>();
+		private final HashMap<Integer, int[]> months = new HashMap<>();
+		private final TreeMap<Integer, Integer> runs = new TreeMap<>();
+		private final TreeMap<Integer, Integer> runLengths = new TreeMap<>();
+		private long logCount = 0;
+		private int activeDayCount = 0;
+
+		/**
+		 * Adds delta logs to a day, delta being negative for deleted logs.
+		 */
+		private void add(int day, int delta) {
+			int before = dayCounts.getOrDefault(day, 0);
+			int after = Math.max(0, before + delta);
+			if (after == before) {
+				return;
+			}
+			if (after == 0) {
+				dayCounts.remove(day);
+			} else {
+				dayCounts.put(day, after);
+			}
+			int activeChange = before == 0 ? 1 : after == 0 ? -1 : 0;
+			logCount += after - before;
+			activeDayCount += activeChange;
+			addToBucket(weeks, periodStart(RollupPeriod.Week, day), after - before, activeChange);
+			addToBucket(months, periodStart(RollupPeriod.Month, day), after - before, activeChange);
+			if (activeChange == 1) {
+				markActive(day);
+			} else if (activeChange == -1) {
+				markInactive(day);
+			}
+		}
+
+		private int streakEndingOn(int day) {
+			Map.Entry<Integer, Integer> run = runs.floorEntry(day);
+			return run == null || run.getValue() < day ? 0 : day - run.getKey() + 1;
+		}
+
+		private int longestStreak() {
+			return runLengths.isEmpty() ? 0 : runLengths.lastKey();
+		}
+
+		/**
+		 * Joins the day with the runs ending right before and starting right after it.
+		 */
+		private void markActive(int day) {
+			int start = day;
+			int end = day;
+			Map.Entry<Integer, Integer> before = runs.floorEntry(day - 1);
+			if (before != null && before.getValue() == day - 1) {
+				removeRun(before.getKey(), before.getValue());
+				start = before.getKey();
+			}
+			Integer afterEnd = runs.get(day + 1);
+			if (afterEnd != null) {
+				removeRun(day + 1, afterEnd);
+				end = afterEnd;
+			}
+			addRun(start, end);
+		}
+
+		/**
+		 * Splits the run holding the day around it.
+		 */
+		private void markInactive(int day) {
+			Map.Entry<Integer, Integer> run = runs.floorEntry(day);
+			if (run == null || run.getValue() < day) {
+				return;
+			}
+			int start = run.getKey();
+			int end = run.getValue();
+			removeRun(start, end);
+			if (start < day) {
+				addRun(start, day - 1);
+			}
+			if (day < end) {
+				addRun(day + 1, end);
+			}
+		}
+
+		private void addRun(int start, int end) {
+			runs.put(start, end);
+			runLengths.merge(end - start + 1, 1, Integer::sum);
+		}
+
+		private void removeRun(int start, int end) {
+			runs.remove(start);
+			runLengths.computeIfPresent(end - start + 1, (length, count) -> count == 1 ? null : count - 1);
+		}
+
+		private static void addToBucket(HashMap<Integer, int[]> buckets, int periodStart, int logDelta, int activeDelta) {
+			int[] bucket = buckets.computeIfAbsent(periodStart, key -> new int[2]);
+			bucket[0] += logDelta;
+			bucket[1] += activeDelta;
+			if (bucket[0] == 0) {
+				buckets.remove(periodStart);
+			}
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Service.PooledConnection;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings the database schema of the JDBC storage engine to the latest version on start. Migrations are numbered,
+ * applied in order and recorded in the schema_version table, so each runs once per database. A named lock keeps
+ * processes starting together from applying the same migration twice.
+ * <p>
+ * MySQL commits every DDL statement on its own, so a migration interrupted halfway is run again from its start.
+ * Migrations are therefore written to be repeatable: tables are created if not exists and indexes only when no index
+ * already starts with the same columns, which also leaves alone the indexes created by hand before this existed.
+ *
+ * @author sid
+ */
+final class PTLogSchemaMigrator {
+	private static final String LOCK_NAME = "ptlog_schema_migration";
+	private static final int LOCK_TIMEOUT_SECONDS = 30;
+
+	private static final Migration[] MIGRATIONS = {
+			new Migration(1, "Create employees, ptlogs and employee_managers", pooledConnection -> {
+				execute(pooledConnection, "create table if not exists employees (" +
+						"emp_id int not null auto_increment, " +
+						"name varchar(255) not null, " +
+						"designation varchar(20) not null, " +
+						"primary key (emp_id))");
+				execute(pooledConnection, "create table if not exists ptlogs (" +
+						"ptlog_id int not null auto_increment, " +
+						"emp_id int not null, " +
+						"details text, " +
+						"logged_date date not null, " +
+						"primary key (ptlog_id))");
+				execute(pooledConnection, "create table if not exists employee_managers (" +
+						"emp_id int not null, " +
+						"mgr_id int not null, " +
+						"primary key (emp_id, mgr_id))");
+			}),
+			// Pt log lookups filter on emp_id and sort on (logged_date, ptlog_id), deletes for retention only on
+			// logged_date, and managers are looked up by their reports and reports by their managers.
+			new Migration(2, "Add indexes matching the storage engine queries", pooledConnection -> {
+				createIndexIfMissing(pooledConnection, "ptlogs", "idx_ptlogs_emp_logged_date_id",
+						"emp_id", "logged_date", "ptlog_id");
+				createIndexIfMissing(pooledConnection, "ptlogs", "idx_ptlogs_logged_date", "logged_date");
+				createIndexIfMissing(pooledConnection, "employee_managers", "idx_employee_managers_emp_mgr",
+						"emp_id", "mgr_id");
+				createIndexIfMissing(pooledConnection, "employee_managers", "idx_employee_managers_mgr_emp",
+						"mgr_id", "emp_id");
+			}),
+	};
+
+	/**
+	 * Applies every migration newer than the version of the database.
+	 *
+	 * @return number of migrations applied.
+	 */
+	int migrate(PooledConnection pooledConnection) throws SQLException {
+		execute(pooledConnection, "create table if not exists schema_version (" +
+				"version int not null, " +
+				"description varchar(255) not null, " +
+				"applied_at timestamp not null default current_timestamp, " +
+				"primary key (version))");
+		acquireLock(pooledConnection);
+		try {
+			int version = getVersion(pooledConnection);
+			int applied = 0;
+			for (Migration migration : MIGRATIONS) {
+				if (migration.version <= version) {
+					continue;
+				}
+				migration.step.apply(pooledConnection);
+				PreparedStatement statement = pooledConnection.prepareStatement(
+						"insert into schema_version (version, description) values (?,?)");
+				statement.setInt(1, migration.version);
+				statement.setString(2, migration.description);
+				statement.executeUpdate();
+				System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+				applied++;
+			}
+			return applied;
+		} finally {
+			releaseLock(pooledConnection);
+		}
+	}
+
+	/**
+	 * @return latest migration applied to the database, 0 if none.
+	 */
+	int getVersion(PooledConnection pooledConnection) throws SQLException {
+		PreparedStatement statement = pooledConnection.prepareStatement("select max(version) from schema_version");
+		try (ResultSet resultSet = statement.executeQuery()) {
+			return resultSet.next() ? resultSet.getInt(1) : 0;
+		}
+	}
+
+	/**
+	 * Creates an index unless the table already has one whose leading columns are the given columns.
+	 */
+	private static void createIndexIfMissing(PooledConnection pooledConnection, String table, String name,
+			String... columns) throws SQLException {
+		String query = "select index_name, column_name from information_schema.statistics" +
+				" where table_schema = database() and table_name = (?) order by index_name, seq_in_index";
+		Map<String, List<String>> indexColumns = new HashMap<>();
+		PreparedStatement statement = pooledConnection.prepareStatement(query);
+		statement.setString(1, table);
+		try (ResultSet resultSet = statement.executeQuery()) {
+			while (resultSet.next()) {
+				indexColumns.computeIfAbsent(resultSet.getString("index_name"), key -> new ArrayList<>())
+						.add(resultSet.getString("column_name").toLowerCase());
+			}
+		}
+		List<String> wanted = Arrays.asList(columns);
+		for (List<String> existing : indexColumns.values()) {
+			if (existing.size() >= wanted.size() && existing.subList(0, wanted.size()).equals(wanted)) {
+				return;
+			}
+		}
+		execute(pooledConnection, "create index " + name + " on " + table + " (" + String.join(", ", columns) + ")");
+	}
+
+	private static void acquireLock(PooledConnection pooledConnection) throws SQLException {
+		PreparedStatement statement = pooledConnection.prepareStatement("select get_lock(?, ?)");
+		statement.setString(1, LOCK_NAME);
+		statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+		try (ResultSet resultSet = statement.executeQuery()) {
+			if (!resultSet.next() || resultSet.getInt(1) != 1) {
+				throw new SQLException("Timed out waiting for another process migrating the schema.");
+			}
+		}
+	}
+
+	private static void releaseLock(PooledConnection pooledConnection) throws SQLException {
+		PreparedStatement statement = pooledConnection.prepareStatement("select release_lock(?)");
+		statement.setString(1, LOCK_NAME);
+		statement.executeQuery().close();
+	}
+
+	private static void execute(PooledConnection pooledConnection, String ddl) throws SQLException {
+		try (Statement statement = pooledConnection.getConnection().createStatement()) {
+			statement.executeUpdate(ddl);
+		}
+	}
+
+	/**
+	 * Statements of a migration.
+	 */
+	@FunctionalInterface
+	private interface MigrationStep {
+		void apply(PooledConnection pooledConnection) throws SQLException;
+	}
+
+	private static final class Migration {
+		private final int version;
+		private final String description;
+		private final MigrationStep step;
+
+		private Migration(int version, String description, MigrationStep step) {
+			this.version = version;
+			this.description = description;
+			this.step = step;
+		}
+	}
+}
@@ -0,0 +1,800 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.IntArrayList;
+import com.siddhartha.practice.Models.PTLog;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * In-memory full-text index over the details of pt logs, answering ranked searches without reading the logs again.
+ * Details are split into lower case words of letters and digits, and every word maps to a posting list of the rows
+ * holding it with the number of times it occurs. Rows are numbered in order of insertion, so posting lists only ever
+ * grow at their end and are stored as the varint encoded gaps between rows, about two bytes per posting.
+ * <p>
+ * Searches walk the posting lists of the query words together in row order, skip rows failing the employee, team or
+ * date filter and keep the best rows by BM25 score in a bounded heap. Rows are kept in columns like in
+ * ColumnarPTLogStore, details as UTF-8 bytes in one pool, so the logs found are returned without a query. Deleted rows
+ * are only marked until half of the rows are deleted, then the columns and posting lists are rebuilt from the live
+ * rows.
+ * <p>
+ * Logs without words get a row without postings, so the index knows the greatest id, the number and the id sum of all
+ * the logs it was given. A snapshot of the columns and posting lists written by writeTo is restored instead of being
+ * rebuilt when the storage engine still holds the same logs up to that greatest id.
+ *
+ * @author sid
+ */
+public final class PTLogSearchIndex implements PTLogChangeListener {
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int MIN_TOKEN_LENGTH = 2;
+	private static final int MAX_TOKEN_LENGTH = 40;
+	private static final double BM25_K1 = 1.2;
+	private static final double BM25_B = 0.75;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ManagerHierarchyIndex managerHierarchy;
+
+	private int[] ids = new int[INITIAL_CAPACITY];
+	private int[] employeeIds = new int[INITIAL_CAPACITY];
+	private int[] loggedDays = new int[INITIAL_CAPACITY];
+	private int[] tokenCounts = new int[INITIAL_CAPACITY];
+	private int[] detailsOffsets = new int[INITIAL_CAPACITY];
+	private int[] detailsLengths = new int[INITIAL_CAPACITY];
+	private byte[] detailsPool = new byte[INITIAL_CAPACITY * 16];
+	private int detailsPoolSize = 0;
+	private int rowCount = 0;
+	private final BitSet deletedRows = new BitSet();
+	private int deletedCount = 0;
+	private long liveTokenCount = 0;
+	private long liveIdSum = 0;
+	private int highWaterMark = 0;
+
+	private final HashMap<Integer, IntArrayList> rowsByEmployee = new HashMap<>();
+	private final HashMap<String, PostingList> postings = new HashMap<>();
+
+	/**
+	 * @param managerHierarchy
+	 * 		index resolving the teams of managers, null if searches cannot be filtered by manager.
+	 */
+	public PTLogSearchIndex(ManagerHierarchyIndex managerHierarchy) {
+		this.managerHierarchy = managerHierarchy;
+	}
+
+	/**
+	 * Replaces the whole index with the logs the storage engine holds, reading every log once.
+	 *
+	 * @param storageEngine
+	 * 		engine whose logs are indexed.
+	 * @return result of the scan of the logs.
+	 */
+	public int rebuild(PTLogStorageEngine storageEngine) {
+		return rebuild(storageEngine::forEachPTLog);
+	}
+
+	/**
+	 * Replaces the whole index with the logs handed by a source, like a snapshot of the logs.
+	 *
+	 * @param source
+	 * 		hands every log to the consumer and returns the result of the scan.
+	 * @return result of the scan of the logs.
+	 */
+	public int rebuild(ToIntFunction<Consumer<PTLog>> source) {
+		lock.writeLock().lock();
+		try {
+			clear();
+			highWaterMark = 0;
+			return source.applyAsInt(this::add);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Indexes an added pt log.
+	 *
+	 * @param ptLog
+	 * 		log added to the storage engine.
+	 */
+	@Override
+	public void recordAdded(PTLog ptLog) {
+		lock.writeLock().lock();
+		try {
+			add(ptLog);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes all pt logs of an employee in a range of date, after they were deleted from the storage engine.
+	 *
+	 * @param employeeId
+	 * 		employee id whose logs were deleted.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 */
+	@Override
+	public void recordDeleted(int employeeId, Date startDate, Date endDate) {
+		int startDay = toDay(startDate);
+		int endDay = toDay(endDate);
+		lock.writeLock().lock();
+		try {
+			IntArrayList employeeRows = rowsByEmployee.get(employeeId);
+			if (employeeRows == null) {
+				return;
+			}
+			deleteRows(employeeRows, startDay, endDay);
+			if (employeeRows.isEmpty()) {
+				rowsByEmployee.remove(employeeId);
+			}
+			compactIfMostlyDeleted();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes all pt logs logged before a date, after they were deleted from the storage engine.
+	 *
+	 * @param cutoff
+	 * 		first logged date of the logs kept.
+	 */
+	@Override
+	public void recordDeletedBefore(Date cutoff) {
+		int cutoffDay = toDay(cutoff);
+		lock.writeLock().lock();
+		try {
+			for (IntArrayList employeeRows : rowsByEmployee.values()) {
+				deleteRows(employeeRows, Integer.MIN_VALUE, cutoffDay - 1);
+			}
+			rowsByEmployee.values().removeIf(IntArrayList::isEmpty);
+			compactIfMostlyDeleted();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Searches the details of the pt logs for the words of the text. Logs holding more of the words, holding them more
+	 * often and holding rarer words rank first, ties going to the latest log.
+	 *
+	 * @param text
+	 * 		words to search for.
+	 * @param employeeId
+	 * 		employee id whose logs are searched, null for all employees.
+	 * @param managerId
+	 * 		manager id under whom the logs of all employees are searched, directly or through other managers, null for
+	 * 		all employees.
+	 * @param startDate
+	 * 		start point of date range, null for no range.
+	 * @param endDate
+	 * 		end point of date range, null for no range.
+	 * @param limit
+	 * 		maximum number of pt logs returned.
+	 * @return pt logs found, best match first, null if filtered by manager but teams cannot be resolved.
+	 */
+	public ArrayList<PTLog> search(String text, Integer employeeId, Integer managerId, Date startDate, Date endDate,
+			int limit) {
+		int[] team = null;
+		if (managerId != null) {
+			if (managerHierarchy == null) {
+				return null;
+			}
+			team = managerHierarchy.resolveTeam(managerId);
+		}
+		LinkedHashSet<String> words = new LinkedHashSet<>();
+		tokenize(text, words::add);
+		int startDay = startDate == null ? Integer.MIN_VALUE : toDay(startDate);
+		int endDay = endDate == null ? Integer.MAX_VALUE : toDay(endDate);
+		lock.readLock().lock();
+		try {
+			int liveRows = rowCount - deletedCount;
+			if (liveRows == 0 || limit <= 0 || (team != null && team.length == 0)) {
+				return new ArrayList<>();
+			}
+			double averageTokenCount = Math.max(1.0, (double) liveTokenCount / liveRows);
+			ArrayList<PostingCursor> cursorList = new ArrayList<>();
+			long postingCount = 0;
+			for (String word : words) {
+				PostingList postingList = postings.get(word);
+				if (postingList != null) {
+					double idf = Math.log(1 + (liveRows - postingList.documentCount + 0.5) /
+							(postingList.documentCount + 0.5));
+					cursorList.add(new PostingCursor(postingList, Math.max(idf, 0.01)));
+					postingCount += postingList.documentCount;
+				}
+			}
+			PostingCursor[] cursors = cursorList.toArray(new PostingCursor[0]);
+			PriorityQueue<ScoredRow> best = new PriorityQueue<>(Math.min(limit, 1024) + 1);
+			int[] filteredRows = filteredRows(employeeId, team, postingCount);
+			if (filteredRows != null) {
+				// Few rows pass the employee filter, so the posting lists are skipped to each of them.
+				for (int row : filteredRows) {
+					if (loggedDays[row] < startDay || loggedDays[row] > endDay) {
+						continue;
+					}
+					double score = 0;
+					for (PostingCursor cursor : cursors) {
+						cursor.advance(row);
+						if (cursor.row == row) {
+							score += score(cursor, row, averageTokenCount);
+						}
+					}
+					if (score > 0) {
+						offer(best, limit, row, score);
+					}
+				}
+			} else {
+				while (true) {
+					int row = Integer.MAX_VALUE;
+					for (PostingCursor cursor : cursors) {
+						row = Math.min(row, cursor.row);
+					}
+					if (row == Integer.MAX_VALUE) {
+						break;
+					}
+					double score = 0;
+					for (PostingCursor cursor : cursors) {
+						if (cursor.row == row) {
+							score += score(cursor, row, averageTokenCount);
+							cursor.next();
+						}
+					}
+					if (deletedRows.get(row) || loggedDays[row] < startDay || loggedDays[row] > endDay ||
+							(employeeId != null && employeeIds[row] != employeeId) ||
+							(team != null && Arrays.binarySearch(team, employeeIds[row]) < 0)) {
+						continue;
+					}
+					offer(best, limit, row, score);
+				}
+			}
+			ArrayList<ScoredRow> ranked = new ArrayList<>(best);
+			ranked.sort(Collections.reverseOrder());
+			ArrayList<PTLog> found = new ArrayList<>(ranked.size());
+			for (ScoredRow scoredRow : ranked) {
+				found.add(read(scoredRow.row));
+			}
+			return found;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return number of pt logs in the index.
+	 */
+	public int getDocumentCount() {
+		lock.readLock().lock();
+		try {
+			return rowCount - deletedCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return greatest id of the logs indexed since the index was built, including logs deleted since.
+	 */
+	public int getHighWaterMark() {
+		lock.readLock().lock();
+		try {
+			return highWaterMark;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return number of distinct words in the index.
+	 */
+	public int getTermCount() {
+		lock.readLock().lock();
+		try {
+			return postings.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Estimates the heap used by the columns, the byte pool and the posting lists.
+	 *
+	 * @return estimated bytes used by the index.
+	 */
+	public long estimateFootprintBytes() {
+		lock.readLock().lock();
+		try {
+			long bytes = 4L * (ids.length + employeeIds.length + loggedDays.length + tokenCounts.length +
+					detailsOffsets.length + detailsLengths.length);
+			bytes += detailsPool.length;
+			bytes += deletedRows.size() / 8;
+			for (IntArrayList employeeRows : rowsByEmployee.values()) {
+				bytes += employeeRows.capacityBytes() + 64;
+			}
+			for (Map.Entry<String, PostingList> posting : postings.entrySet()) {
+				bytes += posting.getValue().bytes.length + 2L * posting.getKey().length() + 120;
+			}
+			return bytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes the index: the greatest id, the number and the id sum of the live logs, the columns of every row, the
+	 * deleted rows, and every posting list as is. Changes wait until the index is written.
+	 *
+	 * @param output
+	 * 		stream the index is written to.
+	 * @throws IOException
+	 * 		if the stream could not be written.
+	 */
+	void writeTo(DataOutputStream output) throws IOException {
+		lock.readLock().lock();
+		try {
+			output.writeInt(highWaterMark);
+			output.writeLong(rowCount - deletedCount);
+			output.writeLong(liveIdSum);
+			output.writeInt(rowCount);
+			for (int[] column : new int[][]{ids, employeeIds, loggedDays, tokenCounts, detailsLengths}) {
+				for (int row = 0; row < rowCount; row++) {
+					output.writeInt(column[row]);
+				}
+			}
+			output.writeInt(detailsPoolSize);
+			output.write(detailsPool, 0, detailsPoolSize);
+			long[] deleted = deletedRows.toLongArray();
+			output.writeInt(deleted.length);
+			for (long word : deleted) {
+				output.writeLong(word);
+			}
+			output.writeInt(postings.size());
+			for (Map.Entry<String, PostingList> posting : postings.entrySet()) {
+				byte[] word = posting.getKey().getBytes(StandardCharsets.UTF_8);
+				PostingList postingList = posting.getValue();
+				output.writeByte(word.length);
+				output.write(word);
+				output.writeInt(postingList.lastRow);
+				output.writeInt(postingList.documentCount);
+				output.writeInt(postingList.size);
+				output.write(postingList.bytes, 0, postingList.size);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Replaces the whole index with the one written by writeTo. The rows of each employee, the skip lists of the
+	 * posting lists and the token count are derived from what was written.
+	 *
+	 * @param buffer
+	 * 		buffer positioned at the start of the written index.
+	 * @throws java.nio.BufferUnderflowException
+	 * 		if the buffer ends before the index, which is then left partly restored and must be rebuilt.
+	 * @throws IllegalArgumentException
+	 * 		if a size written is negative.
+	 */
+	void restore(ByteBuffer buffer) {
+		lock.writeLock().lock();
+		try {
+			clear();
+			int restoredHighWaterMark = buffer.getInt();
+			buffer.getLong();
+			long restoredIdSum = buffer.getLong();
+			int restoredRowCount = buffer.getInt();
+			if (restoredRowCount < 0) {
+				throw new IllegalArgumentException("Negative row count " + restoredRowCount);
+			}
+			ensureRowCapacity(restoredRowCount);
+			for (int[] column : new int[][]{ids, employeeIds, loggedDays, tokenCounts, detailsLengths}) {
+				buffer.asIntBuffer().get(column, 0, restoredRowCount);
+				buffer.position(buffer.position() + 4 * restoredRowCount);
+			}
+			int restoredPoolSize = buffer.getInt();
+			ensurePoolCapacity(restoredPoolSize);
+			buffer.get(detailsPool, 0, restoredPoolSize);
+			long[] deleted = new long[buffer.getInt()];
+			buffer.asLongBuffer().get(deleted);
+			buffer.position(buffer.position() + 8 * deleted.length);
+			deletedRows.or(BitSet.valueOf(deleted));
+
+			rowCount = restoredRowCount;
+			detailsPoolSize = restoredPoolSize;
+			deletedCount = deletedRows.cardinality();
+			int detailsOffset = 0;
+			for (int row = 0; row < rowCount; row++) {
+				detailsOffsets[row] = detailsOffset;
+				detailsOffset += detailsLengths[row];
+				if (!deletedRows.get(row)) {
+					liveTokenCount += tokenCounts[row];
+					rowsByEmployee.computeIfAbsent(employeeIds[row], key -> new IntArrayList(4)).add(row);
+				}
+			}
+			if (detailsOffset != detailsPoolSize) {
+				throw new IllegalArgumentException("Details lengths do not add up to the details pool size");
+			}
+
+			int postingCount = buffer.getInt();
+			for (int i = 0; i < postingCount; i++) {
+				byte[] word = new byte[buffer.get() & 0xFF];
+				buffer.get(word);
+				PostingList postingList = new PostingList();
+				postingList.lastRow = buffer.getInt();
+				postingList.documentCount = buffer.getInt();
+				postingList.size = buffer.getInt();
+				postingList.bytes = new byte[Math.max(8, postingList.size)];
+				buffer.get(postingList.bytes, 0, postingList.size);
+				postingList.restoreSkips();
+				postings.put(new String(word, StandardCharsets.UTF_8), postingList);
+			}
+			highWaterMark = restoredHighWaterMark;
+			liveIdSum = restoredIdSum;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Collects the live rows of the employee, or of every employee of the team, in row order when they are fewer than
+	 * the postings of the query words. Only called under the lock.
+	 *
+	 * @return rows passing the employee filter, null if there is no such filter or the postings should be read instead.
+	 */
+	private int[] filteredRows(Integer employeeId, int[] team, long postingCount) {
+		if (employeeId != null) {
+			IntArrayList employeeRows = rowsByEmployee.get(employeeId);
+			return employeeRows == null ? new int[0] : employeeRows.toArray();
+		}
+		if (team == null) {
+			return null;
+		}
+		long teamRowCount = 0;
+		for (int memberId : team) {
+			IntArrayList memberRows = rowsByEmployee.get(memberId);
+			teamRowCount += memberRows == null ? 0 : memberRows.size();
+		}
+		if (teamRowCount > postingCount) {
+			return null;
+		}
+		IntArrayList teamRows = new IntArrayList((int) teamRowCount);
+		for (int memberId : team) {
+			IntArrayList memberRows = rowsByEmployee.get(memberId);
+			for (int i = 0; memberRows != null && i < memberRows.size(); i++) {
+				teamRows.add(memberRows.get(i));
+			}
+		}
+		teamRows.sort();
+		return teamRows.toArray();
+	}
+
+	/**
+	 * @return BM25 score of the word of the cursor in the row the cursor is on.
+	 */
+	private double score(PostingCursor cursor, int row, double averageTokenCount) {
+		double lengthNorm = 1 - BM25_B + BM25_B * tokenCounts[row] / averageTokenCount;
+		return cursor.idf * cursor.frequency * (BM25_K1 + 1) / (cursor.frequency + BM25_K1 * lengthNorm);
+	}
+
+	/**
+	 * Keeps the row when it is among the best rows found so far, only creating a ScoredRow when it is kept.
+	 */
+	private static void offer(PriorityQueue<ScoredRow> best, int limit, int row, double score) {
+		if (best.size() < limit) {
+			best.add(new ScoredRow(row, score));
+			return;
+		}
+		ScoredRow worst = best.peek();
+		if (score > worst.score || (score == worst.score && row > worst.row)) {
+			best.poll();
+			best.add(new ScoredRow(row, score));
+		}
+	}
+
+	/**
+	 * Adds a row for the log and appends it to the posting list of each of its words. Logs without words get a row
+	 * without postings, which no search finds. Only called under the write lock.
+	 */
+	private void add(PTLog ptLog) {
+		HashMap<String, Integer> frequencies = new HashMap<>();
+		int tokenCount = tokenize(ptLog.getDetails(), word -> frequencies.merge(word, 1, Integer::sum));
+		byte[] detailsBytes = ptLog.getDetails() == null
+				? new byte[0]
+				: ptLog.getDetails().getBytes(StandardCharsets.UTF_8);
+		ensureRowCapacity(rowCount + 1);
+		ensurePoolCapacity(detailsPoolSize + detailsBytes.length);
+		int row = rowCount++;
+		ids[row] = ptLog.getId();
+		employeeIds[row] = ptLog.getEmployeeId();
+		loggedDays[row] = toDay(ptLog.getLoggedDate());
+		tokenCounts[row] = tokenCount;
+		System.arraycopy(detailsBytes, 0, detailsPool, detailsPoolSize, detailsBytes.length);
+		detailsOffsets[row] = detailsPoolSize;
+		detailsLengths[row] = detailsBytes.length;
+		detailsPoolSize += detailsBytes.length;
+		liveTokenCount += tokenCount;
+		liveIdSum += ptLog.getId();
+		highWaterMark = Math.max(highWaterMark, ptLog.getId());
+		rowsByEmployee.computeIfAbsent(ptLog.getEmployeeId(), key -> new IntArrayList(4)).add(row);
+		for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+			postings.computeIfAbsent(frequency.getKey(), key -> new PostingList()).add(row, frequency.getValue());
+		}
+	}
+
+	/**
+	 * Marks the rows of the list logged in the range as deleted and removes them from the list. Only called under the
+	 * write lock.
+	 */
+	private void deleteRows(IntArrayList employeeRows, int startDay, int endDay) {
+		int kept = 0;
+		for (int i = 0; i < employeeRows.size(); i++) {
+			int row = employeeRows.get(i);
+			if (loggedDays[row] >= startDay && loggedDays[row] <= endDay) {
+				deletedRows.set(row);
+				deletedCount++;
+				liveTokenCount -= tokenCounts[row];
+				liveIdSum -= ids[row];
+			} else {
+				employeeRows.set(kept++, row);
+			}
+		}
+		employeeRows.truncate(kept);
+	}
+
+	private void compactIfMostlyDeleted() {
+		if (deletedCount > rowCount / 2 && deletedCount > INITIAL_CAPACITY) {
+			compact();
+		}
+	}
+
+	/**
+	 * Indexes the live rows again from their stored details, dropping the deleted rows from the columns and the
+	 * posting lists. Only called under the write lock.
+	 */
+	private void compact() {
+		ArrayList<PTLog> live = new ArrayList<>(rowCount - deletedCount);
+		for (int row = 0; row < rowCount; row++) {
+			if (!deletedRows.get(row)) {
+				live.add(read(row));
+			}
+		}
+		clear();
+		for (PTLog ptLog : live) {
+			add(ptLog);
+		}
+	}
+
+	private void clear() {
+		rowCount = 0;
+		detailsPoolSize = 0;
+		deletedRows.clear();
+		deletedCount = 0;
+		liveTokenCount = 0;
+		liveIdSum = 0;
+		rowsByEmployee.clear();
+		postings.clear();
+	}
+
+	/**
+	 * Creates the PTLog of a row. Only called under the lock.
+	 */
+	private PTLog read(int row) {
+		return new PTLog(ids[row], employeeIds[row],
+				new String(detailsPool, detailsOffsets[row], detailsLengths[row], StandardCharsets.UTF_8),
+				Date.valueOf(LocalDate.ofEpochDay(loggedDays[row])));
+	}
+
+	/**
+	 * Splits the text into lower case words of letters and digits, dropping words shorter than MIN_TOKEN_LENGTH and
+	 * cutting words longer than MAX_TOKEN_LENGTH.
+	 *
+	 * @return number of words handed to the consumer.
+	 */
+	private static int tokenize(String text, Consumer<String> consumer) {
+		if (text == null) {
+			return 0;
+		}
+		int tokenCount = 0;
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i <= text.length(); i++) {
+			char character = i < text.length() ? text.charAt(i) : ' ';
+			if (Character.isLetterOrDigit(character)) {
+				if (word.length() < MAX_TOKEN_LENGTH) {
+					word.append(Character.toLowerCase(character));
+				}
+			} else if (word.length() > 0) {
+				if (word.length() >= MIN_TOKEN_LENGTH) {
+					consumer.accept(word.toString());
+					tokenCount++;
+				}
+				word.setLength(0);
+			}
+		}
+		return tokenCount;
+	}
+
+	private void ensureRowCapacity(int capacity) {
+		if (capacity > ids.length) {
+			int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+			ids = Arrays.copyOf(ids, newCapacity);
+			employeeIds = Arrays.copyOf(employeeIds, newCapacity);
+			loggedDays = Arrays.copyOf(loggedDays, newCapacity);
+			tokenCounts = Arrays.copyOf(tokenCounts, newCapacity);
+			detailsOffsets = Arrays.copyOf(detailsOffsets, newCapacity);
+			detailsLengths = Arrays.copyOf(detailsLengths, newCapacity);
+		}
+	}
+
+	private void ensurePoolCapacity(int capacity) {
+		if (capacity > detailsPool.length) {
+			detailsPool = Arrays.copyOf(detailsPool, Math.max(capacity, detailsPool.length + (detailsPool.length >> 1)));
+		}
+	}
+
+	private static int toDay(Date date) {
+		return (int) date.toLocalDate().toEpochDay();
+	}
+
+	/**
+	 * Rows holding a word, each stored as the varint encoded gap from the previous row followed by the varint encoded
+	 * number of times the word occurs in it. Every SKIP_INTERVAL postings the previous row and the position of the next
+	 * posting are kept aside, so a cursor can jump close to a row without decoding the postings before it.
+	 */
+	private static final class PostingList {
+		private static final int SKIP_INTERVAL = 64;
+
+		private byte[] bytes = new byte[8];
+		private int size = 0;
+		private int lastRow = -1;
+		private int documentCount = 0;
+		private final IntArrayList skipRows = new IntArrayList(1);
+		private final IntArrayList skipPositions = new IntArrayList(1);
+
+		/**
+		 * Appends a row, which must come after every row already in the list.
+		 */
+		private void add(int row, int frequency) {
+			if (size + 10 > bytes.length) {
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			}
+			if (documentCount > 0 && documentCount % SKIP_INTERVAL == 0) {
+				skipRows.add(lastRow);
+				skipPositions.add(size);
+			}
+			size = writeVarint(bytes, size, row - lastRow);
+			size = writeVarint(bytes, size, frequency);
+			lastRow = row;
+			documentCount++;
+		}
+
+		/**
+		 * Rebuilds the skip lists, kept aside as in add, by decoding the postings once.
+		 */
+		private void restoreSkips() {
+			skipRows.clear();
+			skipPositions.clear();
+			PostingCursor cursor = new PostingCursor(this, 0);
+			for (int posting = 1; cursor.position < size; posting++) {
+				if (posting % SKIP_INTERVAL == 0) {
+					skipRows.add(cursor.row);
+					skipPositions.add(cursor.position);
+				}
+				cursor.next();
+			}
+		}
+
+		private static int writeVarint(byte[] bytes, int position, int value) {
+			while ((value & ~0x7F) != 0) {
+				bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[position++] = (byte) value;
+			return position;
+		}
+	}
+
+	/**
+	 * Decodes a posting list one row at a time. The row is Integer.MAX_VALUE once the list is exhausted.
+	 */
+	private static final class PostingCursor {
+		private final byte[] bytes;
+		private final int size;
+		private final IntArrayList skipRows;
+		private final IntArrayList skipPositions;
+		private final double idf;
+		private int position = 0;
+		private int skipIndex = 0;
+		private int row = -1;
+		private int frequency;
+
+		private PostingCursor(PostingList postingList, double idf) {
+			this.bytes = postingList.bytes;
+			this.size = postingList.size;
+			this.skipRows = postingList.skipRows;
+			this.skipPositions = postingList.skipPositions;
+			this.idf = idf;
+			next();
+		}
+
+		/**
+		 * Moves to the first row at or after the target, jumping over the blocks of postings ending before it.
+		 */
+		private void advance(int target) {
+			if (row >= target) {
+				return;
+			}
+			int jumpTo = -1;
+			while (skipIndex < skipRows.size() && skipRows.get(skipIndex) < target) {
+				if (skipPositions.get(skipIndex) > position) {
+					jumpTo = skipIndex;
+				}
+				skipIndex++;
+			}
+			if (jumpTo >= 0) {
+				row = skipRows.get(jumpTo);
+				position = skipPositions.get(jumpTo);
+				next();
+			}
+			while (row < target) {
+				next();
+			}
+		}
+
+		private void next() {
+			if (position >= size) {
+				row = Integer.MAX_VALUE;
+				return;
+			}
+			row += readVarint();
+			frequency = readVarint();
+		}
+
+		private int readVarint() {
+			int value = 0;
+			int shift = 0;
+			byte current;
+			do {
+				current = bytes[position++];
+				value |= (current & 0x7F) << shift;
+				shift += 7;
+			} while (current < 0);
+			return value;
+		}
+	}
+
+	/**
+	 * Row found by a search with its score, ordered by score then by row so later logs win ties.
+	 */
+	private static final class ScoredRow implements Comparable<ScoredRow> {
+		private final int row;
+		private final double score;
+
+		private ScoredRow(int row, double score) {
+			this.row = row;
+			this.score = score;
+		}
+
+		@Override
+		public int compareTo(ScoredRow other) {
+			int compare = Double.compare(score, other.score);
+			return compare != 0 ? compare : Integer.compare(row, other.row);
+		}
+	}
+}
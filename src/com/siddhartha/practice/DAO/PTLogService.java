@@ -1,45 +1,299 @@
 package com.siddhartha.practice.DAO;
 
+import com.siddhartha.practice.Helpers.ExecutorFactory;
 import com.siddhartha.practice.Models.*;
-import com.siddhartha.practice.Service.DBConnectionService;
-import com.siddhartha.practice.Helpers.EmployeeFactory;
+import config.DatabaseConfig;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /**
- * PTLogService class to interact with database. This runs the requested queries on the established connection.
+ * PTLogService class to log and view PT of employees. It runs the requested operations on a PTLogStorageEngine, by
+ * default the JdbcPTLogStorageEngine working on the MySQL database, or the InMemoryPTLogStorageEngine when
+ * DatabaseConfig.storageEngine is "memory". Activity counts, streaks and active days are answered from PTLogRollups
+ * and full-text searches from PTLogSearchIndex, both built once on start and kept up to date by wrapping the engine.
+ * With snapshots enabled they are built from the last PTLogSnapshot and the logs the engine added since instead.
+ * Changes made through the engine are published to the subscriptions of PTLogChangeFeed. Range queries of an employee
+ * and of a manager's team are answered from PTLogQueryCache when it holds them, the changes dropping the results they
+ * affect.
  *
  * @author sid
  */
 public final class PTLogService {
-	private Connection connection = null;
 	private final static int COMMAND_EXECUTION_RESULT_FAIL = 0;
 	private final static int COMMAND_EXECUTION_RESULT_SUCCESS = 1;
+	public final static String STORAGE_ENGINE_JDBC = "jdbc";
+	public final static String STORAGE_ENGINE_MEMORY = "memory";
+
+	private static final ToLongFunction<Page<?>> PAGE_ROW_COUNTER = page -> page.getItems().size();
+	private static final ToLongFunction<Map<Integer, ArrayList<PTLog>>> GROUPED_ROW_COUNTER =
+			groups -> groups.values().stream().mapToLong(ArrayList::size).sum();
+
+	private final PTLogStorageEngine storageEngine;
+	private final PTLogMetrics metrics = new PTLogMetrics();
+	private final PTLogWriteBehindBuffer writeBehindBuffer;
+	private final PTLogJournal journal;
+	private final PTLogRollups rollups;
+	private final PTLogSearchIndex searchIndex;
+	private final PTLogChangeFeed changeFeed;
+	private final PTLogQueryCache queryCache;
+	private final ScheduledExecutorService snapshotWriter;
 
 	/**
-	 * Constructor class for PTLogService. It fetches the connection established by DBConnectionService and returns the
+	 * Constructor class for PTLogService. It creates the storage engine selected in DatabaseConfig and returns the
 	 * instance.
 	 */
 	public PTLogService() throws RuntimeException {
+		this(createStorageEngine(DatabaseConfig.storageEngine));
+	}
+
+	/**
+	 * Constructor class for PTLogService running its operations on the given storage engine.
+	 *
+	 * @param storageEngine
+	 * 		engine storing employees and pt logs.
+	 */
+	public PTLogService(PTLogStorageEngine storageEngine) {
+		this(storageEngine, DatabaseConfig.writeBehindEnabled, DatabaseConfig.journalEnabled,
+				DatabaseConfig.rollupsEnabled, DatabaseConfig.searchIndexEnabled, DatabaseConfig.snapshotEnabled,
+				DatabaseConfig.changeFeedEnabled, DatabaseConfig.queryCacheEnabled);
+	}
+
+	/**
+	 * Constructor class for PTLogService running its operations on the given storage engine.
+	 *
+	 * @param storageEngine
+	 * 		engine storing employees and pt logs.
+	 * @param writeBehind
+	 * 		whether pt logs are added through a write-behind buffer committing them in batches.
+	 * @param journaled
+	 * 		whether pt logs are accepted once appended to the local journal and replayed into the storage engine in the
+	 * 		background. Takes precedence over writeBehind.
+	 * @param rolledUp
+	 * 		whether activity rollups are built from the stored pt logs and kept up to date, answering the activity
+	 * 		queries.
+	 * @param searchIndexed
+	 * 		whether a full-text index of the details of the stored pt logs is built and kept up to date, answering the
+	 * 		searches. The rollups and the index are built from one scan of the logs, and both are disabled if it
+	 * 		fails.
+	 * @param snapshotted
+	 * 		whether the rollups, the search index, the manager hierarchy and the employee directory cache are written to
+	 * 		DatabaseConfig.snapshotFile every DatabaseConfig.snapshotIntervalMillis, and restored from it on start
+	 * 		along with the pt logs the storage engine added since, when it is still up to date.
+	 * @param changeFed
+	 * 		whether the pt logs added and deleted and the employees promoted and assigned are published to the
+	 * 		subscriptions of a change feed.
+	 * @param queryCached
+	 * 		whether the results of the range queries of an employee and of a manager's team are cached, the pt logs
+	 * 		added and deleted and the employees assigned dropping the results they affect.
+	 * @throws RuntimeException
+	 * 		if the journal cannot be opened.
+	 */
+	public PTLogService(PTLogStorageEngine storageEngine, boolean writeBehind, boolean journaled, boolean rolledUp,
+			boolean searchIndexed, boolean snapshotted, boolean changeFed, boolean queryCached)
+			throws RuntimeException {
+		PTLogSnapshot snapshot = snapshotted ? openSnapshot(storageEngine) : null;
+		ArrayList<PTLogChangeListener> listeners = new ArrayList<>();
+		PTLogRollups rollups = rolledUp ? new PTLogRollups(storageEngine.getManagerHierarchy()) : null;
+		PTLogSearchIndex searchIndex = searchIndexed ? new PTLogSearchIndex(storageEngine.getManagerHierarchy()) : null;
+		boolean warmStarted = snapshot != null && restoreViews(snapshot, storageEngine, rollups, searchIndex);
+		if (!warmStarted && !buildViews(rollups, searchIndex, storageEngine::forEachPTLog)) {
+			System.out.println("PT log rollups and search index are disabled.");
+			rollups = null;
+			searchIndex = null;
+		}
+		this.rollups = rollups;
+		if (rollups != null) {
+			listeners.add(rollups);
+			metrics.registerGauge("ptlog_rollup_employees", "gauge", "Employees with rolled up pt logs.",
+					rollups::getEmployeeCount);
+			metrics.registerGauge("ptlog_rollup_teams", "gauge", "Manager teams with rolled up pt logs.",
+					rollups::getTeamCount);
+		}
+		this.searchIndex = searchIndex;
+		if (searchIndex != null) {
+			listeners.add(searchIndex);
+			metrics.registerGauge("ptlog_search_documents", "gauge", "Pt logs in the search index.",
+					searchIndex::getDocumentCount);
+			metrics.registerGauge("ptlog_search_terms", "gauge", "Distinct words in the search index.",
+					searchIndex::getTermCount);
+		}
+		if (changeFed) {
+			this.changeFeed = new PTLogChangeFeed(storageEngine.getManagerHierarchy());
+			listeners.add(changeFeed);
+			metrics.registerGauge("ptlog_change_subscriptions", "gauge", "Open change feed subscriptions.",
+					changeFeed::getSubscriptionCount);
+			metrics.registerGauge("ptlog_change_events_total", "counter",
+					"Changes published to at least one subscription.", changeFeed::getPublishedEvents);
+			metrics.registerGauge("ptlog_change_events_dropped_total", "counter",
+					"Changes dropped for a subscription whose queue was full.", changeFeed::getDroppedEvents);
+		} else {
+			this.changeFeed = null;
+		}
+		if (queryCached) {
+			this.queryCache = new PTLogQueryCache(storageEngine.getManagerHierarchy(), DatabaseConfig.queryCacheMaxBytes,
+					DatabaseConfig.queryCacheTtlMillis);
+			listeners.add(queryCache);
+			metrics.registerGauge("ptlog_query_cache_hits_total", "counter", "Range queries answered by the query cache.",
+					queryCache::getHits);
+			metrics.registerGauge("ptlog_query_cache_misses_total", "counter",
+					"Range queries read from the storage engine.", queryCache::getMisses);
+			metrics.registerGauge("ptlog_query_cache_hit_ratio_permille", "gauge",
+					"Share of range queries answered by the query cache, in thousandths.",
+					() -> Math.round(queryCache.getHitRatio() * 1000));
+			metrics.registerGauge("ptlog_query_cache_evictions_total", "counter",
+					"Results evicted from the query cache to make room or expired.", queryCache::getEvictions);
+			metrics.registerGauge("ptlog_query_cache_rejections_total", "counter",
+					"Results not admitted to the query cache.", queryCache::getRejections);
+			metrics.registerGauge("ptlog_query_cache_invalidations_total", "counter",
+					"Results dropped from the query cache by a change.", queryCache::getInvalidations);
+			metrics.registerGauge("ptlog_query_cache_entries", "gauge", "Results in the query cache.",
+					queryCache::size);
+			metrics.registerGauge("ptlog_query_cache_bytes", "gauge", "Estimated heap used by the query cache.",
+					queryCache::getUsedBytes);
+		} else {
+			this.queryCache = null;
+		}
+		if (!listeners.isEmpty()) {
+			storageEngine = new ListeningPTLogStorageEngine(storageEngine, listeners);
+		}
+		this.storageEngine = storageEngine;
+		this.writeBehindBuffer = writeBehind
+				? new PTLogWriteBehindBuffer(storageEngine, metrics, DatabaseConfig.writeBehindCapacity,
+				DatabaseConfig.writeBehindBatchSize, DatabaseConfig.writeBehindMaxDelayMillis,
+				DatabaseConfig.writeBehindOfferTimeoutMillis)
+				: null;
 		try {
-			connection = DBConnectionService.getConnection();
-		} catch (RuntimeException runtimeException) {
-			System.out.println("Failed to fetch database connection.");
-			throw runtimeException;
+			this.journal = journaled
+					? new PTLogJournal(Paths.get(DatabaseConfig.journalDirectory), DatabaseConfig.journalSegmentBytes,
+					DatabaseConfig.journalSyncOnAppend, storageEngine, metrics, DatabaseConfig.batchSize,
+					DatabaseConfig.journalRetryDelayMillis)
+					: null;
+		} catch (IOException ioException) {
+			System.out.println("Failed to open pt log journal.");
+			throw new RuntimeException(ioException);
+		}
+		ManagerHierarchyIndex managerHierarchy = storageEngine.getManagerHierarchy();
+		if (managerHierarchy != null) {
+			metrics.registerGauge("ptlog_manager_assignments", "gauge",
+					"Employee to manager assignments in the hierarchy index.", managerHierarchy::getAssignmentCount);
+			metrics.registerGauge("ptlog_team_cache_hits_total", "counter",
+					"Manager teams answered from the hierarchy index cache.", managerHierarchy::getHits);
+			metrics.registerGauge("ptlog_team_cache_misses_total", "counter",
+					"Manager teams resolved by walking the hierarchy index.", managerHierarchy::getMisses);
+		}
+		if (snapshotted) {
+			this.snapshotWriter = Executors.newSingleThreadScheduledExecutor(
+					ExecutorFactory.daemonThreadFactory("ptlog-snapshot"));
+			snapshotWriter.scheduleWithFixedDelay(this::writeSnapshot,
+					warmStarted ? DatabaseConfig.snapshotIntervalMillis : 0, DatabaseConfig.snapshotIntervalMillis,
+					TimeUnit.MILLISECONDS);
+		} else {
+			this.snapshotWriter = null;
+		}
+	}
+
+	/**
+	 * Creates the storage engine of given name.
+	 *
+	 * @param name
+	 * 		STORAGE_ENGINE_JDBC or STORAGE_ENGINE_MEMORY.
+	 * @return storage engine.
+	 * @throws RuntimeException
+	 * 		if the database cannot be reached or the name is unknown.
+	 */
+	public static PTLogStorageEngine createStorageEngine(String name) throws RuntimeException {
+		if (STORAGE_ENGINE_MEMORY.equals(name)) {
+			return new InMemoryPTLogStorageEngine();
+		} else if (STORAGE_ENGINE_JDBC.equals(name)) {
+			return new JdbcPTLogStorageEngine();
 		}
+		throw new RuntimeException("Unknown storage engine " + name);
+	}
+
+	/**
+	 * @return storage engine the operations run on.
+	 */
+	public PTLogStorageEngine getStorageEngine() {
+		return storageEngine;
+	}
+
+	/**
+	 * @return metrics of the operations run by this service.
+	 */
+	public PTLogMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return stats page of the operations, the connection pool and the employee directory cache for the CLI.
+	 */
+	public String getStatsPage() {
+		return metrics.toStatsPage(storageEngine.getPoolStats(), storageEngine.getEmployeeDirectory());
 	}
 
 	/**
-	 * Calls the DBConnectionService to close the connection with the database.
+	 * @return snapshot of the operations, the connection pool and the employee directory cache in the Prometheus text
+	 * format.
+	 */
+	public String getPrometheusMetrics() {
+		return metrics.toPrometheusText(storageEngine.getPoolStats(), storageEngine.getEmployeeDirectory());
+	}
+
+	/**
+	 * Stops the background writers of the service and closes the storage engine. The shared connection pool stays open
+	 * for the other users of DBConnectionService until the application shuts down.
 	 */
 	public void closeConnection() throws RuntimeException {
-		try {
-			DBConnectionService.closeConnection();
-		} catch (RuntimeException runtimeException) {
-			System.out.println("Failed to close database connection.");
-			throw runtimeException;
+		if (snapshotWriter != null) {
+			snapshotWriter.shutdownNow();
 		}
+		if (journal != null) {
+			journal.close();
+		}
+		if (writeBehindBuffer != null) {
+			writeBehindBuffer.close();
+		}
+		storageEngine.close();
+	}
+
+	/**
+	 * Writes the employee directory cache, the manager hierarchy, the rollups and the search index to
+	 * DatabaseConfig.snapshotFile, replacing the previous snapshot once complete. Nothing is read from the storage
+	 * engine. Run every DatabaseConfig.snapshotIntervalMillis when snapshots are enabled.
+	 *
+	 * @return result of the snapshot.
+	 */
+	public int writeSnapshot() {
+		return measure("writeSnapshot", () -> {
+			try {
+				PTLogSnapshot.write(Paths.get(DatabaseConfig.snapshotFile), storageEngine.getEmployeeDirectory(),
+						storageEngine.getManagerHierarchy(), rollups, searchIndex);
+				return COMMAND_EXECUTION_RESULT_SUCCESS;
+			} catch (IOException | UncheckedIOException exception) {
+				System.out.println("Failed to write pt log snapshot.\n" + exception.toString());
+				return COMMAND_EXECUTION_RESULT_FAIL;
+			}
+		});
 	}
 
 	/**
@@ -50,22 +304,12 @@ public final class PTLogService {
 	 * @return result of the data insertion in the database.
 	 */
 	public int addEmployee(String name) {
-		PreparedStatement statement = null;
-		String query = "insert into employees (name,designation) values (?,?)";
-		try {
-			statement = connection.prepareStatement(query);
-			statement.setString(1, name);
-			statement.setString(2, String.valueOf(Designation.TeamMember));
-			statement.executeUpdate();
-		} catch (SQLException sqlException) {
-			System.out.println("Failed to add Employee in database.\n" + sqlException.toString());
-			return COMMAND_EXECUTION_RESULT_FAIL;
-		}
-		return COMMAND_EXECUTION_RESULT_SUCCESS;
+		return measure("addEmployee", () -> storageEngine.addEmployee(name));
 	}
 
 	/**
-	 * Adds Pt log by an employee.
+	 * Adds Pt log by an employee. With the journal the call returns once the log is journaled, the employee being
+	 * checked when it is replayed. In write-behind mode the call waits until the batch holding the log committed.
 	 *
 	 * @param employeeId
 	 * 		id of employee adding pt log.
@@ -76,22 +320,218 @@ public final class PTLogService {
 	 * @return
 	 */
 	public int addPTLogEmployee(int employeeId, String details, Date loggedDate) {
-		PreparedStatement statement = null;
-		String query = "insert into ptlogs (emp_id, details, logged_date) values (?,?,?)";
-		try {
-			if (!checkEmployeeQuery(employeeId, Designation.TeamMember, false)) {
+		if (journal != null) {
+			return measure("addPTLogEmployee", () -> journal.append(new PTLog(0, employeeId, details, loggedDate)));
+		}
+		if (writeBehindBuffer == null) {
+			return measure("addPTLogEmployee", () -> storageEngine.addPTLog(new PTLog(0, employeeId, details, loggedDate)));
+		}
+		return measure("addPTLogEmployee", () -> {
+			try {
+				return writeBehindBuffer.submit(new PTLog(0, employeeId, details, loggedDate)).join();
+			} catch (CompletionException completionException) {
+				System.out.println("Failed to add pt log: " + completionException.getCause().getMessage());
 				return COMMAND_EXECUTION_RESULT_FAIL;
 			}
-			statement = connection.prepareStatement(query);
-			statement.setInt(1, employeeId);
-			statement.setString(2, details);
-			statement.setDate(3, loggedDate);
-			statement.executeUpdate();
-		} catch (SQLException sqlException) {
-			System.out.println("Failed to add PTLog of Employee " + employeeId + " in database.\n" + sqlException.toString());
-			return COMMAND_EXECUTION_RESULT_FAIL;
+		});
+	}
+
+	/**
+	 * Adds Pt log by an employee without waiting for it to be stored. With the journal the log is journaled, in
+	 * write-behind mode it is queued for the next batch, otherwise it is added right away.
+	 *
+	 * @param ptLog
+	 * 		log to add, its id is set to the generated id once added.
+	 * @return future completed with the result of the insertion once the log is stored.
+	 */
+	public CompletableFuture<Integer> submitPTLog(PTLog ptLog) {
+		if (journal != null) {
+			return CompletableFuture.completedFuture(measure("addPTLogEmployee", () -> journal.append(ptLog)));
+		}
+		if (writeBehindBuffer == null) {
+			return CompletableFuture.completedFuture(measure("addPTLogEmployee", () -> storageEngine.addPTLog(ptLog)));
 		}
-		return COMMAND_EXECUTION_RESULT_SUCCESS;
+		return writeBehindBuffer.submit(ptLog);
+	}
+
+	/**
+	 * Fetches the PT activity of an employee from the rollups: pt logs and active days in the day, week or month
+	 * holding the date, the streak of active days ending on the date, the longest streak and the totals.
+	 *
+	 * @param id
+	 * 		employee id whose activity is fetched.
+	 * @param period
+	 * 		size of the bucket.
+	 * @param date
+	 * 		day in the bucket.
+	 * @return activity of the employee, null if the employee check failed or the service keeps no rollups.
+	 */
+	public ActivitySummary getActivityOfEmployee(int id, RollupPeriod period, Date date) {
+		return measure("getActivityOfEmployee", () -> checkRollups(id, Designation.TeamMember, false)
+				? rollups.getEmployeeActivity(id, period, date) : null, activity -> 1);
+	}
+
+	/**
+	 * Fetches the PT activity of all employees under a manager, directly or through other managers, from the rollups.
+	 * A day is active when anyone of the team logged on it.
+	 *
+	 * @param id
+	 * 		employee id of manager whose team activity is fetched.
+	 * @param period
+	 * 		size of the bucket.
+	 * @param date
+	 * 		day in the bucket.
+	 * @return activity of the team, null if the manager check failed or the service keeps no team rollups.
+	 */
+	public ActivitySummary getActivityUnderManager(int id, RollupPeriod period, Date date) {
+		return measure("getActivityUnderManager", () -> checkRollups(id, Designation.Manager, true)
+				? rollups.getTeamActivity(id, period, date) : null, activity -> 1);
+	}
+
+	/**
+	 * Searches the details of the pt logs for the words of the text from the search index. Logs holding more of the
+	 * words, holding them more often and holding rarer words rank first.
+	 *
+	 * @param text
+	 * 		words to search for.
+	 * @param employeeId
+	 * 		employee id whose logs are searched, null for all employees.
+	 * @param managerId
+	 * 		employee id of manager under whom the logs of all employees are searched, directly or through other
+	 * 		managers, null for all employees.
+	 * @param startDate
+	 * 		start point of date range, null for no range.
+	 * @param endDate
+	 * 		end point of date range, null for no range.
+	 * @param limit
+	 * 		maximum number of pt logs returned.
+	 * @return pt logs found, best match first, null if an employee check failed or the service keeps no search index.
+	 */
+	public ArrayList<PTLog> searchPTLogs(String text, Integer employeeId, Integer managerId, Date startDate,
+			Date endDate, int limit) {
+		return measure("searchPTLogs", () -> checkSearchIndex(employeeId, managerId)
+						? searchIndex.search(text, employeeId, managerId, startDate, endDate, limit) : null,
+				ArrayList::size);
+	}
+
+	/**
+	 * Subscribes to the changes of an employee, of all the team members under a manager, or of all employees when
+	 * neither is given, so a client keeps a live view of their logs without querying them again. Changes wait in a
+	 * queue of DatabaseConfig.changeFeedQueueCapacity events.
+	 *
+	 * @param employeeId
+	 * 		employee whose changes are received, null for any.
+	 * @param managerId
+	 * 		manager whose team's changes are received, null for any. Ignored when employeeId is given.
+	 * @return subscription to close once done, null if the change feed is not enabled or the employee or manager
+	 * does not exist.
+	 */
+	public PTLogChangeSubscription subscribeToChanges(Integer employeeId, Integer managerId) {
+		return subscribeToChanges(employeeId, managerId, DatabaseConfig.changeFeedQueueCapacity);
+	}
+
+	/**
+	 * Subscribes to the changes of an employee, of all the team members under a manager, or of all employees when
+	 * neither is given.
+	 *
+	 * @param employeeId
+	 * 		employee whose changes are received, null for any.
+	 * @param managerId
+	 * 		manager whose team's changes are received, null for any. Ignored when employeeId is given.
+	 * @param capacity
+	 * 		maximum number of changes waiting to be read, later changes being dropped until some are read.
+	 * @return subscription to close once done, null if the change feed is not enabled or the employee or manager
+	 * does not exist.
+	 */
+	public PTLogChangeSubscription subscribeToChanges(Integer employeeId, Integer managerId, int capacity) {
+		return measure("subscribeToChanges", () -> {
+			if (changeFeed == null) {
+				System.out.println("PT log change feed is not enabled.");
+				return null;
+			}
+			return checkFilterEmployees(employeeId, employeeId == null ? managerId : null)
+					? changeFeed.subscribe(employeeId, managerId, capacity) : null;
+		}, subscription -> 1);
+	}
+
+	/**
+	 * Fetches the plans the database chose for the queries of the storage engine, to find queries not served by an
+	 * index.
+	 *
+	 * @return plan of every table read by each query, null if the storage engine runs no queries or they could not be
+	 * explained.
+	 */
+	public ArrayList<QueryPlan> explainQueries() {
+		return storageEngine.explainQueries();
+	}
+
+	/**
+	 * @return activity rollups of the stored pt logs, null if the service keeps none.
+	 */
+	public PTLogRollups getRollups() {
+		return rollups;
+	}
+
+	/**
+	 * @return full-text index of the details of the stored pt logs, null if the service keeps none.
+	 */
+	public PTLogSearchIndex getSearchIndex() {
+		return searchIndex;
+	}
+
+	/**
+	 * @return feed publishing the changes made through the storage engine, null if the service keeps none.
+	 */
+	public PTLogChangeFeed getChangeFeed() {
+		return changeFeed;
+	}
+
+	/**
+	 * @return cache of the range queries, null if the service does not cache them.
+	 */
+	public PTLogQueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	/**
+	 * @return journal of pt log inserts, null if the service does not journal pt logs.
+	 */
+	public PTLogJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * @return write-behind buffer of pt log inserts, null if the service adds pt logs right away.
+	 */
+	public PTLogWriteBehindBuffer getWriteBehindBuffer() {
+		return writeBehindBuffer;
+	}
+
+	/**
+	 * Adds many Pt logs in a single transaction. Employee ids of all logs are checked at once, then the logs of
+	 * existing employees are inserted in batches of DatabaseConfig.batchSize rows.
+	 *
+	 * @param ptLogs
+	 * 		logs to add, the id of each inserted log is set to the generated id.
+	 * @return result of each log in iteration order of ptLogs, or null if the transaction failed and nothing was added.
+	 */
+	public int[] addPTLogsBatch(Collection<PTLog> ptLogs) {
+		return addPTLogsBatch(ptLogs, DatabaseConfig.batchSize);
+	}
+
+	/**
+	 * Adds many Pt logs in a single transaction. Employee ids of all logs are checked at once, then the logs of
+	 * existing employees are inserted in batches.
+	 *
+	 * @param ptLogs
+	 * 		logs to add, the id of each inserted log is set to the generated id.
+	 * @param batchSize
+	 * 		number of rows sent to the database per round trip.
+	 * @return result of each log in iteration order of ptLogs, or null if the transaction failed and nothing was added.
+	 */
+	public int[] addPTLogsBatch(Collection<PTLog> ptLogs, int batchSize) {
+		return measure("addPTLogsBatch", () -> storageEngine.addPTLogsBatch(ptLogs, Math.max(1, batchSize)),
+				result -> Arrays.stream(result).filter(entry -> entry == COMMAND_EXECUTION_RESULT_SUCCESS).count());
 	}
 
 	/**
@@ -102,20 +542,7 @@ public final class PTLogService {
 	 * @return result of the update query executed on the database.
 	 */
 	public int promoteToManager(int id) {
-		PreparedStatement statement = null;
-		String query = "UPDATE employees set designation = (?) where emp_id = (?)";
-		try {
-			if (!checkEmployeeQuery(id, Designation.TeamMember, true)) {
-				return COMMAND_EXECUTION_RESULT_FAIL;
-			}
-			statement = connection.prepareStatement(query);
-			statement.setString(1, String.valueOf(Designation.Manager));
-			statement.setInt(2, id);
-			statement.executeUpdate();
-		} catch (SQLException sqlException) {
-			System.out.println("Failed to promote Employee to Manager in database.\n" + sqlException.toString());
-		}
-		return COMMAND_EXECUTION_RESULT_SUCCESS;
+		return measure("promoteToManager", () -> storageEngine.promoteToManager(id));
 	}
 
 	/**
@@ -128,21 +555,7 @@ public final class PTLogService {
 	 * @return
 	 */
 	public int assignEmployeeToManager(int employeeId, int managerId) {
-		PreparedStatement statement = null;
-		String query = "insert into employee_managers (emp_id,mgr_id) values (?,?)";
-		try {
-			if (!(checkEmployeeQuery(employeeId, Designation.TeamMember, true) &&
-					checkEmployeeQuery(managerId, Designation.Manager, true))) {
-				return COMMAND_EXECUTION_RESULT_FAIL;
-			}
-			statement = connection.prepareStatement(query);
-			statement.setInt(1, employeeId);
-			statement.setInt(2, managerId);
-			statement.executeUpdate();
-		} catch (SQLException sqlException) {
-			System.out.println("Failed to assign Employee to manager in database.\n" + sqlException.toString());
-		}
-		return COMMAND_EXECUTION_RESULT_SUCCESS;
+		return measure("assignEmployeeToManager", () -> storageEngine.assignEmployeeToManager(employeeId, managerId));
 	}
 
 	/**
@@ -151,23 +564,20 @@ public final class PTLogService {
 	 * @return list of employees.
 	 */
 	public ArrayList<Employee> listEmployees() {
-		PreparedStatement statement = null;
-		ResultSet resultSet = null;
-		String query = "select * from employees";
-		ArrayList<Employee> listEmployee = new ArrayList<>();
-		try {
-			statement = connection.prepareStatement(query);
-			resultSet = statement.executeQuery();
-			while (resultSet.next()) {
-				Employee employee = EmployeeFactory.getEmployee(Designation.valueOf(resultSet.getString("designation")));
-				employee.setId(resultSet.getInt("emp_id"));
-				employee.setName(resultSet.getString("name"));
-				listEmployee.add(employee);
-			}
-		} catch (SQLException sqlException) {
-			System.out.println("Failed to employees in database.\n" + sqlException.toString());
-		}
-		return listEmployee;
+		return measure("listEmployees", storageEngine::listEmployees, ArrayList::size);
+	}
+
+	/**
+	 * Fetches one page of employees in database, in order of employee id.
+	 *
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of employees in the page.
+	 * @return page of employees, null if the token is invalid or the query failed.
+	 */
+	public Page<Employee> listEmployeesPage(String pageToken, int pageSize) {
+		return measure("listEmployeesPage", () -> storageEngine.listEmployeesPage(pageToken, pageSize), PAGE_ROW_COUNTER);
 	}
 
 	/**
@@ -175,33 +585,57 @@ public final class PTLogService {
 	 *
 	 * @param id
 	 * 		employee id whose logs are fetched.
-	 * @return list of pt logs.
+	 * @return list of pt logs, null if the employee check or the query failed.
 	 */
 	public ArrayList<PTLog> listPTLogOfEmployee(int id) {
-		PreparedStatement statement = null;
-		ResultSet resultSet = null;
-		String query = "select * from ptlogs where emp_id = (?) order by logged_date";
 		ArrayList<PTLog> listPTLog = new ArrayList<>();
-		try {
-			if (!checkEmployeeQuery(id, Designation.TeamMember, false)) {
-				return null;
-			}
-			statement = connection.prepareStatement(query);
-			statement.setInt(1, id);
-			resultSet = statement.executeQuery();
-			while (resultSet.next()) {
-				PTLog ptLog = new PTLog(resultSet.getInt("ptlog_id"),
-						resultSet.getInt("emp_id"),
-						resultSet.getString("details"),
-						resultSet.getDate("logged_date"));
-				listPTLog.add(ptLog);
-			}
-		} catch (SQLException sqlException) {
-			System.out.println("Failed to fetch ptlogs of employee in database.\n" + sqlException.toString());
+		if (forEachPTLogOfEmployee(id, listPTLog::add) == COMMAND_EXECUTION_RESULT_FAIL) {
+			return null;
 		}
 		return listPTLog;
 	}
 
+	/**
+	 * Streams every pt log in database to the consumer, in no particular order.
+	 *
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	public int forEachPTLog(Consumer<PTLog> consumer) {
+		return measureForEach("forEachPTLog", consumer, storageEngine::forEachPTLog);
+	}
+
+	/**
+	 * Streams pt logs of all employees logged in a range of date in database to the consumer, in no particular order.
+	 *
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	public int forEachPTLogInRange(Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		return measureForEach("forEachPTLogInRange", consumer,
+				rowConsumer -> storageEngine.forEachPTLogInRange(startDate, endDate, rowConsumer));
+	}
+
+	/**
+	 * Streams pt logs, logged by an employee in database, to the consumer in order of logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	public int forEachPTLogOfEmployee(int id, Consumer<PTLog> consumer) {
+		return measureForEach("forEachPTLogOfEmployee", consumer,
+				rowConsumer -> storageEngine.forEachPTLogOfEmployee(id, rowConsumer));
+	}
+
 	/**
 	 * Fetches list of pt logs, logged by an employee in between a range of date in database.
 	 *
@@ -211,33 +645,40 @@ public final class PTLogService {
 	 * 		start point of date range.
 	 * @param endDate
 	 * 		end point of date range.
-	 * @return list of pt logs.
+	 * @return list of pt logs, null if the employee check or the query failed.
 	 */
 	public ArrayList<PTLog> listPTLogOfEmployeeInRange(int id, Date startDate, Date endDate) {
-		PreparedStatement statement = null;
-		ResultSet resultSet = null;
-		String query = "select * from ptlogs where emp_id = (?) and (logged_date >= (?) and logged_date <= (?)) order by logged_date desc";
-		ArrayList<PTLog> listPTLog = new ArrayList<>();
-		try {
-			if (!checkEmployeeQuery(id, Designation.TeamMember, false)) {
+		Supplier<ArrayList<PTLog>> query = () -> {
+			ArrayList<PTLog> listPTLog = new ArrayList<>();
+			if (forEachPTLogOfEmployeeInRange(id, startDate, endDate, listPTLog::add) == COMMAND_EXECUTION_RESULT_FAIL) {
 				return null;
 			}
-			statement = connection.prepareStatement(query);
-			statement.setInt(1, id);
-			statement.setDate(2, startDate);
-			statement.setDate(3, endDate);
-			resultSet = statement.executeQuery();
-			while (resultSet.next()) {
-				PTLog ptLog = new PTLog(resultSet.getInt("ptlog_id"),
-						resultSet.getInt("emp_id"),
-						resultSet.getString("details"),
-						resultSet.getDate("logged_date"));
-				listPTLog.add(ptLog);
-			}
-		} catch (SQLException sqlException) {
-			System.out.println("Failed to fetch ptlogs of employee for a range of date in database.\n" + sqlException.toString());
+			return listPTLog;
+		};
+		if (queryCache == null) {
+			return query.get();
 		}
-		return listPTLog;
+		return measure("listPTLogOfEmployeeInRange",
+				() -> queryCache.getPTLogOfEmployeeInRange(id, startDate, endDate, query), ArrayList::size);
+	}
+
+	/**
+	 * Streams pt logs, logged by an employee in between a range of date in database, to the consumer in descending
+	 * order of logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	public int forEachPTLogOfEmployeeInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		return measureForEach("forEachPTLogOfEmployeeInRange", consumer,
+				rowConsumer -> storageEngine.forEachPTLogOfEmployeeInRange(id, startDate, endDate, rowConsumer));
 	}
 
 	/**
@@ -245,33 +686,31 @@ public final class PTLogService {
 	 *
 	 * @param id
 	 * 		employee id of manager under which employees exists whose logs are fetched.
-	 * @return list of pt logs.
+	 * @return list of pt logs, null if the manager check or the query failed.
 	 */
 	public ArrayList<PTLog> listPTLogUnderManager(int id) {
-		PreparedStatement statement = null;
-		ResultSet resultSet = null;
-		String query = "select * from ptlogs as p join employee_managers as em on p.emp_id = em.emp_id where mgr_id = (?) order by logged_date desc";
 		ArrayList<PTLog> listPTLog = new ArrayList<>();
-		try {
-			if (!checkEmployeeQuery(id, Designation.Manager, true)) {
-				return null;
-			}
-			statement = connection.prepareStatement(query);
-			statement.setInt(1, id);
-			resultSet = statement.executeQuery();
-			while (resultSet.next()) {
-				PTLog ptLog = new PTLog(resultSet.getInt("ptlog_id"),
-						resultSet.getInt("emp_id"),
-						resultSet.getString("details"),
-						resultSet.getDate("logged_date"));
-				listPTLog.add(ptLog);
-			}
-		} catch (SQLException sqlException) {
-			System.out.println("Failed to fetch ptlogs of employees under manager in database.\n" + sqlException.toString());
+		if (forEachPTLogUnderManager(id, listPTLog::add) == COMMAND_EXECUTION_RESULT_FAIL) {
+			return null;
 		}
 		return listPTLog;
 	}
 
+	/**
+	 * Streams pt logs, logged by all employees under a manager in database, to the consumer in descending order of
+	 * logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	public int forEachPTLogUnderManager(int id, Consumer<PTLog> consumer) {
+		return measureForEach("forEachPTLogUnderManager", consumer,
+				rowConsumer -> storageEngine.forEachPTLogUnderManager(id, rowConsumer));
+	}
+
 	/**
 	 * Fetches list of pt logs, logged by all employees under a manager logged in a range of date in database.
 	 *
@@ -281,33 +720,156 @@ public final class PTLogService {
 	 * 		start point of date range.
 	 * @param endDate
 	 * 		endDate end point of date range.
-	 * @return list of pt logs.
+	 * @return list of pt logs, null if the manager check or the query failed.
 	 */
 	public ArrayList<PTLog> listPTLogUnderManagerInRange(int id, Date startDate, Date endDate) {
-		PreparedStatement statement = null;
-		ResultSet resultSet = null;
-		String query = "select * from ptlogs as p join employee_managers as em on p.emp_id = em.emp_id where mgr_id = (?) and (logged_date >= (?) and logged_date <= (?)) order by logged_date desc";
-		ArrayList<PTLog> listPTLog = new ArrayList<>();
-		try {
-			if (!checkEmployeeQuery(id, Designation.Manager, true)) {
+		Supplier<ArrayList<PTLog>> query = () -> {
+			ArrayList<PTLog> listPTLog = new ArrayList<>();
+			if (forEachPTLogUnderManagerInRange(id, startDate, endDate, listPTLog::add) == COMMAND_EXECUTION_RESULT_FAIL) {
 				return null;
 			}
-			statement = connection.prepareStatement(query);
-			statement.setInt(1, id);
-			statement.setDate(2, startDate);
-			statement.setDate(3, endDate);
-			resultSet = statement.executeQuery();
-			while (resultSet.next()) {
-				PTLog ptLog = new PTLog(resultSet.getInt("ptlog_id"),
-						resultSet.getInt("emp_id"),
-						resultSet.getString("details"),
-						resultSet.getDate("logged_date"));
-				listPTLog.add(ptLog);
-			}
-		} catch (SQLException sqlException) {
-			System.out.println("Failed to fetch ptlogs of employees under manager for a range of date in database.\n" + sqlException.toString());
+			return listPTLog;
+		};
+		if (queryCache == null) {
+			return query.get();
 		}
-		return listPTLog;
+		return measure("listPTLogUnderManagerInRange",
+				() -> queryCache.getPTLogUnderManagerInRange(id, startDate, endDate, query), ArrayList::size);
+	}
+
+	/**
+	 * Streams pt logs, logged by all employees under a manager logged in a range of date in database, to the consumer
+	 * in descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		endDate end point of date range.
+	 * @param consumer
+	 * 		receives each pt log as it is read from the database.
+	 * @return result of the query executed on the database.
+	 */
+	public int forEachPTLogUnderManagerInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer) {
+		return measureForEach("forEachPTLogUnderManagerInRange", consumer,
+				rowConsumer -> storageEngine.forEachPTLogUnderManagerInRange(id, startDate, endDate, rowConsumer));
+	}
+
+	/**
+	 * Fetches pt logs of many employees logged in a range of date in one call, grouped by employee in descending order
+	 * of logged date. The employees are checked together and their logs read with chunked set-based queries running
+	 * in parallel, instead of one check and one query per employee.
+	 *
+	 * @param ids
+	 * 		employee ids whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range, null for no range.
+	 * @param endDate
+	 * 		end point of date range, null for no range.
+	 * @return logs of every employee found, in the order of ids, null if the query failed. Ids of employees that do not
+	 * exist are left out.
+	 */
+	public LinkedHashMap<Integer, ArrayList<PTLog>> listPTLogOfEmployeesInRange(Collection<Integer> ids,
+			Date startDate, Date endDate) {
+		return measure("listPTLogOfEmployeesInRange",
+				() -> storageEngine.listPTLogOfEmployeesInRange(ids, startDate, endDate), GROUPED_ROW_COUNTER);
+	}
+
+	/**
+	 * Fetches pt logs of the teams of many managers logged in a range of date in one call, grouped by manager in
+	 * descending order of logged date. The logs of an employee in several of the teams are read once.
+	 *
+	 * @param ids
+	 * 		manager ids whose teams' logs are fetched.
+	 * @param startDate
+	 * 		start point of date range, null for no range.
+	 * @param endDate
+	 * 		end point of date range, null for no range.
+	 * @return logs of the team of every manager found, in the order of ids, null if the query failed. Ids of employees
+	 * that do not exist or are not managers are left out.
+	 */
+	public LinkedHashMap<Integer, ArrayList<PTLog>> listPTLogUnderManagersInRange(Collection<Integer> ids,
+			Date startDate, Date endDate) {
+		return measure("listPTLogUnderManagersInRange",
+				() -> storageEngine.listPTLogUnderManagersInRange(ids, startDate, endDate), GROUPED_ROW_COUNTER);
+	}
+
+	/**
+	 * Fetches one page of pt logs, logged by an employee in database, in descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the employee check, the token or the query failed.
+	 */
+	public Page<PTLog> listPTLogOfEmployeePage(int id, String pageToken, int pageSize) {
+		return measure("listPTLogOfEmployeePage",
+				() -> storageEngine.listPTLogOfEmployeePage(id, pageToken, pageSize), PAGE_ROW_COUNTER);
+	}
+
+	/**
+	 * Fetches one page of pt logs, logged by an employee in between a range of date in database, in descending order of
+	 * logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the employee check, the token or the query failed.
+	 */
+	public Page<PTLog> listPTLogOfEmployeeInRangePage(int id, Date startDate, Date endDate, String pageToken, int pageSize) {
+		return measure("listPTLogOfEmployeeInRangePage",
+				() -> storageEngine.listPTLogOfEmployeeInRangePage(id, startDate, endDate, pageToken, pageSize),
+				PAGE_ROW_COUNTER);
+	}
+
+	/**
+	 * Fetches one page of pt logs, logged by all employees under a manager in database, in descending order of logged
+	 * date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the manager check, the token or the query failed.
+	 */
+	public Page<PTLog> listPTLogUnderManagerPage(int id, String pageToken, int pageSize) {
+		return measure("listPTLogUnderManagerPage",
+				() -> storageEngine.listPTLogUnderManagerPage(id, pageToken, pageSize), PAGE_ROW_COUNTER);
+	}
+
+	/**
+	 * Fetches one page of pt logs, logged by all employees under a manager logged in a range of date in database, in
+	 * descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		endDate end point of date range.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the manager check, the token or the query failed.
+	 */
+	public Page<PTLog> listPTLogUnderManagerInRangePage(int id, Date startDate, Date endDate, String pageToken, int pageSize) {
+		return measure("listPTLogUnderManagerInRangePage",
+				() -> storageEngine.listPTLogUnderManagerInRangePage(id, startDate, endDate, pageToken, pageSize),
+				PAGE_ROW_COUNTER);
 	}
 
 	/**
@@ -322,21 +884,21 @@ public final class PTLogService {
 	 * @return result of delete query executed on database.
 	 */
 	public int deletePTLogOfEmployeeInRange(int id, Date startDate, Date endDate) {
-		PreparedStatement statement = null;
-		String query = "delete from ptlogs where emp_id = (?) and (logged_date >= (?) and logged_date <= (?)) order by desc logged_date";
-		try {
-			statement = connection.prepareStatement(query);
-			statement.setInt(1, id);
-			statement.setDate(2, startDate);
-			statement.setDate(3, endDate);
-			statement.executeUpdate();
-		} catch (SQLException sqlException) {
-			System.out.println("Failed to delete ptlogs of employee for a range of date in database.\n" + sqlException.toString());
-			return COMMAND_EXECUTION_RESULT_FAIL;
-		}
-		return COMMAND_EXECUTION_RESULT_SUCCESS;
+		return measure("deletePTLogOfEmployeeInRange",
+				() -> storageEngine.deletePTLogOfEmployeeInRange(id, startDate, endDate));
 	}
 
+	/**
+	 * Deletes pt logs of all employees logged before a date in database, dropping whole monthly partitions when the
+	 * ptlogs table is partitioned.
+	 *
+	 * @param cutoff
+	 * 		first logged date of the logs kept.
+	 * @return result of the deletion executed on database.
+	 */
+	public int dropPTLogsBefore(Date cutoff) {
+		return measure("dropPTLogsBefore", () -> storageEngine.dropPTLogsBefore(cutoff));
+	}
 
 	/**
 	 * Checks if the Employee id exists in the database or not. Also checks the designation of employee when needed and
@@ -352,23 +914,195 @@ public final class PTLogService {
 	 * @throws SQLException
 	 */
 	public Boolean checkEmployeeQuery(int id, Designation designation, Boolean checkDesignation) throws SQLException {
-		PreparedStatement statement = null;
-		ResultSet resultSet = null;
-		String checkQuery = "select * from employees where emp_id = (?)";
+		long start = System.nanoTime();
+		boolean failed = true;
 		try {
-			statement = connection.prepareStatement((checkQuery));
-			statement.setInt(1, id);
-			resultSet = statement.executeQuery();
-			if (!resultSet.next()) {
-				System.out.println("Id doesn't exists in database.");
-				return false;
-			} else if (checkDesignation && !resultSet.getString("designation").equals(designation.name())) {
-				System.out.println("Employee entered is not of correct designation " + designation.name());
+			Boolean result = storageEngine.checkEmployeeQuery(id, designation, checkDesignation);
+			failed = false;
+			return result;
+		} finally {
+			metrics.record("checkEmployeeQuery", System.nanoTime() - start, failed, 0);
+		}
+	}
+
+	/**
+	 * Checks that the service keeps rollups and that the employee passes the check.
+	 */
+	private boolean checkRollups(int id, Designation designation, Boolean checkDesignation) {
+		if (rollups == null) {
+			System.out.println("PT log rollups are not enabled.");
+			return false;
+		}
+		try {
+			return storageEngine.checkEmployeeQuery(id, designation, checkDesignation);
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to check employee in database.\n" + sqlException.toString());
+			return false;
+		}
+	}
+
+	/**
+	 * Checks the search index is kept and the employee and manager filtering the search exist.
+	 */
+	private boolean checkSearchIndex(Integer employeeId, Integer managerId) {
+		if (searchIndex == null) {
+			System.out.println("PT log search index is not enabled.");
+			return false;
+		}
+		return checkFilterEmployees(employeeId, managerId);
+	}
+
+	/**
+	 * Checks the employee and manager filtering logs exist. The manager hierarchy is brought up to date before the
+	 * team of the manager is resolved.
+	 */
+	private boolean checkFilterEmployees(Integer employeeId, Integer managerId) {
+		try {
+			if (employeeId != null && !storageEngine.checkEmployeeQuery(employeeId, Designation.TeamMember, false)) {
 				return false;
 			}
+			if (managerId != null) {
+				if (!storageEngine.checkEmployeeQuery(managerId, Designation.Manager, true)) {
+					return false;
+				}
+				storageEngine.getManagerHierarchy();
+			}
+			return true;
 		} catch (SQLException sqlException) {
-			throw sqlException;
+			System.out.println("Failed to check employee in database.\n" + sqlException.toString());
+			return false;
+		}
+	}
+
+	/**
+	 * Builds the rollups and the search index kept by the service from a single scan of the stored pt logs, each log
+	 * being handed to both, and records the build in the metrics.
+	 *
+	 * @param rollups
+	 * 		rollups to build, null if they are not kept.
+	 * @param searchIndex
+	 * 		search index to build, null if it is not kept.
+	 * @param ptLogSource
+	 * 		hands every stored pt log to the consumer.
+	 * @return false if the scan failed, in which case neither view must be used.
+	 */
+	private boolean buildViews(PTLogRollups rollups, PTLogSearchIndex searchIndex,
+			ToIntFunction<Consumer<PTLog>> ptLogSource) {
+		if (rollups == null && searchIndex == null) {
+			return true;
+		}
+		long start = System.nanoTime();
+		int result;
+		if (searchIndex == null) {
+			result = rollups.rebuild(ptLogSource);
+		} else if (rollups == null) {
+			result = searchIndex.rebuild(ptLogSource);
+		} else {
+			result = rollups.rebuild(rollupConsumer -> searchIndex.rebuild(
+					indexConsumer -> ptLogSource.applyAsInt(rollupConsumer.andThen(indexConsumer))));
+		}
+		metrics.record("buildViews", System.nanoTime() - start, result == COMMAND_EXECUTION_RESULT_FAIL, 0);
+		if (result == COMMAND_EXECUTION_RESULT_FAIL) {
+			System.out.println("Failed to build pt log rollups and search index.");
+			return false;
 		}
 		return true;
 	}
+
+	/**
+	 * Opens the snapshot file and restores the manager hierarchy and the employee directory cache of the storage engine
+	 * from it, before the views resolving teams are created.
+	 *
+	 * @return snapshot, null if there is none or it is damaged.
+	 */
+	private PTLogSnapshot openSnapshot(PTLogStorageEngine storageEngine) {
+		Path file = Paths.get(DatabaseConfig.snapshotFile);
+		if (!Files.exists(file)) {
+			return null;
+		}
+		try {
+			PTLogSnapshot snapshot = PTLogSnapshot.open(file);
+			snapshot.restoreManagerHierarchy(storageEngine);
+			EmployeeDirectoryCache employeeDirectory = storageEngine.getEmployeeDirectory();
+			if (employeeDirectory != null) {
+				snapshot.restoreEmployees(employeeDirectory, storageEngine, DatabaseConfig.fetchSize);
+			}
+			return snapshot;
+		} catch (IOException ioException) {
+			System.out.println("Failed to read pt log snapshot, reading every pt log instead.\n"
+					+ ioException.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Restores the rollups and the search index from the snapshot when the storage engine still holds the pt logs they
+	 * were written with, reading only the logs added since, and records the restore in the metrics.
+	 *
+	 * @return false if the views must be built from the storage engine instead.
+	 */
+	private boolean restoreViews(PTLogSnapshot snapshot, PTLogStorageEngine storageEngine, PTLogRollups rollups,
+			PTLogSearchIndex searchIndex) {
+		long start = System.nanoTime();
+		boolean restored = false;
+		try {
+			restored = snapshot.restoreViews(storageEngine, rollups, searchIndex);
+			if (!restored) {
+				System.out.println("Pt log snapshot is out of date, reading every pt log instead.");
+			}
+		} catch (IOException ioException) {
+			System.out.println("Failed to read pt log snapshot, reading every pt log instead.\n"
+					+ ioException.toString());
+		}
+		metrics.record("loadSnapshot", System.nanoTime() - start, !restored, 0);
+		return restored;
+	}
+
+	/**
+	 * Runs an operation returning COMMAND_EXECUTION_RESULT_SUCCESS or COMMAND_EXECUTION_RESULT_FAIL and records it in
+	 * the metrics.
+	 */
+	private int measure(String operation, IntSupplier call) {
+		long start = System.nanoTime();
+		int result = COMMAND_EXECUTION_RESULT_FAIL;
+		try {
+			result = call.getAsInt();
+			return result;
+		} finally {
+			metrics.record(operation, System.nanoTime() - start, result == COMMAND_EXECUTION_RESULT_FAIL, 0);
+		}
+	}
+
+	/**
+	 * Runs an operation returning null on failure and records it in the metrics.
+	 */
+	private <T> T measure(String operation, Supplier<T> call, ToLongFunction<? super T> rowCounter) {
+		long start = System.nanoTime();
+		T result = null;
+		try {
+			result = call.get();
+			return result;
+		} finally {
+			metrics.record(operation, System.nanoTime() - start, result == null,
+					result == null ? 0 : rowCounter.applyAsLong(result));
+		}
+	}
+
+	/**
+	 * Runs an operation streaming pt logs to the consumer and records it in the metrics, counting the streamed rows.
+	 */
+	private int measureForEach(String operation, Consumer<PTLog> consumer, ToIntFunction<Consumer<PTLog>> call) {
+		long[] rowCount = {0};
+		long start = System.nanoTime();
+		int result = COMMAND_EXECUTION_RESULT_FAIL;
+		try {
+			result = call.applyAsInt(ptLog -> {
+				rowCount[0]++;
+				consumer.accept(ptLog);
+			});
+			return result;
+		} finally {
+			metrics.record(operation, System.nanoTime() - start, result == COMMAND_EXECUTION_RESULT_FAIL, rowCount[0]);
+		}
+	}
 }
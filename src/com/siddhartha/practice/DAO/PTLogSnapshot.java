@@ -0,0 +1,410 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.IntArrayList;
+import com.siddhartha.practice.Helpers.PageToken;
+import com.siddhartha.practice.Models.Designation;
+import com.siddhartha.practice.Models.Employee;
+import com.siddhartha.practice.Models.Page;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot of the in-memory views of the service written to a local file, so they are restored on start from the file
+ * and only the pt logs added since are read from the storage engine, instead of every pt log. It is written from the
+ * views themselves, so taking it reads nothing from the storage engine. It holds four sections, each empty when the
+ * view was not kept: the employee directory cache, the manager hierarchy index, the PTLogRollups and the
+ * PTLogSearchIndex.
+ * <p>
+ * The file starts with a fixed header: "PTLS", the version, the time the snapshot was taken, the length of each
+ * section, and the length and CRC32 of the rest of the file. It is written to a temporary file next to its destination
+ * and moved in place once complete, and mapped in memory to be read, its checksum being checked before any of it is
+ * used.
+ * <p>
+ * Each view section starts with the greatest pt log id the view has seen, the number of logs it holds and the sum of
+ * their ids. Views are only restored when the number of logs the engine holds up to that greatest id, and the sum of
+ * their ids, still match, so logs deleted since or committed late with a lower id are never missed. Each view is
+ * written under its own lock and carries its own greatest id, so a change landing between two sections is still read
+ * again for the view that missed it.
+ *
+ * @author sid
+ */
+final class PTLogSnapshot {
+	private final static int COMMAND_EXECUTION_RESULT_FAIL = 0;
+	private static final byte[] MAGIC = {'P', 'T', 'L', 'S'};
+	private static final int VERSION = 2;
+	private static final int EMPLOYEES = 0;
+	private static final int MANAGER_HIERARCHY = 1;
+	private static final int ROLLUPS = 2;
+	private static final int SEARCH_INDEX = 3;
+	private static final int SECTION_COUNT = 4;
+	private static final int HEADER_BYTES = 28 + 8 * SECTION_COUNT;
+	private static final int EMPLOYEE_BYTES = 13;
+	private static final int BUFFER_BYTES = 64 * 1024;
+	private static final Designation[] DESIGNATIONS = Designation.values();
+
+	private final long createdAt;
+	private final ByteBuffer[] sections;
+
+	private PTLogSnapshot(long createdAt, ByteBuffer[] sections) {
+		this.createdAt = createdAt;
+		this.sections = sections;
+	}
+
+	/**
+	 * @return time in milliseconds the snapshot was taken.
+	 */
+	long getCreatedAt() {
+		return createdAt;
+	}
+
+	/**
+	 * Writes a snapshot of the views, replacing the file once complete. Each view is written under its own lock, so
+	 * changes to it wait until its section is written.
+	 *
+	 * @param file
+	 * 		file to write.
+	 * @param employeeDirectory
+	 * 		employee directory cache, null if there is none.
+	 * @param managerHierarchy
+	 * 		index of the employee to manager assignments, null if there is none.
+	 * @param rollups
+	 * 		rollups of the service, null if they are not kept.
+	 * @param searchIndex
+	 * 		search index of the service, null if it is not kept.
+	 * @return number of bytes written after the header.
+	 * @throws IOException
+	 * 		if the file could not be written, in which case the previous file is left as it was.
+	 */
+	static long write(Path file, EmployeeDirectoryCache employeeDirectory, ManagerHierarchyIndex managerHierarchy,
+			PTLogRollups rollups, PTLogSearchIndex searchIndex) throws IOException {
+		long createdAt = System.currentTimeMillis();
+		Path temporaryFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(),
+				".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+				channel.position(HEADER_BYTES);
+				ChecksummedChannel payloadChannel = new ChecksummedChannel(channel);
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+						Channels.newOutputStream(payloadChannel), BUFFER_BYTES));
+				long[] sectionLengths = new long[SECTION_COUNT];
+				if (employeeDirectory != null) {
+					sectionLengths[EMPLOYEES] = writeSection(output, payloadChannel,
+							() -> writeEmployees(output, employeeDirectory));
+				}
+				if (managerHierarchy != null) {
+					sectionLengths[MANAGER_HIERARCHY] = writeSection(output, payloadChannel,
+							() -> writeManagerHierarchy(output, managerHierarchy));
+				}
+				if (rollups != null) {
+					sectionLengths[ROLLUPS] = writeSection(output, payloadChannel, () -> rollups.writeTo(output));
+				}
+				if (searchIndex != null) {
+					sectionLengths[SEARCH_INDEX] = writeSection(output, payloadChannel,
+							() -> searchIndex.writeTo(output));
+				}
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+				header.put(MAGIC).putInt(VERSION).putLong(createdAt);
+				for (long sectionLength : sectionLengths) {
+					header.putLong(sectionLength);
+				}
+				header.putLong(payloadChannel.size).putInt((int) payloadChannel.crc.getValue()).flip();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+				channel.force(true);
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				return payloadChannel.size;
+			}
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	/**
+	 * Maps a snapshot file in memory and checks it is complete and undamaged.
+	 *
+	 * @param file
+	 * 		file to read.
+	 * @return snapshot held by the file.
+	 * @throws IOException
+	 * 		if the file can not be read, is not a snapshot of this version, or is truncated or damaged.
+	 */
+	static PTLogSnapshot open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_BYTES) {
+				throw new IOException(file + " is truncated.");
+			}
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large to be mapped.");
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			byte[] magic = new byte[MAGIC.length];
+			buffer.get(magic);
+			if (!Arrays.equals(magic, MAGIC) || buffer.getInt() != VERSION) {
+				throw new IOException(file + " is not a version " + VERSION + " pt log snapshot.");
+			}
+			long createdAt = buffer.getLong();
+			long[] sectionLengths = new long[SECTION_COUNT];
+			long sectionsLength = 0;
+			for (int i = 0; i < SECTION_COUNT; i++) {
+				sectionLengths[i] = buffer.getLong();
+				if (sectionLengths[i] < 0) {
+					throw new IOException(file + " is damaged.");
+				}
+				sectionsLength += sectionLengths[i];
+			}
+			long payloadLength = buffer.getLong();
+			int payloadCrc = buffer.getInt();
+			if (payloadLength != size - HEADER_BYTES) {
+				throw new IOException(file + " is truncated.");
+			}
+			ByteBuffer payload = buffer.slice(HEADER_BYTES, (int) payloadLength);
+			CRC32 crc = new CRC32();
+			crc.update(payload.duplicate());
+			if ((int) crc.getValue() != payloadCrc || sectionsLength != payloadLength) {
+				throw new IOException(file + " is damaged.");
+			}
+			ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+			int offset = 0;
+			for (int i = 0; i < SECTION_COUNT; i++) {
+				sections[i] = payload.slice(offset, (int) sectionLengths[i]);
+				offset += (int) sectionLengths[i];
+			}
+			return new PTLogSnapshot(createdAt, sections);
+		}
+	}
+
+	/**
+	 * Restores the rollups and the search index from the snapshot, after checking the logs the storage engine holds up
+	 * to the greatest id of each view are still the ones it holds, then hands each view the logs added since.
+	 *
+	 * @param storageEngine
+	 * 		engine the snapshot was taken from.
+	 * @param rollups
+	 * 		rollups to restore, null if they are not kept.
+	 * @param searchIndex
+	 * 		search index to restore, null if it is not kept.
+	 * @return false if a view is missing from the snapshot, the snapshot is out of date or the engine could not be
+	 * read, in which case the views must be rebuilt.
+	 * @throws IOException
+	 * 		if a view section is damaged, in which case the views must be rebuilt.
+	 */
+	boolean restoreViews(PTLogStorageEngine storageEngine, PTLogRollups rollups, PTLogSearchIndex searchIndex)
+			throws IOException {
+		if ((rollups != null && !isUpToDate(sections[ROLLUPS], storageEngine)) ||
+				(searchIndex != null && !isUpToDate(sections[SEARCH_INDEX], storageEngine))) {
+			return false;
+		}
+		int highWaterMark = Integer.MAX_VALUE;
+		try {
+			if (rollups != null) {
+				ByteBuffer section = sections[ROLLUPS].duplicate();
+				rollups.restore(section);
+				checkConsumed(section, "rollups");
+				highWaterMark = rollups.getHighWaterMark();
+			}
+			if (searchIndex != null) {
+				ByteBuffer section = sections[SEARCH_INDEX].duplicate();
+				searchIndex.restore(section);
+				checkConsumed(section, "search index");
+				highWaterMark = Math.min(highWaterMark, searchIndex.getHighWaterMark());
+			}
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException exception) {
+			throw new IOException("Pt log snapshot holds a damaged view.", exception);
+		}
+		if (highWaterMark == Integer.MAX_VALUE) {
+			return true;
+		}
+		int rollupsHighWaterMark = rollups == null ? Integer.MAX_VALUE : rollups.getHighWaterMark();
+		int searchIndexHighWaterMark = searchIndex == null ? Integer.MAX_VALUE : searchIndex.getHighWaterMark();
+		return storageEngine.forEachPTLogAfter(highWaterMark, ptLog -> {
+			if (ptLog.getId() > rollupsHighWaterMark) {
+				rollups.recordAdded(ptLog);
+			}
+			if (ptLog.getId() > searchIndexHighWaterMark) {
+				searchIndex.recordAdded(ptLog);
+			}
+		}) != COMMAND_EXECUTION_RESULT_FAIL;
+	}
+
+	/**
+	 * Fills the employee directory cache with the employees of the snapshot, expiring as if they were cached when they
+	 * were read from the database, then with the employees added since.
+	 *
+	 * @param directory
+	 * 		cache filled.
+	 * @param storageEngine
+	 * 		engine the snapshot was taken from.
+	 * @param pageSize
+	 * 		number of employees added since read at once.
+	 */
+	void restoreEmployees(EmployeeDirectoryCache directory, PTLogStorageEngine storageEngine, int pageSize) {
+		ByteBuffer employees = sections[EMPLOYEES].duplicate();
+		if (!employees.hasRemaining()) {
+			return;
+		}
+		int employeeHighWaterMark = 0;
+		while (employees.remaining() >= EMPLOYEE_BYTES) {
+			int id = employees.getInt();
+			int designation = employees.get();
+			long loadedAt = employees.getLong();
+			if (designation >= 0 && designation < DESIGNATIONS.length) {
+				directory.put(id, DESIGNATIONS[designation], loadedAt);
+			}
+			employeeHighWaterMark = Math.max(employeeHighWaterMark, id);
+		}
+		String pageToken = PageToken.encode(employeeHighWaterMark);
+		do {
+			Page<Employee> page = storageEngine.listEmployeesPage(pageToken, pageSize);
+			if (page == null) {
+				return;
+			}
+			for (Employee employee : page.getItems()) {
+				directory.put(employee.getId(), employee.getDesignation());
+			}
+			pageToken = page.getNextPageToken();
+		} while (pageToken != null);
+	}
+
+	/**
+	 * Hands the employee to manager assignments of the snapshot to the storage engine, which uses them until they are
+	 * as old as it refreshes its own.
+	 *
+	 * @param storageEngine
+	 * 		engine the snapshot was taken from.
+	 */
+	void restoreManagerHierarchy(PTLogStorageEngine storageEngine) {
+		ByteBuffer assignments = sections[MANAGER_HIERARCHY].duplicate();
+		if (assignments.remaining() < 8) {
+			return;
+		}
+		long loadedAt = assignments.getLong();
+		IntArrayList employeeIds = new IntArrayList(assignments.remaining() / 8);
+		IntArrayList managerIds = new IntArrayList(assignments.remaining() / 8);
+		while (assignments.remaining() >= 8) {
+			employeeIds.add(assignments.getInt());
+			managerIds.add(assignments.getInt());
+		}
+		storageEngine.restoreManagerHierarchy(employeeIds, managerIds, loadedAt);
+	}
+
+	/**
+	 * Checks the storage engine holds the logs a view section was written with, up to the greatest id of the view.
+	 */
+	private static boolean isUpToDate(ByteBuffer section, PTLogStorageEngine storageEngine) {
+		if (section.remaining() < 20) {
+			return false;
+		}
+		ByteBuffer viewHeader = section.duplicate();
+		int highWaterMark = viewHeader.getInt();
+		long ptLogCount = viewHeader.getLong();
+		long ptLogIdSum = viewHeader.getLong();
+		long[] counts = storageEngine.countPTLogsUpTo(highWaterMark);
+		return counts != null && counts[0] == ptLogCount && counts[1] == ptLogIdSum;
+	}
+
+	private static void checkConsumed(ByteBuffer section, String view) throws IOException {
+		if (section.hasRemaining()) {
+			throw new IOException("Pt log snapshot holds a " + view + " section longer than the " + view + ".");
+		}
+	}
+
+	private static void writeEmployees(DataOutputStream output, EmployeeDirectoryCache employeeDirectory)
+			throws IOException {
+		try {
+			employeeDirectory.forEach((id, designation, loadedAt) -> {
+				try {
+					output.writeInt(id);
+					output.writeByte(designation.ordinal());
+					output.writeLong(loadedAt);
+				} catch (IOException ioException) {
+					throw new UncheckedIOException(ioException);
+				}
+			});
+		} catch (UncheckedIOException uncheckedIOException) {
+			throw uncheckedIOException.getCause();
+		}
+	}
+
+	private static void writeManagerHierarchy(DataOutputStream output, ManagerHierarchyIndex managerHierarchy)
+			throws IOException {
+		long loadedAt = managerHierarchy.getLoadedAt();
+		IntArrayList employeeIds = new IntArrayList();
+		IntArrayList managerIds = new IntArrayList();
+		managerHierarchy.copyAssignments(employeeIds, managerIds);
+		output.writeLong(loadedAt);
+		for (int i = 0; i < employeeIds.size(); i++) {
+			output.writeInt(employeeIds.get(i));
+			output.writeInt(managerIds.get(i));
+		}
+	}
+
+	/**
+	 * Runs the writer of a section and flushes it to the channel.
+	 *
+	 * @return length of the section.
+	 */
+	private static long writeSection(DataOutputStream output, ChecksummedChannel payloadChannel, SectionWriter writer)
+			throws IOException {
+		long start = payloadChannel.size;
+		writer.write();
+		output.flush();
+		return payloadChannel.size - start;
+	}
+
+	/**
+	 * Writes one section of the snapshot.
+	 */
+	@FunctionalInterface
+	private interface SectionWriter {
+		void write() throws IOException;
+	}
+
+	/**
+	 * Channel computing the CRC32 and length of everything written through it.
+	 */
+	private static final class ChecksummedChannel implements WritableByteChannel {
+		private final FileChannel channel;
+		private final CRC32 crc = new CRC32();
+		private long size = 0;
+
+		private ChecksummedChannel(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public int write(ByteBuffer source) throws IOException {
+			ByteBuffer written = source.duplicate();
+			int length = channel.write(source);
+			crc.update(written.limit(written.position() + length));
+			size += length;
+			return length;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+}
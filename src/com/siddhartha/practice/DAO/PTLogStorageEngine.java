@@ -0,0 +1,373 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.IntArrayList;
+import com.siddhartha.practice.Models.Designation;
+import com.siddhartha.practice.Models.Employee;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.Page;
+import com.siddhartha.practice.Models.QueryPlan;
+import com.siddhartha.practice.Service.PoolStats;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Storage engine interface to depict the operations PTLogService runs on its backend. Operations return
+ * COMMAND_EXECUTION_RESULT_SUCCESS (1) or COMMAND_EXECUTION_RESULT_FAIL (0) like PTLogService.
+ *
+ * @author sid
+ */
+public interface PTLogStorageEngine {
+
+	/**
+	 * Adds new employee. By default, the designation of the employee is TeamMember.
+	 *
+	 * @param name
+	 * 		name of the employee being added.
+	 * @return result of the insertion.
+	 */
+	int addEmployee(String name);
+
+	/**
+	 * Adds Pt log by an employee.
+	 *
+	 * @param ptLog
+	 * 		log to add, its id is set to the generated id.
+	 * @return result of the insertion.
+	 */
+	int addPTLog(PTLog ptLog);
+
+	/**
+	 * Adds many Pt logs at once, all or none of the logs of existing employees being added.
+	 *
+	 * @param ptLogs
+	 * 		logs to add, the id of each inserted log is set to the generated id.
+	 * @param batchSize
+	 * 		number of rows written per round trip.
+	 * @return result of each log in iteration order of ptLogs, or null if nothing was added.
+	 */
+	int[] addPTLogsBatch(Collection<PTLog> ptLogs, int batchSize);
+
+	/**
+	 * Changes the Designation of employee from TeamMember to Manager.
+	 *
+	 * @param id
+	 * 		employee id to be promoted to manager.
+	 * @return result of the update.
+	 */
+	int promoteToManager(int id);
+
+	/**
+	 * Adds employee under manager. The employee may be a manager itself, which builds a chain of reporting, as long as
+	 * the manager does not already report to the employee.
+	 *
+	 * @param employeeId
+	 * 		employee id to be added under manager.
+	 * @param managerId
+	 * 		manager id under whom employee is added.
+	 * @return result of the insertion.
+	 */
+	int assignEmployeeToManager(int employeeId, int managerId);
+
+	/**
+	 * Fetches list of all employees.
+	 *
+	 * @return list of employees.
+	 */
+	ArrayList<Employee> listEmployees();
+
+	/**
+	 * Fetches one page of employees, in order of employee id.
+	 *
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of employees in the page.
+	 * @return page of employees, null if the token is invalid or the query failed.
+	 */
+	Page<Employee> listEmployeesPage(String pageToken, int pageSize);
+
+	/**
+	 * Hands every pt log to the consumer, in no particular order.
+	 *
+	 * @param consumer
+	 * 		receives each pt log.
+	 * @return result of the query.
+	 */
+	int forEachPTLog(Consumer<PTLog> consumer);
+
+	/**
+	 * Hands every pt log logged in a range of date to the consumer, in no particular order.
+	 *
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param consumer
+	 * 		receives each pt log.
+	 * @return result of the query.
+	 */
+	int forEachPTLogInRange(Date startDate, Date endDate, Consumer<PTLog> consumer);
+
+	/**
+	 * Hands every pt log with an id greater than the given one to the consumer, in order of id.
+	 *
+	 * @param id
+	 * 		id after which logs are fetched.
+	 * @param consumer
+	 * 		receives each pt log.
+	 * @return result of the query.
+	 */
+	int forEachPTLogAfter(int id, Consumer<PTLog> consumer);
+
+	/**
+	 * Counts the pt logs with an id up to the given one and sums their ids, so a copy of the logs taken earlier can
+	 * tell whether any of them were deleted or added late since.
+	 *
+	 * @param id
+	 * 		greatest id counted.
+	 * @return number of logs and sum of their ids, null if the query failed.
+	 */
+	long[] countPTLogsUpTo(int id);
+
+	/**
+	 * Hands pt logs, logged by an employee, to the consumer in order of logged date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param consumer
+	 * 		receives each pt log.
+	 * @return result of the query.
+	 */
+	int forEachPTLogOfEmployee(int id, Consumer<PTLog> consumer);
+
+	/**
+	 * Hands pt logs, logged by an employee in between a range of date, to the consumer in descending order of logged
+	 * date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param consumer
+	 * 		receives each pt log.
+	 * @return result of the query.
+	 */
+	int forEachPTLogOfEmployeeInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer);
+
+	/**
+	 * Hands pt logs, logged by all employees under a manager, directly or through other managers, to the consumer in
+	 * descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param consumer
+	 * 		receives each pt log.
+	 * @return result of the query.
+	 */
+	int forEachPTLogUnderManager(int id, Consumer<PTLog> consumer);
+
+	/**
+	 * Hands pt logs, logged by all employees under a manager, directly or through other managers, in a range of date,
+	 * to the consumer in descending order of logged date.
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param consumer
+	 * 		receives each pt log.
+	 * @return result of the query.
+	 */
+	int forEachPTLogUnderManagerInRange(int id, Date startDate, Date endDate, Consumer<PTLog> consumer);
+
+	/**
+	 * Fetches the pt logs of many employees at once, grouped by employee, in order of logged date from the latest.
+	 * Ids of employees that do not exist are left out.
+	 *
+	 * @param ids
+	 * 		employee ids whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range, null for no range.
+	 * @param endDate
+	 * 		end point of date range, null for no range.
+	 * @return logs of every employee found, in the order of ids, null if the query failed.
+	 */
+	LinkedHashMap<Integer, ArrayList<PTLog>> listPTLogOfEmployeesInRange(Collection<Integer> ids, Date startDate,
+			Date endDate);
+
+	/**
+	 * Fetches the pt logs of the teams of many managers at once, grouped by manager, each team being every employee
+	 * under the manager, directly or through other managers, in order of logged date from the latest. Ids of employees
+	 * that do not exist or are not managers are left out.
+	 *
+	 * @param ids
+	 * 		manager ids whose teams' logs are fetched.
+	 * @param startDate
+	 * 		start point of date range, null for no range.
+	 * @param endDate
+	 * 		end point of date range, null for no range.
+	 * @return logs of the team of every manager found, in the order of ids, null if the query failed.
+	 */
+	LinkedHashMap<Integer, ArrayList<PTLog>> listPTLogUnderManagersInRange(Collection<Integer> ids, Date startDate,
+			Date endDate);
+
+	/**
+	 * Fetches one page of pt logs, logged by an employee, in descending order of (logged date, id).
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the employee check, the token or the query failed.
+	 */
+	Page<PTLog> listPTLogOfEmployeePage(int id, String pageToken, int pageSize);
+
+	/**
+	 * Fetches one page of pt logs, logged by an employee in between a range of date, in descending order of (logged
+	 * date, id).
+	 *
+	 * @param id
+	 * 		employee id whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the employee check, the token or the query failed.
+	 */
+	Page<PTLog> listPTLogOfEmployeeInRangePage(int id, Date startDate, Date endDate, String pageToken, int pageSize);
+
+	/**
+	 * Fetches one page of pt logs, logged by all employees under a manager, directly or through other managers, in
+	 * descending order of (logged date, id).
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the manager check, the token or the query failed.
+	 */
+	Page<PTLog> listPTLogUnderManagerPage(int id, String pageToken, int pageSize);
+
+	/**
+	 * Fetches one page of pt logs, logged by all employees under a manager, directly or through other managers, in a
+	 * range of date, in descending order of (logged date, id).
+	 *
+	 * @param id
+	 * 		employee id of manager under which employees exists whose logs are fetched.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @param pageToken
+	 * 		token of the previous page, null for the first page.
+	 * @param pageSize
+	 * 		maximum number of pt logs in the page.
+	 * @return page of pt logs, null if the manager check, the token or the query failed.
+	 */
+	Page<PTLog> listPTLogUnderManagerInRangePage(int id, Date startDate, Date endDate, String pageToken, int pageSize);
+
+	/**
+	 * Deletes pt logs logged by an employee in a range of date.
+	 *
+	 * @param id
+	 * 		employee id whose logs are deleted.
+	 * @param startDate
+	 * 		start point of date range.
+	 * @param endDate
+	 * 		end point of date range.
+	 * @return result of the deletion.
+	 */
+	int deletePTLogOfEmployeeInRange(int id, Date startDate, Date endDate);
+
+	/**
+	 * Deletes pt logs of all employees logged before a date, for retention.
+	 *
+	 * @param cutoff
+	 * 		first logged date of the logs kept.
+	 * @return result of the deletion.
+	 */
+	int dropPTLogsBefore(Date cutoff);
+
+	/**
+	 * Checks if the Employee id exists or not. Also checks the designation of employee when needed and compare with
+	 * designation required.
+	 *
+	 * @param id
+	 * 		Employee id to check whether exists.
+	 * @param designation
+	 * 		required designation to compare with the designation of the employee.
+	 * @param checkDesignation
+	 * 		signal to compare or skip designation check of employee.
+	 * @return Status that the given employee id satisfies all the checks.
+	 * @throws SQLException
+	 */
+	Boolean checkEmployeeQuery(int id, Designation designation, Boolean checkDesignation) throws SQLException;
+
+	/**
+	 * @return usage statistics of the connection pool, null if the engine does not use one.
+	 */
+	default PoolStats getPoolStats() {
+		return null;
+	}
+
+	/**
+	 * @return employee directory cache used to answer employee checks, null if the engine does not use one.
+	 */
+	default EmployeeDirectoryCache getEmployeeDirectory() {
+		return null;
+	}
+
+	/**
+	 * @return index of the employee to manager assignments used to resolve teams, brought up to date first when the
+	 * engine loads it from the database, null if the engine does not use one.
+	 */
+	default ManagerHierarchyIndex getManagerHierarchy() {
+		return null;
+	}
+
+	/**
+	 * Restores the index of the employee to manager assignments from a copy of it, like a snapshot, when the engine
+	 * loads it from the database and has not loaded a more recent one. The copy is refreshed from the database as if
+	 * it had been loaded when the copy was taken. Engines holding their assignments only in the index ignore it.
+	 *
+	 * @param employeeIds
+	 * 		employee id of every assignment.
+	 * @param managerIds
+	 * 		manager id of every assignment, in the same order as employeeIds.
+	 * @param loadedAt
+	 * 		time in milliseconds the copied index was loaded from the database.
+	 */
+	default void restoreManagerHierarchy(IntArrayList employeeIds, IntArrayList managerIds, long loadedAt) {
+	}
+
+	/**
+	 * Fetches the plans of the queries of the engine, flagging the ones falling back to a full scan.
+	 *
+	 * @return plan of every table read by each query, null if the engine runs no queries or they could not be explained.
+	 */
+	default ArrayList<QueryPlan> explainQueries() {
+		return null;
+	}
+
+	/**
+	 * Releases the resources held by the engine.
+	 */
+	void close();
+}
@@ -0,0 +1,239 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.PTLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer of pt log inserts. Submitted logs wait in a bounded queue until a background flusher adds them
+ * to the storage engine in one addPTLogsBatch call, once maxBatchSize logs are waiting or maxDelayMillis passed since
+ * the first of them was queued. A batch is a single transaction, so many concurrent submissions share one commit. The
+ * future of every log completes after its batch committed, with the result of that log. When the batch fails, its logs
+ * are added again one at a time, so a bad log only fails its own future. When the queue is full, submitting waits up
+ * to offerTimeoutMillis for space and then fails.
+ *
+ * @author sid
+ */
+public final class PTLogWriteBehindBuffer implements AutoCloseable {
+	private final static int COMMAND_EXECUTION_RESULT_FAIL = 0;
+	private static final long IDLE_POLL_MILLIS = 100;
+
+	private final PTLogStorageEngine storageEngine;
+	private final PTLogMetrics metrics;
+	private final ArrayBlockingQueue<PendingPTLog> queue;
+	private final int maxBatchSize;
+	private final long maxDelayNanos;
+	private final long offerTimeoutMillis;
+	private final Thread flusher;
+	private final LongAdder rejected = new LongAdder();
+	private volatile boolean closed = false;
+
+	/**
+	 * @param storageEngine
+	 * 		engine the batches are added to.
+	 * @param metrics
+	 * 		metrics the flushes, submissions and queue depth are recorded in.
+	 * @param capacity
+	 * 		maximum number of logs waiting in the queue.
+	 * @param maxBatchSize
+	 * 		maximum number of logs added per batch.
+	 * @param maxDelayMillis
+	 * 		longest time a log waits for more logs to share its batch.
+	 * @param offerTimeoutMillis
+	 * 		longest time a submission waits for space in a full queue.
+	 */
+	public PTLogWriteBehindBuffer(PTLogStorageEngine storageEngine, PTLogMetrics metrics, int capacity,
+			int maxBatchSize, long maxDelayMillis, long offerTimeoutMillis) {
+		this.storageEngine = storageEngine;
+		this.metrics = metrics;
+		this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+		this.offerTimeoutMillis = offerTimeoutMillis;
+		this.flusher = new Thread(this::runFlusher, "ptlog-write-behind-flusher");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+		metrics.registerGauge("ptlog_write_behind_queue_depth", "gauge", "PT logs waiting in the write-behind buffer.",
+				queue::size);
+		metrics.registerGauge("ptlog_write_behind_rejected_total", "counter",
+				"PT logs rejected because the write-behind buffer stayed full.", rejected::sum);
+	}
+
+	/**
+	 * Queues a pt log to be added with the next batch.
+	 *
+	 * @param ptLog
+	 * 		log to add, its id is set to the generated id once added.
+	 * @return future completed with the result of the log once its batch committed, or completed exceptionally if the
+	 * buffer stayed full or is closed.
+	 */
+	public CompletableFuture<Integer> submit(PTLog ptLog) {
+		PendingPTLog pendingPTLog = new PendingPTLog(ptLog);
+		if (closed) {
+			pendingPTLog.future.completeExceptionally(new RejectedExecutionException("Write-behind buffer is closed"));
+			return pendingPTLog.future;
+		}
+		try {
+			if (!queue.offer(pendingPTLog, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				rejected.increment();
+				pendingPTLog.future.completeExceptionally(new RejectedExecutionException("Write-behind buffer is full"));
+			} else if (closed && queue.remove(pendingPTLog)) {
+				// queued after close drained the queue, no flusher is left to add it
+				pendingPTLog.future.completeExceptionally(new RejectedExecutionException("Write-behind buffer is closed"));
+			}
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+			pendingPTLog.future.completeExceptionally(interruptedException);
+		}
+		return pendingPTLog.future;
+	}
+
+	/**
+	 * @return number of logs waiting in the queue.
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * @return number of logs rejected because the queue stayed full.
+	 */
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Stops accepting logs and waits until the queued logs are added. Logs queued while closing are rejected.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			flusher.join();
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+		}
+		PendingPTLog pendingPTLog;
+		while ((pendingPTLog = queue.poll()) != null) {
+			pendingPTLog.future.completeExceptionally(new RejectedExecutionException("Write-behind buffer is closed"));
+		}
+		metrics.unregisterGauge("ptlog_write_behind_queue_depth");
+		metrics.unregisterGauge("ptlog_write_behind_rejected_total");
+	}
+
+	private void runFlusher() {
+		ArrayList<PendingPTLog> batch = new ArrayList<>(maxBatchSize);
+		while (true) {
+			PendingPTLog first;
+			try {
+				first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException interruptedException) {
+				first = null;
+				closed = true;
+			}
+			if (first == null) {
+				if (closed && queue.isEmpty()) {
+					return;
+				}
+				continue;
+			}
+			batch.add(first);
+			collectBatch(batch, first.queuedAt + maxDelayNanos);
+			flush(batch);
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Adds queued logs to the batch until it is full or the deadline passed. Once closing, only the logs already queued
+	 * are taken without waiting.
+	 */
+	private void collectBatch(ArrayList<PendingPTLog> batch, long deadline) {
+		while (batch.size() < maxBatchSize) {
+			queue.drainTo(batch, maxBatchSize - batch.size());
+			long remaining = deadline - System.nanoTime();
+			if (batch.size() >= maxBatchSize || remaining <= 0 || closed) {
+				return;
+			}
+			try {
+				PendingPTLog next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+				if (next == null) {
+					return;
+				}
+				batch.add(next);
+			} catch (InterruptedException interruptedException) {
+				closed = true;
+				return;
+			}
+		}
+	}
+
+	private void flush(ArrayList<PendingPTLog> batch) {
+		ArrayList<PTLog> ptLogs = new ArrayList<>(batch.size());
+		for (PendingPTLog pendingPTLog : batch) {
+			ptLogs.add(pendingPTLog.ptLog);
+		}
+		long start = System.nanoTime();
+		int[] results = null;
+		RuntimeException failure = null;
+		try {
+			results = storageEngine.addPTLogsBatch(ptLogs, maxBatchSize);
+		} catch (RuntimeException runtimeException) {
+			failure = runtimeException;
+		}
+		metrics.record("writeBehindFlush", System.nanoTime() - start, results == null, 0);
+		if (results == null && batch.size() > 1) {
+			for (PendingPTLog pendingPTLog : batch) {
+				flush(pendingPTLog);
+			}
+			return;
+		}
+		long end = System.nanoTime();
+		for (int i = 0; i < batch.size(); i++) {
+			complete(batch.get(i), results == null ? COMMAND_EXECUTION_RESULT_FAIL : results[i], failure, end);
+		}
+	}
+
+	/**
+	 * Adds a log of a failed batch on its own, completing its future with its own result.
+	 */
+	private void flush(PendingPTLog pendingPTLog) {
+		int result = COMMAND_EXECUTION_RESULT_FAIL;
+		RuntimeException failure = null;
+		try {
+			int[] results = storageEngine.addPTLogsBatch(List.of(pendingPTLog.ptLog), 1);
+			if (results != null) {
+				result = results[0];
+			}
+		} catch (RuntimeException runtimeException) {
+			failure = runtimeException;
+		}
+		complete(pendingPTLog, result, failure, System.nanoTime());
+	}
+
+	private void complete(PendingPTLog pendingPTLog, int result, RuntimeException failure, long end) {
+		metrics.record("writeBehindSubmit", end - pendingPTLog.queuedAt,
+				failure != null || result == COMMAND_EXECUTION_RESULT_FAIL, 0);
+		if (failure != null) {
+			pendingPTLog.future.completeExceptionally(failure);
+		} else {
+			pendingPTLog.future.complete(result);
+		}
+	}
+
+	private static final class PendingPTLog {
+		private final PTLog ptLog;
+		private final long queuedAt = System.nanoTime();
+		private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+		private PendingPTLog(PTLog ptLog) {
+			this.ptLog = ptLog;
+		}
+	}
+}
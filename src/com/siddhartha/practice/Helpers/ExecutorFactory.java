@@ -0,0 +1,70 @@
+package com.siddhartha.practice.Helpers;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor factory class creating executors which run every task on its own virtual thread when the running JVM has
+ * virtual threads (Java 21 or later), and on a fixed pool of daemon threads otherwise.
+ *
+ * @author sid
+ */
+public final class ExecutorFactory {
+
+	/**
+	 * Private constructor to avoid instance creation.
+	 */
+	private ExecutorFactory() {
+
+	}
+
+	/**
+	 * Creates an executor running every task on a new virtual thread, or on a fixed pool of daemon threads when
+	 * virtual threads are not available.
+	 *
+	 * @param name
+	 * 		prefix of the names of the pool threads.
+	 * @param fallbackThreads
+	 * 		number of threads of the fallback pool.
+	 * @return executor for blocking tasks.
+	 */
+	public static ExecutorService newVirtualThreadExecutor(String name, int fallbackThreads) {
+		try {
+			Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+		} catch (ReflectiveOperationException reflectiveOperationException) {
+			return Executors.newFixedThreadPool(Math.max(1, fallbackThreads), daemonThreadFactory(name));
+		}
+	}
+
+	/**
+	 * @return true if the running JVM has virtual threads.
+	 */
+	public static boolean hasVirtualThreads() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch (NoSuchMethodException noSuchMethodException) {
+			return false;
+		}
+	}
+
+	/**
+	 * Creates a thread factory of daemon threads named name-1, name-2, ...
+	 *
+	 * @param name
+	 * 		prefix of the thread names.
+	 * @return thread factory.
+	 */
+	public static ThreadFactory daemonThreadFactory(String name) {
+		AtomicInteger threadCount = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
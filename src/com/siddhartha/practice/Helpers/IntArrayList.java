@@ -0,0 +1,146 @@
+package com.siddhartha.practice.Helpers;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used where a List of Integer would box every element.
+ *
+ * @author sid
+ */
+public final class IntArrayList {
+	private int[] values;
+	private int size = 0;
+
+	public IntArrayList() {
+		this(8);
+	}
+
+	public IntArrayList(int initialCapacity) {
+		values = new int[Math.max(1, initialCapacity)];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+		}
+		return values[index];
+	}
+
+	public void set(int index, int value) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+		}
+		values[index] = value;
+	}
+
+	public void add(int value) {
+		ensureCapacity(size + 1);
+		values[size++] = value;
+	}
+
+	/**
+	 * Inserts the value at given index, shifting the following values.
+	 */
+	public void insert(int index, int value) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+		}
+		ensureCapacity(size + 1);
+		System.arraycopy(values, index, values, index + 1, size - index);
+		values[index] = value;
+		size++;
+	}
+
+	/**
+	 * Removes the value at given index, shifting the following values.
+	 *
+	 * @return removed value.
+	 */
+	public int removeAt(int index) {
+		int value = get(index);
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		size--;
+		return value;
+	}
+
+	/**
+	 * Removes the first occurrence of the value.
+	 *
+	 * @return true if the value was found.
+	 */
+	public boolean removeValue(int value) {
+		int index = indexOf(value);
+		if (index < 0) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	public int indexOf(int value) {
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public boolean contains(int value) {
+		return indexOf(value) >= 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Keeps only the first newSize values.
+	 */
+	public void truncate(int newSize) {
+		size = Math.max(0, Math.min(size, newSize));
+	}
+
+	public void sort() {
+		Arrays.sort(values, 0, size);
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * @return bytes used by the backing array.
+	 */
+	public long capacityBytes() {
+		return 4L * values.length;
+	}
+
+	/**
+	 * Shrinks the backing array to the number of values.
+	 */
+	public void trimToSize() {
+		if (values.length > size) {
+			values = Arrays.copyOf(values, Math.max(1, size));
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > values.length) {
+			values = Arrays.copyOf(values, Math.max(capacity, values.length + (values.length >> 1) + 1));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
@@ -0,0 +1,267 @@
+package com.siddhartha.practice.Helpers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Small JSON parser reading a JSON text into LinkedHashMap (objects), ArrayList (arrays), String, Long (integral
+ * numbers), Double (other numbers), Boolean and null values.
+ *
+ * @author sid
+ */
+public final class JsonParser {
+	private static final int MAX_DEPTH = 64;
+
+	private final String text;
+	private int position = 0;
+	private int depth = 0;
+
+	private JsonParser(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Parses a JSON text.
+	 *
+	 * @param text
+	 * 		JSON text.
+	 * @return parsed value.
+	 * @throws IllegalArgumentException
+	 * 		if the text is not valid JSON.
+	 */
+	public static Object parse(String text) throws IllegalArgumentException {
+		JsonParser parser = new JsonParser(text);
+		Object value = parser.readValue();
+		parser.skipWhitespace();
+		if (parser.position != text.length()) {
+			throw parser.error("Unexpected trailing characters");
+		}
+		return value;
+	}
+
+	/**
+	 * Parses a JSON text holding an object.
+	 *
+	 * @param text
+	 * 		JSON text.
+	 * @return members of the object.
+	 * @throws IllegalArgumentException
+	 * 		if the text is not a valid JSON object.
+	 */
+	@SuppressWarnings("unchecked")
+	public static LinkedHashMap<String, Object> parseObject(String text) throws IllegalArgumentException {
+		Object value = parse(text);
+		if (!(value instanceof LinkedHashMap)) {
+			throw new IllegalArgumentException("Expected a JSON object");
+		}
+		return (LinkedHashMap<String, Object>) value;
+	}
+
+	private Object readValue() {
+		skipWhitespace();
+		if (position >= text.length()) {
+			throw error("Unexpected end of input");
+		}
+		char c = text.charAt(position);
+		switch (c) {
+			case '{':
+				return readObject();
+			case '[':
+				return readArray();
+			case '"':
+				return readString();
+			case 't':
+				expect("true");
+				return Boolean.TRUE;
+			case 'f':
+				expect("false");
+				return Boolean.FALSE;
+			case 'n':
+				expect("null");
+				return null;
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) {
+					return readNumber();
+				}
+				throw error("Unexpected character '" + c + "'");
+		}
+	}
+
+	private LinkedHashMap<String, Object> readObject() {
+		enter();
+		position++;
+		LinkedHashMap<String, Object> object = new LinkedHashMap<>();
+		skipWhitespace();
+		if (peek() == '}') {
+			position++;
+			depth--;
+			return object;
+		}
+		while (true) {
+			skipWhitespace();
+			if (peek() != '"') {
+				throw error("Expected member name");
+			}
+			String name = readString();
+			skipWhitespace();
+			if (peek() != ':') {
+				throw error("Expected ':'");
+			}
+			position++;
+			object.put(name, readValue());
+			skipWhitespace();
+			char c = peek();
+			position++;
+			if (c == '}') {
+				depth--;
+				return object;
+			} else if (c != ',') {
+				throw error("Expected ',' or '}'");
+			}
+		}
+	}
+
+	private ArrayList<Object> readArray() {
+		enter();
+		position++;
+		ArrayList<Object> array = new ArrayList<>();
+		skipWhitespace();
+		if (peek() == ']') {
+			position++;
+			depth--;
+			return array;
+		}
+		while (true) {
+			array.add(readValue());
+			skipWhitespace();
+			char c = peek();
+			position++;
+			if (c == ']') {
+				depth--;
+				return array;
+			} else if (c != ',') {
+				throw error("Expected ',' or ']'");
+			}
+		}
+	}
+
+	private String readString() {
+		position++;
+		StringBuilder value = new StringBuilder();
+		while (true) {
+			if (position >= text.length()) {
+				throw error("Unterminated string");
+			}
+			char c = text.charAt(position++);
+			if (c == '"') {
+				return value.toString();
+			} else if (c == '\\') {
+				if (position >= text.length()) {
+					throw error("Unterminated string");
+				}
+				char escaped = text.charAt(position++);
+				switch (escaped) {
+					case '"':
+					case '\\':
+					case '/':
+						value.append(escaped);
+						break;
+					case 'b':
+						value.append('\b');
+						break;
+					case 'f':
+						value.append('\f');
+						break;
+					case 'n':
+						value.append('\n');
+						break;
+					case 'r':
+						value.append('\r');
+						break;
+					case 't':
+						value.append('\t');
+						break;
+					case 'u':
+						if (position + 4 > text.length()) {
+							throw error("Invalid unicode escape");
+						}
+						try {
+							value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+						} catch (NumberFormatException numberFormatException) {
+							throw error("Invalid unicode escape");
+						}
+						position += 4;
+						break;
+					default:
+						throw error("Invalid escape '\\" + escaped + "'");
+				}
+			} else if (c < 0x20) {
+				throw error("Unescaped control character in string");
+			} else {
+				value.append(c);
+			}
+		}
+	}
+
+	private Object readNumber() {
+		int start = position;
+		boolean integral = true;
+		if (peek() == '-') {
+			position++;
+		}
+		while (position < text.length()) {
+			char c = text.charAt(position);
+			if (c >= '0' && c <= '9') {
+				position++;
+			} else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+				integral = false;
+				position++;
+			} else {
+				break;
+			}
+		}
+		String number = text.substring(start, position);
+		try {
+			if (integral) {
+				return Long.parseLong(number);
+			}
+			return Double.parseDouble(number);
+		} catch (NumberFormatException numberFormatException) {
+			throw error("Invalid number '" + number + "'");
+		}
+	}
+
+	private void expect(String literal) {
+		if (!text.startsWith(literal, position)) {
+			throw error("Expected '" + literal + "'");
+		}
+		position += literal.length();
+	}
+
+	private void enter() {
+		if (++depth > MAX_DEPTH) {
+			throw error("Nesting deeper than " + MAX_DEPTH);
+		}
+	}
+
+	private char peek() {
+		if (position >= text.length()) {
+			throw error("Unexpected end of input");
+		}
+		return text.charAt(position);
+	}
+
+	private void skipWhitespace() {
+		while (position < text.length()) {
+			char c = text.charAt(position);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return;
+			}
+			position++;
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + position);
+	}
+}
@@ -0,0 +1,238 @@
+package com.siddhartha.practice.Helpers;
+
+import com.siddhartha.practice.Models.ActivitySummary;
+import com.siddhartha.practice.Models.Employee;
+import com.siddhartha.practice.Models.PTLog;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Streaming JSON writer, writing values straight to the underlying writer so listings of any size are written without
+ * building them in memory first. Commas between values are added by the writer.
+ *
+ * @author sid
+ */
+public final class JsonWriter implements Flushable, Closeable {
+	private final Writer writer;
+	private boolean[] hasValue = new boolean[8];
+	private int depth = 0;
+	private boolean afterName = false;
+
+	public JsonWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	public JsonWriter beginObject() throws IOException {
+		beforeValue();
+		writer.write('{');
+		push();
+		return this;
+	}
+
+	public JsonWriter endObject() throws IOException {
+		depth--;
+		writer.write('}');
+		return this;
+	}
+
+	public JsonWriter beginArray() throws IOException {
+		beforeValue();
+		writer.write('[');
+		push();
+		return this;
+	}
+
+	public JsonWriter endArray() throws IOException {
+		depth--;
+		writer.write(']');
+		return this;
+	}
+
+	/**
+	 * Writes the name of the next member of the current object.
+	 */
+	public JsonWriter name(String name) throws IOException {
+		beforeValue();
+		writeString(name);
+		writer.write(':');
+		afterName = true;
+		return this;
+	}
+
+	public JsonWriter value(String value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		}
+		beforeValue();
+		writeString(value);
+		return this;
+	}
+
+	public JsonWriter value(long value) throws IOException {
+		beforeValue();
+		writer.write(Long.toString(value));
+		return this;
+	}
+
+	public JsonWriter value(double value) throws IOException {
+		beforeValue();
+		writer.write(Double.isFinite(value) ? Double.toString(value) : "null");
+		return this;
+	}
+
+	public JsonWriter value(boolean value) throws IOException {
+		beforeValue();
+		writer.write(value ? "true" : "false");
+		return this;
+	}
+
+	public JsonWriter value(Object value) throws IOException {
+		return value == null ? nullValue() : value(value.toString());
+	}
+
+	public JsonWriter nullValue() throws IOException {
+		beforeValue();
+		writer.write("null");
+		return this;
+	}
+
+	/**
+	 * Writes an employee as an object of its id, name and designation.
+	 */
+	public JsonWriter employee(Employee employee) throws IOException {
+		return beginObject()
+				.name("id").value(employee.getId())
+				.name("name").value(employee.getName())
+				.name("designation").value(employee.getDesignation())
+				.endObject();
+	}
+
+	/**
+	 * Writes a pt log as an object of its id, employee id, details and logged date (YYYY-MM-DD).
+	 */
+	public JsonWriter ptLog(PTLog ptLog) throws IOException {
+		return beginObject()
+				.name("id").value(ptLog.getId())
+				.name("employeeId").value(ptLog.getEmployeeId())
+				.name("details").value(ptLog.getDetails())
+				.name("loggedDate").value(ptLog.getLoggedDate())
+				.endObject();
+	}
+
+	/**
+	 * Writes the activity of an employee or a team as an object of its counts and streaks.
+	 */
+	public JsonWriter activity(ActivitySummary activity) throws IOException {
+		return beginObject()
+				.name("id").value(activity.getId())
+				.name("period").value(activity.getPeriod())
+				.name("periodStart").value(activity.getPeriodStart())
+				.name("logCount").value(activity.getLogCount())
+				.name("activeDays").value(activity.getActiveDays())
+				.name("currentStreak").value(activity.getCurrentStreak())
+				.name("longestStreak").value(activity.getLongestStreak())
+				.name("totalLogCount").value(activity.getTotalLogCount())
+				.name("totalActiveDays").value(activity.getTotalActiveDays())
+				.endObject();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	/**
+	 * Escapes a string as a JSON string literal.
+	 *
+	 * @param value
+	 * 		string to escape.
+	 * @return quoted JSON string.
+	 */
+	public static String quote(String value) {
+		StringBuilder quoted = new StringBuilder(value.length() + 2);
+		appendQuoted(quoted, value);
+		return quoted.toString();
+	}
+
+	private void writeString(String value) throws IOException {
+		if (!needsEscaping(value)) {
+			writer.write('"');
+			writer.write(value);
+			writer.write('"');
+			return;
+		}
+		StringBuilder quoted = new StringBuilder(value.length() + 2);
+		appendQuoted(quoted, value);
+		writer.append(quoted);
+	}
+
+	private static boolean needsEscaping(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x20 || c == '"' || c == '\\' || c == '\u2028' || c == '\u2029') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void appendQuoted(StringBuilder quoted, String value) {
+		quoted.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					quoted.append("\\\"");
+					break;
+				case '\\':
+					quoted.append("\\\\");
+					break;
+				case '\n':
+					quoted.append("\\n");
+					break;
+				case '\r':
+					quoted.append("\\r");
+					break;
+				case '\t':
+					quoted.append("\\t");
+					break;
+				default:
+					if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+						quoted.append(String.format("\\u%04x", (int) c));
+					} else {
+						quoted.append(c);
+					}
+			}
+		}
+		quoted.append('"');
+	}
+
+	private void beforeValue() throws IOException {
+		if (afterName) {
+			afterName = false;
+			return;
+		}
+		if (depth > 0) {
+			if (hasValue[depth - 1]) {
+				writer.write(',');
+			}
+			hasValue[depth - 1] = true;
+		}
+	}
+
+	private void push() {
+		if (depth == hasValue.length) {
+			hasValue = Arrays.copyOf(hasValue, depth * 2);
+		}
+		hasValue[depth++] = false;
+	}
+}
@@ -0,0 +1,143 @@
+package com.siddhartha.practice.Helpers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of latencies recorded in nanoseconds. Values below 32 get a bucket each and every power of two
+ * above is split into 16 sub buckets, while recording stays a single atomic increment. Percentiles report the upper
+ * bound of their bucket, so they overstate the recorded value by at most about 6%.
+ *
+ * @author sid
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder totalCount = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private volatile long maxNanos = 0;
+
+	/**
+	 * Records a single latency value.
+	 *
+	 * @param nanos
+	 * 		latency in nanoseconds, negative values are recorded as zero.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		counts.incrementAndGet(bucketIndex(nanos));
+		totalCount.increment();
+		totalNanos.add(nanos);
+		long currentMax = maxNanos;
+		while (nanos > currentMax) {
+			synchronized (this) {
+				if (nanos > maxNanos) {
+					maxNanos = nanos;
+				}
+			}
+			currentMax = maxNanos;
+		}
+	}
+
+	/**
+	 * @return number of recorded values.
+	 */
+	public long getCount() {
+		return totalCount.sum();
+	}
+
+	/**
+	 * @return highest recorded value in nanoseconds.
+	 */
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	/**
+	 * @return sum of recorded values in nanoseconds.
+	 */
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	/**
+	 * @return mean of recorded values in nanoseconds.
+	 */
+	public double getMeanNanos() {
+		long count = totalCount.sum();
+		return count == 0 ? 0 : (double) totalNanos.sum() / count;
+	}
+
+	/**
+	 * Fetches the value at given percentile.
+	 *
+	 * @param percentile
+	 * 		percentile between 0 and 100.
+	 * @return upper bound of the bucket holding the percentile, in nanoseconds.
+	 */
+	public long getPercentileNanos(double percentile) {
+		long count = totalCount.sum();
+		if (count == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= target) {
+				return Math.min(bucketUpperBound(i), maxNanos);
+			}
+		}
+		return maxNanos;
+	}
+
+	/**
+	 * Fetches the value at given percentile in a coarser unit.
+	 *
+	 * @param percentile
+	 * 		percentile between 0 and 100.
+	 * @param unit
+	 * 		unit to convert the value to.
+	 * @return value at given percentile.
+	 */
+	public long getPercentile(double percentile, TimeUnit unit) {
+		return unit.convert(getPercentileNanos(percentile), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Clears all recorded values.
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts.set(i, 0);
+		}
+		totalCount.reset();
+		totalNanos.reset();
+		maxNanos = 0;
+	}
+
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+		int subBucket = (int) (value >>> magnitude) - SUB_BUCKET_COUNT / 2;
+		return Math.min(BUCKET_COUNT - 1, SUB_BUCKET_COUNT + (magnitude - 1) * (SUB_BUCKET_COUNT / 2) + subBucket);
+	}
+
+	private static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int offset = index - SUB_BUCKET_COUNT;
+		int magnitude = offset / (SUB_BUCKET_COUNT / 2) + 1;
+		long subBucket = offset % (SUB_BUCKET_COUNT / 2) + SUB_BUCKET_COUNT / 2;
+		return ((subBucket + 1) << magnitude) - 1;
+	}
+}
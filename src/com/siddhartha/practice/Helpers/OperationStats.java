@@ -0,0 +1,63 @@
+package com.siddhartha.practice.Helpers;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe statistics of a single operation: number of calls, failed calls, rows returned and the latency of every
+ * call.
+ *
+ * @author sid
+ */
+public final class OperationStats {
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder rows = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * Records a finished call of the operation.
+	 *
+	 * @param nanos
+	 * 		time taken by the call in nanoseconds.
+	 * @param failed
+	 * 		whether the call failed.
+	 * @param rowCount
+	 * 		number of rows returned by the call.
+	 */
+	public void record(long nanos, boolean failed, long rowCount) {
+		calls.increment();
+		if (failed) {
+			errors.increment();
+		}
+		if (rowCount > 0) {
+			rows.add(rowCount);
+		}
+		latency.record(nanos);
+	}
+
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	public long getRows() {
+		return rows.sum();
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Clears all recorded calls.
+	 */
+	public void reset() {
+		calls.reset();
+		errors.reset();
+		rows.reset();
+		latency.reset();
+	}
+}
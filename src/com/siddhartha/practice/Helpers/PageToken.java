@@ -0,0 +1,90 @@
+package com.siddhartha.practice.Helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Keyset position of the last row of a page, encoded as an opaque token handed to clients. The token keeps the sort key
+ * of the row (logged date and id for pt logs, id for employees), so the next page starts right after it without
+ * skipping rows like OFFSET would.
+ *
+ * @author sid
+ */
+public final class PageToken {
+	private static final String VERSION = "1";
+	private static final String SEPARATOR = ":";
+
+	private final Date loggedDate;
+	private final int id;
+
+	private PageToken(Date loggedDate, int id) {
+		this.loggedDate = loggedDate;
+		this.id = id;
+	}
+
+	/**
+	 * @return logged date of the last row of the previous page, null for employee tokens.
+	 */
+	public Date getLoggedDate() {
+		return loggedDate;
+	}
+
+	/**
+	 * @return id of the last row of the previous page.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Creates token positioned after a pt log.
+	 *
+	 * @param loggedDate
+	 * 		logged date of the last pt log of the page.
+	 * @param id
+	 * 		id of the last pt log of the page.
+	 * @return opaque token.
+	 */
+	public static String encode(Date loggedDate, int id) {
+		return encodeString(VERSION + SEPARATOR + loggedDate.toLocalDate().toEpochDay() + SEPARATOR + id);
+	}
+
+	/**
+	 * Creates token positioned after an employee.
+	 *
+	 * @param id
+	 * 		id of the last employee of the page.
+	 * @return opaque token.
+	 */
+	public static String encode(int id) {
+		return encodeString(VERSION + SEPARATOR + SEPARATOR + id);
+	}
+
+	/**
+	 * Reads a token created by encode.
+	 *
+	 * @param token
+	 * 		opaque token.
+	 * @return position stored in the token.
+	 * @throws IllegalArgumentException
+	 * 		if the token is malformed.
+	 */
+	public static PageToken decode(String token) throws IllegalArgumentException {
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+			if (parts.length != 3 || !VERSION.equals(parts[0])) {
+				throw new IllegalArgumentException("Invalid page token " + token);
+			}
+			Date loggedDate = parts[1].isEmpty() ? null : Date.valueOf(LocalDate.ofEpochDay(Long.parseLong(parts[1])));
+			return new PageToken(loggedDate, Integer.parseInt(parts[2]));
+		} catch (RuntimeException runtimeException) {
+			throw new IllegalArgumentException("Invalid page token " + token, runtimeException);
+		}
+	}
+
+	private static String encodeString(String value) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+}
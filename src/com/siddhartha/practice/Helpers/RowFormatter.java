@@ -0,0 +1,94 @@
+package com.siddhartha.practice.Helpers;
+
+import com.siddhartha.practice.Models.ActivitySummary;
+import com.siddhartha.practice.Models.Employee;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.QueryPlan;
+
+/**
+ * Formats the table rows printed by the CLI for employees and pt logs.
+ *
+ * @author sid
+ */
+public final class RowFormatter {
+	private static final String EMPLOYEE_ROW_FORMAT = "|%-20s |%-20s |%-20s|";
+	private static final String PTLOG_ROW_FORMAT = "|%-20s |%-40s |%-20s|";
+	private static final String TEAM_PTLOG_ROW_FORMAT = "|%-20s |%-20s |%-40s |%-20s|";
+	private static final String ACTIVITY_ROW_FORMAT = "|%-12s |%-10s |%-12s |%-10s |%-14s |%-14s |%-12s |%-12s|";
+	private static final String QUERY_PLAN_ROW_FORMAT = "|%-34s |%-18s |%-8s |%-32s |%-10s |%-9s|";
+
+	public static final String EMPLOYEE_HEADER = String.format(EMPLOYEE_ROW_FORMAT, "EMPLOYEE_ID", "Name", "DESIGNATION");
+	public static final String PTLOG_HEADER = String.format(PTLOG_ROW_FORMAT, "PTLOG_ID", "DETAILS", "LOGGED_DATE");
+	public static final String TEAM_PTLOG_HEADER = String.format(TEAM_PTLOG_ROW_FORMAT, "EMPLOYEE_ID", "PTLOG_ID",
+			"DETAILS", "LOGGED_DATE");
+	public static final String ACTIVITY_HEADER = String.format(ACTIVITY_ROW_FORMAT, "PERIOD_START", "LOGS",
+			"ACTIVE_DAYS", "STREAK", "LONGEST_STREAK", "TOTAL_LOGS", "TOTAL_DAYS", "PERIOD");
+	public static final String QUERY_PLAN_HEADER = String.format(QUERY_PLAN_ROW_FORMAT, "OPERATION", "TABLE", "TYPE",
+			"KEY", "ROWS", "FULL_SCAN");
+
+	/**
+	 * Private constructor to avoid instance creation.
+	 */
+	private RowFormatter() {
+
+	}
+
+	/**
+	 * Formats a row of the employee listing.
+	 *
+	 * @param employee
+	 * 		employee to format.
+	 * @return row matching EMPLOYEE_HEADER.
+	 */
+	public static String formatEmployee(Employee employee) {
+		return String.format(EMPLOYEE_ROW_FORMAT, employee.getId(), employee.getName(), employee.getDesignation());
+	}
+
+	/**
+	 * Formats a row of the pt log listing of an employee.
+	 *
+	 * @param ptLog
+	 * 		pt log to format.
+	 * @return row matching PTLOG_HEADER.
+	 */
+	public static String formatPTLog(PTLog ptLog) {
+		return String.format(PTLOG_ROW_FORMAT, ptLog.getId(), ptLog.getDetails(), ptLog.getLoggedDate());
+	}
+
+	/**
+	 * Formats a row of the pt log listing of a team, which also shows the employee of each log.
+	 *
+	 * @param ptLog
+	 * 		pt log to format.
+	 * @return row matching TEAM_PTLOG_HEADER.
+	 */
+	public static String formatTeamPTLog(PTLog ptLog) {
+		return String.format(TEAM_PTLOG_ROW_FORMAT, ptLog.getEmployeeId(), ptLog.getId(), ptLog.getDetails(),
+				ptLog.getLoggedDate());
+	}
+
+	/**
+	 * Formats the activity of an employee or a team.
+	 *
+	 * @param activity
+	 * 		activity to format.
+	 * @return row matching ACTIVITY_HEADER.
+	 */
+	public static String formatActivity(ActivitySummary activity) {
+		return String.format(ACTIVITY_ROW_FORMAT, activity.getPeriodStart(), activity.getLogCount(),
+				activity.getActiveDays(), activity.getCurrentStreak(), activity.getLongestStreak(),
+				activity.getTotalLogCount(), activity.getTotalActiveDays(), activity.getPeriod());
+	}
+
+	/**
+	 * Formats the plan of a query.
+	 *
+	 * @param queryPlan
+	 * 		plan to format.
+	 * @return row matching QUERY_PLAN_HEADER.
+	 */
+	public static String formatQueryPlan(QueryPlan queryPlan) {
+		return String.format(QUERY_PLAN_ROW_FORMAT, queryPlan.getOperation(), queryPlan.getTable(),
+				queryPlan.getAccessType(), queryPlan.getKey(), queryPlan.getRows(), queryPlan.isFullScan() ? "YES" : "");
+	}
+}
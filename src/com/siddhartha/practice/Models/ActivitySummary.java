@@ -0,0 +1,144 @@
+package com.siddhartha.practice.Models;
+
+import java.sql.Date;
+
+/**
+ * Stores the PT activity of an employee, or of the team of a manager, in one time bucket along with its streaks and
+ * totals.
+ *
+ * @author sid
+ */
+public class ActivitySummary {
+	private int id;
+	private RollupPeriod period;
+	private Date periodStart;
+	private int logCount;
+	private int activeDays;
+	private int currentStreak;
+	private int longestStreak;
+	private long totalLogCount;
+	private int totalActiveDays;
+
+	public ActivitySummary() {
+	}
+
+	public ActivitySummary(int id, RollupPeriod period, Date periodStart, int logCount, int activeDays,
+			int currentStreak, int longestStreak, long totalLogCount, int totalActiveDays) {
+		this.id = id;
+		this.period = period;
+		this.periodStart = periodStart;
+		this.logCount = logCount;
+		this.activeDays = activeDays;
+		this.currentStreak = currentStreak;
+		this.longestStreak = longestStreak;
+		this.totalLogCount = totalLogCount;
+		this.totalActiveDays = totalActiveDays;
+	}
+
+	/**
+	 * @return employee id, or manager id for the activity of a team.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public RollupPeriod getPeriod() {
+		return period;
+	}
+
+	public void setPeriod(RollupPeriod period) {
+		this.period = period;
+	}
+
+	/**
+	 * @return first day of the bucket.
+	 */
+	public Date getPeriodStart() {
+		return periodStart;
+	}
+
+	public void setPeriodStart(Date periodStart) {
+		this.periodStart = periodStart;
+	}
+
+	/**
+	 * @return pt logs logged in the bucket.
+	 */
+	public int getLogCount() {
+		return logCount;
+	}
+
+	public void setLogCount(int logCount) {
+		this.logCount = logCount;
+	}
+
+	/**
+	 * @return days of the bucket with at least one pt log.
+	 */
+	public int getActiveDays() {
+		return activeDays;
+	}
+
+	public void setActiveDays(int activeDays) {
+		this.activeDays = activeDays;
+	}
+
+	/**
+	 * @return consecutive days with at least one pt log, ending on the requested date.
+	 */
+	public int getCurrentStreak() {
+		return currentStreak;
+	}
+
+	public void setCurrentStreak(int currentStreak) {
+		this.currentStreak = currentStreak;
+	}
+
+	/**
+	 * @return most consecutive days with at least one pt log ever.
+	 */
+	public int getLongestStreak() {
+		return longestStreak;
+	}
+
+	public void setLongestStreak(int longestStreak) {
+		this.longestStreak = longestStreak;
+	}
+
+	public long getTotalLogCount() {
+		return totalLogCount;
+	}
+
+	public void setTotalLogCount(long totalLogCount) {
+		this.totalLogCount = totalLogCount;
+	}
+
+	public int getTotalActiveDays() {
+		return totalActiveDays;
+	}
+
+	public void setTotalActiveDays(int totalActiveDays) {
+		this.totalActiveDays = totalActiveDays;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("ActivitySummary{")
+				.append("id=").append(id)
+				.append(", period=").append(period)
+				.append(", periodStart=").append(periodStart)
+				.append(", logCount=").append(logCount)
+				.append(", activeDays=").append(activeDays)
+				.append(", currentStreak=").append(currentStreak)
+				.append(", longestStreak=").append(longestStreak)
+				.append(", totalLogCount=").append(totalLogCount)
+				.append(", totalActiveDays=").append(totalActiveDays)
+				.append('}')
+				.toString();
+	}
+}
@@ -0,0 +1,138 @@
+package com.siddhartha.practice.Models;
+
+import java.sql.Date;
+
+/**
+ * Stores a change published by the change feed: the pt log added, the employee and range of date whose logs were
+ * deleted, the date all logs before were dropped, the employee promoted, or the employee and manager of an assignment.
+ * Fields not describing the kind of change are left null.
+ *
+ * @author sid
+ */
+public class ChangeEvent {
+	private long sequence;
+	private ChangeEventType type;
+	private long createdAt;
+	private PTLog ptLog;
+	private Integer employeeId;
+	private Integer managerId;
+	private Date startDate;
+	private Date endDate;
+
+	public ChangeEvent() {
+	}
+
+	public ChangeEvent(long sequence, ChangeEventType type, long createdAt, PTLog ptLog, Integer employeeId,
+			Integer managerId, Date startDate, Date endDate) {
+		this.sequence = sequence;
+		this.type = type;
+		this.createdAt = createdAt;
+		this.ptLog = ptLog;
+		this.employeeId = employeeId;
+		this.managerId = managerId;
+		this.startDate = startDate;
+		this.endDate = endDate;
+	}
+
+	/**
+	 * @return number of the event in the feed, increasing by one with every event published.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	public void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+
+	public ChangeEventType getType() {
+		return type;
+	}
+
+	public void setType(ChangeEventType type) {
+		this.type = type;
+	}
+
+	/**
+	 * @return time in milliseconds the change was published.
+	 */
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(long createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	/**
+	 * @return pt log added, for PTLogAdded events.
+	 */
+	public PTLog getPTLog() {
+		return ptLog;
+	}
+
+	public void setPTLog(PTLog ptLog) {
+		this.ptLog = ptLog;
+	}
+
+	/**
+	 * @return employee whose logs were added or deleted, promoted or assigned. Null for PTLogsDroppedBefore events.
+	 */
+	public Integer getEmployeeId() {
+		return employeeId;
+	}
+
+	public void setEmployeeId(Integer employeeId) {
+		this.employeeId = employeeId;
+	}
+
+	/**
+	 * @return manager the employee was assigned to, for EmployeeAssigned events.
+	 */
+	public Integer getManagerId() {
+		return managerId;
+	}
+
+	public void setManagerId(Integer managerId) {
+		this.managerId = managerId;
+	}
+
+	/**
+	 * @return start point of the range of date deleted, for PTLogsDeleted events.
+	 */
+	public Date getStartDate() {
+		return startDate;
+	}
+
+	public void setStartDate(Date startDate) {
+		this.startDate = startDate;
+	}
+
+	/**
+	 * @return end point of the range of date deleted for PTLogsDeleted events, first logged date kept for
+	 * PTLogsDroppedBefore events.
+	 */
+	public Date getEndDate() {
+		return endDate;
+	}
+
+	public void setEndDate(Date endDate) {
+		this.endDate = endDate;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("ChangeEvent{")
+				.append("sequence=").append(sequence)
+				.append(", type=").append(type)
+				.append(", createdAt=").append(createdAt)
+				.append(", ptLog=").append(ptLog)
+				.append(", employeeId=").append(employeeId)
+				.append(", managerId=").append(managerId)
+				.append(", startDate=").append(startDate)
+				.append(", endDate=").append(endDate)
+				.append('}')
+				.toString();
+	}
+}
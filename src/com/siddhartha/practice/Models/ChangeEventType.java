@@ -0,0 +1,14 @@
+package com.siddhartha.practice.Models;
+
+/**
+ * Kinds of change published by the change feed of PTLogService.
+ *
+ * @author sid
+ */
+public enum ChangeEventType {
+	PTLogAdded,
+	PTLogsDeleted,
+	PTLogsDroppedBefore,
+	EmployeePromoted,
+	EmployeeAssigned
+}
@@ -0,0 +1,35 @@
+package com.siddhartha.practice.Models;
+
+/**
+ * Formats pt logs are exported to. Ndjson holds one JSON object per line, NdjsonGzip the same compressed with gzip, and
+ * Columnar the compact binary blocks of PTLogColumnarFile.
+ *
+ * @author sid
+ */
+public enum ExportFormat {
+	Ndjson,
+	NdjsonGzip,
+	Columnar;
+
+	/**
+	 * Picks the format of a file from its extension, .ndjson or .jsonl for Ndjson, the same followed by .gz for
+	 * NdjsonGzip and .ptlc for Columnar.
+	 *
+	 * @param fileName
+	 * 		name of the file.
+	 * @return format of the file, null if the extension is not known.
+	 */
+	public static ExportFormat fromFileName(String fileName) {
+		String lowerCaseName = fileName.toLowerCase();
+		if (lowerCaseName.endsWith(".ndjson.gz") || lowerCaseName.endsWith(".jsonl.gz")) {
+			return NdjsonGzip;
+		}
+		if (lowerCaseName.endsWith(".ndjson") || lowerCaseName.endsWith(".jsonl")) {
+			return Ndjson;
+		}
+		if (lowerCaseName.endsWith(".ptlc")) {
+			return Columnar;
+		}
+		return null;
+	}
+}
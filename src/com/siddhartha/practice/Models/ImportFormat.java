@@ -0,0 +1,30 @@
+package com.siddhartha.practice.Models;
+
+/**
+ * Formats of the files bulk imported into the database. Csv files start with a header row naming their columns,
+ * Ndjson files hold one JSON object per line.
+ *
+ * @author sid
+ */
+public enum ImportFormat {
+	Csv,
+	Ndjson;
+
+	/**
+	 * Picks the format of a file from its extension, .csv for Csv and .ndjson, .jsonl or .json for Ndjson.
+	 *
+	 * @param fileName
+	 * 		name of the file.
+	 * @return format of the file, null if the extension is not known.
+	 */
+	public static ImportFormat fromFileName(String fileName) {
+		String lowerCaseName = fileName.toLowerCase();
+		if (lowerCaseName.endsWith(".csv")) {
+			return Csv;
+		}
+		if (lowerCaseName.endsWith(".ndjson") || lowerCaseName.endsWith(".jsonl") || lowerCaseName.endsWith(".json")) {
+			return Ndjson;
+		}
+		return null;
+	}
+}
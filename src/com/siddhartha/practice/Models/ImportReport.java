@@ -0,0 +1,123 @@
+package com.siddhartha.practice.Models;
+
+import java.util.ArrayList;
+
+/**
+ * Stores the progress of a bulk import, or its outcome once finished: rows read from the file, rows added to the
+ * database, rows rejected along with the reasons of the first rejections, and the failure stopping the import if any.
+ *
+ * @author sid
+ */
+public class ImportReport {
+	private long rowsRead;
+	private long rowsImported;
+	private long rowsRejected;
+	private ArrayList<String> rejections;
+	private long elapsedMillis;
+	private boolean finished;
+	private String failure;
+
+	public ImportReport() {
+	}
+
+	public ImportReport(long rowsRead, long rowsImported, long rowsRejected, ArrayList<String> rejections,
+			long elapsedMillis, boolean finished, String failure) {
+		this.rowsRead = rowsRead;
+		this.rowsImported = rowsImported;
+		this.rowsRejected = rowsRejected;
+		this.rejections = rejections;
+		this.elapsedMillis = elapsedMillis;
+		this.finished = finished;
+		this.failure = failure;
+	}
+
+	/**
+	 * @return number of rows read and parsed from the file, the header row of a csv file excluded.
+	 */
+	public long getRowsRead() {
+		return rowsRead;
+	}
+
+	public void setRowsRead(long rowsRead) {
+		this.rowsRead = rowsRead;
+	}
+
+	public long getRowsImported() {
+		return rowsImported;
+	}
+
+	public void setRowsImported(long rowsImported) {
+		this.rowsImported = rowsImported;
+	}
+
+	public long getRowsRejected() {
+		return rowsRejected;
+	}
+
+	public void setRowsRejected(long rowsRejected) {
+		this.rowsRejected = rowsRejected;
+	}
+
+	/**
+	 * @return line and reason of the first rejected rows, e.g. "line 12: invalid loggedDate '2020-13-01'".
+	 */
+	public ArrayList<String> getRejections() {
+		return rejections;
+	}
+
+	public void setRejections(ArrayList<String> rejections) {
+		this.rejections = rejections;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * @return rows added to the database per second since the import started.
+	 */
+	public long getRowsPerSecond() {
+		return elapsedMillis == 0 ? 0 : rowsImported * 1000 / elapsedMillis;
+	}
+
+	/**
+	 * @return whether the import is over, either with every row read or stopped by a failure.
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	public void setFinished(boolean finished) {
+		this.finished = finished;
+	}
+
+	/**
+	 * @return reason the import stopped before the end of the file, null if it did not.
+	 */
+	public String getFailure() {
+		return failure;
+	}
+
+	public void setFailure(String failure) {
+		this.failure = failure;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("ImportReport{")
+				.append("rowsRead=").append(rowsRead)
+				.append(", rowsImported=").append(rowsImported)
+				.append(", rowsRejected=").append(rowsRejected)
+				.append(", rejections=").append(rejections)
+				.append(", elapsedMillis=").append(elapsedMillis)
+				.append(", finished=").append(finished)
+				.append(", failure='").append(failure).append('\'')
+				.append('}')
+				.toString();
+	}
+}
@@ -0,0 +1,55 @@
+package com.siddhartha.practice.Models;
+
+import java.util.ArrayList;
+
+/**
+ * Stores one page of a listing along with the token to fetch the next page.
+ *
+ * @author sid
+ */
+public class Page<T> {
+	private ArrayList<T> items;
+	private String nextPageToken;
+
+	public Page() {
+	}
+
+	public Page(ArrayList<T> items, String nextPageToken) {
+		this.items = items;
+		this.nextPageToken = nextPageToken;
+	}
+
+	public ArrayList<T> getItems() {
+		return items;
+	}
+
+	public void setItems(ArrayList<T> items) {
+		this.items = items;
+	}
+
+	/**
+	 * @return opaque token to pass to fetch the next page, null if this is the last page.
+	 */
+	public String getNextPageToken() {
+		return nextPageToken;
+	}
+
+	public void setNextPageToken(String nextPageToken) {
+		this.nextPageToken = nextPageToken;
+	}
+
+	public boolean hasNextPage() {
+		return nextPageToken != null;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("Page{")
+				.append("items=").append(items)
+				.append(", nextPageToken=")
+				.append(nextPageToken)
+				.append('}')
+				.toString();
+	}
+}
@@ -0,0 +1,104 @@
+package com.siddhartha.practice.Models;
+
+/**
+ * Stores the plan the database chose for one query of the storage engine, as reported by EXPLAIN.
+ *
+ * @author sid
+ */
+public class QueryPlan {
+	private String operation;
+	private String table;
+	private String accessType;
+	private String key;
+	private long rows;
+	private boolean fullScan;
+
+	public QueryPlan() {
+	}
+
+	public QueryPlan(String operation, String table, String accessType, String key, long rows, boolean fullScan) {
+		this.operation = operation;
+		this.table = table;
+		this.accessType = accessType;
+		this.key = key;
+		this.rows = rows;
+		this.fullScan = fullScan;
+	}
+
+	/**
+	 * @return name of the storage engine operation running the query.
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+	public void setOperation(String operation) {
+		this.operation = operation;
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	public void setTable(String table) {
+		this.table = table;
+	}
+
+	/**
+	 * @return join type of the table in the plan, e.g. ref or range, ALL for a full table scan.
+	 */
+	public String getAccessType() {
+		return accessType;
+	}
+
+	public void setAccessType(String accessType) {
+		this.accessType = accessType;
+	}
+
+	/**
+	 * @return index used to read the table, null if none.
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	public void setKey(String key) {
+		this.key = key;
+	}
+
+	/**
+	 * @return number of rows the database estimates to examine.
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	public void setRows(long rows) {
+		this.rows = rows;
+	}
+
+	/**
+	 * @return whether the query reads the whole table or the whole of an index.
+	 */
+	public boolean isFullScan() {
+		return fullScan;
+	}
+
+	public void setFullScan(boolean fullScan) {
+		this.fullScan = fullScan;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("QueryPlan{")
+				.append("operation='").append(operation).append('\'')
+				.append(", table='").append(table).append('\'')
+				.append(", accessType='").append(accessType).append('\'')
+				.append(", key='").append(key).append('\'')
+				.append(", rows=").append(rows)
+				.append(", fullScan=").append(fullScan)
+				.append('}')
+				.toString();
+	}
+}
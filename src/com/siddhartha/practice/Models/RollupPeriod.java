@@ -0,0 +1,12 @@
+package com.siddhartha.practice.Models;
+
+/**
+ * Time buckets pt log activity is rolled up by. Weeks start on Monday and months on their first day.
+ *
+ * @author sid
+ */
+public enum RollupPeriod {
+	Day,
+	Week,
+	Month
+}
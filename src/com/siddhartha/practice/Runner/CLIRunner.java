@@ -1,14 +1,27 @@
 package com.siddhartha.practice.Runner;
 
+import com.siddhartha.practice.DAO.PTLogExporter;
+import com.siddhartha.practice.DAO.PTLogImporter;
 import com.siddhartha.practice.DAO.PTLogService;
+import com.siddhartha.practice.Helpers.RowFormatter;
 import com.siddhartha.practice.Helpers.ValidationHelper;
+import com.siddhartha.practice.Models.ActivitySummary;
 import com.siddhartha.practice.Models.Employee;
+import com.siddhartha.practice.Models.ExportFormat;
+import com.siddhartha.practice.Models.ImportFormat;
+import com.siddhartha.practice.Models.ImportReport;
 import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.Page;
+import com.siddhartha.practice.Models.RollupPeriod;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.Date;
 import java.util.ArrayList;
 import java.util.Scanner;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Interface to take input from user in CLI and PTLogService.
@@ -20,6 +33,7 @@ public final class CLIRunner implements CLIRunInterface {
 	private PTLogService ptLogService;
 	private final static int COMMAND_EXECUTION_RESULT_FAIL = 0;
 	private final static int COMMAND_EXECUTION_RESULT_SUCCESS = 1;
+	private final static int PAGE_SIZE = 20;
 
 	public CLIRunner() {
 		this.ptLogService = new PTLogService();
@@ -118,6 +132,31 @@ public final class CLIRunner implements CLIRunInterface {
 					}
 
 					case 11: {
+						commandExecutionResult = printStatsOption();
+						break;
+					}
+
+					case 12: {
+						commandExecutionResult = printActivityOption();
+						break;
+					}
+
+					case 13: {
+						commandExecutionResult = searchPTLogOption();
+						break;
+					}
+
+					case 14: {
+						commandExecutionResult = importOption();
+						break;
+					}
+
+					case 15: {
+						commandExecutionResult = exportOption();
+						break;
+					}
+
+					case 16: {
 						ptLogService.closeConnection();
 						exit = true;
 						commandExecutionResult = COMMAND_EXECUTION_RESULT_SUCCESS;
@@ -158,7 +197,12 @@ public final class CLIRunner implements CLIRunInterface {
 				"8.\tList all PTs of all the team members that fall under one manager in descending order of logging date\n" +
 				"9.\tList all PTs of all the team members that fall under one manager in a given date range in descending order of logging date\n" +
 				"10.\tDelete all PTs of an employee in a date range\n" +
-				"11.\tEXIT.\n" +
+				"11.\tShow operation stats\n" +
+				"12.\tShow PT activity of an employee or of the team under a manager\n" +
+				"13.\tSearch PTs by the words of their details\n" +
+				"14.\tImport employees or PTs from a CSV or NDJSON file\n" +
+				"15.\tExport PTs to an NDJSON, gzipped NDJSON or columnar file\n" +
+				"16.\tEXIT.\n" +
 				"Enter option:\t", false);
 		if (ValidationHelper.validateInt(optionString)) {
 			option = Integer.parseInt(optionString);
@@ -238,17 +282,9 @@ public final class CLIRunner implements CLIRunInterface {
 	 * @return status of option execution.
 	 */
 	private int listEmployeeOption() {
-		ArrayList<Employee> listEmployees = ptLogService.listEmployees();
-		if (listEmployees != null) {
-			System.out.printf("|%-20s |%-20s |%-20s|\n", "EMPLOYEE_ID", "Name", "DESIGNATION");
-			for (Employee e : listEmployees) {
-				System.out.printf("|%-20s |%-20s |%-20s|\n",
-						e.getId(),
-						e.getName(),
-						e.getDesignation());
-			}
-		}
-		return COMMAND_EXECUTION_RESULT_SUCCESS;
+		System.out.println(RowFormatter.EMPLOYEE_HEADER);
+		return printPages(pageToken -> ptLogService.listEmployeesPage(pageToken, PAGE_SIZE),
+				(Employee e) -> System.out.println(RowFormatter.formatEmployee(e)));
 	}
 
 	/**
@@ -263,17 +299,9 @@ public final class CLIRunner implements CLIRunInterface {
 			return COMMAND_EXECUTION_RESULT_FAIL;
 		}
 		int id = Integer.parseInt(idString);
-		ArrayList<PTLog> listPTLog = ptLogService.listPTLogOfEmployee(id);
-		if (listPTLog != null) {
-			System.out.printf("|%-20s |%-40s |%-20s|\n", "PTLOG_ID", "DETAILS", "LOGGED_DATE");
-			for (PTLog p : listPTLog) {
-				System.out.printf("|%-20s |%-40s |%-20s|\n",
-						p.getId(),
-						p.getDetails(),
-						p.getLoggedDate());
-			}
-		}
-		return COMMAND_EXECUTION_RESULT_SUCCESS;
+		System.out.println(RowFormatter.PTLOG_HEADER);
+		return printPages(pageToken -> ptLogService.listPTLogOfEmployeePage(id, pageToken, PAGE_SIZE),
+				(PTLog p) -> System.out.println(RowFormatter.formatPTLog(p)));
 	}
 
 	/**
@@ -294,17 +322,9 @@ public final class CLIRunner implements CLIRunInterface {
 		int id = Integer.parseInt(idString);
 		Date startDate = Date.valueOf(startDateString);
 		Date endDate = Date.valueOf(endDateString);
-		ArrayList<PTLog> listPTLog = ptLogService.listPTLogOfEmployeeInRange(id, startDate, endDate);
-		if (listPTLog != null) {
-			System.out.printf("|%-20s |%-40s |%-20s|\n", "PTLOG_ID", "DETAILS", "LOGGED_DATE");
-			for (PTLog p : listPTLog) {
-				System.out.printf("|%-20s |%-40s |%-20s|\n",
-						p.getId(),
-						p.getDetails(),
-						p.getLoggedDate());
-			}
-		}
-		return COMMAND_EXECUTION_RESULT_SUCCESS;
+		System.out.println(RowFormatter.PTLOG_HEADER);
+		return printPages(pageToken -> ptLogService.listPTLogOfEmployeeInRangePage(id, startDate, endDate, pageToken, PAGE_SIZE),
+				(PTLog p) -> System.out.println(RowFormatter.formatPTLog(p)));
 	}
 
 	/**
@@ -319,18 +339,9 @@ public final class CLIRunner implements CLIRunInterface {
 			return COMMAND_EXECUTION_RESULT_FAIL;
 		}
 		int id = Integer.parseInt(idString);
-		ArrayList<PTLog> listPTLog = ptLogService.listPTLogUnderManager(id);
-		if (listPTLog != null) {
-			System.out.printf("|%-20s |%-20s |%-40s |%-20s|\n", "EMPLOYEE_ID", "PTLOG_ID", "DETAILS", "LOGGED_DATE");
-			for (PTLog p : listPTLog) {
-				System.out.printf("|%-20s |%-20s |%-40s |%-20s|\n",
-						p.getEmployeeId(),
-						p.getId(),
-						p.getDetails(),
-						p.getLoggedDate());
-			}
-		}
-		return COMMAND_EXECUTION_RESULT_SUCCESS;
+		System.out.println(RowFormatter.TEAM_PTLOG_HEADER);
+		return printPages(pageToken -> ptLogService.listPTLogUnderManagerPage(id, pageToken, PAGE_SIZE),
+				(PTLog p) -> System.out.println(RowFormatter.formatTeamPTLog(p)));
 	}
 
 	/**
@@ -351,18 +362,9 @@ public final class CLIRunner implements CLIRunInterface {
 		int id = Integer.parseInt(idString);
 		Date startDate = Date.valueOf(startDateString);
 		Date endDate = Date.valueOf(endDateString);
-		ArrayList<PTLog> listPTLog = ptLogService.listPTLogUnderManagerInRange(id, startDate, endDate);
-		if (listPTLog != null) {
-			System.out.printf("|%-20s |%-20s |%-40s |%-20s|\n", "EMPLOYEE_ID", "PTLOG_ID", "DETAILS", "LOGGED_DATE");
-			for (PTLog p : listPTLog) {
-				System.out.printf("|%-20s |%-20s |%-40s |%-20s|\n",
-						p.getEmployeeId(),
-						p.getId(),
-						p.getDetails(),
-						p.getLoggedDate());
-			}
-		}
-		return COMMAND_EXECUTION_RESULT_SUCCESS;
+		System.out.println(RowFormatter.TEAM_PTLOG_HEADER);
+		return printPages(pageToken -> ptLogService.listPTLogUnderManagerInRangePage(id, startDate, endDate, pageToken, PAGE_SIZE),
+				(PTLog p) -> System.out.println(RowFormatter.formatTeamPTLog(p)));
 	}
 
 	/**
@@ -387,4 +389,162 @@ public final class CLIRunner implements CLIRunInterface {
 		return COMMAND_EXECUTION_RESULT_SUCCESS;
 	}
 
+	/**
+	 * Prints the stats page of PTLogService operations, refreshing it until the user stops.
+	 *
+	 * @return status of option execution.
+	 */
+	private int printStatsOption() {
+		String input = "";
+		do {
+			if (input.equalsIgnoreCase("p")) {
+				System.out.print(ptLogService.getPrometheusMetrics());
+			} else {
+				System.out.print(ptLogService.getStatsPage());
+			}
+			input = scanInput("Press \"ENTER\" to refresh, \"p\" for Prometheus format or \"q\" to stop: ", true);
+		} while (!input.equalsIgnoreCase("q"));
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Takes required input from user to fetch the PT activity of an employee, or of all the team members under a
+	 * manager, for the day, week or month holding a date.
+	 *
+	 * @return status of option execution.
+	 */
+	private int printActivityOption() {
+		String scope = scanInput("Enter \"e\" for an employee or \"m\" for a manager: ", false);
+		String idString = scanInput("Enter id: ", false);
+		String periodString = scanInput("Enter period [day, week or month]: ", false);
+		String dateString = scanInput("Enter date [FORMAT YYYY-MM-DD, ex- 2020-07-20]: ", false);
+		RollupPeriod period = null;
+		for (RollupPeriod rollupPeriod : RollupPeriod.values()) {
+			if (rollupPeriod.name().equalsIgnoreCase(periodString)) {
+				period = rollupPeriod;
+			}
+		}
+		if (!((scope.equalsIgnoreCase("e") || scope.equalsIgnoreCase("m")) && period != null &&
+				ValidationHelper.validateInt(idString) && ValidationHelper.validateDate(dateString))) {
+			System.out.println("Invalid input entered.");
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		int id = Integer.parseInt(idString);
+		Date date = Date.valueOf(dateString);
+		ActivitySummary activity = scope.equalsIgnoreCase("e")
+				? ptLogService.getActivityOfEmployee(id, period, date)
+				: ptLogService.getActivityUnderManager(id, period, date);
+		if (activity == null) {
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		System.out.println(RowFormatter.ACTIVITY_HEADER);
+		System.out.println(RowFormatter.formatActivity(activity));
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Takes required input from user to search the details of pt logs, of all employees, of an employee or of all the
+	 * team members under a manager, optionally in a date range. Prints the best matches first.
+	 *
+	 * @return status of option execution.
+	 */
+	private int searchPTLogOption() {
+		String text = scanInput("Enter words to search for: ", true);
+		String scope = scanInput("Enter \"a\" for all employees, \"e\" for an employee or \"m\" for a manager: ", false);
+		String idString = scope.equalsIgnoreCase("a") ? "0" : scanInput("Enter id: ", false);
+		String startDateString = scanInput("Enter start date or leave empty [FORMAT YYYY-MM-DD, ex- 2020-07-20]: ", true);
+		String endDateString = startDateString.isEmpty() ? "" :
+				scanInput("Enter end date [FORMAT YYYY-MM-DD, ex- 2020-07-20]: ", true);
+		if (text.isEmpty() || !(scope.equalsIgnoreCase("a") || scope.equalsIgnoreCase("e") ||
+				scope.equalsIgnoreCase("m")) || !ValidationHelper.validateInt(idString) ||
+				!(startDateString.isEmpty() || (ValidationHelper.validateDate(startDateString) &&
+						ValidationHelper.validateDate(endDateString)))) {
+			System.out.println("Invalid input entered.");
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		int id = Integer.parseInt(idString);
+		ArrayList<PTLog> ptLogs = ptLogService.searchPTLogs(text,
+				scope.equalsIgnoreCase("e") ? Integer.valueOf(id) : null,
+				scope.equalsIgnoreCase("m") ? Integer.valueOf(id) : null,
+				startDateString.isEmpty() ? null : Date.valueOf(startDateString),
+				startDateString.isEmpty() ? null : Date.valueOf(endDateString), PAGE_SIZE);
+		if (ptLogs == null) {
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		System.out.println(RowFormatter.TEAM_PTLOG_HEADER);
+		ptLogs.forEach(ptLog -> System.out.println(RowFormatter.formatTeamPTLog(ptLog)));
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
+	/**
+	 * Takes the kind of rows and the path of a CSV or NDJSON file from the user and bulk imports it, printing the
+	 * progress and the rejected rows.
+	 *
+	 * @return status of option execution.
+	 */
+	private int importOption() {
+		String kind = scanInput("Enter \"e\" for employees or \"p\" for PT logs: ", false);
+		String fileName = scanInput("Enter file path [.csv, .ndjson or .jsonl]: ", true);
+		ImportFormat format = ImportFormat.fromFileName(fileName);
+		if (!(kind.equalsIgnoreCase("e") || kind.equalsIgnoreCase("p")) || format == null ||
+				!Files.isReadable(Paths.get(fileName))) {
+			System.out.println("Invalid input entered.");
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		ImportReport report = ImportRunner.runImport(new PTLogImporter(ptLogService), kind.equalsIgnoreCase("e"),
+				Paths.get(fileName), format);
+		return report.getFailure() == null ? COMMAND_EXECUTION_RESULT_SUCCESS : COMMAND_EXECUTION_RESULT_FAIL;
+	}
+
+	/**
+	 * Takes required input from user to export the pt logs, of all employees, of an employee or of all the team
+	 * members under a manager, optionally in a date range, to a file whose extension picks the format.
+	 *
+	 * @return status of option execution.
+	 */
+	private int exportOption() {
+		String scope = scanInput("Enter \"a\" for all employees, \"e\" for an employee or \"m\" for a manager: ", false);
+		String idString = scope.equalsIgnoreCase("a") ? "0" : scanInput("Enter id: ", false);
+		String startDateString = scanInput("Enter start date or leave empty [FORMAT YYYY-MM-DD, ex- 2020-07-20]: ", true);
+		String endDateString = startDateString.isEmpty() ? "" :
+				scanInput("Enter end date [FORMAT YYYY-MM-DD, ex- 2020-07-20]: ", true);
+		String fileName = scanInput("Enter file path [.ndjson, .ndjson.gz or .ptlc]: ", true);
+		if (!(scope.equalsIgnoreCase("a") || scope.equalsIgnoreCase("e") || scope.equalsIgnoreCase("m")) ||
+				!ValidationHelper.validateInt(idString) || ExportFormat.fromFileName(fileName) == null ||
+				!(startDateString.isEmpty() || ValidationHelper.validateRange(startDateString, endDateString))) {
+			System.out.println("Invalid input entered.");
+			return COMMAND_EXECUTION_RESULT_FAIL;
+		}
+		int id = Integer.parseInt(idString);
+		boolean exported = ExportRunner.runExport(new PTLogExporter(ptLogService), Paths.get(fileName),
+				scope.equalsIgnoreCase("e") ? Integer.valueOf(id) : null,
+				scope.equalsIgnoreCase("m") ? Integer.valueOf(id) : null,
+				startDateString.isEmpty() ? null : Date.valueOf(startDateString),
+				startDateString.isEmpty() ? null : Date.valueOf(endDateString));
+		return exported ? COMMAND_EXECUTION_RESULT_SUCCESS : COMMAND_EXECUTION_RESULT_FAIL;
+	}
+
+	/**
+	 * Prints a listing page by page, letting the user choose whether to fetch the next page.
+	 *
+	 * @param pageFetcher
+	 * 		fetches the page of given page token, null token for the first page.
+	 * @param rowPrinter
+	 * 		prints a single row of a page.
+	 * @return status of option execution.
+	 */
+	private <T> int printPages(Function<String, Page<T>> pageFetcher, Consumer<T> rowPrinter) {
+		String pageToken = null;
+		do {
+			Page<T> page = pageFetcher.apply(pageToken);
+			if (page == null) {
+				return COMMAND_EXECUTION_RESULT_FAIL;
+			}
+			page.getItems().forEach(rowPrinter);
+			pageToken = page.getNextPageToken();
+		} while (pageToken != null &&
+				!scanInput("Press \"ENTER\" for next page or \"q\" to stop: ", true).equalsIgnoreCase("q"));
+		return COMMAND_EXECUTION_RESULT_SUCCESS;
+	}
+
 }
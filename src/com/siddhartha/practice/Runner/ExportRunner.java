@@ -0,0 +1,115 @@
+package com.siddhartha.practice.Runner;
+
+import com.siddhartha.practice.DAO.PTLogExporter;
+import com.siddhartha.practice.DAO.PTLogService;
+import com.siddhartha.practice.Helpers.ValidationHelper;
+import com.siddhartha.practice.Models.ExportFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+
+/**
+ * Exports pt logs to a file without the interactive menu. Arguments are the file, whose extension picks the format,
+ * optionally followed by employee=id or manager=id and by from=YYYY-MM-DD to=YYYY-MM-DD. The exit status is 1 when
+ * the logs could not be read or the file written.
+ *
+ * @author sid
+ */
+public final class ExportRunner implements CLIRunInterface {
+	private final String[] args;
+
+	public ExportRunner(String[] args) {
+		this.args = args;
+	}
+
+	@Override
+	public void run() {
+		String fileName = args.length > 0 ? args[0] : null;
+		String employeeIdString = null, managerIdString = null, startDateString = null, endDateString = null;
+		boolean valid = fileName != null && ExportFormat.fromFileName(fileName) != null;
+		for (int i = 1; i < args.length && valid; i++) {
+			if (args[i].startsWith("employee=")) {
+				employeeIdString = args[i].substring("employee=".length());
+			} else if (args[i].startsWith("manager=")) {
+				managerIdString = args[i].substring("manager=".length());
+			} else if (args[i].startsWith("from=")) {
+				startDateString = args[i].substring("from=".length());
+			} else if (args[i].startsWith("to=")) {
+				endDateString = args[i].substring("to=".length());
+			} else {
+				valid = false;
+			}
+		}
+		Integer employeeId = parseId(employeeIdString);
+		Integer managerId = parseId(managerIdString);
+		Date startDate = parseDate(startDateString);
+		Date endDate = parseDate(endDateString);
+		if (!valid || (employeeIdString != null && employeeId == null) || (managerIdString != null && managerId == null) ||
+				(employeeId != null && managerId != null) || (startDateString == null) != (endDateString == null) ||
+				(startDateString != null && (startDate == null || endDate == null))) {
+			System.out.println("Usage: --export <file.ndjson|file.ndjson.gz|file.ptlc> [employee=id|manager=id] " +
+					"[from=YYYY-MM-DD to=YYYY-MM-DD]");
+			System.exit(1);
+		}
+		PTLogService ptLogService = new PTLogService();
+		boolean exported;
+		try {
+			exported = runExport(new PTLogExporter(ptLogService), Paths.get(fileName), employeeId, managerId,
+					startDate, endDate);
+		} finally {
+			ptLogService.closeConnection();
+		}
+		if (!exported) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs an export and prints its outcome.
+	 *
+	 * @return whether the file was written.
+	 */
+	static boolean runExport(PTLogExporter exporter, Path file, Integer employeeId, Integer managerId,
+			Date startDate, Date endDate) {
+		long start = System.nanoTime();
+		long rowCount;
+		try {
+			rowCount = exporter.export(file, ExportFormat.fromFileName(file.toString()), employeeId, managerId,
+					startDate, endDate);
+			if (rowCount < 0) {
+				return false;
+			}
+			System.out.println("Exported " + rowCount + " pt logs to " + file + " (" + Files.size(file) + " bytes) in " +
+					(System.nanoTime() - start) / 1_000_000 + " ms.");
+			return true;
+		} catch (IOException ioException) {
+			System.out.println("Failed to export pt logs to " + file + ".\n" + ioException.toString());
+			return false;
+		}
+	}
+
+	private static Integer parseId(String idString) {
+		if (idString == null || !ValidationHelper.validateInt(idString)) {
+			return null;
+		}
+		try {
+			return Integer.parseInt(idString);
+		} catch (NumberFormatException numberFormatException) {
+			return null;
+		}
+	}
+
+	private static Date parseDate(String dateString) {
+		if (dateString == null || !ValidationHelper.validateDate(dateString)) {
+			return null;
+		}
+		try {
+			return Date.valueOf(dateString);
+		} catch (IllegalArgumentException illegalArgumentException) {
+			return null;
+		}
+	}
+}
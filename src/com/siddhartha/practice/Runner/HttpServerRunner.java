@@ -0,0 +1,598 @@
+package com.siddhartha.practice.Runner;
+
+import com.siddhartha.practice.DAO.PTLogService;
+import com.siddhartha.practice.Helpers.ExecutorFactory;
+import com.siddhartha.practice.Helpers.JsonParser;
+import com.siddhartha.practice.Helpers.JsonWriter;
+import com.siddhartha.practice.Models.ActivitySummary;
+import com.siddhartha.practice.Models.Employee;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.Page;
+import com.siddhartha.practice.Models.RollupPeriod;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import config.DatabaseConfig;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs PTLogService behind an embedded HTTP server with JSON requests and responses. Requests are served concurrently,
+ * each on its own virtual thread when the JVM has them, and full listings are streamed to the client row by row.
+ * <pre>
+ * POST   /employees                      {"name": "..."}
+ * GET    /employees                      [?pageSize=&amp;pageToken=]
+ * POST   /employees/{id}/promote
+ * PUT    /employees/{id}/manager         {"managerId": 1}
+ * GET    /employees/{id}/ptlogs          [?startDate=&amp;endDate=][&amp;pageSize=&amp;pageToken=]
+ * DELETE /employees/{id}/ptlogs          ?startDate=&amp;endDate=
+ * GET    /employees/{id}/activity        [?period=day|week|month][&amp;date=]
+ * GET    /managers/{id}/ptlogs           [?startDate=&amp;endDate=][&amp;pageSize=&amp;pageToken=]
+ * GET    /managers/{id}/activity         [?period=day|week|month][&amp;date=]
+ * POST   /ptlogs                         {"employeeId": 1, "details": "...", "loggedDate": "2020-07-20"} or an array
+ * DELETE /ptlogs                         ?before=, only when DatabaseConfig.httpRetentionEnabled is set
+ * GET    /ptlogs/search                  ?q=[&amp;employeeId=|&amp;managerId=][&amp;startDate=&amp;endDate=][&amp;limit=]
+ * GET    /ptlogs/bulk                    ?employeeIds=1,2|managerIds=1,2[&amp;startDate=&amp;endDate=]
+ * GET    /metrics                        Prometheus text format
+ * </pre>
+ * The server listens on DatabaseConfig.httpBindAddress, loopback by default.
+ *
+ * @author sid
+ */
+public final class HttpServerRunner implements CLIRunInterface {
+	private final static int COMMAND_EXECUTION_RESULT_FAIL = 0;
+	private static final int STATUS_OK = 200;
+	private static final int STATUS_BAD_REQUEST = 400;
+	private static final int STATUS_FORBIDDEN = 403;
+	private static final int STATUS_NOT_FOUND = 404;
+	private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+	private static final int STATUS_PAYLOAD_TOO_LARGE = 413;
+	private static final int STATUS_INTERNAL_ERROR = 500;
+	private static final int STREAM_CHUNKED = 0;
+	private static final int STOP_DELAY_SECONDS = 1;
+	private static final int MAX_SEARCH_LIMIT = 1000;
+
+	private final PTLogService ptLogService;
+	private final int port;
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	private HttpServer server;
+	private ExecutorService executor;
+
+	public HttpServerRunner() {
+		this(new PTLogService(), DatabaseConfig.httpPort);
+	}
+
+	/**
+	 * @param ptLogService
+	 * 		service running the requested operations.
+	 * @param port
+	 * 		port to listen on, 0 for any free port.
+	 */
+	public HttpServerRunner(PTLogService ptLogService, int port) {
+		this.ptLogService = ptLogService;
+		this.port = port;
+	}
+
+	/**
+	 * Starts the server and serves requests until the JVM shuts down.
+	 */
+	public void run() {
+		try {
+			start();
+		} catch (IOException ioException) {
+			System.out.println("Failed to start HTTP server on port " + port + ".");
+			throw new UncheckedIOException(ioException);
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "http-server-shutdown"));
+		System.out.println("Serving PT logs on http://" + DatabaseConfig.httpBindAddress + ":" + getPort() + "/");
+		try {
+			stopped.await();
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Starts the server without blocking.
+	 *
+	 * @throws IOException
+	 * 		if the port cannot be bound.
+	 */
+	public synchronized void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(DatabaseConfig.httpBindAddress, port),
+				DatabaseConfig.httpBacklog);
+		executor = ExecutorFactory.newVirtualThreadExecutor("http-server", DatabaseConfig.httpFallbackThreads);
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	/**
+	 * Stops the server, waiting a moment for running requests, and closes the PTLogService.
+	 */
+	public synchronized void stop() {
+		if (server == null) {
+			return;
+		}
+		server.stop(STOP_DELAY_SECONDS);
+		executor.shutdown();
+		server = null;
+		ptLogService.closeConnection();
+		stopped.countDown();
+	}
+
+	/**
+	 * @return port the server listens on.
+	 */
+	public synchronized int getPort() {
+		return server == null ? port : server.getAddress().getPort();
+	}
+
+	private void handle(HttpExchange exchange) {
+		try {
+			route(exchange);
+		} catch (IllegalArgumentException illegalArgumentException) {
+			sendError(exchange, STATUS_BAD_REQUEST, illegalArgumentException.getMessage());
+		} catch (ResponseAbortedException responseAbortedException) {
+			System.out.println("Aborted response to " + exchange.getRequestMethod() + " "
+					+ exchange.getRequestURI().getPath() + ": " + responseAbortedException.getMessage());
+			if (!responseAbortedException.isResponseComplete()) {
+				// leaving the exchange open makes the server drop the connection before the chunked body is terminated
+				throw responseAbortedException;
+			}
+		} catch (UncheckedIOException uncheckedIOException) {
+			// client went away while a listing was streamed
+		} catch (Exception exception) {
+			System.out.println("Failed to serve " + exchange.getRequestMethod() + " "
+					+ exchange.getRequestURI().getPath() + ".\n" + exception.toString());
+			sendError(exchange, STATUS_INTERNAL_ERROR, "Internal server error.");
+		}
+		exchange.close();
+	}
+
+	private void route(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+		Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+		if (path.length == 1 && path[0].equals("employees")) {
+			if (method.equals("POST")) {
+				Map<String, Object> body = readObject(exchange);
+				sendResult(exchange, ptLogService.addEmployee(getString(body, "name")));
+			} else if (method.equals("GET")) {
+				listEmployees(exchange, query);
+			} else {
+				sendError(exchange, STATUS_METHOD_NOT_ALLOWED, "Method not allowed.");
+			}
+		} else if (path.length == 3 && path[0].equals("employees") && path[2].equals("promote")) {
+			if (requireMethod(exchange, "POST")) {
+				sendResult(exchange, ptLogService.promoteToManager(parseId(path[1])));
+			}
+		} else if (path.length == 3 && path[0].equals("employees") && path[2].equals("manager")) {
+			if (requireMethod(exchange, "PUT")) {
+				Map<String, Object> body = readObject(exchange);
+				sendResult(exchange, ptLogService.assignEmployeeToManager(parseId(path[1]), getInt(body, "managerId")));
+			}
+		} else if (path.length == 3 && path[0].equals("employees") && path[2].equals("ptlogs")) {
+			int id = parseId(path[1]);
+			if (method.equals("GET")) {
+				listPTLogOfEmployee(exchange, id, query);
+			} else if (method.equals("DELETE")) {
+				sendResult(exchange, ptLogService.deletePTLogOfEmployeeInRange(id,
+						parseDate(query.get("startDate"), "startDate"),
+						parseDate(query.get("endDate"), "endDate")));
+			} else {
+				sendError(exchange, STATUS_METHOD_NOT_ALLOWED, "Method not allowed.");
+			}
+		} else if (path.length == 3 && path[0].equals("employees") && path[2].equals("activity")) {
+			if (requireMethod(exchange, "GET")) {
+				sendActivity(exchange, ptLogService.getActivityOfEmployee(parseId(path[1]), parsePeriod(query),
+						parseDateOrToday(query)));
+			}
+		} else if (path.length == 3 && path[0].equals("managers") && path[2].equals("activity")) {
+			if (requireMethod(exchange, "GET")) {
+				sendActivity(exchange, ptLogService.getActivityUnderManager(parseId(path[1]), parsePeriod(query),
+						parseDateOrToday(query)));
+			}
+		} else if (path.length == 3 && path[0].equals("managers") && path[2].equals("ptlogs")) {
+			if (requireMethod(exchange, "GET")) {
+				listPTLogUnderManager(exchange, parseId(path[1]), query);
+			}
+		} else if (path.length == 1 && path[0].equals("ptlogs")) {
+			if (method.equals("POST")) {
+				addPTLogs(exchange);
+			} else if (method.equals("DELETE")) {
+				if (!DatabaseConfig.httpRetentionEnabled) {
+					sendError(exchange, STATUS_FORBIDDEN, "Dropping pt logs is not enabled.");
+					return;
+				}
+				sendResult(exchange, ptLogService.dropPTLogsBefore(parseDate(query.get("before"), "before")));
+			} else {
+				sendError(exchange, STATUS_METHOD_NOT_ALLOWED, "Method not allowed.");
+			}
+		} else if (path.length == 2 && path[0].equals("ptlogs") && path[1].equals("search")) {
+			if (requireMethod(exchange, "GET")) {
+				searchPTLogs(exchange, query);
+			}
+		} else if (path.length == 2 && path[0].equals("ptlogs") && path[1].equals("bulk")) {
+			if (requireMethod(exchange, "GET")) {
+				listPTLogsInBulk(exchange, query);
+			}
+		} else if (path.length == 1 && path[0].equals("metrics")) {
+			if (requireMethod(exchange, "GET")) {
+				byte[] metrics = ptLogService.getPrometheusMetrics().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+				exchange.sendResponseHeaders(STATUS_OK, metrics.length);
+				exchange.getResponseBody().write(metrics);
+			}
+		} else {
+			sendError(exchange, STATUS_NOT_FOUND, "Not found.");
+		}
+	}
+
+	private void listEmployees(HttpExchange exchange, Map<String, String> query) throws IOException {
+		if (query.containsKey("pageSize")) {
+			sendPage(exchange, ptLogService.listEmployeesPage(query.get("pageToken"), parsePageSize(query)),
+					JsonWriter::employee);
+			return;
+		}
+		ArrayList<Employee> employees = ptLogService.listEmployees();
+		JsonWriter writer = startJson(exchange, STATUS_OK);
+		writer.beginArray();
+		for (Employee employee : employees) {
+			writer.employee(employee);
+		}
+		writer.endArray().flush();
+	}
+
+	private void listPTLogOfEmployee(HttpExchange exchange, int id, Map<String, String> query) throws IOException {
+		boolean inRange = query.containsKey("startDate") || query.containsKey("endDate");
+		Date startDate = inRange ? parseDate(query.get("startDate"), "startDate") : null;
+		Date endDate = inRange ? parseDate(query.get("endDate"), "endDate") : null;
+		if (query.containsKey("pageSize")) {
+			int pageSize = parsePageSize(query);
+			String pageToken = query.get("pageToken");
+			sendPage(exchange, inRange
+					? ptLogService.listPTLogOfEmployeeInRangePage(id, startDate, endDate, pageToken, pageSize)
+					: ptLogService.listPTLogOfEmployeePage(id, pageToken, pageSize), JsonWriter::ptLog);
+		} else {
+			streamPTLogs(exchange, consumer -> inRange
+					? ptLogService.forEachPTLogOfEmployeeInRange(id, startDate, endDate, consumer)
+					: ptLogService.forEachPTLogOfEmployee(id, consumer));
+		}
+	}
+
+	private void listPTLogUnderManager(HttpExchange exchange, int id, Map<String, String> query) throws IOException {
+		boolean inRange = query.containsKey("startDate") || query.containsKey("endDate");
+		Date startDate = inRange ? parseDate(query.get("startDate"), "startDate") : null;
+		Date endDate = inRange ? parseDate(query.get("endDate"), "endDate") : null;
+		if (query.containsKey("pageSize")) {
+			int pageSize = parsePageSize(query);
+			String pageToken = query.get("pageToken");
+			sendPage(exchange, inRange
+					? ptLogService.listPTLogUnderManagerInRangePage(id, startDate, endDate, pageToken, pageSize)
+					: ptLogService.listPTLogUnderManagerPage(id, pageToken, pageSize), JsonWriter::ptLog);
+		} else {
+			streamPTLogs(exchange, consumer -> inRange
+					? ptLogService.forEachPTLogUnderManagerInRange(id, startDate, endDate, consumer)
+					: ptLogService.forEachPTLogUnderManager(id, consumer));
+		}
+	}
+
+	private void searchPTLogs(HttpExchange exchange, Map<String, String> query) throws IOException {
+		String text = query.get("q");
+		if (text == null || text.isBlank()) {
+			throw new IllegalArgumentException("Missing q");
+		}
+		boolean inRange = query.containsKey("startDate") || query.containsKey("endDate");
+		int limit = query.containsKey("limit") ? parseId(query.get("limit")) : DatabaseConfig.searchResultLimit;
+		if (limit <= 0 || limit > MAX_SEARCH_LIMIT) {
+			throw new IllegalArgumentException("limit must be between 1 and " + MAX_SEARCH_LIMIT);
+		}
+		ArrayList<PTLog> ptLogs = ptLogService.searchPTLogs(text,
+				query.containsKey("employeeId") ? parseId(query.get("employeeId")) : null,
+				query.containsKey("managerId") ? parseId(query.get("managerId")) : null,
+				inRange ? parseDate(query.get("startDate"), "startDate") : null,
+				inRange ? parseDate(query.get("endDate"), "endDate") : null, limit);
+		if (ptLogs == null) {
+			sendError(exchange, STATUS_BAD_REQUEST, "Command execution failed.");
+			return;
+		}
+		JsonWriter writer = startJson(exchange, STATUS_OK);
+		writer.beginArray();
+		for (PTLog ptLog : ptLogs) {
+			writer.ptLog(ptLog);
+		}
+		writer.endArray().flush();
+	}
+
+	/**
+	 * Sends the logs of many employees, or of the teams of many managers, as an object keyed by id.
+	 */
+	private void listPTLogsInBulk(HttpExchange exchange, Map<String, String> query) throws IOException {
+		boolean managers = query.containsKey("managerIds");
+		String ids = managers ? query.get("managerIds") : query.get("employeeIds");
+		if (ids == null || ids.isBlank()) {
+			throw new IllegalArgumentException("Missing employeeIds or managerIds");
+		}
+		ArrayList<Integer> idList = new ArrayList<>();
+		for (String id : ids.split(",")) {
+			idList.add(parseId(id.trim()));
+		}
+		boolean inRange = query.containsKey("startDate") || query.containsKey("endDate");
+		Date startDate = inRange ? parseDate(query.get("startDate"), "startDate") : null;
+		Date endDate = inRange ? parseDate(query.get("endDate"), "endDate") : null;
+		LinkedHashMap<Integer, ArrayList<PTLog>> ptLogsById = managers
+				? ptLogService.listPTLogUnderManagersInRange(idList, startDate, endDate)
+				: ptLogService.listPTLogOfEmployeesInRange(idList, startDate, endDate);
+		if (ptLogsById == null) {
+			sendError(exchange, STATUS_INTERNAL_ERROR, "Command execution failed.");
+			return;
+		}
+		JsonWriter writer = startJson(exchange, STATUS_OK);
+		writer.beginObject();
+		for (Map.Entry<Integer, ArrayList<PTLog>> entry : ptLogsById.entrySet()) {
+			writer.name(String.valueOf(entry.getKey())).beginArray();
+			for (PTLog ptLog : entry.getValue()) {
+				writer.ptLog(ptLog);
+			}
+			writer.endArray();
+		}
+		writer.endObject().flush();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void addPTLogs(HttpExchange exchange) throws IOException {
+		Object body = JsonParser.parse(readBody(exchange));
+		if (body instanceof Map) {
+			Map<String, Object> ptLog = (Map<String, Object>) body;
+			sendResult(exchange, ptLogService.addPTLogEmployee(getInt(ptLog, "employeeId"), getString(ptLog, "details"),
+					parseDate(getString(ptLog, "loggedDate"), "loggedDate")));
+			return;
+		}
+		if (!(body instanceof List)) {
+			throw new IllegalArgumentException("Expected a pt log object or an array of pt log objects");
+		}
+		ArrayList<PTLog> ptLogs = new ArrayList<>();
+		for (Object element : (List<Object>) body) {
+			if (!(element instanceof Map)) {
+				throw new IllegalArgumentException("Expected an array of pt log objects");
+			}
+			Map<String, Object> ptLog = (Map<String, Object>) element;
+			ptLogs.add(new PTLog(0, getInt(ptLog, "employeeId"), getString(ptLog, "details"),
+					parseDate(getString(ptLog, "loggedDate"), "loggedDate")));
+		}
+		int[] results = ptLogService.addPTLogsBatch(ptLogs);
+		if (results == null) {
+			sendError(exchange, STATUS_INTERNAL_ERROR, "Command execution failed.");
+			return;
+		}
+		JsonWriter writer = startJson(exchange, STATUS_OK);
+		writer.beginArray();
+		for (int i = 0; i < results.length; i++) {
+			writer.beginObject()
+					.name("result").value(results[i] == COMMAND_EXECUTION_RESULT_FAIL ? "fail" : "success")
+					.name("id").value(ptLogs.get(i).getId())
+					.endObject();
+		}
+		writer.endArray().flush();
+	}
+
+	/**
+	 * Streams pt logs as a JSON array while the listing reads them. The response starts with the first row, so a
+	 * listing failing before any row is still answered with an error status.
+	 */
+	private void streamPTLogs(HttpExchange exchange, ToIntFunction<Consumer<PTLog>> listing) throws IOException {
+		JsonWriter[] writer = {null};
+		int result = listing.applyAsInt(ptLog -> {
+			try {
+				if (writer[0] == null) {
+					writer[0] = startJson(exchange, STATUS_OK);
+					writer[0].beginArray();
+				}
+				writer[0].ptLog(ptLog);
+			} catch (IOException ioException) {
+				throw new UncheckedIOException(ioException);
+			}
+		});
+		if (result == COMMAND_EXECUTION_RESULT_FAIL) {
+			if (writer[0] == null) {
+				sendError(exchange, STATUS_BAD_REQUEST, "Command execution failed.");
+				return;
+			}
+			writer[0].flush();
+			throw new ResponseAbortedException("listing failed after the response started", false);
+		}
+		if (writer[0] == null) {
+			writer[0] = startJson(exchange, STATUS_OK);
+			writer[0].beginArray();
+		}
+		writer[0].endArray().flush();
+	}
+
+	private <T> void sendPage(HttpExchange exchange, Page<T> page, RowWriter<T> rowWriter) throws IOException {
+		if (page == null) {
+			sendError(exchange, STATUS_BAD_REQUEST, "Command execution failed.");
+			return;
+		}
+		JsonWriter writer = startJson(exchange, STATUS_OK);
+		writer.beginObject().name("items").beginArray();
+		for (T item : page.getItems()) {
+			rowWriter.write(writer, item);
+		}
+		writer.endArray().name("nextPageToken").value(page.getNextPageToken()).endObject().flush();
+	}
+
+	private void sendActivity(HttpExchange exchange, ActivitySummary activity) throws IOException {
+		if (activity == null) {
+			sendError(exchange, STATUS_BAD_REQUEST, "Command execution failed.");
+			return;
+		}
+		startJson(exchange, STATUS_OK).activity(activity).flush();
+	}
+
+	private void sendResult(HttpExchange exchange, int result) throws IOException {
+		if (result == COMMAND_EXECUTION_RESULT_FAIL) {
+			sendError(exchange, STATUS_BAD_REQUEST, "Command execution failed.");
+			return;
+		}
+		startJson(exchange, STATUS_OK).beginObject().name("result").value("success").endObject().flush();
+	}
+
+	private void sendError(HttpExchange exchange, int status, String message) {
+		try {
+			startJson(exchange, status).beginObject().name("error").value(message).endObject().flush();
+		} catch (IOException ioException) {
+			// client went away, nothing left to answer
+		}
+	}
+
+	private JsonWriter startJson(HttpExchange exchange, int status) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, STREAM_CHUNKED);
+		return new JsonWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+				StandardCharsets.UTF_8)));
+	}
+
+	private boolean requireMethod(HttpExchange exchange, String method) {
+		if (exchange.getRequestMethod().equals(method)) {
+			return true;
+		}
+		sendError(exchange, STATUS_METHOD_NOT_ALLOWED, "Method not allowed.");
+		return false;
+	}
+
+	private Map<String, Object> readObject(HttpExchange exchange) throws IOException {
+		return JsonParser.parseObject(readBody(exchange));
+	}
+
+	private String readBody(HttpExchange exchange) throws IOException {
+		try (InputStream body = exchange.getRequestBody()) {
+			byte[] bytes = body.readNBytes(DatabaseConfig.httpMaxBodyBytes + 1);
+			if (bytes.length > DatabaseConfig.httpMaxBodyBytes) {
+				sendError(exchange, STATUS_PAYLOAD_TOO_LARGE, "Request body too large.");
+				throw new ResponseAbortedException("request body too large", true);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> query = new HashMap<>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return query;
+		}
+		for (String parameter : rawQuery.split("&")) {
+			int separator = parameter.indexOf('=');
+			String name = separator < 0 ? parameter : parameter.substring(0, separator);
+			String value = separator < 0 ? "" : parameter.substring(separator + 1);
+			query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return query;
+	}
+
+	private static int parseId(String id) {
+		try {
+			return Integer.parseInt(id);
+		} catch (NumberFormatException numberFormatException) {
+			throw new IllegalArgumentException("Invalid id " + id);
+		}
+	}
+
+	private static int parsePageSize(Map<String, String> query) {
+		int pageSize = parseId(query.get("pageSize"));
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("pageSize must be positive");
+		}
+		return pageSize;
+	}
+
+	private static Date parseDate(String date, String name) {
+		if (date == null) {
+			throw new IllegalArgumentException("Missing " + name);
+		}
+		try {
+			return Date.valueOf(date);
+		} catch (IllegalArgumentException illegalArgumentException) {
+			throw new IllegalArgumentException("Invalid " + name + " [FORMAT YYYY-MM-DD]");
+		}
+	}
+
+	private static RollupPeriod parsePeriod(Map<String, String> query) {
+		String period = query.getOrDefault("period", "day");
+		for (RollupPeriod rollupPeriod : RollupPeriod.values()) {
+			if (rollupPeriod.name().equalsIgnoreCase(period)) {
+				return rollupPeriod;
+			}
+		}
+		throw new IllegalArgumentException("Invalid period " + period + ", expected day, week or month");
+	}
+
+	private static Date parseDateOrToday(Map<String, String> query) {
+		return query.containsKey("date") ? parseDate(query.get("date"), "date") : Date.valueOf(LocalDate.now());
+	}
+
+	private static String getString(Map<String, Object> object, String name) {
+		Object value = object.get(name);
+		if (!(value instanceof String)) {
+			throw new IllegalArgumentException("Missing string " + name);
+		}
+		return (String) value;
+	}
+
+	private static int getInt(Map<String, Object> object, String name) {
+		Object value = object.get(name);
+		if (!(value instanceof Long) || (Long) value != ((Long) value).intValue()) {
+			throw new IllegalArgumentException("Missing integer " + name);
+		}
+		return ((Long) value).intValue();
+	}
+
+	/**
+	 * Thrown to stop handling a request once its response was sent, or once it has started and can no longer be
+	 * completed, so the client gets a body cut short instead of a complete one missing rows.
+	 */
+	private static final class ResponseAbortedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private final boolean responseComplete;
+
+		private ResponseAbortedException(String message, boolean responseComplete) {
+			super(message);
+			this.responseComplete = responseComplete;
+		}
+
+		/**
+		 * @return true if a whole response was sent and the exchange can be closed, false if the body was cut short
+		 * and the connection must be dropped.
+		 */
+		private boolean isResponseComplete() {
+			return responseComplete;
+		}
+	}
+
+	/**
+	 * Writes a single item of a page.
+	 */
+	@FunctionalInterface
+	private interface RowWriter<T> {
+		void write(JsonWriter writer, T item) throws IOException;
+	}
+}
@@ -0,0 +1,81 @@
+package com.siddhartha.practice.Runner;
+
+import com.siddhartha.practice.DAO.PTLogImporter;
+import com.siddhartha.practice.DAO.PTLogService;
+import com.siddhartha.practice.Models.ImportFormat;
+import com.siddhartha.practice.Models.ImportReport;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Bulk imports employees or pt logs from a csv or ndjson file without the interactive menu, printing the progress while
+ * it runs and the rejected rows once done. The exit status is 1 when the import stopped before the end of the file or
+ * could not start, rejected rows alone do not fail it.
+ *
+ * @author sid
+ */
+public final class ImportRunner implements CLIRunInterface {
+	private final String kind;
+	private final String fileName;
+
+	/**
+	 * @param kind
+	 * 		"employees" or "ptlogs".
+	 * @param fileName
+	 * 		path of the file to import, its format is picked from its extension.
+	 */
+	public ImportRunner(String kind, String fileName) {
+		this.kind = kind;
+		this.fileName = fileName;
+	}
+
+	@Override
+	public void run() {
+		Path file = fileName == null ? null : Paths.get(fileName);
+		ImportFormat format = fileName == null ? null : ImportFormat.fromFileName(fileName);
+		if (!("employees".equals(kind) || "ptlogs".equals(kind)) || file == null || format == null ||
+				!Files.isReadable(file)) {
+			System.out.println("Usage: --import employees|ptlogs <file.csv|file.ndjson>");
+			System.exit(1);
+		}
+		PTLogService ptLogService = new PTLogService();
+		ImportReport report;
+		try {
+			report = runImport(new PTLogImporter(ptLogService), kind.equals("employees"), file, format);
+		} finally {
+			ptLogService.closeConnection();
+		}
+		if (report.getFailure() != null) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs an import, printing its progress and then its outcome.
+	 *
+	 * @return outcome of the import.
+	 */
+	static ImportReport runImport(PTLogImporter importer, boolean employees, Path file, ImportFormat format) {
+		ImportReport report = employees
+				? importer.importEmployees(file, format, ImportRunner::printProgress)
+				: importer.importPTLogs(file, format, ImportRunner::printProgress);
+		printProgress(report);
+		report.getRejections().forEach(System.out::println);
+		if (report.getRowsRejected() > report.getRejections().size()) {
+			System.out.println("... and " + (report.getRowsRejected() - report.getRejections().size()) +
+					" more rejected rows.");
+		}
+		if (report.getFailure() != null) {
+			System.out.println("Import stopped: " + report.getFailure());
+		}
+		return report;
+	}
+
+	private static void printProgress(ImportReport report) {
+		System.out.println((report.isFinished() ? "Done: " : "Importing: ") + report.getRowsRead() + " rows read, " +
+				report.getRowsImported() + " imported, " + report.getRowsRejected() + " rejected, " +
+				report.getRowsPerSecond() + " rows/s, " + report.getElapsedMillis() / 1000 + " s.");
+	}
+}
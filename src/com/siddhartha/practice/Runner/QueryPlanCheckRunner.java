@@ -0,0 +1,48 @@
+package com.siddhartha.practice.Runner;
+
+import com.siddhartha.practice.DAO.PTLogService;
+import com.siddhartha.practice.Helpers.RowFormatter;
+import com.siddhartha.practice.Models.QueryPlan;
+
+import java.util.ArrayList;
+
+/**
+ * Prints the plan the database chose for every query of the storage engine and flags the ones falling back to a full
+ * scan. Starting the service brings the schema to the latest migration first, so the plans are the ones of the
+ * current indexes. The exit status is 1 when a query falls back to a full scan or the plans could not be fetched.
+ *
+ * @author sid
+ */
+public final class QueryPlanCheckRunner implements CLIRunInterface {
+	private final PTLogService ptLogService;
+
+	public QueryPlanCheckRunner() {
+		this.ptLogService = new PTLogService();
+	}
+
+	@Override
+	public void run() {
+		ArrayList<QueryPlan> queryPlans;
+		try {
+			queryPlans = ptLogService.explainQueries();
+		} finally {
+			ptLogService.closeConnection();
+		}
+		if (queryPlans == null) {
+			System.out.println("Query plans are only available for the jdbc storage engine with a reachable database.");
+			System.exit(1);
+		}
+		int fullScanCount = 0;
+		System.out.println(RowFormatter.QUERY_PLAN_HEADER);
+		for (QueryPlan queryPlan : queryPlans) {
+			System.out.println(RowFormatter.formatQueryPlan(queryPlan));
+			if (queryPlan.isFullScan()) {
+				fullScanCount++;
+			}
+		}
+		System.out.println(fullScanCount + " of " + queryPlans.size() + " table reads fall back to a full scan.");
+		if (fullScanCount > 0) {
+			System.exit(1);
+		}
+	}
+}
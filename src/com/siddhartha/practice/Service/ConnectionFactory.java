@@ -0,0 +1,14 @@
+package com.siddhartha.practice.Service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Creates new physical connections for the ConnectionPool.
+ *
+ * @author sid
+ */
+@FunctionalInterface
+public interface ConnectionFactory {
+	Connection create() throws SQLException;
+}
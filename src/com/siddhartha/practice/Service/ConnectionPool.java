@@ -0,0 +1,316 @@
+package com.siddhartha.practice.Service;
+
+import com.siddhartha.practice.Helpers.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, thread safe pool of database connections. Connections are validated when borrowed, closed when they stay
+ * idle longer than the idle timeout (while keeping the minimum size) and callers wait at most the acquire timeout for a
+ * free connection.
+ *
+ * @author sid
+ */
+public final class ConnectionPool {
+	private final ConnectionFactory connectionFactory;
+	private final int minSize;
+	private final int maxSize;
+	private final long idleTimeoutMillis;
+	private final long acquireTimeoutMillis;
+	private final int validationTimeoutSeconds;
+	private final int statementCacheSize;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+	private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+	private int totalConnections = 0;
+	private int waiters = 0;
+	private boolean closed = false;
+
+	private final LongAdder borrowCount = new LongAdder();
+	private final LongAdder timeoutCount = new LongAdder();
+	private final LongAdder statementCacheHits = new LongAdder();
+	private final LongAdder statementCacheMisses = new LongAdder();
+	private final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+	private final ScheduledExecutorService evictor;
+
+	/**
+	 * Creates the pool and opens the minimum number of connections.
+	 *
+	 * @param connectionFactory
+	 * 		factory used to open physical connections.
+	 * @param minSize
+	 * 		number of connections kept open even when idle.
+	 * @param maxSize
+	 * 		maximum number of connections open at the same time.
+	 * @param idleTimeoutMillis
+	 * 		time after which an idle connection above the minimum size is closed.
+	 * @param acquireTimeoutMillis
+	 * 		maximum time a caller waits for a free connection.
+	 * @param validationTimeoutSeconds
+	 * 		timeout used to check a connection is alive before handing it out.
+	 * @param statementCacheSize
+	 * 		maximum number of prepared statements cached per connection.
+	 * @throws SQLException
+	 * 		if the minimum number of connections cannot be opened.
+	 */
+	public ConnectionPool(ConnectionFactory connectionFactory, int minSize, int maxSize, long idleTimeoutMillis,
+			long acquireTimeoutMillis, int validationTimeoutSeconds, int statementCacheSize) throws SQLException {
+		if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+			throw new IllegalArgumentException("Invalid pool size min=" + minSize + " max=" + maxSize);
+		}
+		this.connectionFactory = connectionFactory;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+		this.validationTimeoutSeconds = validationTimeoutSeconds;
+		this.statementCacheSize = statementCacheSize;
+
+		try {
+			for (int i = 0; i < minSize; i++) {
+				idle.addFirst(newPooledConnection());
+				totalConnections++;
+			}
+		} catch (SQLException sqlException) {
+			for (PooledConnection pooledConnection : idle) {
+				pooledConnection.closePhysical();
+			}
+			throw sqlException;
+		}
+
+		this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long evictionPeriod = Math.max(1000, idleTimeoutMillis / 2);
+		evictor.scheduleWithFixedDelay(this::evictIdleConnections, evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Borrows a validated connection from the pool, opening a new one when none is idle and the pool is not full.
+	 *
+	 * @return borrowed connection, to be closed by the caller to return it to the pool.
+	 * @throws SQLException
+	 * 		if no connection is available within the acquire timeout or a new connection cannot be opened.
+	 */
+	public PooledConnection borrow() throws SQLException {
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+		try {
+			while (true) {
+				PooledConnection candidate = null;
+				boolean create = false;
+				lock.lock();
+				try {
+					while (candidate == null && !create) {
+						if (closed) {
+							throw new SQLException("Connection pool is closed.");
+						}
+						candidate = idle.pollFirst();
+						if (candidate == null && totalConnections < maxSize) {
+							totalConnections++;
+							create = true;
+						} else if (candidate == null) {
+							long remaining = deadline - System.nanoTime();
+							if (remaining <= 0) {
+								timeoutCount.increment();
+								throw new SQLException("Timed out waiting " + acquireTimeoutMillis + " ms for a database connection.");
+							}
+							waiters++;
+							try {
+								available.awaitNanos(remaining);
+							} catch (InterruptedException interruptedException) {
+								Thread.currentThread().interrupt();
+								throw new SQLException("Interrupted while waiting for a database connection.", interruptedException);
+							} finally {
+								waiters--;
+							}
+						}
+					}
+				} finally {
+					lock.unlock();
+				}
+
+				if (create) {
+					try {
+						candidate = newPooledConnection();
+					} catch (SQLException | RuntimeException exception) {
+						forget();
+						throw exception;
+					}
+				} else if (!isValid(candidate)) {
+					candidate.closePhysical();
+					forget();
+					continue;
+				}
+				candidate.markBorrowed();
+				borrowCount.increment();
+				return candidate;
+			}
+		} finally {
+			waitTimeHistogram.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Returns a connection to the pool. Called by PooledConnection.close().
+	 *
+	 * @param pooledConnection
+	 * 		connection being returned.
+	 */
+	void release(PooledConnection pooledConnection) {
+		boolean reusable = resetState(pooledConnection);
+		lock.lock();
+		try {
+			if (reusable && !closed) {
+				idle.addFirst(pooledConnection);
+				available.signal();
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		pooledConnection.closePhysical();
+		forget();
+	}
+
+	/**
+	 * @return snapshot of the pool usage.
+	 */
+	public PoolStats getStats() {
+		lock.lock();
+		try {
+			return new PoolStats(totalConnections,
+					totalConnections - idle.size(),
+					idle.size(),
+					waiters,
+					borrowCount.sum(),
+					timeoutCount.sum(),
+					waitTimeHistogram.getPercentile(50, TimeUnit.MICROSECONDS),
+					waitTimeHistogram.getPercentile(99, TimeUnit.MICROSECONDS),
+					TimeUnit.NANOSECONDS.toMicros(waitTimeHistogram.getMaxNanos()),
+					TimeUnit.NANOSECONDS.toMicros(waitTimeHistogram.getTotalNanos()),
+					waitTimeHistogram.getCount(),
+					statementCacheHits.sum(),
+					statementCacheMisses.sum());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return histogram of time spent by callers waiting for a connection.
+	 */
+	public LatencyHistogram getWaitTimeHistogram() {
+		return waitTimeHistogram;
+	}
+
+	/**
+	 * @return maximum number of connections of the pool.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Closes all idle connections and stops handing out new ones. Borrowed connections are closed when returned.
+	 */
+	public void close() {
+		List<PooledConnection> toClose;
+		lock.lock();
+		try {
+			closed = true;
+			toClose = new ArrayList<>(idle);
+			totalConnections -= idle.size();
+			idle.clear();
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		evictor.shutdownNow();
+		for (PooledConnection pooledConnection : toClose) {
+			pooledConnection.closePhysical();
+		}
+	}
+
+	private PooledConnection newPooledConnection() throws SQLException {
+		Connection connection = connectionFactory.create();
+		return new PooledConnection(this, connection,
+				new StatementCache(connection, statementCacheSize, statementCacheHits, statementCacheMisses));
+	}
+
+	private boolean isValid(PooledConnection pooledConnection) {
+		try {
+			return pooledConnection.getConnection().isValid(validationTimeoutSeconds);
+		} catch (SQLException sqlException) {
+			return false;
+		}
+	}
+
+	/**
+	 * Rolls back unfinished transactions and restores auto commit so the next borrower gets a clean connection.
+	 */
+	private boolean resetState(PooledConnection pooledConnection) {
+		try {
+			if (pooledConnection.getConnection().isClosed()) {
+				return false;
+			}
+			if (!pooledConnection.getConnection().getAutoCommit()) {
+				pooledConnection.getConnection().rollback();
+				pooledConnection.getConnection().setAutoCommit(true);
+			}
+			return true;
+		} catch (SQLException sqlException) {
+			return false;
+		}
+	}
+
+	/**
+	 * Frees the slot of a connection that was closed or never opened.
+	 */
+	private void forget() {
+		lock.lock();
+		try {
+			totalConnections--;
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void evictIdleConnections() {
+		List<PooledConnection> toClose = new ArrayList<>();
+		long now = System.currentTimeMillis();
+		lock.lock();
+		try {
+			Iterator<PooledConnection> leastRecentlyUsed = idle.descendingIterator();
+			while (leastRecentlyUsed.hasNext() && totalConnections - toClose.size() > minSize) {
+				PooledConnection pooledConnection = leastRecentlyUsed.next();
+				if (now - pooledConnection.getLastUsedAt() < idleTimeoutMillis) {
+					break;
+				}
+				leastRecentlyUsed.remove();
+				toClose.add(pooledConnection);
+			}
+			totalConnections -= toClose.size();
+		} finally {
+			lock.unlock();
+		}
+		for (PooledConnection pooledConnection : toClose) {
+			pooledConnection.closePhysical();
+		}
+	}
+}
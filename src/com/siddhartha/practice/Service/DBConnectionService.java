@@ -4,17 +4,17 @@ package com.siddhartha.practice.Service;
 import com.mysql.cj.jdbc.Driver;
 import config.DatabaseConfig;
 
-import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
- * Database connection service class to create,close and manage connection to a database. Singleton class to avoid
- * multiple instance of same database connection.
+ * Database connection service class to create,close and manage connections to a database. Holds a single bounded
+ * ConnectionPool shared by the whole process, so callers borrow a connection per operation instead of sharing one
+ * connection.
  */
 public class DBConnectionService {
 
-	private static Connection connection = null;
+	private static ConnectionPool pool = null;
 
 	/**
 	 * Private constructor of DBConnectionService to support singleton class.
@@ -24,36 +24,71 @@ public class DBConnectionService {
 	}
 
 	/**
-	 * Creates instance of connection with database.
+	 * Creates the connection pool with the database if it is not created yet. The pool is closed when the application
+	 * shuts down.
 	 *
-	 * @return
+	 * @return connection pool of the database.
 	 * @throws RuntimeException
 	 */
-	public static Connection getConnection() throws RuntimeException {
+	public static synchronized ConnectionPool getPool() throws RuntimeException {
 		try {
-			if (connection == null) {
+			if (pool == null) {
 				DriverManager.registerDriver(new Driver());
-				connection = DriverManager.getConnection(DatabaseConfig.url, DatabaseConfig.userName, DatabaseConfig.password);
+				pool = new ConnectionPool(
+						() -> DriverManager.getConnection(DatabaseConfig.url, DatabaseConfig.userName, DatabaseConfig.password),
+						DatabaseConfig.minPoolSize,
+						DatabaseConfig.maxPoolSize,
+						DatabaseConfig.idleTimeoutMillis,
+						DatabaseConfig.acquireTimeoutMillis,
+						DatabaseConfig.validationTimeoutSeconds,
+						DatabaseConfig.statementCacheSize);
+				Runtime.getRuntime().addShutdownHook(new Thread(DBConnectionService::shutdown, "db-pool-shutdown"));
 			}
-			return connection;
+			return pool;
 		} catch (SQLException ex) {
 			throw new RuntimeException("Error connecting to the database", ex);
 		}
 	}
 
 	/**
-	 * Closes connection with the database.
+	 * Borrows a connection from the pool. The connection must be closed by the caller to return it to the pool.
+	 *
+	 * @return borrowed connection.
+	 * @throws SQLException
+	 * 		if no connection could be borrowed within the acquire timeout.
+	 */
+	public static PooledConnection getConnection() throws SQLException {
+		try {
+			return getPool().borrow();
+		} catch (RuntimeException runtimeException) {
+			throw new SQLException(runtimeException.getMessage(), runtimeException);
+		}
+	}
+
+	/**
+	 * @return usage statistics of the connection pool.
+	 */
+	public static PoolStats getPoolStats() {
+		return getPool().getStats();
+	}
+
+	/**
+	 * Kept for the callers that closed their own connection. A borrowed connection is returned to the pool by closing
+	 * it, and the pool is shared by the whole process, so nothing is closed here.
 	 *
 	 * @throws RuntimeException
 	 */
 	public static void closeConnection() throws RuntimeException {
-		try {
-			if (connection != null) {
-				connection.close();
-				connection = null;
-			}
-		} catch (SQLException ex) {
-			throw new RuntimeException("Error connecting to the database", ex);
+	}
+
+	/**
+	 * Closes all connections with the database. Only called when the application shuts down, a later call to
+	 * getConnection creates a new pool.
+	 */
+	public static synchronized void shutdown() {
+		if (pool != null) {
+			pool.close();
+			pool = null;
 		}
 	}
 }
@@ -1,15 +1,35 @@
 package com.siddhartha.practice.Service;
 
+import com.siddhartha.practice.Runner.CLIRunInterface;
 import com.siddhartha.practice.Runner.CLIRunner;
+import com.siddhartha.practice.Runner.ExportRunner;
+import com.siddhartha.practice.Runner.HttpServerRunner;
+import com.siddhartha.practice.Runner.ImportRunner;
+import com.siddhartha.practice.Runner.QueryPlanCheckRunner;
 
+import java.util.Arrays;
 
 /**
  * PTLogAPI to log and view PT for employees with various options like view logs by employee under manager or view logs
- * from a range of date.
+ * from a range of date. Started with "--http" it serves the same options as JSON over HTTP instead of the CLI, started
+ * with "--check-queries" it migrates the schema and reports the queries the database answers with a full scan,
+ * started with "--import employees|ptlogs file" it bulk imports a csv or ndjson file, and started with
+ * "--export file [employee=id|manager=id] [from=date to=date]" it exports pt logs.
  */
 public class PTLogAPI {
 	public static void main(String[] args) {
-		CLIRunner cliRunner = new CLIRunner();
-		cliRunner.run();
+		CLIRunInterface runner;
+		if (args.length > 0 && args[0].equals("--http")) {
+			runner = new HttpServerRunner();
+		} else if (args.length > 0 && args[0].equals("--check-queries")) {
+			runner = new QueryPlanCheckRunner();
+		} else if (args.length > 0 && args[0].equals("--import")) {
+			runner = new ImportRunner(args.length > 1 ? args[1] : null, args.length > 2 ? args[2] : null);
+		} else if (args.length > 0 && args[0].equals("--export")) {
+			runner = new ExportRunner(Arrays.copyOfRange(args, 1, args.length));
+		} else {
+			runner = new CLIRunner();
+		}
+		runner.run();
 	}
 }
@@ -0,0 +1,127 @@
+package com.siddhartha.practice.Service;
+
+/**
+ * Point in time snapshot of ConnectionPool usage.
+ *
+ * @author sid
+ */
+public final class PoolStats {
+	private final int totalConnections;
+	private final int activeConnections;
+	private final int idleConnections;
+	private final int waiters;
+	private final long borrowCount;
+	private final long timeoutCount;
+	private final long waitTimeP50Micros;
+	private final long waitTimeP99Micros;
+	private final long waitTimeMaxMicros;
+	private final long waitTimeTotalMicros;
+	private final long waitCount;
+	private final long statementCacheHits;
+	private final long statementCacheMisses;
+
+	public PoolStats(int totalConnections, int activeConnections, int idleConnections, int waiters, long borrowCount,
+			long timeoutCount, long waitTimeP50Micros, long waitTimeP99Micros, long waitTimeMaxMicros,
+			long waitTimeTotalMicros, long waitCount, long statementCacheHits, long statementCacheMisses) {
+		this.totalConnections = totalConnections;
+		this.activeConnections = activeConnections;
+		this.idleConnections = idleConnections;
+		this.waiters = waiters;
+		this.borrowCount = borrowCount;
+		this.timeoutCount = timeoutCount;
+		this.waitTimeP50Micros = waitTimeP50Micros;
+		this.waitTimeP99Micros = waitTimeP99Micros;
+		this.waitTimeMaxMicros = waitTimeMaxMicros;
+		this.waitTimeTotalMicros = waitTimeTotalMicros;
+		this.waitCount = waitCount;
+		this.statementCacheHits = statementCacheHits;
+		this.statementCacheMisses = statementCacheMisses;
+	}
+
+	public int getTotalConnections() {
+		return totalConnections;
+	}
+
+	public int getActiveConnections() {
+		return activeConnections;
+	}
+
+	public int getIdleConnections() {
+		return idleConnections;
+	}
+
+	public int getWaiters() {
+		return waiters;
+	}
+
+	public long getBorrowCount() {
+		return borrowCount;
+	}
+
+	public long getTimeoutCount() {
+		return timeoutCount;
+	}
+
+	public long getWaitTimeP50Micros() {
+		return waitTimeP50Micros;
+	}
+
+	public long getWaitTimeP99Micros() {
+		return waitTimeP99Micros;
+	}
+
+	public long getWaitTimeMaxMicros() {
+		return waitTimeMaxMicros;
+	}
+
+	/**
+	 * @return time all callers together waited for a connection.
+	 */
+	public long getWaitTimeTotalMicros() {
+		return waitTimeTotalMicros;
+	}
+
+	/**
+	 * @return number of waits included in the wait time percentiles and total.
+	 */
+	public long getWaitCount() {
+		return waitCount;
+	}
+
+	public long getStatementCacheHits() {
+		return statementCacheHits;
+	}
+
+	public long getStatementCacheMisses() {
+		return statementCacheMisses;
+	}
+
+	/**
+	 * @return share of prepared statements served from the statement caches, between 0 and 1.
+	 */
+	public double getStatementCacheHitRatio() {
+		long lookups = statementCacheHits + statementCacheMisses;
+		return lookups == 0 ? 0 : (double) statementCacheHits / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("PoolStats{")
+				.append("total=").append(totalConnections)
+				.append(", active=").append(activeConnections)
+				.append(", idle=").append(idleConnections)
+				.append(", waiters=").append(waiters)
+				.append(", borrows=").append(borrowCount)
+				.append(", timeouts=").append(timeoutCount)
+				.append(", waitP50=").append(waitTimeP50Micros).append("us")
+				.append(", waitP99=").append(waitTimeP99Micros).append("us")
+				.append(", waitMax=").append(waitTimeMaxMicros).append("us")
+				.append(", waitTotal=").append(waitTimeTotalMicros).append("us")
+				.append(", waits=").append(waitCount)
+				.append(", statementCacheHits=").append(statementCacheHits)
+				.append(", statementCacheMisses=").append(statementCacheMisses)
+				.append('}')
+				.toString();
+	}
+}
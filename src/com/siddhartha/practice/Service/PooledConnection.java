@@ -0,0 +1,95 @@
+package com.siddhartha.practice.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection borrowed from the ConnectionPool. Closing it returns the underlying connection to the pool instead of
+ * closing the socket, so it is meant to be used in a try-with-resources block around a single operation. Statements
+ * prepared through it are cached for the lifetime of the physical connection.
+ *
+ * @author sid
+ */
+public final class PooledConnection implements AutoCloseable {
+	private final ConnectionPool pool;
+	private final Connection connection;
+	private final StatementCache statementCache;
+	private long lastUsedAt;
+	private boolean borrowed = false;
+
+	PooledConnection(ConnectionPool pool, Connection connection, StatementCache statementCache) {
+		this.pool = pool;
+		this.connection = connection;
+		this.statementCache = statementCache;
+		this.lastUsedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return underlying database connection, valid only until this PooledConnection is closed.
+	 */
+	public Connection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * Fetches a prepared statement of the query from the statement cache of the connection. The statement is owned by
+	 * the cache and must not be closed by the caller, only its result set.
+	 *
+	 * @param query
+	 * 		SQL text of the statement.
+	 * @return prepared statement with cleared parameters.
+	 * @throws SQLException
+	 */
+	public PreparedStatement prepareStatement(String query) throws SQLException {
+		return statementCache.prepare(query, Statement.NO_GENERATED_KEYS);
+	}
+
+	/**
+	 * Fetches a prepared statement of the query from the statement cache of the connection, returning generated keys of
+	 * inserted rows.
+	 *
+	 * @param query
+	 * 		SQL text of the statement.
+	 * @return prepared statement with cleared parameters.
+	 * @throws SQLException
+	 */
+	public PreparedStatement prepareStatementReturningKeys(String query) throws SQLException {
+		return statementCache.prepare(query, Statement.RETURN_GENERATED_KEYS);
+	}
+
+	/**
+	 * Returns the connection to the pool. Calling it more than once has no effect.
+	 */
+	@Override
+	public void close() {
+		if (!borrowed) {
+			return;
+		}
+		borrowed = false;
+		lastUsedAt = System.currentTimeMillis();
+		statementCache.release();
+		pool.release(this);
+	}
+
+	void markBorrowed() {
+		borrowed = true;
+	}
+
+	long getLastUsedAt() {
+		return lastUsedAt;
+	}
+
+	/**
+	 * Closes the physical connection with the database.
+	 */
+	void closePhysical() {
+		statementCache.close();
+		try {
+			connection.close();
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to close pooled database connection.\n" + sqlException.toString());
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.siddhartha.practice.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Least recently used cache of prepared statements of a single connection, keyed by SQL text. A pooled connection is
+ * only used by one thread at a time, so the cache is not synchronized. Statements handed out by the cache stay owned by
+ * it and must not be closed by the caller, only their result sets. When caching is disabled the statements are still
+ * owned by the cache, which closes them once the connection is returned to the pool.
+ *
+ * @author sid
+ */
+final class StatementCache {
+	private final Connection connection;
+	private final int maxSize;
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LinkedHashMap<String, PreparedStatement> statements;
+	private final ArrayList<PreparedStatement> uncached = new ArrayList<>();
+
+	/**
+	 * @param connection
+	 * 		connection the statements are prepared on.
+	 * @param maxSize
+	 * 		maximum number of statements kept open, zero disables caching and statements are closed by release.
+	 * @param hits
+	 * 		counter shared by all caches of the pool, incremented on every reused statement.
+	 * @param misses
+	 * 		counter shared by all caches of the pool, incremented on every newly prepared statement.
+	 */
+	StatementCache(Connection connection, int maxSize, LongAdder hits, LongAdder misses) {
+		this.connection = connection;
+		this.maxSize = maxSize;
+		this.hits = hits;
+		this.misses = misses;
+		this.statements = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Fetches the prepared statement of the query, preparing it on the connection if it is not cached.
+	 *
+	 * @param query
+	 * 		SQL text of the statement.
+	 * @param autoGeneratedKeys
+	 * 		Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS.
+	 * @return prepared statement with cleared parameters.
+	 * @throws SQLException
+	 */
+	PreparedStatement prepare(String query, int autoGeneratedKeys) throws SQLException {
+		String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + query : query;
+		PreparedStatement statement = statements.get(key);
+		if (statement != null && !statement.isClosed()) {
+			hits.increment();
+			statement.clearParameters();
+			return statement;
+		}
+		misses.increment();
+		statement = connection.prepareStatement(query, autoGeneratedKeys);
+		if (maxSize > 0) {
+			statements.put(key, statement);
+			evictOverflow();
+		} else {
+			uncached.add(statement);
+		}
+		return statement;
+	}
+
+	/**
+	 * @return number of statements currently cached.
+	 */
+	int size() {
+		return statements.size();
+	}
+
+	/**
+	 * Closes the statements prepared without being cached since the connection was borrowed. Called when the
+	 * connection is returned to the pool.
+	 */
+	void release() {
+		for (PreparedStatement statement : uncached) {
+			closeQuietly(statement);
+		}
+		uncached.clear();
+	}
+
+	/**
+	 * Closes all statements.
+	 */
+	void close() {
+		release();
+		for (PreparedStatement statement : statements.values()) {
+			closeQuietly(statement);
+		}
+		statements.clear();
+	}
+
+	private void evictOverflow() {
+		Iterator<Map.Entry<String, PreparedStatement>> leastRecentlyUsed = statements.entrySet().iterator();
+		while (statements.size() > maxSize && leastRecentlyUsed.hasNext()) {
+			PreparedStatement evicted = leastRecentlyUsed.next().getValue();
+			leastRecentlyUsed.remove();
+			closeQuietly(evicted);
+		}
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException sqlException) {
+			System.out.println("Failed to close cached statement.\n" + sqlException.toString());
+		}
+	}
+}
@@ -6,8 +6,164 @@ package config;
  * @author sid
  */
 public class DatabaseConfig {
-	public static final String url = "jdbc:mysql://localhost:3306/java-practise";
+	/**
+	 * Storage engine of PTLogService, "jdbc" for the MySQL database or "memory" for the in-memory engine.
+	 */
+	public static final String storageEngine = "jdbc";
+
+	public static final String url = "jdbc:mysql://localhost:3306/java-practise?useServerPrepStmts=true&rewriteBatchedStatements=true&useCursorFetch=true";
 	public static final String userName = "root";
 	public static final String password = "root";
 
+	/**
+	 * Connection pool settings.
+	 */
+	public static final int minPoolSize = 2;
+	public static final int maxPoolSize = 16;
+	public static final long idleTimeoutMillis = 5 * 60 * 1000;
+	public static final long acquireTimeoutMillis = 5 * 1000;
+	public static final int validationTimeoutSeconds = 2;
+	public static final int statementCacheSize = 64;
+
+	/**
+	 * Number of rows sent per round trip by batch inserts.
+	 */
+	public static final int batchSize = 500;
+
+	/**
+	 * Number of rows read per round trip by listings streamed through a server side cursor.
+	 */
+	public static final int fetchSize = 500;
+
+	/**
+	 * Whether the JDBC storage engine creates its tables and applies pending schema migrations on start.
+	 */
+	public static final boolean schemaMigrationsEnabled = true;
+
+	/**
+	 * Monthly partitioning of the ptlogs table, when enabled the table is partitioned on start if it is not yet and
+	 * partitions are kept ptLogPartitionMonthsAhead months ahead of today.
+	 */
+	public static final boolean ptLogPartitioningEnabled = false;
+	public static final int ptLogPartitionMonthsAhead = 3;
+
+	/**
+	 * Number of rows removed per statement by deletes, each chunk being committed on its own.
+	 */
+	public static final int deleteChunkSize = 1000;
+
+	/**
+	 * In-memory employee directory cache settings.
+	 */
+	public static final int employeeCacheSize = 100_000;
+	public static final long employeeCacheTtlMillis = 10 * 60 * 1000;
+
+	/**
+	 * Time after which the manager hierarchy index is loaded again from employee_managers, picking up assignments made
+	 * by other processes.
+	 */
+	public static final long managerHierarchyRefreshMillis = employeeCacheTtlMillis;
+
+	/**
+	 * Whether PTLogService builds activity rollups of all pt logs on start and keeps them up to date. Off by default
+	 * as the build reads every pt log.
+	 */
+	public static final boolean rollupsEnabled = false;
+
+	/**
+	 * Whether PTLogService builds a full-text index of the details of all pt logs on start and keeps it up to date, off
+	 * by default as the build reads every pt log, and the number of best matches returned by a search unless asked
+	 * otherwise. The rollups and the index are built from the same scan.
+	 */
+	public static final boolean searchIndexEnabled = false;
+	public static final int searchResultLimit = 20;
+
+	/**
+	 * Maximum number of pooled connections the operations run by AsyncPTLogService hold at once, more would only wait
+	 * for a pooled connection. Bulk reads count bulkReadParallelism connections each.
+	 */
+	public static final int asyncConcurrencyLimit = maxPoolSize;
+
+	/**
+	 * Write-behind buffer settings, when enabled pt logs are added in group committed batches of up to
+	 * writeBehindBatchSize logs, waiting at most writeBehindMaxDelayMillis for a batch to fill.
+	 */
+	public static final boolean writeBehindEnabled = false;
+	public static final int writeBehindCapacity = 10_000;
+	public static final int writeBehindBatchSize = batchSize;
+	public static final long writeBehindMaxDelayMillis = 5;
+	public static final long writeBehindOfferTimeoutMillis = acquireTimeoutMillis;
+
+	/**
+	 * Local journal settings, when enabled pt logs are accepted once appended to the journal and replayed into the
+	 * database in the background, retrying after journalRetryDelayMillis (doubling up to 30 seconds) while it fails.
+	 */
+	public static final boolean journalEnabled = false;
+	public static final String journalDirectory = "ptlog-journal";
+	public static final int journalSegmentBytes = 16 * 1024 * 1024;
+	public static final boolean journalSyncOnAppend = false;
+	public static final long journalRetryDelayMillis = 500;
+
+	/**
+	 * Bulk import settings, rows are parsed by importParserThreads threads and added by importWriterThreads threads in
+	 * chunks of importChunkRows rows, at most importQueueCapacity chunks waiting between two stages.
+	 */
+	public static final int importParserThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	public static final int importWriterThreads = 4;
+	public static final int importChunkRows = 10 * batchSize;
+	public static final int importQueueCapacity = 8;
+	public static final int importReadBufferBytes = 1024 * 1024;
+	public static final long importProgressIntervalMillis = 2_000;
+	public static final int importMaxReportedRejections = 100;
+
+	/**
+	 * Export settings, exported logs are written through a buffer of exportBufferBytes bytes, and columnar files in
+	 * blocks of exportBlockRows rows.
+	 */
+	public static final int exportBufferBytes = 256 * 1024;
+	public static final int exportBlockRows = 64 * 1024;
+
+	/**
+	 * Snapshot settings, when enabled the in-memory views are written to snapshotFile every snapshotIntervalMillis and
+	 * restored from it on start, reading from the database only the pt logs added since.
+	 */
+	public static final boolean snapshotEnabled = false;
+	public static final String snapshotFile = "ptlog-snapshot.ptls";
+	public static final long snapshotIntervalMillis = 15 * 60 * 1000;
+
+	/**
+	 * Bulk read settings, logs of many employees are read in chunks of bulkReadChunkSize ids, up to
+	 * bulkReadParallelism chunks at once each on its own pooled connection.
+	 */
+	public static final int bulkReadChunkSize = 256;
+	public static final int bulkReadParallelism = Math.min(4, maxPoolSize / 2);
+
+	/**
+	 * Change feed settings, when enabled changes are published to subscriptions holding up to changeFeedQueueCapacity
+	 * unread events each.
+	 */
+	public static final boolean changeFeedEnabled = true;
+	public static final int changeFeedQueueCapacity = 1024;
+
+	/**
+	 * Query cache settings, when enabled the results of the pt log range queries of an employee and of a manager's team
+	 * are cached within queryCacheMaxBytes estimated bytes, each for at most queryCacheTtlMillis. Off by default as
+	 * writes made by other processes are only seen once an entry expires.
+	 */
+	public static final boolean queryCacheEnabled = false;
+	public static final long queryCacheMaxBytes = 64L * 1024 * 1024;
+	public static final long queryCacheTtlMillis = 60 * 1000;
+
+	/**
+	 * HTTP server settings, the fallback threads serve requests when the JVM has no virtual threads. The server has no
+	 * authentication, so it listens on loopback unless httpBindAddress is set to "0.0.0.0" or another interface, and
+	 * DELETE /ptlogs?before=, which drops every log before a date, is refused unless httpRetentionEnabled is set.
+	 */
+	public static final String httpBindAddress = "127.0.0.1";
+	public static final boolean httpRetentionEnabled = false;
+	public static final int httpPort = 8080;
+	public static final int httpBacklog = 1024;
+	public static final int httpFallbackThreads = 64;
+	public static final int httpMaxBodyBytes = 16 * 1024 * 1024;
+
 }
@@ -0,0 +1,141 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.Employee;
+import com.siddhartha.practice.Models.PTLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of AsyncPTLogService completing futures with the results of a PTLogService over an InMemoryPTLogStorageEngine,
+ * holding further operations back once its concurrency limit is reached and completing the futures of failed
+ * operations exceptionally.
+ *
+ * @author sid
+ */
+class AsyncPTLogServiceTest {
+	private static final Date LOGGED_DATE = Date.valueOf("2024-01-01");
+
+	private AsyncPTLogService asyncPTLogService;
+
+	@AfterEach
+	void closeService() {
+		if (asyncPTLogService != null) {
+			asyncPTLogService.close();
+		}
+	}
+
+	private static PTLogService newService(PTLogStorageEngine storageEngine) {
+		return new PTLogService(storageEngine, false, false, false, false, false, false, false);
+	}
+
+	private static ArrayList<Integer> ids(List<PTLog> ptLogs) {
+		ArrayList<Integer> ids = new ArrayList<>();
+		for (PTLog ptLog : ptLogs) {
+			ids.add(ptLog.getId());
+		}
+		return ids;
+	}
+
+	@Test
+	void completesFuturesWithTheResultsOfTheService() {
+		asyncPTLogService = new AsyncPTLogService(newService(new InMemoryPTLogStorageEngine()), 4);
+
+		assertEquals(1, (int) asyncPTLogService.addEmployee("Ana").join());
+		assertEquals(1, (int) asyncPTLogService.addEmployee("Ben").join());
+		assertEquals(1, (int) asyncPTLogService.promoteToManager(1).join());
+		assertEquals(1, (int) asyncPTLogService.assignEmployeeToManager(2, 1).join());
+		ArrayList<CompletableFuture<Integer>> adds = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			adds.add(asyncPTLogService.addPTLogEmployee(2, "log " + i, LOGGED_DATE));
+		}
+		adds.add(asyncPTLogService.addPTLogEmployee(99, "unknown", LOGGED_DATE));
+
+		CompletableFuture.allOf(adds.toArray(new CompletableFuture<?>[0])).join();
+		for (int i = 0; i < 20; i++) {
+			assertEquals(1, (int) adds.get(i).join());
+		}
+		assertEquals(0, (int) adds.get(20).join());
+		assertEquals(20, asyncPTLogService.listPTLogUnderManager(1).join().size());
+		assertEquals(List.of("Ana", "Ben"), asyncPTLogService.listEmployees().thenApply(employees -> {
+			ArrayList<String> names = new ArrayList<>();
+			for (Employee employee : employees) {
+				names.add(employee.getName());
+			}
+			return names;
+		}).join());
+		assertNull(asyncPTLogService.listPTLogOfEmployee(99).join());
+		assertEquals(0, asyncPTLogService.getRunningCount());
+	}
+
+	@Test
+	void runsNoMoreOperationsAtOnceThanTheLimit() throws InterruptedException {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		CountDownLatch gate = new CountDownLatch(1);
+		InMemoryPTLogStorageEngine inMemoryEngine = new InMemoryPTLogStorageEngine();
+		PTLogStorageEngine storageEngine = StorageEngineProxy.wrap(inMemoryEngine, (method, args) -> {
+			if (method.equals("forEachPTLogOfEmployee")) {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				gate.await(10, TimeUnit.SECONDS);
+				running.decrementAndGet();
+			}
+			return StorageEngineProxy.PROCEED;
+		});
+		PTLogService ptLogService = newService(storageEngine);
+		ptLogService.addEmployee("Ana");
+		ptLogService.addPTLogEmployee(1, "Run", LOGGED_DATE);
+		asyncPTLogService = new AsyncPTLogService(ptLogService, 2);
+
+		ArrayList<CompletableFuture<ArrayList<PTLog>>> reads = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			reads.add(asyncPTLogService.listPTLogOfEmployee(1));
+		}
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (running.get() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		// Give the other reads the time to start, they wait for a permit or a thread of the executor.
+		Thread.sleep(100);
+
+		assertEquals(2, running.get());
+		assertEquals(2, asyncPTLogService.getRunningCount());
+		assertTrue(reads.stream().noneMatch(CompletableFuture::isDone));
+
+		gate.countDown();
+
+		for (CompletableFuture<ArrayList<PTLog>> read : reads) {
+			assertEquals(List.of(1), ids(read.join()));
+		}
+		assertEquals(2, maxRunning.get());
+		assertEquals(0, asyncPTLogService.getRunningCount());
+	}
+
+	@Test
+	void completesTheFutureExceptionallyWhenTheOperationThrows() {
+		PTLogStorageEngine storageEngine = StorageEngineProxy.wrap(new InMemoryPTLogStorageEngine(), (method, args) -> {
+			if (method.equals("listEmployees")) {
+				throw new IllegalStateException("engine closed");
+			}
+			return StorageEngineProxy.PROCEED;
+		});
+		asyncPTLogService = new AsyncPTLogService(newService(storageEngine), 1);
+
+		CompletionException completionException = assertThrows(CompletionException.class,
+				() -> asyncPTLogService.listEmployees().join());
+
+		assertTrue(completionException.getCause() instanceof IllegalStateException);
+		assertEquals(1, (int) asyncPTLogService.addEmployee("Ana").join());
+		assertEquals(0, asyncPTLogService.getRunningCount());
+	}
+}
@@ -0,0 +1,67 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.PTLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of ColumnarPTLogStore range deletes.
+ *
+ * @author sid
+ */
+class ColumnarPTLogStoreTest {
+	private ColumnarPTLogStore store;
+
+	@BeforeEach
+	void createStore() {
+		store = new ColumnarPTLogStore();
+		for (int day = 1; day <= 9; day++) {
+			store.add(day, 1, "log " + day, Date.valueOf("2024-01-0" + day));
+		}
+		store.add(100, 2, "other", Date.valueOf("2024-01-05"));
+	}
+
+	private static ArrayList<Integer> ids(ArrayList<PTLog> ptLogs) {
+		ArrayList<Integer> ids = new ArrayList<>();
+		for (PTLog ptLog : ptLogs) {
+			ids.add(ptLog.getId());
+		}
+		return ids;
+	}
+
+	@Test
+	void deletesOnlyTheRangeAndKeepsTheRestInOrder() {
+		assertEquals(3, store.deletePTLogOfEmployeeInRange(1, Date.valueOf("2024-01-03"), Date.valueOf("2024-01-05")));
+
+		assertEquals(List.of(1, 2, 6, 7, 8, 9), ids(store.listPTLogOfEmployee(1)));
+		assertEquals(List.of(7, 6), ids(store.listPTLogOfEmployeeInRange(1, Date.valueOf("2024-01-03"),
+				Date.valueOf("2024-01-07"))));
+		assertEquals(List.of(100), ids(store.listPTLogOfEmployee(2)));
+		assertEquals(7, store.size());
+	}
+
+	@Test
+	void deletesTheTailAndTheWholeList() {
+		assertEquals(2, store.deletePTLogOfEmployeeInRange(1, Date.valueOf("2024-01-08"), Date.valueOf("2024-02-01")));
+		assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), ids(store.listPTLogOfEmployee(1)));
+
+		assertEquals(7, store.deletePTLogOfEmployeeInRange(1, Date.valueOf("2023-12-01"), Date.valueOf("2024-02-01")));
+		assertTrue(store.listPTLogOfEmployee(1).isEmpty());
+
+		store.add(10, 1, "after delete", Date.valueOf("2024-01-04"));
+		assertEquals(List.of(10), ids(store.listPTLogOfEmployee(1)));
+	}
+
+	@Test
+	void emptyRangeDeletesNothing() {
+		assertEquals(0, store.deletePTLogOfEmployeeInRange(1, Date.valueOf("2024-02-01"), Date.valueOf("2024-02-28")));
+		assertEquals(0, store.deletePTLogOfEmployeeInRange(3, Date.valueOf("2024-01-01"), Date.valueOf("2024-01-31")));
+		assertEquals(10, store.size());
+	}
+}
@@ -0,0 +1,111 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.Designation;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the EmployeeDirectoryCache answering lookups until entries expire or overflow it, and of the
+ * JdbcPTLogStorageEngine only querying a stand in database for employees it has not cached.
+ *
+ * @author sid
+ */
+class EmployeeDirectoryCacheTest {
+	private static final long TTL_MILLIS = 60_000;
+
+	@Test
+	void answersCachedEmployeesAndCountsHitsAndMisses() {
+		EmployeeDirectoryCache cache = new EmployeeDirectoryCache(10, TTL_MILLIS);
+		cache.put(1, Designation.TeamMember);
+		cache.put(2, Designation.Manager);
+
+		assertEquals(Designation.TeamMember, cache.get(1));
+		assertEquals(Designation.Manager, cache.get(2));
+		assertNull(cache.get(3));
+
+		cache.put(1, Designation.Manager);
+		cache.invalidate(2);
+
+		assertEquals(Designation.Manager, cache.get(1));
+		assertNull(cache.get(2));
+		assertEquals(3, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(0.6, cache.getHitRatio(), 1e-9);
+	}
+
+	@Test
+	void expiredEmployeesAreNotAnsweredNorHandedToForEach() {
+		EmployeeDirectoryCache cache = new EmployeeDirectoryCache(10, TTL_MILLIS);
+		long now = System.currentTimeMillis();
+		cache.put(1, Designation.TeamMember, now - TTL_MILLIS / 2);
+		cache.put(2, Designation.Manager, now);
+		cache.put(3, Designation.TeamMember, now - TTL_MILLIS - 1);
+		assertEquals(2, cache.size());
+
+		HashMap<Integer, Designation> handed = new HashMap<>();
+		cache.forEach((id, designation, loadedAt) -> handed.put(id, designation));
+
+		assertEquals(Map.of(1, Designation.TeamMember, 2, Designation.Manager), handed);
+
+		// Copied into a cache of shorter time to live, employee 1 keeps its load time and is already expired.
+		EmployeeDirectoryCache shortLived = new EmployeeDirectoryCache(10, TTL_MILLIS / 4);
+		cache.forEach(shortLived::put);
+
+		assertNull(shortLived.get(1));
+		assertEquals(Designation.Manager, shortLived.get(2));
+		assertEquals(1, shortLived.size());
+	}
+
+	@Test
+	void trimsTheOldestEntriesOnceOverTheMaximumSize() {
+		EmployeeDirectoryCache cache = new EmployeeDirectoryCache(10, TTL_MILLIS);
+		long now = System.currentTimeMillis();
+		for (int id = 1; id <= 10; id++) {
+			cache.put(id, Designation.TeamMember, now - 1_000 + id);
+		}
+		assertEquals(10, cache.size());
+
+		cache.put(11, Designation.Manager, now);
+
+		assertEquals(9, cache.size());
+		assertEquals(2, cache.getEvictions());
+		assertNull(cache.get(1));
+		assertNull(cache.get(2));
+		assertEquals(Designation.TeamMember, cache.get(3));
+		assertEquals(Designation.Manager, cache.get(11));
+	}
+
+	@Test
+	void engineOnlyQueriesEmployeesItHasNotCached() throws SQLException {
+		FakeDatabase database = FakeDatabase.register();
+		JdbcPTLogStorageEngine storageEngine = null;
+		try {
+			database.addEmployee(1, Designation.TeamMember);
+			database.addEmployee(2, Designation.Manager);
+			storageEngine = new JdbcPTLogStorageEngine();
+
+			assertTrue(storageEngine.checkEmployeeQuery(1, Designation.TeamMember, true));
+			assertTrue(storageEngine.checkEmployeeQuery(1, null, false));
+			assertFalse(storageEngine.checkEmployeeQuery(1, Designation.Manager, true));
+			assertEquals(1, database.employeeChecks);
+
+			assertTrue(storageEngine.checkEmployeeQuery(2, Designation.Manager, true));
+			assertFalse(storageEngine.checkEmployeeQuery(3, null, false));
+			assertFalse(storageEngine.checkEmployeeQuery(3, null, false));
+			// Missing employees are not cached, they may be added by another process.
+			assertEquals(4, database.employeeChecks);
+			assertEquals(Designation.Manager, storageEngine.getEmployeeDirectory().get(2));
+			assertEquals(2, storageEngine.getEmployeeDirectory().size());
+		} finally {
+			if (storageEngine != null) {
+				storageEngine.close();
+			}
+			database.deregister();
+		}
+	}
+}
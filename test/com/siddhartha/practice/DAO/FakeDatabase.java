@@ -0,0 +1,374 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.Designation;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Service.DBConnectionService;
+import config.DatabaseConfig;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * In memory stand in for the database of the JdbcPTLogStorageEngine, registered with DriverManager for
+ * DatabaseConfig.url so the engine reaches it through DBConnectionService. Only the queries the tests run are
+ * answered, any other query fails the test. The schema is already at the latest version unless schemaVersion is set
+ * lower.
+ *
+ * @author sid
+ */
+final class FakeDatabase implements Driver {
+	final LinkedHashMap<Integer, Designation> employees = new LinkedHashMap<>();
+	final ArrayList<int[]> assignments = new ArrayList<>();
+	final ArrayList<PTLog> ptLogs = new ArrayList<>();
+	/** index columns by index name, by table, as information_schema.statistics lists them. */
+	final HashMap<String, LinkedHashMap<String, List<String>>> indexes = new HashMap<>();
+	final ArrayList<String> executed = new ArrayList<>();
+	/** distinct employee ids bound to every ptlogs read, in the order the reads ran. */
+	final ArrayList<Set<Integer>> ptLogReads = new ArrayList<>();
+	final HashSet<String> ptLogReadThreads = new HashSet<>();
+	/** number of rows of every batch of ptlogs inserts, in the order the batches ran. */
+	final ArrayList<Integer> batchSizes = new ArrayList<>();
+	/** fetch size set on the statement of every query. */
+	final HashMap<String, Integer> fetchSizes = new HashMap<>();
+	final AtomicInteger openResultSets = new AtomicInteger();
+	int schemaVersion = 2;
+	int hierarchyLoads = 0;
+	int employeeChecks = 0;
+	/** number of the batch of ptlogs inserts failing, counting from 1, 0 if none fails. */
+	int failingBatch = 0;
+	/** ptlogs reads of the employee wait slowReadMillis before answering. */
+	volatile int slowEmployeeId = -1;
+	volatile long slowReadMillis = 0;
+
+	/**
+	 * Registers the database and drops the connection pool of DBConnectionService, so the next pool connects to it.
+	 */
+	static FakeDatabase register() throws SQLException {
+		DBConnectionService.shutdown();
+		FakeDatabase database = new FakeDatabase();
+		DriverManager.registerDriver(database);
+		return database;
+	}
+
+	/**
+	 * Closes the connection pool of DBConnectionService and deregisters the database.
+	 */
+	void deregister() throws SQLException {
+		DBConnectionService.shutdown();
+		DriverManager.deregisterDriver(this);
+	}
+
+	void addEmployee(int id, Designation designation) {
+		employees.put(id, designation);
+	}
+
+	synchronized void addAssignment(int employeeId, int managerId) {
+		assignments.add(new int[]{employeeId, managerId});
+	}
+
+	synchronized void addPTLog(int id, int employeeId, String details, String loggedDate) {
+		ptLogs.add(new PTLog(id, employeeId, details, Date.valueOf(loggedDate)));
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) {
+		return acceptsURL(url) ? newConnection() : null;
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return DatabaseConfig.url.equals(url);
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	private Connection newConnection() {
+		boolean[] state = {true, false};
+		ArrayList<PTLog> uncommitted = new ArrayList<>();
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "isValid":
+							return !state[1];
+						case "isClosed":
+							return state[1];
+						case "close":
+							state[1] = true;
+							return null;
+						case "getAutoCommit":
+							return state[0];
+						case "setAutoCommit":
+							state[0] = (Boolean) args[0];
+							return null;
+						case "commit":
+							uncommitted.clear();
+							return null;
+						case "rollback":
+							synchronized (this) {
+								ptLogs.removeAll(uncommitted);
+							}
+							uncommitted.clear();
+							return null;
+						case "prepareStatement":
+							return preparedStatement((String) args[0], uncommitted);
+						case "createStatement":
+							return statement();
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private PreparedStatement preparedStatement(String query, ArrayList<PTLog> uncommitted) {
+		TreeMap<Integer, Object> parameters = new TreeMap<>();
+		ArrayList<List<Object>> batch = new ArrayList<>();
+		ArrayList<Map<Object, Object>> generatedKeys = new ArrayList<>();
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "setInt":
+						case "setString":
+						case "setDate":
+							parameters.put((Integer) args[0], args[1]);
+							return null;
+						case "clearParameters":
+							parameters.clear();
+							return null;
+						case "executeQuery":
+							return resultSet(rowsOf(query, new ArrayList<>(parameters.values())));
+						case "executeUpdate":
+							return update(query, new ArrayList<>(parameters.values()));
+						case "addBatch":
+							batch.add(new ArrayList<>(parameters.values()));
+							parameters.clear();
+							return null;
+						case "executeBatch":
+							int[] counts = insertBatch(query, batch, generatedKeys, uncommitted);
+							batch.clear();
+							return counts;
+						case "getGeneratedKeys":
+							ArrayList<Map<Object, Object>> keys = new ArrayList<>(generatedKeys);
+							generatedKeys.clear();
+							return resultSet(keys);
+						case "setFetchSize":
+							synchronized (this) {
+								fetchSizes.put(query, (Integer) args[0]);
+							}
+							return null;
+						case "close":
+							return null;
+						case "isClosed":
+							return false;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private Statement statement() {
+		return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "executeUpdate":
+							synchronized (this) {
+								executed.add((String) args[0]);
+							}
+							return 0;
+						case "close":
+							return null;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private ArrayList<Map<Object, Object>> rowsOf(String query, List<Object> parameters) throws InterruptedException {
+		if ((query.startsWith("select p.* from ptlogs as p where p.emp_id in (") ||
+				query.startsWith("select * from ptlogs where emp_id = (?)")) && !query.contains("limit")) {
+			return readPTLogs(query, parameters);
+		}
+		ArrayList<Map<Object, Object>> rows = new ArrayList<>();
+		synchronized (this) {
+			if (query.startsWith("select get_lock(") || query.startsWith("select release_lock(")) {
+				rows.add(Map.of(1, 1));
+			} else if (query.equals("select max(version) from schema_version")) {
+				rows.add(Map.of(1, schemaVersion));
+			} else if (query.startsWith("select index_name, column_name from information_schema.statistics")) {
+				indexes.getOrDefault((String) parameters.get(0), new LinkedHashMap<>()).forEach((name, columns) -> {
+					for (String column : columns) {
+						rows.add(Map.of("index_name", name, "column_name", column));
+					}
+				});
+			} else if (query.equals("select * from employees where emp_id = (?)")) {
+				employeeChecks++;
+				Designation designation = employees.get((Integer) parameters.get(0));
+				if (designation != null) {
+					rows.add(Map.of("emp_id", parameters.get(0), "designation", designation.name()));
+				}
+			} else if (query.startsWith("select emp_id, designation from employees where emp_id in (")) {
+				employeeChecks++;
+				for (Object id : new HashSet<>(parameters)) {
+					Designation designation = employees.get((Integer) id);
+					if (designation != null) {
+						rows.add(Map.of("emp_id", id, "designation", designation.name()));
+					}
+				}
+			} else if (query.equals("select emp_id, mgr_id from employee_managers")) {
+				hierarchyLoads++;
+				for (int[] assignment : assignments) {
+					rows.add(Map.of("emp_id", assignment[0], "mgr_id", assignment[1]));
+				}
+			} else {
+				throw new UnsupportedOperationException(query);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Answers the ptlogs queries of employees and teams, the bound ids followed by the date range when the query has
+	 * one.
+	 */
+	private ArrayList<Map<Object, Object>> readPTLogs(String query, List<Object> parameters)
+			throws InterruptedException {
+		HashSet<Integer> ids = new HashSet<>();
+		ArrayList<Date> range = new ArrayList<>();
+		for (Object parameter : parameters) {
+			if (parameter instanceof Integer) {
+				ids.add((Integer) parameter);
+			} else {
+				range.add((Date) parameter);
+			}
+		}
+		if (ids.contains(slowEmployeeId)) {
+			Thread.sleep(slowReadMillis);
+		}
+		ArrayList<PTLog> matches = new ArrayList<>();
+		synchronized (this) {
+			ptLogReads.add(ids);
+			ptLogReadThreads.add(Thread.currentThread().getName());
+			for (PTLog ptLog : ptLogs) {
+				if (ids.contains(ptLog.getEmployeeId()) && (range.isEmpty() ||
+						!ptLog.getLoggedDate().before(range.get(0)) && !ptLog.getLoggedDate().after(range.get(1)))) {
+					matches.add(ptLog);
+				}
+			}
+		}
+		Comparator<PTLog> loggedDateOrder = Comparator.comparing(PTLog::getLoggedDate).thenComparingInt(PTLog::getId);
+		if (query.endsWith(" desc")) {
+			matches.sort(loggedDateOrder.reversed());
+		} else if (query.endsWith(" order by logged_date")) {
+			matches.sort(loggedDateOrder);
+		}
+		ArrayList<Map<Object, Object>> rows = new ArrayList<>();
+		for (PTLog ptLog : matches) {
+			rows.add(Map.of("ptlog_id", ptLog.getId(), "emp_id", ptLog.getEmployeeId(), "details", ptLog.getDetails(),
+					"logged_date", ptLog.getLoggedDate()));
+		}
+		return rows;
+	}
+
+	/**
+	 * Inserts a batch of ptlogs with the next ids, the rows staying uncommitted while the connection is not in auto
+	 * commit.
+	 */
+	private synchronized int[] insertBatch(String query, List<List<Object>> batch,
+			List<Map<Object, Object>> generatedKeys, ArrayList<PTLog> uncommitted) throws SQLException {
+		if (!query.equals("insert into ptlogs (emp_id, details, logged_date) values (?,?,?)")) {
+			throw new UnsupportedOperationException(query);
+		}
+		batchSizes.add(batch.size());
+		if (batchSizes.size() == failingBatch) {
+			throw new SQLException("Batch failed");
+		}
+		int nextId = ptLogs.stream().mapToInt(PTLog::getId).max().orElse(0) + 1;
+		int[] counts = new int[batch.size()];
+		for (int i = 0; i < batch.size(); i++) {
+			List<Object> row = batch.get(i);
+			PTLog ptLog = new PTLog(nextId, (Integer) row.get(0), (String) row.get(1), (Date) row.get(2));
+			ptLogs.add(ptLog);
+			uncommitted.add(ptLog);
+			generatedKeys.add(Map.of(1, nextId++));
+			counts[i] = 1;
+		}
+		return counts;
+	}
+
+	private synchronized int update(String query, List<Object> parameters) {
+		if (query.startsWith("insert into schema_version ")) {
+			schemaVersion = Math.max(schemaVersion, (Integer) parameters.get(0));
+			executed.add(query);
+			return 1;
+		}
+		throw new UnsupportedOperationException(query);
+	}
+
+	private ResultSet resultSet(List<Map<Object, Object>> rows) {
+		int[] row = {-1};
+		boolean[] closed = {false};
+		openResultSets.incrementAndGet();
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "next":
+							return ++row[0] < rows.size();
+						case "getInt":
+						case "getString":
+						case "getDate":
+							return rows.get(row[0]).get(args[0]);
+						case "close":
+							if (!closed[0]) {
+								closed[0] = true;
+								openResultSets.decrementAndGet();
+							}
+							return null;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
@@ -0,0 +1,230 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.Designation;
+import com.siddhartha.practice.Models.PTLog;
+import config.DatabaseConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the JdbcPTLogStorageEngine against a stand in database. Batch inserts check the employees at once and send
+ * the logs in batches of the given size. Listings hand every row to the consumer while the result is read. Bulk reads split the employee ids in chunks of
+ * DatabaseConfig.bulkReadChunkSize read in parallel, and group the results in the order of the ids asked for, sorted
+ * across chunks whichever chunk is read last.
+ *
+ * @author sid
+ */
+class JdbcPTLogStorageEngineTest {
+	private static final int EMPLOYEE_COUNT = 600;
+	private static final int FIRST_MANAGER_ID = 1001;
+	private static final int SECOND_MANAGER_ID = 1002;
+	private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+	private static final Date START_DATE = Date.valueOf(FIRST_DAY.plusDays(9));
+	private static final Date END_DATE = Date.valueOf(FIRST_DAY.plusDays(29));
+
+	private FakeDatabase database;
+	private JdbcPTLogStorageEngine storageEngine;
+
+	@BeforeEach
+	void createEngine() throws SQLException {
+		database = FakeDatabase.register();
+		for (int id = 1; id <= EMPLOYEE_COUNT; id++) {
+			database.addEmployee(id, Designation.TeamMember);
+			database.addPTLog(2 * id - 1, id, "log", FIRST_DAY.plusDays(id % 20).toString());
+			database.addPTLog(2 * id, id, "log", FIRST_DAY.plusDays(20 + id % 20).toString());
+		}
+		database.addEmployee(FIRST_MANAGER_ID, Designation.Manager);
+		database.addEmployee(SECOND_MANAGER_ID, Designation.Manager);
+		for (int id = 1; id <= 400; id++) {
+			database.addAssignment(id, FIRST_MANAGER_ID);
+		}
+		for (int id = 300; id <= EMPLOYEE_COUNT; id++) {
+			database.addAssignment(id, SECOND_MANAGER_ID);
+		}
+		// The chunk of the lowest ids is read last.
+		database.slowEmployeeId = 1;
+		database.slowReadMillis = 200;
+		storageEngine = new JdbcPTLogStorageEngine();
+	}
+
+	@AfterEach
+	void closeEngine() throws SQLException {
+		storageEngine.close();
+		database.deregister();
+	}
+
+	/**
+	 * @return ids of the logs of the employees in the range of date, in descending order of logged date.
+	 */
+	private ArrayList<Integer> expectedIds(int firstEmployeeId, int lastEmployeeId) {
+		ArrayList<PTLog> expected = new ArrayList<>();
+		for (PTLog ptLog : database.ptLogs) {
+			if (ptLog.getEmployeeId() >= firstEmployeeId && ptLog.getEmployeeId() <= lastEmployeeId &&
+					!ptLog.getLoggedDate().before(START_DATE) && !ptLog.getLoggedDate().after(END_DATE)) {
+				expected.add(ptLog);
+			}
+		}
+		expected.sort(Comparator.comparing(PTLog::getLoggedDate).thenComparingInt(PTLog::getId).reversed());
+		return ids(expected);
+	}
+
+	private static ArrayList<Integer> ids(ArrayList<PTLog> ptLogs) {
+		ArrayList<Integer> ids = new ArrayList<>();
+		for (PTLog ptLog : ptLogs) {
+			ids.add(ptLog.getId());
+		}
+		return ids;
+	}
+
+	private static Set<Integer> idRange(int first, int last) {
+		HashSet<Integer> ids = new HashSet<>();
+		for (int id = first; id <= last; id++) {
+			ids.add(id);
+		}
+		return ids;
+	}
+
+	private static ArrayList<PTLog> newPTLogs(int count, int... unknownEmployeeRows) {
+		ArrayList<PTLog> ptLogs = new ArrayList<>();
+		for (int row = 0; row < count; row++) {
+			int employeeId = 1 + row % 300;
+			for (int unknownEmployeeRow : unknownEmployeeRows) {
+				employeeId = row == unknownEmployeeRow ? 9999 : employeeId;
+			}
+			ptLogs.add(new PTLog(0, employeeId, "batch " + row, Date.valueOf(FIRST_DAY)));
+		}
+		return ptLogs;
+	}
+
+	@Test
+	void addsLogsOfExistingEmployeesInBatchesAndSetsTheirIds() {
+		ArrayList<PTLog> ptLogs = newPTLogs(250, 10, 200);
+
+		int[] results = storageEngine.addPTLogsBatch(ptLogs, 100);
+
+		int[] expectedResults = new int[250];
+		Arrays.fill(expectedResults, 1);
+		expectedResults[10] = 0;
+		expectedResults[200] = 0;
+		assertArrayEquals(expectedResults, results);
+		assertEquals(List.of(100, 100, 48), database.batchSizes);
+		assertEquals(3, database.employeeChecks);
+		assertEquals(2 * EMPLOYEE_COUNT + 248, database.ptLogs.size());
+		int lastId = 2 * EMPLOYEE_COUNT;
+		for (int row = 0; row < ptLogs.size(); row++) {
+			PTLog ptLog = ptLogs.get(row);
+			if (results[row] == 0) {
+				assertEquals(0, ptLog.getId());
+				continue;
+			}
+			assertEquals(lastId + 1, ptLog.getId());
+			PTLog stored = database.ptLogs.get(ptLog.getId() - 1);
+			assertEquals(ptLog.getEmployeeId(), stored.getEmployeeId());
+			assertEquals(ptLog.getDetails(), stored.getDetails());
+			lastId = ptLog.getId();
+		}
+	}
+
+	@Test
+	void rollsBackTheWholeBatchWhenOneFails() {
+		ArrayList<PTLog> ptLogs = newPTLogs(250);
+		database.failingBatch = 2;
+
+		assertNull(storageEngine.addPTLogsBatch(ptLogs, 100));
+
+		assertEquals(List.of(100, 100), database.batchSizes);
+		assertEquals(2 * EMPLOYEE_COUNT, database.ptLogs.size());
+		assertTrue(ptLogs.stream().allMatch(ptLog -> ptLog.getId() == 0));
+	}
+
+	@Test
+	void streamsLogsOfAnEmployeeWhileTheResultIsOpen() {
+		database.addPTLog(5000, 7, "extra", "2024-01-15");
+		database.addPTLog(5001, 7, "extra", "2024-01-15");
+		ArrayList<Integer> streamed = new ArrayList<>();
+		ArrayList<Integer> openResultSets = new ArrayList<>();
+
+		assertEquals(1, storageEngine.forEachPTLogOfEmployeeInRange(7, START_DATE, END_DATE, ptLog -> {
+			streamed.add(ptLog.getId());
+			openResultSets.add(database.openResultSets.get());
+		}));
+
+		assertEquals(List.of(14, 5001, 5000), streamed);
+		assertEquals(List.of(1, 1, 1), openResultSets);
+		assertEquals(0, database.openResultSets.get());
+		assertEquals(DatabaseConfig.fetchSize, (int) database.fetchSizes.get(
+				"select * from ptlogs where emp_id = (?) and (logged_date >= (?) and logged_date <= (?))" +
+						" order by logged_date desc"));
+
+		streamed.clear();
+		assertEquals(1, storageEngine.forEachPTLogOfEmployee(7, ptLog -> streamed.add(ptLog.getId())));
+		assertEquals(List.of(13, 5000, 5001, 14), streamed);
+		assertEquals(1, database.employeeChecks);
+
+		assertEquals(0, storageEngine.forEachPTLogOfEmployee(9999, ptLog -> fail("no logs expected")));
+	}
+
+	@Test
+	void readsEmployeesInChunksOfBulkReadChunkSizeOnSeveralThreads() {
+		assertEquals(256, DatabaseConfig.bulkReadChunkSize);
+		ArrayList<Integer> ids = new ArrayList<>();
+		for (int id = EMPLOYEE_COUNT; id >= 1; id--) {
+			ids.add(id);
+		}
+
+		LinkedHashMap<Integer, ArrayList<PTLog>> ptLogsById = storageEngine.listPTLogOfEmployeesInRange(ids,
+				START_DATE, END_DATE);
+
+		assertEquals(3, database.ptLogReads.size());
+		assertEquals(Set.of(idRange(1, 256), idRange(257, 512), idRange(513, EMPLOYEE_COUNT)),
+				new HashSet<>(database.ptLogReads));
+		assertTrue(database.ptLogReadThreads.size() > 1, database.ptLogReadThreads.toString());
+		assertEquals(ids, new ArrayList<>(ptLogsById.keySet()));
+		for (Integer id : ids) {
+			assertEquals(expectedIds(id, id), ids(ptLogsById.get(id)), "logs of " + id);
+		}
+	}
+
+	@Test
+	void groupsEmployeesInTheOrderAskedSkippingUnknownAndRepeatedIds() {
+		List<Integer> ids = List.of(513, 1, 9999, 300, 1, 600, 256, 257);
+
+		LinkedHashMap<Integer, ArrayList<PTLog>> ptLogsById = storageEngine.listPTLogOfEmployeesInRange(ids,
+				START_DATE, END_DATE);
+
+		assertEquals(List.of(513, 1, 300, 600, 256, 257), new ArrayList<>(ptLogsById.keySet()));
+		for (Integer id : ptLogsById.keySet()) {
+			assertEquals(expectedIds(id, id), ids(ptLogsById.get(id)), "logs of " + id);
+		}
+		assertEquals(Set.of(Set.of(1, 256, 257, 300, 513, 600)), new HashSet<>(database.ptLogReads));
+	}
+
+	@Test
+	void mergesTeamsSpanningChunksInLoggedDateOrder() {
+		List<Integer> ids = List.of(SECOND_MANAGER_ID, 5, FIRST_MANAGER_ID, 9999);
+
+		LinkedHashMap<Integer, ArrayList<PTLog>> ptLogsById = storageEngine.listPTLogUnderManagersInRange(ids,
+				START_DATE, END_DATE);
+
+		assertEquals(List.of(SECOND_MANAGER_ID, FIRST_MANAGER_ID), new ArrayList<>(ptLogsById.keySet()));
+		assertEquals(expectedIds(1, 400), ids(ptLogsById.get(FIRST_MANAGER_ID)));
+		assertEquals(expectedIds(300, EMPLOYEE_COUNT), ids(ptLogsById.get(SECOND_MANAGER_ID)));
+		// Members of both teams are read once.
+		assertEquals(Set.of(idRange(1, 256), idRange(257, 512), idRange(513, EMPLOYEE_COUNT)),
+				new HashSet<>(database.ptLogReads));
+	}
+}
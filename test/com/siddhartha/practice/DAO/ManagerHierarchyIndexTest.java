@@ -0,0 +1,165 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.IntArrayList;
+import com.siddhartha.practice.Models.Designation;
+import config.DatabaseConfig;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the teams ManagerHierarchyIndex resolves as assignments are added, rejected as cycles and loaded again, and
+ * of the JdbcPTLogStorageEngine loading it again from a stand in database once it is older than
+ * DatabaseConfig.managerHierarchyRefreshMillis.
+ *
+ * @author sid
+ */
+class ManagerHierarchyIndexTest {
+	private final ManagerHierarchyIndex hierarchy = new ManagerHierarchyIndex();
+
+	private static void load(ManagerHierarchyIndex hierarchy, long loadedAt, int... employeeAndManagerIds) {
+		IntArrayList employeeIds = new IntArrayList();
+		IntArrayList managerIds = new IntArrayList();
+		for (int i = 0; i < employeeAndManagerIds.length; i += 2) {
+			employeeIds.add(employeeAndManagerIds[i]);
+			managerIds.add(employeeAndManagerIds[i + 1]);
+		}
+		hierarchy.load(employeeIds, managerIds, loadedAt);
+	}
+
+	@Test
+	void resolvesTeamsThroughChainsOfManagers() {
+		assertTrue(hierarchy.addAssignment(2, 1));
+		assertTrue(hierarchy.addAssignment(3, 2));
+		assertTrue(hierarchy.addAssignment(4, 2));
+		assertTrue(hierarchy.addAssignment(5, 4));
+
+		assertArrayEquals(new int[]{2, 3, 4, 5}, hierarchy.resolveTeam(1));
+		assertArrayEquals(new int[]{5}, hierarchy.resolveTeam(4));
+		assertArrayEquals(new int[0], hierarchy.resolveTeam(5));
+		assertEquals(4, hierarchy.getAssignmentCount());
+	}
+
+	@Test
+	void rejectsAssignmentsMakingAManagerReportToItself() {
+		hierarchy.addAssignment(2, 1);
+		hierarchy.addAssignment(3, 2);
+		long version = hierarchy.getVersion();
+
+		assertTrue(hierarchy.wouldCreateCycle(1, 1));
+		assertTrue(hierarchy.wouldCreateCycle(1, 2));
+		assertTrue(hierarchy.wouldCreateCycle(1, 3));
+		assertFalse(hierarchy.wouldCreateCycle(3, 1));
+		assertFalse(hierarchy.addAssignment(1, 3));
+		assertFalse(hierarchy.addAssignment(2, 2));
+
+		assertEquals(version, hierarchy.getVersion());
+		assertEquals(2, hierarchy.getAssignmentCount());
+		assertArrayEquals(new int[0], hierarchy.getManagers(1));
+		assertArrayEquals(new int[]{2, 3}, hierarchy.resolveTeam(1));
+	}
+
+	@Test
+	void visitsEveryReportOnceInCyclesLoadedFromTheDatabase() {
+		load(hierarchy, System.currentTimeMillis(), 2, 1, 3, 2, 1, 3);
+
+		assertArrayEquals(new int[]{2, 3}, hierarchy.resolveTeam(1));
+		assertArrayEquals(new int[]{1, 3}, hierarchy.resolveTeam(2));
+	}
+
+	@Test
+	void addingAnAssignmentDropsTheCachedTeamsAboveIt() {
+		hierarchy.addAssignment(2, 1);
+		hierarchy.addAssignment(3, 2);
+		hierarchy.addAssignment(10, 9);
+		assertArrayEquals(new int[]{2, 3}, hierarchy.resolveTeam(1));
+		assertArrayEquals(new int[]{10}, hierarchy.resolveTeam(9));
+		assertArrayEquals(new int[]{2, 3}, hierarchy.resolveTeam(1));
+		assertEquals(1, hierarchy.getHits());
+
+		hierarchy.addAssignment(4, 3);
+
+		assertArrayEquals(new int[]{2, 3, 4}, hierarchy.resolveTeam(1));
+		assertArrayEquals(new int[]{3, 4}, hierarchy.resolveTeam(2));
+		assertEquals(1, hierarchy.getHits());
+		assertArrayEquals(new int[]{10}, hierarchy.resolveTeam(9));
+		assertEquals(2, hierarchy.getHits());
+	}
+
+	@Test
+	void reassignedEmployeeMovesToTheNewTeamOnLoad() {
+		load(hierarchy, 1_000, 2, 1, 3, 2, 5, 4);
+		assertArrayEquals(new int[]{2, 3}, hierarchy.resolveTeam(1));
+		assertArrayEquals(new int[]{5}, hierarchy.resolveTeam(4));
+		long version = hierarchy.getVersion();
+
+		load(hierarchy, 2_000, 2, 4, 3, 2, 5, 4);
+
+		assertArrayEquals(new int[0], hierarchy.resolveTeam(1));
+		assertArrayEquals(new int[]{2, 3, 5}, hierarchy.resolveTeam(4));
+		assertArrayEquals(new int[]{4}, hierarchy.getManagers(2));
+		assertEquals(3, hierarchy.getAssignmentCount());
+		assertEquals(2_000, hierarchy.getLoadedAt());
+		assertTrue(hierarchy.getVersion() > version);
+	}
+
+	@Test
+	void copiesEveryAssignment() {
+		load(hierarchy, 1_000, 2, 1, 3, 1, 3, 2);
+		IntArrayList employeeIds = new IntArrayList();
+		IntArrayList managerIds = new IntArrayList();
+
+		hierarchy.copyAssignments(employeeIds, managerIds);
+
+		ManagerHierarchyIndex copy = new ManagerHierarchyIndex();
+		copy.load(employeeIds, managerIds, 1_000);
+		assertEquals(3, copy.getAssignmentCount());
+		assertArrayEquals(hierarchy.resolveTeam(1), copy.resolveTeam(1));
+		assertArrayEquals(hierarchy.resolveTeam(2), copy.resolveTeam(2));
+	}
+
+	@Test
+	void engineLoadsTheHierarchyAgainOnceOlderThanTheRefreshTime() throws SQLException {
+		FakeDatabase database = FakeDatabase.register();
+		JdbcPTLogStorageEngine storageEngine = null;
+		try {
+			database.addEmployee(1, Designation.Manager);
+			database.addEmployee(2, Designation.Manager);
+			database.addEmployee(11, Designation.TeamMember);
+			database.addEmployee(12, Designation.TeamMember);
+			database.addAssignment(11, 1);
+			storageEngine = new JdbcPTLogStorageEngine();
+
+			ManagerHierarchyIndex engineHierarchy = storageEngine.getManagerHierarchy();
+			assertEquals(1, database.hierarchyLoads);
+			assertArrayEquals(new int[]{11}, engineHierarchy.resolveTeam(1));
+
+			// Another process reassigns 11 and assigns 12, the index is still fresh and keeps its teams.
+			database.assignments.clear();
+			database.addAssignment(11, 2);
+			database.addAssignment(12, 1);
+			assertSame(engineHierarchy, storageEngine.getManagerHierarchy());
+			assertEquals(1, database.hierarchyLoads);
+			assertArrayEquals(new int[]{11}, engineHierarchy.resolveTeam(1));
+
+			IntArrayList employeeIds = new IntArrayList();
+			IntArrayList managerIds = new IntArrayList();
+			engineHierarchy.copyAssignments(employeeIds, managerIds);
+			long staleLoadedAt = System.currentTimeMillis() - DatabaseConfig.managerHierarchyRefreshMillis - 1;
+			engineHierarchy.load(employeeIds, managerIds, staleLoadedAt);
+
+			assertSame(engineHierarchy, storageEngine.getManagerHierarchy());
+			assertEquals(2, database.hierarchyLoads);
+			assertTrue(engineHierarchy.getLoadedAt() > staleLoadedAt);
+			assertArrayEquals(new int[]{12}, engineHierarchy.resolveTeam(1));
+			assertArrayEquals(new int[]{11}, engineHierarchy.resolveTeam(2));
+		} finally {
+			if (storageEngine != null) {
+				storageEngine.close();
+			}
+			database.deregister();
+		}
+	}
+}
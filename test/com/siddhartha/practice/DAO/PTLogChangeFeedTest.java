@@ -0,0 +1,124 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.ChangeEvent;
+import com.siddhartha.practice.Models.ChangeEventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the PTLogChangeFeed of a PTLogService over an InMemoryPTLogStorageEngine: subscriptions filtered on an
+ * employee or a manager's team receive the matching changes in sequence order, and a full subscription drops events
+ * for itself only.
+ *
+ * @author sid
+ */
+class PTLogChangeFeedTest {
+	private static final Date LOGGED_DATE = Date.valueOf("2024-01-01");
+
+	private PTLogService ptLogService;
+
+	@BeforeEach
+	void createService() {
+		ptLogService = new PTLogService(new InMemoryPTLogStorageEngine(), false, false, false, false, false, true,
+				false);
+		for (String name : List.of("Ana", "Ben", "Cal", "Dee")) {
+			ptLogService.addEmployee(name);
+		}
+		ptLogService.promoteToManager(1);
+	}
+
+	@AfterEach
+	void closeService() {
+		ptLogService.closeConnection();
+	}
+
+	private static ArrayList<String> drain(PTLogChangeSubscription subscription) {
+		ArrayList<ChangeEvent> events = new ArrayList<>();
+		subscription.drainTo(events, Integer.MAX_VALUE);
+		ArrayList<String> descriptions = new ArrayList<>();
+		long lastSequence = 0;
+		for (ChangeEvent event : events) {
+			assertTrue(event.getSequence() > lastSequence, "events out of sequence order");
+			lastSequence = event.getSequence();
+			descriptions.add(event.getType() + " " + event.getEmployeeId());
+		}
+		return descriptions;
+	}
+
+	@Test
+	void subscriptionsReceiveTheChangesOfTheirEmployeeOrTeam() {
+		PTLogChangeSubscription everything = ptLogService.subscribeToChanges(null, null, 100);
+		PTLogChangeSubscription employee = ptLogService.subscribeToChanges(3, null, 100);
+		PTLogChangeSubscription team = ptLogService.subscribeToChanges(null, 1, 100);
+		assertNull(ptLogService.subscribeToChanges(99, null, 100));
+		assertNull(ptLogService.subscribeToChanges(null, 2, 100));
+		assertEquals(3, ptLogService.getChangeFeed().getSubscriptionCount());
+
+		ptLogService.assignEmployeeToManager(2, 1);
+		ptLogService.assignEmployeeToManager(3, 1);
+		ptLogService.addPTLogEmployee(3, "Squats", LOGGED_DATE);
+		ptLogService.addPTLogEmployee(4, "Run", LOGGED_DATE);
+		ptLogService.addPTLogEmployee(99, "Swim", LOGGED_DATE);
+		ptLogService.deletePTLogOfEmployeeInRange(3, LOGGED_DATE, LOGGED_DATE);
+		ptLogService.dropPTLogsBefore(LOGGED_DATE);
+
+		assertEquals(List.of("EmployeeAssigned 2", "EmployeeAssigned 3", "PTLogAdded 3", "PTLogAdded 4",
+				"PTLogsDeleted 3", "PTLogsDroppedBefore null"), drain(everything));
+		assertEquals(List.of("EmployeeAssigned 3", "PTLogAdded 3", "PTLogsDeleted 3", "PTLogsDroppedBefore null"),
+				drain(employee));
+		assertEquals(List.of("EmployeeAssigned 2", "EmployeeAssigned 3", "PTLogAdded 3", "PTLogsDeleted 3",
+				"PTLogsDroppedBefore null"), drain(team));
+
+		employee.close();
+		ptLogService.addPTLogEmployee(3, "Bench", LOGGED_DATE);
+
+		assertNull(employee.poll());
+		ChangeEvent added = team.poll();
+		assertEquals(ChangeEventType.PTLogAdded, added.getType());
+		assertEquals("Bench", added.getPTLog().getDetails());
+		assertEquals(ptLogService.listPTLogOfEmployee(3).get(0).getId(), added.getPTLog().getId());
+		assertEquals(2, ptLogService.getChangeFeed().getSubscriptionCount());
+	}
+
+	@Test
+	void fullSubscriptionDropsEventsForItselfOnly() {
+		PTLogChangeSubscription small = ptLogService.subscribeToChanges(2, null, 2);
+		PTLogChangeSubscription large = ptLogService.subscribeToChanges(2, null, 100);
+
+		for (int i = 0; i < 5; i++) {
+			ptLogService.addPTLogEmployee(2, "log " + i, LOGGED_DATE);
+		}
+
+		assertEquals(2, small.getPendingCount());
+		assertEquals(3, small.getDroppedCount());
+		assertTrue(small.takeOverflow());
+		assertFalse(small.takeOverflow());
+		assertEquals(5, large.getPendingCount());
+		assertFalse(large.takeOverflow());
+		assertEquals(5, ptLogService.getChangeFeed().getPublishedEvents());
+		assertEquals(3, ptLogService.getChangeFeed().getDroppedEvents());
+
+		// The oldest events are kept, the reader learns from the overflow flag that later ones are missing.
+		assertEquals("log 0", small.poll().getPTLog().getDetails());
+		ptLogService.addPTLogEmployee(2, "log 5", LOGGED_DATE);
+		assertEquals("log 1", small.poll().getPTLog().getDetails());
+		assertEquals("log 5", small.poll().getPTLog().getDetails());
+		assertNull(small.poll());
+	}
+
+	@Test
+	void subscribingFailsWhenTheFeedIsNotEnabled() {
+		PTLogService withoutFeed = new PTLogService(new InMemoryPTLogStorageEngine(), false, false, false, false,
+				false, false, false);
+
+		assertNull(withoutFeed.subscribeToChanges(null, null, 100));
+		assertNull(withoutFeed.getChangeFeed());
+	}
+}
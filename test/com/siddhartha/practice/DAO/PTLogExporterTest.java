@@ -0,0 +1,155 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.JsonParser;
+import com.siddhartha.practice.Models.ExportFormat;
+import com.siddhartha.practice.Models.PTLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of PTLogExporter writing the logs of a PTLogService over an InMemoryPTLogStorageEngine to ndjson, gzip ndjson
+ * and columnar files read back field by field, and leaving no file behind when the logs can not be read.
+ *
+ * @author sid
+ */
+class PTLogExporterTest {
+	private static final Date START_DATE = Date.valueOf("2024-01-10");
+	private static final Date END_DATE = Date.valueOf("2024-01-20");
+
+	@TempDir
+	Path directory;
+
+	private PTLogService ptLogService;
+	private PTLogExporter exporter;
+
+	@BeforeEach
+	void createExporter() {
+		ptLogService = new PTLogService(new InMemoryPTLogStorageEngine(), false, false, false, false, false, false,
+				false);
+		for (String name : List.of("Ana", "Ben", "Cal")) {
+			ptLogService.addEmployee(name);
+		}
+		ptLogService.promoteToManager(1);
+		ptLogService.assignEmployeeToManager(2, 1);
+		ptLogService.assignEmployeeToManager(3, 1);
+		for (int i = 0; i < 100; i++) {
+			String details = i % 10 == 0 ? "Squats \"5x5\", tempo\n3-1-1 ✓" : "set " + i;
+			ptLogService.addPTLogEmployee(2 + i % 2, details, Date.valueOf(LocalDate.of(2024, 1, 1).plusDays(i % 40)));
+		}
+		// Small blocks make the columnar files span several blocks.
+		exporter = new PTLogExporter(ptLogService, 1024, 7);
+	}
+
+	@AfterEach
+	void closeService() {
+		ptLogService.closeConnection();
+	}
+
+	private List<Path> files() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.toList();
+		}
+	}
+
+	private static String row(PTLog ptLog) {
+		return ptLog.getId() + "|" + ptLog.getEmployeeId() + "|" + ptLog.getDetails() + "|" + ptLog.getLoggedDate();
+	}
+
+	private static ArrayList<String> rows(List<PTLog> ptLogs) {
+		ArrayList<String> rows = new ArrayList<>();
+		for (PTLog ptLog : ptLogs) {
+			rows.add(row(ptLog));
+		}
+		return rows;
+	}
+
+	private static ArrayList<String> readNdjson(InputStream input) throws IOException {
+		ArrayList<String> rows = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				LinkedHashMap<String, Object> object = JsonParser.parseObject(line);
+				rows.add(object.get("id") + "|" + object.get("employeeId") + "|" + object.get("details") + "|" +
+						object.get("loggedDate"));
+			}
+		}
+		return rows;
+	}
+
+	@Test
+	void exportsLogsOfAnEmployeeInRangeToNdjson() throws IOException {
+		Path file = directory.resolve("ptlogs.ndjson");
+
+		assertEquals(15, exporter.export(file, ExportFormat.Ndjson, 2, null, START_DATE, END_DATE));
+
+		assertEquals(rows(ptLogService.listPTLogOfEmployeeInRange(2, START_DATE, END_DATE)),
+				readNdjson(Files.newInputStream(file)));
+		assertEquals(List.of(file), files());
+	}
+
+	@Test
+	void exportsLogsOfAllEmployeesToGzipNdjson() throws IOException {
+		Path file = directory.resolve("ptlogs.ndjson.gz");
+
+		assertEquals(100, exporter.export(file, ExportFormat.NdjsonGzip, null, null, null, null));
+
+		ArrayList<PTLog> expected = new ArrayList<>();
+		ptLogService.forEachPTLog(expected::add);
+		ArrayList<String> exported = readNdjson(new GZIPInputStream(Files.newInputStream(file)));
+		assertEquals(rows(expected), exported);
+		assertTrue(exported.contains("1|2|Squats \"5x5\", tempo\n3-1-1 ✓|2024-01-01"));
+	}
+
+	@Test
+	void exportsLogsOfATeamToColumnarBlocksReadBackInOrder() throws IOException {
+		Path file = directory.resolve("ptlogs.ptlc");
+
+		assertEquals(100, exporter.export(file, ExportFormat.Columnar, null, 1, null, null));
+
+		ArrayList<PTLog> read = new ArrayList<>();
+		assertEquals(100, PTLogColumnarFile.read(file, read::add));
+		assertEquals(rows(ptLogService.listPTLogUnderManager(1)), rows(read));
+		ArrayList<PTLog> mapped = new ArrayList<>();
+		assertEquals(100, PTLogColumnarFile.read(ByteBuffer.wrap(Files.readAllBytes(file)), mapped::add));
+		assertEquals(rows(read), rows(mapped));
+
+		byte[] bytes = Files.readAllBytes(file);
+		bytes[bytes.length / 2] ^= 0x10;
+		Path damaged = Files.write(directory.resolve("damaged.ptlc"), bytes);
+		assertThrows(IOException.class, () -> PTLogColumnarFile.read(damaged, ptLog -> {
+		}));
+	}
+
+	@Test
+	void keepsAnEarlierExportWhenTheLogsCanNotBeRead() throws IOException {
+		Path file = directory.resolve("ptlogs.ndjson");
+		assertEquals(50, exporter.export(file, ExportFormat.Ndjson, 3, null, null, null));
+		byte[] earlierExport = Files.readAllBytes(file);
+
+		assertEquals(-1, exporter.export(file, ExportFormat.Ndjson, 99, null, null, null));
+		assertEquals(-1, exporter.export(file, ExportFormat.Columnar, null, 2, null, null));
+
+		assertArrayEquals(earlierExport, Files.readAllBytes(file));
+		assertEquals(List.of(file), files());
+	}
+}
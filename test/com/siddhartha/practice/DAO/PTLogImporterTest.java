@@ -0,0 +1,148 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.ImportFormat;
+import com.siddhartha.practice.Models.ImportReport;
+import com.siddhartha.practice.Models.PTLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of PTLogImporter adding employees and pt logs read from csv and ndjson files to a PTLogService over an
+ * InMemoryPTLogStorageEngine. Small chunks and a small read buffer make rows cross chunks and buffer refills, and
+ * several parser and writer threads run at once.
+ *
+ * @author sid
+ */
+class PTLogImporterTest {
+	@TempDir
+	Path directory;
+
+	private PTLogService ptLogService;
+	private PTLogImporter importer;
+
+	@BeforeEach
+	void createImporter() {
+		ptLogService = new PTLogService(new InMemoryPTLogStorageEngine(), false, false, false, false, false, false,
+				false);
+		importer = new PTLogImporter(ptLogService, 3, 2, 64, 2, 1024, 10, 10);
+	}
+
+	@AfterEach
+	void closeService() {
+		ptLogService.closeConnection();
+	}
+
+	private Path write(String fileName, String content) throws IOException {
+		return Files.write(directory.resolve(fileName), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void importsCsvRowsAndReportsTheRejectedOnes() throws IOException {
+		Path employees = write("employees.csv", "\uFEFFname\nAna\n\"Lee, Ben\"\r\n\nAna\n");
+
+		ImportReport employeeReport = importer.importEmployees(employees, ImportFormat.Csv, null);
+
+		assertEquals(3, employeeReport.getRowsImported());
+		assertEquals(0, employeeReport.getRowsRejected());
+		assertEquals("Lee, Ben", ptLogService.listEmployees().get(1).getName());
+
+		Path ptLogs = write("ptlogs.csv", "loggedDate,employeeName,details,employeeId\n" +
+				"2024-01-02,\"Lee, Ben\",\"Squats, 5x5\",\n" +
+				"2024-01-03,,\"Run \"\"easy\"\"\nthen stretch\",2\n" +
+				"2024-01-04,Ana,Yoga,\n" +
+				"2024-01-05,Zed,Swim,\n" +
+				"not-a-date,,Bench,2\n" +
+				"2024-01-06,,Rows,99\n" +
+				",,Plank,2\n");
+
+		ImportReport report = importer.importPTLogs(ptLogs, ImportFormat.Csv, null);
+
+		assertTrue(report.isFinished());
+		assertNull(report.getFailure());
+		assertEquals(7, report.getRowsRead());
+		assertEquals(2, report.getRowsImported());
+		assertEquals(5, report.getRowsRejected());
+		assertEquals(Set.of(
+				"line 5: employeeName 'Ana' is shared by several employees",
+				"line 6: unknown employeeName 'Zed'",
+				"line 7: invalid loggedDate 'not-a-date'",
+				"line 8: employee id 99 doesn't exist",
+				"line 9: missing loggedDate"), new HashSet<>(report.getRejections()));
+		ArrayList<PTLog> stored = ptLogService.listPTLogOfEmployee(2);
+		assertEquals(2, stored.size());
+		assertEquals("Squats, 5x5", stored.get(0).getDetails());
+		assertEquals(Date.valueOf("2024-01-02"), stored.get(0).getLoggedDate());
+		assertEquals("Run \"easy\"\nthen stretch", stored.get(1).getDetails());
+	}
+
+	@Test
+	void importsEveryRowOfALargeNdjsonFile() throws IOException {
+		for (String name : List.of("Ana", "Ben", "Cal")) {
+			ptLogService.addEmployee(name);
+		}
+		int rowCount = 5_000;
+		StringBuilder content = new StringBuilder();
+		for (int row = 0; row < rowCount; row++) {
+			content.append(row % 2 == 0 ? "{\"employeeId\": " + (1 + row % 3) : "{\"employeeName\": \"Cal\"")
+					.append(", \"details\": \"log ").append(row)
+					.append("\", \"loggedDate\": \"").append(LocalDate.of(2024, 1, 1).plusDays(row % 30))
+					.append("\"}\n");
+		}
+		content.append("{\"employeeId\": 1, \"details\": \"no date\"}\n").append("not json\n");
+		ArrayList<ImportReport> progress = new ArrayList<>();
+
+		ImportReport report = importer.importPTLogs(write("ptlogs.ndjson", content.toString()), ImportFormat.Ndjson,
+				progress::add);
+
+		assertNull(report.getFailure());
+		assertEquals(rowCount + 2, report.getRowsRead());
+		assertEquals(rowCount, report.getRowsImported());
+		assertEquals(2, report.getRowsRejected());
+		assertTrue(report.getRejections().contains("line " + (rowCount + 1) + ": missing loggedDate"));
+		int[] countsById = new int[4];
+		HashSet<String> details = new HashSet<>();
+		assertEquals(1, ptLogService.forEachPTLog(ptLog -> {
+			countsById[ptLog.getEmployeeId()]++;
+			details.add(ptLog.getDetails());
+		}));
+		assertEquals(rowCount, details.size());
+		// Even rows go to employees 1, 2 and 3 in turn, odd rows to Cal.
+		assertEquals(834, countsById[1]);
+		assertEquals(833, countsById[2]);
+		assertEquals(833 + rowCount / 2, countsById[3]);
+	}
+
+	@Test
+	void failsWithoutReadingRowsWhenTheCsvHeaderLacksRequiredColumns() throws IOException {
+		ptLogService.addEmployee("Ana");
+		Path ptLogs = write("ptlogs.csv", "employeeId,details\n1,Run\n");
+
+		ImportReport report = importer.importPTLogs(ptLogs, ImportFormat.Csv, null);
+
+		assertTrue(report.getFailure().startsWith("The header row of the csv file needs"), report.getFailure());
+		assertEquals(0, report.getRowsRead());
+		assertEquals(List.of(), ptLogService.listPTLogOfEmployee(1));
+	}
+
+	@Test
+	void splitsQuotedCsvFields() {
+		assertArrayEquals(new String[]{"a", "b, c", "", "say \"hi\"", ""},
+				PTLogImporter.splitCsvRow("a,\"b, c\",,\"say \"\"hi\"\"\","));
+		assertThrows(IllegalArgumentException.class, () -> PTLogImporter.splitCsvRow("a,\"open"));
+	}
+}
@@ -0,0 +1,242 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.PTLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of PTLogJournal replay, checkpoint and recovery of torn records, replaying into an in-memory engine that can
+ * be taken down or made to refuse given logs.
+ *
+ * @author sid
+ */
+class PTLogJournalTest {
+	private static final int SEGMENT_BYTES = 1 << 16;
+	private static final int RECORD_HEADER_BYTES = 16;
+	private static final long WAIT_MILLIS = 5_000;
+
+	@TempDir
+	Path directory;
+
+	private InMemoryPTLogStorageEngine engine;
+	private volatile boolean down;
+	private volatile String refusedDetails;
+	private PTLogStorageEngine storageEngine;
+
+	@BeforeEach
+	void createEngine() {
+		engine = new InMemoryPTLogStorageEngine();
+		engine.addEmployee("first");
+		engine.addEmployee("second");
+		storageEngine = (PTLogStorageEngine) Proxy.newProxyInstance(PTLogStorageEngine.class.getClassLoader(),
+				new Class<?>[]{PTLogStorageEngine.class}, (proxy, method, args) -> {
+					if (down && (method.getName().equals("addPTLogsBatch") ||
+							method.getName().equals("listEmployeesPage"))) {
+						return null;
+					}
+					if (method.getName().equals("addPTLogsBatch") && refusedDetails != null) {
+						for (Object ptLog : (Collection<?>) args[0]) {
+							if (refusedDetails.equals(((PTLog) ptLog).getDetails())) {
+								return null;
+							}
+						}
+					}
+					try {
+						return method.invoke(engine, args);
+					} catch (InvocationTargetException invocationTargetException) {
+						throw invocationTargetException.getCause();
+					}
+				});
+	}
+
+	private PTLogJournal openJournal() throws IOException {
+		return new PTLogJournal(directory, SEGMENT_BYTES, false, storageEngine, new PTLogMetrics(), 4, 10);
+	}
+
+	private static PTLog ptLog(int employeeId, String details) {
+		return new PTLog(0, employeeId, details, Date.valueOf("2024-03-01"));
+	}
+
+	@Test
+	void replaysAppendedLogs() throws Exception {
+		try (PTLogJournal journal = openJournal()) {
+			for (int i = 0; i < 10; i++) {
+				assertEquals(1, journal.append(ptLog(1 + i % 2, "log " + i)));
+			}
+			awaitPending(journal, 0);
+		}
+		assertEquals(10, details().size());
+	}
+
+	@Test
+	void keepsLogsWhileDatabaseIsDown() throws Exception {
+		down = true;
+		try (PTLogJournal journal = openJournal()) {
+			journal.append(ptLog(1, "a"));
+			journal.append(ptLog(2, "b"));
+			Thread.sleep(100);
+			assertEquals(2, journal.getPendingCount());
+			assertEquals(0, journal.getDeadLetteredCount());
+			down = false;
+			awaitPending(journal, 0);
+		}
+		assertEquals(List.of("a", "b"), details());
+		assertFalse(Files.exists(directory.resolve("dead-letter.ndjson")));
+	}
+
+	@Test
+	void replaysAfterCheckpointOnRestart() throws Exception {
+		try (PTLogJournal journal = openJournal()) {
+			journal.append(ptLog(1, "replayed"));
+			awaitPending(journal, 0);
+			down = true;
+			journal.append(ptLog(1, "pending"));
+		}
+		down = false;
+		try (PTLogJournal journal = openJournal()) {
+			awaitPending(journal, 0);
+		}
+		try (PTLogJournal journal = openJournal()) {
+			assertEquals(0, journal.getPendingCount());
+		}
+		assertEquals(List.of("pending", "replayed"), details());
+	}
+
+	@Test
+	void dropsTornRecordAndAppendsOverIt() throws Exception {
+		down = true;
+		try (PTLogJournal journal = openJournal()) {
+			journal.append(ptLog(1, "kept"));
+			journal.append(ptLog(1, "torn"));
+		}
+		int tornPosition = RECORD_HEADER_BYTES + "kept".length();
+		flipByte(segment(), tornPosition + RECORD_HEADER_BYTES);
+		down = false;
+		try (PTLogJournal journal = openJournal()) {
+			journal.append(ptLog(2, "after"));
+			awaitPending(journal, 0);
+		}
+		assertEquals(List.of("after", "kept"), details());
+	}
+
+	@Test
+	void ignoresRecordWithImpossibleLength() throws Exception {
+		down = true;
+		try (PTLogJournal journal = openJournal()) {
+			journal.append(ptLog(1, "kept"));
+			journal.append(ptLog(1, "torn"));
+		}
+		int tornPosition = RECORD_HEADER_BYTES + "kept".length();
+		writeInt(segment(), tornPosition, SEGMENT_BYTES);
+		down = false;
+		try (PTLogJournal journal = openJournal()) {
+			awaitPending(journal, 0);
+		}
+		assertEquals(List.of("kept"), details());
+	}
+
+	@Test
+	void replaysFromFirstSegmentWhenCheckpointIsCorrupt() throws Exception {
+		try (PTLogJournal journal = openJournal()) {
+			journal.append(ptLog(1, "again"));
+			awaitPending(journal, 0);
+		}
+		flipByte(directory.resolve("checkpoint"), 3);
+		try (PTLogJournal journal = openJournal()) {
+			awaitPending(journal, 0);
+		}
+		assertEquals(List.of("again", "again"), details());
+	}
+
+	@Test
+	void deadLettersLogFailingOnItsOwn() throws Exception {
+		refusedDetails = "bad";
+		try (PTLogJournal journal = openJournal()) {
+			journal.append(ptLog(1, "before"));
+			journal.append(ptLog(1, "bad"));
+			journal.append(ptLog(2, "after"));
+			journal.append(ptLog(99, "unknown employee"));
+			awaitPending(journal, 0);
+			assertEquals(1, journal.getDeadLetteredCount());
+		}
+		assertEquals(List.of("after", "before"), details());
+		List<String> lines = Files.readAllLines(directory.resolve("dead-letter.ndjson"), StandardCharsets.UTF_8);
+		assertEquals(1, lines.size());
+		assertTrue(lines.get(0).contains("\"bad\""), lines.get(0));
+		try (PTLogJournal journal = openJournal()) {
+			assertEquals(0, journal.getPendingCount());
+		}
+	}
+
+	@Test
+	void refusesLogLargerThanSegment() throws Exception {
+		try (PTLogJournal journal = openJournal()) {
+			assertEquals(0, journal.append(ptLog(1, "x".repeat(SEGMENT_BYTES))));
+			assertEquals(0, journal.append(new PTLog(0, 1, "no date", null)));
+		}
+	}
+
+	@Test
+	void refusesAppendAfterClose() throws Exception {
+		PTLogJournal journal = openJournal();
+		journal.close();
+		assertEquals(0, journal.append(ptLog(1, "late")));
+	}
+
+	private static void awaitPending(PTLogJournal journal, long count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		while (journal.getPendingCount() != count) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("journal still has " + journal.getPendingCount() + " pending logs");
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * @return details of every log in the engine, sorted.
+	 */
+	private ArrayList<String> details() {
+		ArrayList<String> details = new ArrayList<>();
+		engine.forEachPTLog(ptLog -> details.add(ptLog.getDetails()));
+		details.sort(null);
+		return details;
+	}
+
+	private Path segment() {
+		return directory.resolve(String.format("%010d.journal", 0));
+	}
+
+	private static void flipByte(Path file, int position) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer value = ByteBuffer.allocate(1);
+			channel.read(value, position);
+			value.put(0, (byte) (value.get(0) ^ 0xff));
+			value.rewind();
+			channel.write(value, position);
+		}
+	}
+
+	private static void writeInt(Path file, int position, int value) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(4).putInt(0, value), position);
+		}
+	}
+}
@@ -0,0 +1,295 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Service.ConnectionPool;
+import com.siddhartha.practice.Service.PooledConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the month boundaries PTLogPartitionManager creates, adds and drops partitions at, and of the statements it
+ * runs against a stand in database answering the information_schema queries.
+ *
+ * @author sid
+ */
+class PTLogPartitionManagerTest {
+	private final PTLogPartitionManager partitionManager = new PTLogPartitionManager();
+	/** partition descriptions by name, as information_schema.partitions lists them. */
+	private final LinkedHashMap<String, String> tablePartitions = new LinkedHashMap<>();
+	private final ArrayList<String> executed = new ArrayList<>();
+	private Date oldestLoggedDate;
+	private boolean failAlter = false;
+	private ConnectionPool pool;
+
+	@BeforeEach
+	void createPool() throws SQLException {
+		pool = new ConnectionPool(this::newConnection, 0, 1, 60_000, 100, 1, 4);
+	}
+
+	@AfterEach
+	void closePool() {
+		pool.close();
+	}
+
+	private static TreeMap<LocalDate, String> partitions(String... upperBoundsAndNames) {
+		TreeMap<LocalDate, String> partitions = new TreeMap<>();
+		for (int i = 0; i < upperBoundsAndNames.length; i += 2) {
+			partitions.put(LocalDate.parse(upperBoundsAndNames[i]), upperBoundsAndNames[i + 1]);
+		}
+		return partitions;
+	}
+
+	@Test
+	void definesHistoryEveryMonthAndFuture() {
+		assertEquals("partition p_history values less than ('2023-11-01')" +
+						", partition p202311 values less than ('2023-12-01')" +
+						", partition p202312 values less than ('2024-01-01')" +
+						", partition p202401 values less than ('2024-02-01')" +
+						", partition p_future values less than (maxvalue)",
+				PTLogPartitionManager.partitionDefinitions(LocalDate.parse("2023-11-01"), LocalDate.parse("2024-01-31")));
+	}
+
+	@Test
+	void definesSingleMonthWhenTableStartsInLastMonth() {
+		assertEquals("partition p_history values less than ('2024-02-01')" +
+						", partition p202402 values less than ('2024-03-01')" +
+						", partition p_future values less than (maxvalue)",
+				PTLogPartitionManager.partitionDefinitions(LocalDate.parse("2024-02-01"), LocalDate.parse("2024-02-29")));
+	}
+
+	@Test
+	void addsMonthsAfterLastPartition() {
+		TreeMap<LocalDate, String> existing = partitions("2024-01-01", "p_history", "2024-02-01", "p202401");
+		assertEquals(List.of("partition p202402 values less than ('2024-03-01')",
+						"partition p202403 values less than ('2024-04-01')"),
+				PTLogPartitionManager.missingMonthPartitions(existing, LocalDate.parse("2024-03-15")));
+	}
+
+	@Test
+	void addsNothingWhenLastMonthIsCovered() {
+		TreeMap<LocalDate, String> existing = partitions("2024-01-01", "p_history", "2024-04-01", "p202403");
+		assertTrue(PTLogPartitionManager.missingMonthPartitions(existing, LocalDate.parse("2024-03-31")).isEmpty());
+		assertTrue(PTLogPartitionManager.missingMonthPartitions(existing, LocalDate.parse("2024-02-10")).isEmpty());
+	}
+
+	@Test
+	void addsMonthStartingOnBoundary() {
+		TreeMap<LocalDate, String> existing = partitions("2024-04-01", "p202403");
+		assertEquals(List.of("partition p202404 values less than ('2024-05-01')"),
+				PTLogPartitionManager.missingMonthPartitions(existing, LocalDate.parse("2024-04-01")));
+	}
+
+	@Test
+	void addsLastMonthOnlyWhenFutureIsTheOnlyPartition() {
+		assertEquals(List.of("partition p202412 values less than ('2025-01-01')"),
+				PTLogPartitionManager.missingMonthPartitions(new TreeMap<>(), LocalDate.parse("2024-12-31")));
+	}
+
+	@Test
+	void dropsPartitionsEndingOnOrBeforeCutoff() {
+		TreeMap<LocalDate, String> existing = partitions("2024-01-01", "p_history", "2024-02-01", "p202401",
+				"2024-03-01", "p202402", "2024-04-01", "p202403");
+		assertEquals(List.of("p_history", "p202401", "p202402"),
+				PTLogPartitionManager.partitionsBefore(existing, LocalDate.parse("2024-03-01")));
+		assertEquals(List.of("p_history", "p202401"),
+				PTLogPartitionManager.partitionsBefore(existing, LocalDate.parse("2024-02-29")));
+	}
+
+	@Test
+	void dropsNothingBeforeFirstBound() {
+		TreeMap<LocalDate, String> existing = partitions("2024-01-01", "p_history", "2024-02-01", "p202401");
+		assertTrue(PTLogPartitionManager.partitionsBefore(existing, LocalDate.parse("2023-12-31")).isEmpty());
+		assertTrue(PTLogPartitionManager.partitionsBefore(new TreeMap<>(), LocalDate.parse("2024-06-01")).isEmpty());
+	}
+
+	@Test
+	void partitionsTableAndChangesPrimaryKeyInOneAlter() throws SQLException {
+		oldestLoggedDate = Date.valueOf("2023-11-15");
+		try (PooledConnection pooledConnection = pool.borrow()) {
+			partitionManager.partitionTable(pooledConnection, LocalDate.parse("2024-01-10"));
+		}
+		assertEquals(List.of("alter table ptlogs drop primary key, add primary key (ptlog_id, logged_date)" +
+				" partition by range columns(logged_date) (" +
+				PTLogPartitionManager.partitionDefinitions(LocalDate.parse("2023-11-01"), LocalDate.parse("2024-01-10")) +
+				")"), executed);
+	}
+
+	@Test
+	void partitionsEmptyTableFromLastMonth() throws SQLException {
+		try (PooledConnection pooledConnection = pool.borrow()) {
+			partitionManager.partitionTable(pooledConnection, LocalDate.parse("2024-01-10"));
+		}
+		assertEquals(1, executed.size());
+		assertTrue(executed.get(0).endsWith("(partition p_history values less than ('2024-01-01')" +
+				", partition p202401 values less than ('2024-02-01')" +
+				", partition p_future values less than (maxvalue))"), executed.get(0));
+	}
+
+	@Test
+	void failedPartitioningLeavesNoSeparatePrimaryKeyChange() {
+		oldestLoggedDate = Date.valueOf("2024-01-02");
+		failAlter = true;
+		assertThrows(SQLException.class, () -> {
+			try (PooledConnection pooledConnection = pool.borrow()) {
+				partitionManager.partitionTable(pooledConnection, LocalDate.parse("2024-02-10"));
+			}
+		});
+		assertEquals(1, executed.size());
+		assertTrue(executed.get(0).contains("add primary key") && executed.get(0).contains("partition by"),
+				executed.get(0));
+	}
+
+	@Test
+	void ensuresNothingOnUnpartitionedTable() throws SQLException {
+		try (PooledConnection pooledConnection = pool.borrow()) {
+			assertEquals(0, partitionManager.ensurePartitionsThrough(pooledConnection, LocalDate.parse("2024-03-01")));
+		}
+		assertTrue(executed.isEmpty());
+	}
+
+	@Test
+	void splitsMissingMonthsOffFuturePartition() throws SQLException {
+		tablePartitions.put("p_history", "'2024-01-01'");
+		tablePartitions.put("p202401", "'2024-02-01'");
+		tablePartitions.put("p_future", "MAXVALUE");
+		try (PooledConnection pooledConnection = pool.borrow()) {
+			assertEquals(2, partitionManager.ensurePartitionsThrough(pooledConnection, LocalDate.parse("2024-03-31")));
+		}
+		assertEquals(List.of("alter table ptlogs reorganize partition p_future into (" +
+				"partition p202402 values less than ('2024-03-01'), " +
+				"partition p202403 values less than ('2024-04-01'), " +
+				"partition p_future values less than (maxvalue))"), executed);
+	}
+
+	@Test
+	void ensuresNothingWhenMonthsAreCovered() throws SQLException {
+		tablePartitions.put("p_history", "'2024-01-01'");
+		tablePartitions.put("p202401", "'2024-02-01'");
+		tablePartitions.put("p_future", "MAXVALUE");
+		try (PooledConnection pooledConnection = pool.borrow()) {
+			assertEquals(0, partitionManager.ensurePartitionsThrough(pooledConnection, LocalDate.parse("2024-01-20")));
+		}
+		assertTrue(executed.isEmpty());
+	}
+
+	@Test
+	void dropsPartitionsBeforeCutoffInOneAlter() throws SQLException {
+		tablePartitions.put("p_history", "'2024-01-01'");
+		tablePartitions.put("p202401", "'2024-02-01'");
+		tablePartitions.put("p202402", "'2024-03-01'");
+		tablePartitions.put("p_future", "MAXVALUE");
+		try (PooledConnection pooledConnection = pool.borrow()) {
+			assertEquals(2, partitionManager.dropPartitionsBefore(pooledConnection, LocalDate.parse("2024-02-15")));
+			assertEquals(0, partitionManager.dropPartitionsBefore(pooledConnection, LocalDate.parse("2023-12-01")));
+		}
+		assertEquals(List.of("alter table ptlogs drop partition p_history, p202401"), executed);
+	}
+
+	private Connection newConnection() {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "isValid":
+						case "getAutoCommit":
+							return true;
+						case "isClosed":
+							return false;
+						case "close":
+						case "setAutoCommit":
+							return null;
+						case "prepareStatement":
+							return preparedStatement((String) args[0]);
+						case "createStatement":
+							return statement();
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private PreparedStatement preparedStatement(String query) {
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "executeQuery":
+							return resultSet(rowsOf(query));
+						case "isClosed":
+							return false;
+						case "close":
+						case "clearParameters":
+							return null;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private ArrayList<Map<Object, Object>> rowsOf(String query) {
+		ArrayList<Map<Object, Object>> rows = new ArrayList<>();
+		if (query.startsWith("select min(logged_date)")) {
+			rows.add(Collections.singletonMap(1, oldestLoggedDate));
+		} else if (query.startsWith("select count(*)")) {
+			rows.add(Map.of(1, (long) tablePartitions.size()));
+		} else if (query.startsWith("select partition_name, partition_description")) {
+			tablePartitions.forEach((name, description) ->
+					rows.add(Map.of("partition_name", name, "partition_description", description)));
+		} else {
+			throw new UnsupportedOperationException(query);
+		}
+		return rows;
+	}
+
+	private static ResultSet resultSet(List<Map<Object, Object>> rows) {
+		int[] row = {-1};
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "next":
+							return ++row[0] < rows.size();
+						case "getLong":
+						case "getString":
+						case "getDate":
+							return rows.get(row[0]).get(args[0]);
+						case "close":
+							return null;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private Statement statement() {
+		return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "executeUpdate":
+							executed.add((String) args[0]);
+							if (failAlter) {
+								throw new SQLException("Partitioning failed");
+							}
+							return 0;
+						case "close":
+							return null;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
@@ -0,0 +1,205 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.PTLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of PTLogQueryCache hits and of the entries dropped by each kind of change.
+ *
+ * @author sid
+ */
+class PTLogQueryCacheTest {
+	private static final Date JANUARY_FIRST = Date.valueOf("2024-01-01");
+	private static final Date JANUARY_LAST = Date.valueOf("2024-01-31");
+
+	private ManagerHierarchyIndex managerHierarchy;
+	private PTLogQueryCache queryCache;
+	private int loads;
+
+	@BeforeEach
+	void createCache() {
+		managerHierarchy = new ManagerHierarchyIndex();
+		managerHierarchy.addAssignment(1, 10);
+		managerHierarchy.addAssignment(2, 10);
+		managerHierarchy.addAssignment(10, 20);
+		managerHierarchy.addAssignment(3, 30);
+		queryCache = new PTLogQueryCache(managerHierarchy, 1 << 20, 60_000);
+		loads = 0;
+	}
+
+	private Supplier<ArrayList<PTLog>> loader(int employeeId) {
+		return () -> {
+			loads++;
+			ArrayList<PTLog> ptLogs = new ArrayList<>();
+			ptLogs.add(new PTLog(loads, employeeId, "log", Date.valueOf("2024-01-15")));
+			return ptLogs;
+		};
+	}
+
+	private ArrayList<PTLog> ofEmployee(int id) {
+		return queryCache.getPTLogOfEmployeeInRange(id, JANUARY_FIRST, JANUARY_LAST, loader(id));
+	}
+
+	private ArrayList<PTLog> underManager(int id) {
+		return queryCache.getPTLogUnderManagerInRange(id, JANUARY_FIRST, JANUARY_LAST, loader(id));
+	}
+
+	private static PTLog ptLog(int employeeId, String loggedDate) {
+		return new PTLog(0, employeeId, "new", Date.valueOf(loggedDate));
+	}
+
+	@Test
+	void answersRepeatedQueryFromCache() {
+		ofEmployee(1);
+		ofEmployee(1);
+		assertEquals(1, loads);
+		assertEquals(1, queryCache.getHits());
+		assertEquals(1, queryCache.getMisses());
+		assertEquals(0.5, queryCache.getHitRatio(), 0.0);
+	}
+
+	@Test
+	void handsOutCopies() {
+		ofEmployee(1).clear();
+		ofEmployee(1).get(0).setDetails("changed");
+		assertEquals("log", ofEmployee(1).get(0).getDetails());
+		assertEquals(1, loads);
+	}
+
+	@Test
+	void keysByRange() {
+		ofEmployee(1);
+		queryCache.getPTLogOfEmployeeInRange(1, JANUARY_FIRST, Date.valueOf("2024-01-20"), loader(1));
+		assertEquals(2, loads);
+	}
+
+	@Test
+	void dropsEmployeeEntryWhenLogAddedInRange() {
+		ofEmployee(1);
+		queryCache.recordAdded(ptLog(1, "2024-01-20"));
+		ofEmployee(1);
+		assertEquals(2, loads);
+		assertEquals(1, queryCache.getInvalidations());
+	}
+
+	@Test
+	void keepsEntryWhenLogAddedOutsideRange() {
+		ofEmployee(1);
+		queryCache.recordAdded(ptLog(1, "2024-02-01"));
+		queryCache.recordAdded(ptLog(2, "2024-01-20"));
+		ofEmployee(1);
+		assertEquals(1, loads);
+	}
+
+	@Test
+	void dropsEntriesOfManagersAboveEmployee() {
+		underManager(10);
+		underManager(20);
+		underManager(30);
+		queryCache.recordAdded(ptLog(1, "2024-01-20"));
+		underManager(10);
+		underManager(20);
+		underManager(30);
+		assertEquals(5, loads);
+	}
+
+	@Test
+	void keepsManagerEntryWhenManagerLogsItself() {
+		underManager(10);
+		queryCache.recordAdded(ptLog(10, "2024-01-20"));
+		underManager(10);
+		assertEquals(1, loads);
+	}
+
+	@Test
+	void dropsEntriesOverlappingDelete() {
+		ofEmployee(1);
+		queryCache.recordDeleted(1, Date.valueOf("2023-12-01"), Date.valueOf("2023-12-31"));
+		ofEmployee(1);
+		assertEquals(1, loads);
+		queryCache.recordDeleted(1, Date.valueOf("2023-12-01"), JANUARY_FIRST);
+		ofEmployee(1);
+		assertEquals(2, loads);
+		queryCache.recordDeleted(1, null, null);
+		ofEmployee(1);
+		assertEquals(3, loads);
+	}
+
+	@Test
+	void dropsEntriesStartingBeforeCutoff() {
+		ofEmployee(1);
+		queryCache.getPTLogOfEmployeeInRange(1, Date.valueOf("2024-06-01"), Date.valueOf("2024-06-30"), loader(1));
+		queryCache.recordDeletedBefore(Date.valueOf("2024-03-01"));
+		assertEquals(1, queryCache.size());
+	}
+
+	@Test
+	void dropsEntriesOfManagerGainingReport() {
+		underManager(10);
+		underManager(20);
+		underManager(30);
+		ofEmployee(4);
+		queryCache.recordAssigned(4, 10);
+		managerHierarchy.addAssignment(4, 10);
+		assertEquals(2, queryCache.size());
+		underManager(10);
+		underManager(20);
+		assertEquals(6, loads);
+	}
+
+	@Test
+	void doesNotStoreResultReadWhileChangeWasMade() {
+		queryCache.getPTLogOfEmployeeInRange(1, JANUARY_FIRST, JANUARY_LAST, () -> {
+			ArrayList<PTLog> ptLogs = loader(1).get();
+			queryCache.recordAdded(ptLog(1, "2024-01-20"));
+			return ptLogs;
+		});
+		assertEquals(0, queryCache.size());
+		ofEmployee(1);
+		assertEquals(2, loads);
+	}
+
+	@Test
+	void doesNotStoreFailedRead() {
+		assertNull(queryCache.getPTLogOfEmployeeInRange(1, JANUARY_FIRST, JANUARY_LAST, () -> null));
+		assertEquals(0, queryCache.size());
+	}
+
+	@Test
+	void readsExpiredEntryAgain() throws InterruptedException {
+		queryCache = new PTLogQueryCache(managerHierarchy, 1 << 20, 0);
+		ofEmployee(1);
+		Thread.sleep(5);
+		ofEmployee(1);
+		assertEquals(2, loads);
+	}
+
+	@Test
+	void rejectsResultTooLargeForBudget() {
+		queryCache = new PTLogQueryCache(managerHierarchy, 1024, 60_000);
+		queryCache.getPTLogOfEmployeeInRange(1, JANUARY_FIRST, JANUARY_LAST, () -> {
+			ArrayList<PTLog> ptLogs = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				ptLogs.add(ptLog(1, "2024-01-20"));
+			}
+			return ptLogs;
+		});
+		assertEquals(0, queryCache.size());
+		assertEquals(1, queryCache.getRejections());
+	}
+
+	@Test
+	void doesNotCacheTeamsWithoutHierarchy() {
+		queryCache = new PTLogQueryCache(null, 1 << 20, 60_000);
+		underManager(10);
+		underManager(10);
+		assertEquals(2, loads);
+	}
+}
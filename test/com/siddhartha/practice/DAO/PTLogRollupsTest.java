@@ -0,0 +1,158 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.ActivitySummary;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.RollupPeriod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the PTLogRollups counters of employees and teams as logs are added and deleted across day, week and month
+ * boundaries. Weeks start on Monday, 2024-01-29 is a Monday and 2024 is a leap year.
+ *
+ * @author sid
+ */
+class PTLogRollupsTest {
+	private ManagerHierarchyIndex managerHierarchy;
+	private PTLogRollups rollups;
+	private int nextId;
+
+	@BeforeEach
+	void createRollups() {
+		managerHierarchy = new ManagerHierarchyIndex();
+		managerHierarchy.addAssignment(1, 10);
+		managerHierarchy.addAssignment(2, 10);
+		rollups = new PTLogRollups(managerHierarchy);
+		nextId = 1;
+	}
+
+	private void add(int employeeId, String loggedDate) {
+		rollups.recordAdded(new PTLog(nextId++, employeeId, "log", Date.valueOf(loggedDate)));
+	}
+
+	private ActivitySummary employee(int employeeId, RollupPeriod period, String date) {
+		return rollups.getEmployeeActivity(employeeId, period, Date.valueOf(date));
+	}
+
+	private static void assertActivity(String periodStart, int logCount, int activeDays, ActivitySummary activity) {
+		assertEquals(Date.valueOf(periodStart), activity.getPeriodStart());
+		assertEquals(logCount, activity.getLogCount(), "log count");
+		assertEquals(activeDays, activity.getActiveDays(), "active days");
+	}
+
+	@Test
+	void countsEachLogInItsDayWeekAndMonth() {
+		add(1, "2024-01-31");
+		add(1, "2024-01-31");
+		add(1, "2024-02-01");
+		add(1, "2024-02-04");
+		add(1, "2024-02-05");
+
+		assertActivity("2024-01-31", 2, 1, employee(1, RollupPeriod.Day, "2024-01-31"));
+		assertActivity("2024-02-02", 0, 0, employee(1, RollupPeriod.Day, "2024-02-02"));
+		assertActivity("2024-01-29", 4, 3, employee(1, RollupPeriod.Week, "2024-02-04"));
+		assertActivity("2024-02-05", 1, 1, employee(1, RollupPeriod.Week, "2024-02-05"));
+		assertActivity("2024-01-01", 2, 1, employee(1, RollupPeriod.Month, "2024-01-29"));
+		assertActivity("2024-02-01", 3, 3, employee(1, RollupPeriod.Month, "2024-02-29"));
+		ActivitySummary total = employee(1, RollupPeriod.Month, "2024-02-29");
+		assertEquals(5, total.getTotalLogCount());
+		assertEquals(4, total.getTotalActiveDays());
+		assertEquals(5, rollups.getLogCount());
+		assertEquals(5, rollups.getHighWaterMark());
+	}
+
+	@Test
+	void streaksRunAcrossMonthAndYearEnds() {
+		add(1, "2023-12-30");
+		add(1, "2023-12-31");
+		add(1, "2024-01-01");
+		add(1, "2024-01-02");
+		add(1, "2024-02-28");
+		add(1, "2024-03-01");
+
+		assertEquals(4, employee(1, RollupPeriod.Day, "2024-01-02").getCurrentStreak());
+		assertEquals(2, employee(1, RollupPeriod.Day, "2023-12-31").getCurrentStreak());
+		assertEquals(0, employee(1, RollupPeriod.Day, "2024-01-03").getCurrentStreak());
+		assertEquals(0, employee(1, RollupPeriod.Day, "2024-02-29").getCurrentStreak());
+		assertEquals(4, employee(1, RollupPeriod.Day, "2024-03-01").getLongestStreak());
+		assertActivity("2023-12-25", 2, 2, employee(1, RollupPeriod.Week, "2023-12-31"));
+		assertActivity("2024-01-01", 2, 2, employee(1, RollupPeriod.Week, "2024-01-01"));
+
+		add(1, "2024-02-29");
+
+		assertEquals(3, employee(1, RollupPeriod.Day, "2024-03-01").getCurrentStreak());
+		assertActivity("2024-02-26", 3, 3, employee(1, RollupPeriod.Week, "2024-03-01"));
+		assertActivity("2024-03-01", 1, 1, employee(1, RollupPeriod.Month, "2024-03-31"));
+	}
+
+	@Test
+	void deletingARangeAcrossBoundariesUncountsEveryBucket() {
+		add(1, "2024-01-30");
+		add(1, "2024-01-31");
+		add(1, "2024-01-31");
+		add(1, "2024-02-01");
+		add(1, "2024-02-02");
+		add(2, "2024-01-31");
+
+		rollups.recordDeleted(1, Date.valueOf("2024-01-31"), Date.valueOf("2024-02-01"));
+
+		assertActivity("2024-01-31", 0, 0, employee(1, RollupPeriod.Day, "2024-01-31"));
+		assertActivity("2024-01-29", 2, 2, employee(1, RollupPeriod.Week, "2024-01-29"));
+		assertActivity("2024-01-01", 1, 1, employee(1, RollupPeriod.Month, "2024-01-15"));
+		assertActivity("2024-02-01", 1, 1, employee(1, RollupPeriod.Month, "2024-02-15"));
+		assertEquals(1, employee(1, RollupPeriod.Day, "2024-02-02").getCurrentStreak());
+		assertEquals(1, employee(1, RollupPeriod.Day, "2024-02-02").getLongestStreak());
+		assertActivity("2024-01-31", 1, 1, employee(2, RollupPeriod.Day, "2024-01-31"));
+		assertEquals(3, rollups.getLogCount());
+
+		rollups.recordDeleted(1, Date.valueOf("2024-01-01"), Date.valueOf("2024-12-31"));
+
+		assertEquals(0, employee(1, RollupPeriod.Month, "2024-01-15").getTotalLogCount());
+		assertEquals(1, rollups.getEmployeeCount());
+		assertEquals(1, rollups.getLogCount());
+	}
+
+	@Test
+	void deletingBeforeACutoffKeepsTheRestOfItsWeek() {
+		add(1, "2024-01-29");
+		add(1, "2024-01-31");
+		add(1, "2024-02-01");
+		add(2, "2024-01-15");
+		assertActivity("2024-01-29", 3, 3, rollups.getTeamActivity(10, RollupPeriod.Week, Date.valueOf("2024-01-29")));
+
+		rollups.recordDeletedBefore(Date.valueOf("2024-02-01"));
+
+		assertActivity("2024-01-29", 1, 1, employee(1, RollupPeriod.Week, "2024-01-29"));
+		assertActivity("2024-01-01", 0, 0, employee(1, RollupPeriod.Month, "2024-01-29"));
+		assertEquals(0, employee(2, RollupPeriod.Month, "2024-01-15").getTotalLogCount());
+		assertActivity("2024-01-29", 1, 1, rollups.getTeamActivity(10, RollupPeriod.Week, Date.valueOf("2024-01-29")));
+		assertEquals(1, rollups.getEmployeeCount());
+	}
+
+	@Test
+	void teamCountsADayOnceAndFollowsChangesOfItsMembers() {
+		add(1, "2024-03-31");
+		add(2, "2024-03-31");
+		add(2, "2024-04-01");
+		ActivitySummary team = rollups.getTeamActivity(10, RollupPeriod.Week, Date.valueOf("2024-03-31"));
+		assertActivity("2024-03-25", 2, 1, team);
+		assertEquals(3, team.getTotalLogCount());
+		assertEquals(2, team.getTotalActiveDays());
+
+		add(1, "2024-04-02");
+		rollups.recordDeleted(2, Date.valueOf("2024-03-31"), Date.valueOf("2024-03-31"));
+
+		assertActivity("2024-03-25", 1, 1, rollups.getTeamActivity(10, RollupPeriod.Week, Date.valueOf("2024-03-31")));
+		assertActivity("2024-04-01", 2, 2, rollups.getTeamActivity(10, RollupPeriod.Month, Date.valueOf("2024-04-30")));
+		assertEquals(3, rollups.getTeamActivity(10, RollupPeriod.Day, Date.valueOf("2024-04-02")).getCurrentStreak());
+
+		managerHierarchy.addAssignment(3, 10);
+		add(3, "2024-04-03");
+
+		assertEquals(4, rollups.getTeamActivity(10, RollupPeriod.Day, Date.valueOf("2024-04-03")).getCurrentStreak());
+	}
+}
@@ -0,0 +1,92 @@
+package com.siddhartha.practice.DAO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the PTLogSchemaMigrator run by the JdbcPTLogStorageEngine on start against a stand in database: migrations
+ * newer than the recorded version are applied once each, and indexes already covered by a hand made index are skipped.
+ *
+ * @author sid
+ */
+class PTLogSchemaMigratorTest {
+	private FakeDatabase database;
+
+	@BeforeEach
+	void registerDatabase() throws SQLException {
+		database = FakeDatabase.register();
+	}
+
+	@AfterEach
+	void deregisterDatabase() throws SQLException {
+		database.deregister();
+	}
+
+	private void startEngine() {
+		new JdbcPTLogStorageEngine().close();
+	}
+
+	private List<String> executedStartingWith(String prefix) {
+		ArrayList<String> statements = new ArrayList<>();
+		for (String statement : database.executed) {
+			if (statement.startsWith(prefix)) {
+				statements.add(statement);
+			}
+		}
+		return statements;
+	}
+
+	@Test
+	void appliesEveryMigrationOfANewDatabaseOnce() {
+		database.schemaVersion = 0;
+		LinkedHashMap<String, List<String>> ptLogIndexes = new LinkedHashMap<>();
+		ptLogIndexes.put("PRIMARY", List.of("ptlog_id"));
+		ptLogIndexes.put("idx_hand_made", List.of("EMP_ID", "logged_date", "ptlog_id", "details"));
+		database.indexes.put("ptlogs", ptLogIndexes);
+		database.indexes.put("employee_managers", new LinkedHashMap<>(Map.of("PRIMARY", List.of("emp_id", "mgr_id"))));
+
+		startEngine();
+
+		assertEquals(2, database.schemaVersion);
+		assertEquals(4, executedStartingWith("create table if not exists ").size());
+		assertEquals(List.of(
+				"create index idx_ptlogs_logged_date on ptlogs (logged_date)",
+				"create index idx_employee_managers_mgr_emp on employee_managers (mgr_id, emp_id)"),
+				executedStartingWith("create index "));
+		assertEquals(2, executedStartingWith("insert into schema_version ").size());
+
+		database.executed.clear();
+		startEngine();
+
+		assertEquals(List.of(), executedStartingWith("create index "));
+		assertEquals(List.of(), executedStartingWith("insert into schema_version "));
+		assertEquals(1, executedStartingWith("create table if not exists schema_version ").size());
+	}
+
+	@Test
+	void appliesOnlyTheMigrationsNewerThanTheRecordedVersion() {
+		database.schemaVersion = 1;
+
+		startEngine();
+
+		assertEquals(2, database.schemaVersion);
+		assertEquals(1, executedStartingWith("create table if not exists schema_version ").size());
+		assertEquals(1, executedStartingWith("create table if not exists ").size());
+		assertEquals(List.of(
+				"create index idx_ptlogs_emp_logged_date_id on ptlogs (emp_id, logged_date, ptlog_id)",
+				"create index idx_ptlogs_logged_date on ptlogs (logged_date)",
+				"create index idx_employee_managers_emp_mgr on employee_managers (emp_id, mgr_id)",
+				"create index idx_employee_managers_mgr_emp on employee_managers (mgr_id, emp_id)"),
+				executedStartingWith("create index "));
+		assertEquals(1, executedStartingWith("insert into schema_version ").size());
+	}
+}
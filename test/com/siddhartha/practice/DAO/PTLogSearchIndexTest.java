@@ -0,0 +1,151 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.PTLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the BM25 ranking of PTLogSearchIndex, of its varint encoded posting lists read back from searches and from
+ * a written copy, and of the index following deleted logs.
+ *
+ * @author sid
+ */
+class PTLogSearchIndexTest {
+	private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+	private PTLogSearchIndex searchIndex;
+
+	@BeforeEach
+	void createIndex() {
+		searchIndex = new PTLogSearchIndex(null);
+	}
+
+	private void add(int id, int employeeId, String details, int day) {
+		searchIndex.recordAdded(new PTLog(id, employeeId, details, Date.valueOf(FIRST_DAY.plusDays(day))));
+	}
+
+	private static ArrayList<Integer> ids(ArrayList<PTLog> ptLogs) {
+		ArrayList<Integer> ids = new ArrayList<>();
+		for (PTLog ptLog : ptLogs) {
+			ids.add(ptLog.getId());
+		}
+		return ids;
+	}
+
+	private ArrayList<Integer> search(PTLogSearchIndex index, String text, Integer employeeId, int limit) {
+		return ids(index.search(text, employeeId, null, null, null, limit));
+	}
+
+	@Test
+	void ranksMoreOccurrencesShorterLogsAndRarerWordsFirst() {
+		add(1, 1, "Morning run", 0);
+		add(2, 1, "Evening run", 1);
+		add(3, 1, "run, run, RUN", 2);
+		add(4, 1, "Yoga", 3);
+		add(5, 1, "long run with many other words in the details of this log", 4);
+
+		assertEquals(List.of(3, 2, 1, 5), search(searchIndex, "run", null, 10));
+		assertEquals(List.of(3), search(searchIndex, "run", null, 1));
+		assertEquals(List.of(4, 3), search(searchIndex, "yoga run", null, 2));
+		assertEquals(List.of(), search(searchIndex, "swim", null, 10));
+		assertEquals(List.of(), search(searchIndex, "a", null, 10));
+	}
+
+	@Test
+	void readsBackPostingsOfEveryVarintLength() throws IOException {
+		// Gaps of 1, 129 and 19870 rows take one, two and three varint bytes, a frequency of 200 two bytes.
+		int rowCount = 20_002;
+		for (int row = 0; row < rowCount; row++) {
+			String details = (row == 0 || row == 1 || row == 130 || row == 20_000 || row == 20_001 ? "rare " : "") +
+					(row % 150 == 0 ? "common" : "-");
+			add(row + 1, 1 + row % 4, details, row % 365);
+		}
+		add(rowCount + 1, 2, "rare ".repeat(200), 0);
+		List<Integer> rareIds = List.of(20_003, 20_002, 20_001, 131, 2, 1);
+		ArrayList<Integer> commonIds = new ArrayList<>();
+		for (int row = 19_800; row >= 0; row -= 300) {
+			commonIds.add(row + 1);
+		}
+
+		assertEquals(rareIds, search(searchIndex, "rare", null, 10));
+		assertEquals(commonIds, search(searchIndex, "common", 1, 100));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			searchIndex.writeTo(output);
+		}
+		PTLogSearchIndex restored = new PTLogSearchIndex(null);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+		restored.restore(buffer);
+
+		assertFalse(buffer.hasRemaining());
+		assertEquals(rareIds, search(restored, "rare", null, 10));
+		assertEquals(commonIds, search(restored, "common", 1, 100));
+		assertEquals(searchIndex.getDocumentCount(), restored.getDocumentCount());
+		assertEquals(searchIndex.getTermCount(), restored.getTermCount());
+		assertEquals(rowCount + 1, restored.getHighWaterMark());
+		assertEquals("rare ".repeat(200), restored.search("rare", 2, null, null, null, 1).get(0).getDetails());
+	}
+
+	@Test
+	void deletedLogsAreNoLongerFound() {
+		add(1, 1, "Leg day", 0);
+		add(2, 1, "Leg press", 1);
+		add(3, 2, "Leg day", 0);
+		add(4, 2, "Leg curls", 5);
+
+		searchIndex.recordDeleted(1, Date.valueOf(FIRST_DAY), Date.valueOf(FIRST_DAY));
+
+		assertEquals(List.of(4, 3, 2), search(searchIndex, "leg", null, 10));
+		assertEquals(List.of(2), search(searchIndex, "leg", 1, 10));
+		assertEquals(List.of(3), search(searchIndex, "day", null, 10));
+		assertEquals(3, searchIndex.getDocumentCount());
+
+		searchIndex.recordDeletedBefore(Date.valueOf(FIRST_DAY.plusDays(2)));
+
+		assertEquals(List.of(4), search(searchIndex, "leg", null, 10));
+		assertEquals(List.of(), search(searchIndex, "leg", 1, 10));
+		assertEquals(1, searchIndex.getDocumentCount());
+		assertEquals(4, searchIndex.getHighWaterMark());
+
+		add(5, 1, "Leg day again", 6);
+
+		assertEquals(List.of(5), search(searchIndex, "day", null, 10));
+	}
+
+	@Test
+	void dropsWordsOfDeletedLogsOnceMostRowsAreDeleted() {
+		for (int i = 0; i < 2_000; i++) {
+			add(i + 1, 1, "squat unique" + i, i % 30);
+		}
+		for (int i = 0; i < 1_000; i++) {
+			add(2_001 + i, 2, "squat bench", i % 30);
+		}
+		assertEquals(2_002, searchIndex.getTermCount());
+
+		searchIndex.recordDeleted(1, Date.valueOf(FIRST_DAY), Date.valueOf(FIRST_DAY.plusDays(29)));
+
+		assertEquals(2, searchIndex.getTermCount());
+		assertEquals(1_000, searchIndex.getDocumentCount());
+		assertEquals(List.of(), search(searchIndex, "unique5", null, 10));
+		ArrayList<PTLog> found = searchIndex.search("squat", null, null, null, null, 5_000);
+		assertEquals(1_000, found.size());
+		assertTrue(found.stream().allMatch(ptLog -> ptLog.getEmployeeId() == 2));
+
+		add(3_001, 1, "squat unique5", 0);
+
+		assertEquals(List.of(3_001), search(searchIndex, "unique5", null, 10));
+		assertEquals(List.of(3_001), search(searchIndex, "squat", 1, 10));
+	}
+}
@@ -0,0 +1,119 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.Designation;
+import com.siddhartha.practice.Models.Employee;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.Page;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of PTLogService running its operations on an InMemoryPTLogStorageEngine: employees, managers and their teams,
+ * listings of logs in range and by page, and the checks failing operations on unknown employees.
+ *
+ * @author sid
+ */
+class PTLogServiceTest {
+	private PTLogService ptLogService;
+
+	@BeforeEach
+	void createService() {
+		ptLogService = new PTLogService(new InMemoryPTLogStorageEngine(), false, false, false, false, false, false,
+				false);
+		for (String name : List.of("Ana", "Ben", "Cal", "Dee")) {
+			assertEquals(1, ptLogService.addEmployee(name));
+		}
+	}
+
+	@AfterEach
+	void closeService() {
+		ptLogService.closeConnection();
+	}
+
+	private static ArrayList<Integer> ids(List<PTLog> ptLogs) {
+		ArrayList<Integer> ids = new ArrayList<>();
+		for (PTLog ptLog : ptLogs) {
+			ids.add(ptLog.getId());
+		}
+		return ids;
+	}
+
+	@Test
+	void createsTheEngineNamedInTheConfiguration() {
+		PTLogStorageEngine storageEngine = PTLogService.createStorageEngine(PTLogService.STORAGE_ENGINE_MEMORY);
+
+		assertTrue(storageEngine instanceof InMemoryPTLogStorageEngine);
+		assertThrows(RuntimeException.class, () -> PTLogService.createStorageEngine("cassandra"));
+	}
+
+	@Test
+	void listsEmployeesAndPromotesTeamMembersOnce() {
+		assertEquals(1, ptLogService.promoteToManager(1));
+		assertEquals(0, ptLogService.promoteToManager(1));
+		assertEquals(0, ptLogService.promoteToManager(99));
+
+		ArrayList<Employee> employees = ptLogService.listEmployees();
+		assertEquals(4, employees.size());
+		assertEquals("Ana", employees.get(0).getName());
+		assertEquals(Designation.Manager, employees.get(0).getDesignation());
+		assertEquals(Designation.TeamMember, employees.get(1).getDesignation());
+
+		Page<Employee> firstPage = ptLogService.listEmployeesPage(null, 3);
+		assertEquals(3, firstPage.getItems().size());
+		Page<Employee> lastPage = ptLogService.listEmployeesPage(firstPage.getNextPageToken(), 3);
+		assertEquals("Dee", lastPage.getItems().get(0).getName());
+		assertNull(lastPage.getNextPageToken());
+	}
+
+	@Test
+	void listsLogsOfAnEmployeeInRangeNewestFirst() {
+		assertEquals(1, ptLogService.addPTLogEmployee(2, "Squats", Date.valueOf("2024-01-03")));
+		assertEquals(1, ptLogService.addPTLogEmployee(2, "Run", Date.valueOf("2024-01-01")));
+		assertEquals(1, ptLogService.addPTLogEmployee(2, "Rows", Date.valueOf("2024-01-05")));
+		assertEquals(1, ptLogService.addPTLogEmployee(3, "Yoga", Date.valueOf("2024-01-03")));
+		assertEquals(0, ptLogService.addPTLogEmployee(99, "Swim", Date.valueOf("2024-01-03")));
+
+		assertEquals(List.of(2, 1, 3), ids(ptLogService.listPTLogOfEmployee(2)));
+		assertEquals(List.of(1, 2), ids(ptLogService.listPTLogOfEmployeeInRange(2, Date.valueOf("2024-01-01"),
+				Date.valueOf("2024-01-04"))));
+		assertNull(ptLogService.listPTLogOfEmployee(99));
+
+		Page<PTLog> firstPage = ptLogService.listPTLogOfEmployeePage(2, null, 2);
+		assertEquals(List.of(3, 1), ids(firstPage.getItems()));
+		Page<PTLog> lastPage = ptLogService.listPTLogOfEmployeePage(2, firstPage.getNextPageToken(), 2);
+		assertEquals(List.of(2), ids(lastPage.getItems()));
+		assertNull(lastPage.getNextPageToken());
+
+		assertEquals(1, ptLogService.deletePTLogOfEmployeeInRange(2, Date.valueOf("2024-01-02"),
+				Date.valueOf("2024-01-05")));
+
+		assertEquals(List.of(2), ids(ptLogService.listPTLogOfEmployee(2)));
+	}
+
+	@Test
+	void listsLogsOfTheWholeTeamOfAManager() {
+		ptLogService.promoteToManager(1);
+		ptLogService.promoteToManager(2);
+		assertEquals(1, ptLogService.assignEmployeeToManager(2, 1));
+		assertEquals(1, ptLogService.assignEmployeeToManager(3, 2));
+		assertEquals(0, ptLogService.assignEmployeeToManager(4, 3));
+		assertEquals(0, ptLogService.assignEmployeeToManager(1, 2));
+		ptLogService.addPTLogEmployee(3, "Bench", Date.valueOf("2024-02-01"));
+		ptLogService.addPTLogEmployee(2, "Deadlift", Date.valueOf("2024-02-03"));
+		ptLogService.addPTLogEmployee(4, "Plank", Date.valueOf("2024-02-02"));
+		ptLogService.addPTLogEmployee(3, "Curls", Date.valueOf("2024-02-04"));
+
+		assertEquals(List.of(4, 2, 1), ids(ptLogService.listPTLogUnderManager(1)));
+		assertEquals(List.of(2), ids(ptLogService.listPTLogUnderManagerInRange(1, Date.valueOf("2024-02-02"),
+				Date.valueOf("2024-02-03"))));
+		assertEquals(List.of(4, 1), ids(ptLogService.listPTLogUnderManager(2)));
+		assertNull(ptLogService.listPTLogUnderManager(3));
+	}
+}
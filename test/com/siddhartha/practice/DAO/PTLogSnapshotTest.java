@@ -0,0 +1,287 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Helpers.IntArrayList;
+import com.siddhartha.practice.Models.Designation;
+import com.siddhartha.practice.Models.PTLog;
+import com.siddhartha.practice.Models.RollupPeriod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of PTLogSnapshot round trips of the views, checksum checks and detection of snapshots out of date with the
+ * engine.
+ *
+ * @author sid
+ */
+class PTLogSnapshotTest {
+	private static final int HEADER_BYTES = 60;
+	private static final Date JANUARY_FIFTEENTH = Date.valueOf("2024-01-15");
+
+	@TempDir
+	Path directory;
+
+	private InMemoryPTLogStorageEngine engine;
+	private PTLogRollups rollups;
+	private PTLogSearchIndex searchIndex;
+	private Path file;
+
+	@BeforeEach
+	void fillEngine() {
+		engine = new InMemoryPTLogStorageEngine();
+		engine.addEmployee("first");
+		engine.addEmployee("second");
+		engine.promoteToManager(2);
+		for (int i = 0; i < 10; i++) {
+			engine.addPTLog(new PTLog(0, 1 + i % 2, i == 9 ? "-" : "review log " + i,
+					Date.valueOf("2024-01-" + (10 + i))));
+		}
+		rollups = new PTLogRollups(engine.getManagerHierarchy());
+		rollups.rebuild(engine);
+		searchIndex = new PTLogSearchIndex(engine.getManagerHierarchy());
+		searchIndex.rebuild(engine);
+		file = directory.resolve("ptlogs.snapshot");
+	}
+
+	private void writeSnapshot() throws IOException {
+		PTLogSnapshot.write(file, null, null, rollups, searchIndex);
+	}
+
+	/**
+	 * Engine failing every full scan, so a test fails if the views are rebuilt instead of restored.
+	 */
+	private PTLogStorageEngine noFullScan(ArrayList<Integer> readAfter) {
+		return StorageEngineProxy.wrap(engine, (method, args) -> {
+			if (method.equals("forEachPTLog")) {
+				fail("Read every pt log");
+			}
+			if (method.equals("forEachPTLogAfter")) {
+				readAfter.add((Integer) args[0]);
+			}
+			return StorageEngineProxy.PROCEED;
+		});
+	}
+
+	private static ArrayList<Integer> ids(ArrayList<PTLog> ptLogs) {
+		ArrayList<Integer> ids = new ArrayList<>();
+		for (PTLog ptLog : ptLogs) {
+			ids.add(ptLog.getId());
+		}
+		return ids;
+	}
+
+	private static String activity(PTLogRollups rollups, int employeeId) {
+		return rollups.getEmployeeActivity(employeeId, RollupPeriod.Month, JANUARY_FIFTEENTH).toString();
+	}
+
+	@Test
+	void restoresViewsWithoutReadingEveryLog() throws IOException {
+		writeSnapshot();
+		PTLogRollups restoredRollups = new PTLogRollups(engine.getManagerHierarchy());
+		PTLogSearchIndex restoredIndex = new PTLogSearchIndex(engine.getManagerHierarchy());
+		ArrayList<Integer> readAfter = new ArrayList<>();
+
+		assertTrue(PTLogSnapshot.open(file).restoreViews(noFullScan(readAfter), restoredRollups, restoredIndex));
+
+		assertEquals(List.of(10), readAfter);
+		assertEquals(activity(rollups, 1), activity(restoredRollups, 1));
+		assertEquals(activity(rollups, 2), activity(restoredRollups, 2));
+		assertEquals(10, restoredRollups.getLogCount());
+		assertEquals(10, restoredRollups.getHighWaterMark());
+		assertEquals(10, restoredIndex.getDocumentCount());
+		assertEquals(searchIndex.getTermCount(), restoredIndex.getTermCount());
+		assertEquals(ids(searchIndex.search("review log", null, null, null, null, 20)),
+				ids(restoredIndex.search("review log", null, null, null, null, 20)));
+		assertEquals(ids(searchIndex.search("log 3", 2, null, null, null, 20)),
+				ids(restoredIndex.search("log 3", 2, null, null, null, 20)));
+	}
+
+	@Test
+	void restoresSkipListsOfLongPostingLists() throws IOException {
+		for (int i = 0; i < 300; i++) {
+			PTLog ptLog = new PTLog(0, 1, i % 7 == 0 ? "common rare" : "common", Date.valueOf("2024-02-01"));
+			engine.addPTLog(ptLog);
+			rollups.recordAdded(ptLog);
+			searchIndex.recordAdded(ptLog);
+		}
+		writeSnapshot();
+		PTLogSearchIndex restoredIndex = new PTLogSearchIndex(engine.getManagerHierarchy());
+
+		assertTrue(PTLogSnapshot.open(file).restoreViews(noFullScan(new ArrayList<>()), null, restoredIndex));
+
+		assertEquals(ids(searchIndex.search("rare common", 1, null, null, null, 100)),
+				ids(restoredIndex.search("rare common", 1, null, null, null, 100)));
+		assertEquals(ids(searchIndex.search("rare", null, null, null, null, 100)),
+				ids(restoredIndex.search("rare", null, null, null, null, 100)));
+	}
+
+	@Test
+	void readsOnlyLogsAddedSince() throws IOException {
+		writeSnapshot();
+		engine.addPTLog(new PTLog(0, 1, "added later", Date.valueOf("2024-01-20")));
+		PTLogRollups restoredRollups = new PTLogRollups(engine.getManagerHierarchy());
+		PTLogSearchIndex restoredIndex = new PTLogSearchIndex(engine.getManagerHierarchy());
+		ArrayList<Integer> readAfter = new ArrayList<>();
+
+		assertTrue(PTLogSnapshot.open(file).restoreViews(noFullScan(readAfter), restoredRollups, restoredIndex));
+
+		assertEquals(List.of(10), readAfter);
+		assertEquals(11, restoredRollups.getLogCount());
+		assertEquals(11, restoredRollups.getHighWaterMark());
+		assertEquals(List.of(11), ids(restoredIndex.search("later", null, null, null, null, 5)));
+	}
+
+	@Test
+	void handsEachViewOnlyTheLogsItMissed() throws IOException {
+		PTLog ptLog = new PTLog(0, 2, "seen by rollups", Date.valueOf("2024-01-21"));
+		engine.addPTLog(ptLog);
+		rollups.recordAdded(ptLog);
+		writeSnapshot();
+		PTLogRollups restoredRollups = new PTLogRollups(engine.getManagerHierarchy());
+		PTLogSearchIndex restoredIndex = new PTLogSearchIndex(engine.getManagerHierarchy());
+		ArrayList<Integer> readAfter = new ArrayList<>();
+
+		assertTrue(PTLogSnapshot.open(file).restoreViews(noFullScan(readAfter), restoredRollups, restoredIndex));
+
+		assertEquals(List.of(10), readAfter);
+		assertEquals(11, restoredRollups.getLogCount());
+		assertEquals(11, restoredIndex.getDocumentCount());
+		assertEquals(List.of(11), ids(restoredIndex.search("rollups", null, null, null, null, 5)));
+	}
+
+	@Test
+	void isStaleAfterDelete() throws IOException {
+		writeSnapshot();
+		engine.deletePTLogOfEmployeeInRange(1, Date.valueOf("2024-01-10"), Date.valueOf("2024-01-10"));
+		assertFalse(PTLogSnapshot.open(file).restoreViews(engine, new PTLogRollups(null), null));
+		assertFalse(PTLogSnapshot.open(file).restoreViews(engine, null, new PTLogSearchIndex(null)));
+	}
+
+	@Test
+	void staysUpToDateWithDeletesMadeThroughTheViews() throws IOException {
+		engine.deletePTLogOfEmployeeInRange(1, Date.valueOf("2024-01-10"), Date.valueOf("2024-01-12"));
+		rollups.recordDeleted(1, Date.valueOf("2024-01-10"), Date.valueOf("2024-01-12"));
+		searchIndex.recordDeleted(1, Date.valueOf("2024-01-10"), Date.valueOf("2024-01-12"));
+		writeSnapshot();
+		PTLogRollups restoredRollups = new PTLogRollups(engine.getManagerHierarchy());
+		PTLogSearchIndex restoredIndex = new PTLogSearchIndex(engine.getManagerHierarchy());
+
+		assertTrue(PTLogSnapshot.open(file).restoreViews(noFullScan(new ArrayList<>()), restoredRollups,
+				restoredIndex));
+
+		assertEquals(8, restoredRollups.getLogCount());
+		assertEquals(8, restoredIndex.getDocumentCount());
+		assertEquals(ids(searchIndex.search("review", 1, null, null, null, 20)),
+				ids(restoredIndex.search("review", 1, null, null, null, 20)));
+		assertEquals(3, restoredIndex.search("review", 1, null, null, null, 20).size());
+	}
+
+	@Test
+	void isStaleWithoutSectionOfView() throws IOException {
+		PTLogSnapshot.write(file, null, null, rollups, null);
+		assertFalse(PTLogSnapshot.open(file).restoreViews(engine, rollups, new PTLogSearchIndex(null)));
+	}
+
+	@Test
+	void restoresEmployeesAndThoseAddedSince() throws IOException {
+		EmployeeDirectoryCache employeeDirectory = new EmployeeDirectoryCache(16, 60_000);
+		employeeDirectory.put(1, Designation.TeamMember);
+		employeeDirectory.put(2, Designation.Manager);
+		PTLogSnapshot.write(file, employeeDirectory, null, null, null);
+		engine.addEmployee("third");
+
+		EmployeeDirectoryCache restoredDirectory = new EmployeeDirectoryCache(16, 60_000);
+		PTLogSnapshot.open(file).restoreEmployees(restoredDirectory, engine, 1);
+
+		assertEquals(Designation.TeamMember, restoredDirectory.get(1));
+		assertEquals(Designation.Manager, restoredDirectory.get(2));
+		assertEquals(Designation.TeamMember, restoredDirectory.get(3));
+	}
+
+	@Test
+	void restoresManagerHierarchyWithItsLoadTime() throws IOException {
+		ManagerHierarchyIndex managerHierarchy = new ManagerHierarchyIndex();
+		IntArrayList employeeIds = new IntArrayList();
+		IntArrayList managerIds = new IntArrayList();
+		employeeIds.add(1);
+		managerIds.add(2);
+		employeeIds.add(3);
+		managerIds.add(2);
+		managerHierarchy.load(employeeIds, managerIds, 1234);
+		PTLogSnapshot.write(file, null, managerHierarchy, null, null);
+
+		ManagerHierarchyIndex restoredHierarchy = new ManagerHierarchyIndex();
+		long[] restoredLoadedAt = {0};
+		PTLogSnapshot.open(file).restoreManagerHierarchy(StorageEngineProxy.wrap(engine, (method, args) -> {
+			if (method.equals("restoreManagerHierarchy")) {
+				restoredLoadedAt[0] = (Long) args[2];
+				restoredHierarchy.load((IntArrayList) args[0], (IntArrayList) args[1], (Long) args[2]);
+				return null;
+			}
+			return StorageEngineProxy.PROCEED;
+		}));
+
+		assertEquals(1234, restoredLoadedAt[0]);
+		assertArrayEquals(new int[]{1, 3}, restoredHierarchy.resolveTeam(2));
+	}
+
+	@Test
+	void leavesNoTemporaryFile() throws IOException {
+		writeSnapshot();
+		writeSnapshot();
+		try (Stream<Path> files = Files.list(directory)) {
+			assertEquals(1, files.count());
+		}
+	}
+
+	@Test
+	void rejectsDamagedPayload() throws IOException {
+		writeSnapshot();
+		flipByte(file, (int) Files.size(file) - 1);
+		IOException exception = assertThrows(IOException.class, () -> PTLogSnapshot.open(file));
+		assertTrue(exception.getMessage().endsWith("is damaged."), exception.getMessage());
+	}
+
+	@Test
+	void rejectsTruncatedFile() throws IOException {
+		writeSnapshot();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 1);
+		}
+		assertThrows(IOException.class, () -> PTLogSnapshot.open(file));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(HEADER_BYTES - 1);
+		}
+		assertThrows(IOException.class, () -> PTLogSnapshot.open(file));
+	}
+
+	@Test
+	void rejectsOtherFormat() throws IOException {
+		writeSnapshot();
+		flipByte(file, 0);
+		assertThrows(IOException.class, () -> PTLogSnapshot.open(file));
+	}
+
+	private static void flipByte(Path file, int position) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer value = ByteBuffer.allocate(1);
+			channel.read(value, position);
+			value.put(0, (byte) (value.get(0) ^ 0xff));
+			value.rewind();
+			channel.write(value, position);
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package com.siddhartha.practice.DAO;
+
+import com.siddhartha.practice.Models.PTLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of PTLogWriteBehindBuffer batching, the one at a time fallback after a failed batch, and shutdown.
+ *
+ * @author sid
+ */
+class PTLogWriteBehindBufferTest {
+	private InMemoryPTLogStorageEngine engine;
+	private final CopyOnWriteArrayList<Integer> batchSizes = new CopyOnWriteArrayList<>();
+	private volatile String refusedDetails;
+	private PTLogStorageEngine storageEngine;
+
+	@BeforeEach
+	void createEngine() {
+		engine = new InMemoryPTLogStorageEngine();
+		engine.addEmployee("first");
+		storageEngine = StorageEngineProxy.wrap(engine, (method, args) -> {
+			if (method.equals("addPTLogsBatch")) {
+				Collection<?> ptLogs = (Collection<?>) args[0];
+				batchSizes.add(ptLogs.size());
+				for (Object ptLog : ptLogs) {
+					if (((PTLog) ptLog).getDetails().equals(refusedDetails)) {
+						return null;
+					}
+				}
+			}
+			return StorageEngineProxy.PROCEED;
+		});
+	}
+
+	private static PTLog ptLog(int employeeId, String details) {
+		return new PTLog(0, employeeId, details, Date.valueOf("2024-01-01"));
+	}
+
+	private static int result(CompletableFuture<Integer> future) throws Exception {
+		return future.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void sharesOneBatchBetweenQueuedLogs() throws Exception {
+		ArrayList<CompletableFuture<Integer>> futures = new ArrayList<>();
+		PTLog last = ptLog(1, "log 4");
+		try (PTLogWriteBehindBuffer buffer = new PTLogWriteBehindBuffer(storageEngine, new PTLogMetrics(), 16, 5,
+				10_000, 100)) {
+			for (int i = 0; i < 4; i++) {
+				futures.add(buffer.submit(ptLog(1, "log " + i)));
+			}
+			futures.add(buffer.submit(last));
+			for (CompletableFuture<Integer> future : futures) {
+				assertEquals(1, result(future));
+			}
+		}
+		assertEquals(List.of(5), batchSizes);
+		assertTrue(last.getId() > 0);
+	}
+
+	@Test
+	void flushesPartialBatchAfterDelay() throws Exception {
+		try (PTLogWriteBehindBuffer buffer = new PTLogWriteBehindBuffer(storageEngine, new PTLogMetrics(), 16, 100,
+				20, 100)) {
+			assertEquals(1, result(buffer.submit(ptLog(1, "alone"))));
+		}
+		assertEquals(List.of(1), batchSizes);
+	}
+
+	@Test
+	void failsOnlyFutureOfBadLogAfterFailedBatch() throws Exception {
+		refusedDetails = "bad";
+		ArrayList<CompletableFuture<Integer>> futures = new ArrayList<>();
+		try (PTLogWriteBehindBuffer buffer = new PTLogWriteBehindBuffer(storageEngine, new PTLogMetrics(), 16, 3,
+				10_000, 100)) {
+			futures.add(buffer.submit(ptLog(1, "good")));
+			futures.add(buffer.submit(ptLog(1, "bad")));
+			futures.add(buffer.submit(ptLog(99, "unknown employee")));
+			assertEquals(1, result(futures.get(0)));
+			assertEquals(0, result(futures.get(1)));
+			assertEquals(0, result(futures.get(2)));
+		}
+		assertEquals(List.of(3, 1, 1, 1), batchSizes);
+		ArrayList<String> details = new ArrayList<>();
+		engine.forEachPTLog(ptLog -> details.add(ptLog.getDetails()));
+		assertEquals(List.of("good"), details);
+	}
+
+	@Test
+	void completesExceptionallyWhenEngineThrows() throws Exception {
+		PTLogStorageEngine throwingEngine = StorageEngineProxy.wrap(engine, (method, args) -> {
+			if (method.equals("addPTLogsBatch")) {
+				throw new IllegalStateException("engine down");
+			}
+			return StorageEngineProxy.PROCEED;
+		});
+		try (PTLogWriteBehindBuffer buffer = new PTLogWriteBehindBuffer(throwingEngine, new PTLogMetrics(), 16, 1,
+				10, 100)) {
+			ExecutionException exception = assertThrows(ExecutionException.class,
+					() -> result(buffer.submit(ptLog(1, "lost"))));
+			assertTrue(exception.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	void addsQueuedLogsOnClose() throws Exception {
+		PTLogWriteBehindBuffer buffer = new PTLogWriteBehindBuffer(storageEngine, new PTLogMetrics(), 16, 100,
+				60_000, 100);
+		CompletableFuture<Integer> future = buffer.submit(ptLog(1, "queued"));
+		buffer.close();
+		assertEquals(1, result(future));
+	}
+
+	@Test
+	void rejectsSubmitAfterClose() {
+		PTLogWriteBehindBuffer buffer = new PTLogWriteBehindBuffer(storageEngine, new PTLogMetrics(), 16, 100,
+				10, 100);
+		buffer.close();
+		ExecutionException exception = assertThrows(ExecutionException.class,
+				() -> result(buffer.submit(ptLog(1, "late"))));
+		assertTrue(exception.getCause() instanceof RejectedExecutionException);
+	}
+
+	@Test
+	void rejectsSubmitWhenQueueStaysFull() throws Exception {
+		PTLogStorageEngine slowEngine = StorageEngineProxy.wrap(engine, (method, args) -> {
+			if (method.equals("addPTLogsBatch")) {
+				Thread.sleep(300);
+			}
+			return StorageEngineProxy.PROCEED;
+		});
+		try (PTLogWriteBehindBuffer buffer = new PTLogWriteBehindBuffer(slowEngine, new PTLogMetrics(), 1, 1, 0,
+				10)) {
+			buffer.submit(ptLog(1, "flushing"));
+			Thread.sleep(50);
+			buffer.submit(ptLog(1, "queued"));
+			ExecutionException exception = assertThrows(ExecutionException.class,
+					() -> result(buffer.submit(ptLog(1, "rejected"))));
+			assertTrue(exception.getCause() instanceof RejectedExecutionException);
+			assertEquals(1, buffer.getRejectedCount());
+		}
+	}
+
+	@Test
+	void completesEveryFutureSubmittedWhileClosing() throws Exception {
+		for (int round = 0; round < 20; round++) {
+			PTLogWriteBehindBuffer buffer = new PTLogWriteBehindBuffer(storageEngine, new PTLogMetrics(), 4, 2, 1,
+					50);
+			CopyOnWriteArrayList<CompletableFuture<Integer>> futures = new CopyOnWriteArrayList<>();
+			ArrayList<Thread> submitters = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				Thread submitter = new Thread(() -> {
+					for (int j = 0; j < 50; j++) {
+						futures.add(buffer.submit(ptLog(1, "concurrent")));
+					}
+				});
+				submitter.start();
+				submitters.add(submitter);
+			}
+			buffer.close();
+			for (Thread submitter : submitters) {
+				submitter.join();
+			}
+			for (CompletableFuture<Integer> future : futures) {
+				try {
+					future.get(5, TimeUnit.SECONDS);
+				} catch (ExecutionException executionException) {
+					assertTrue(executionException.getCause() instanceof RejectedExecutionException);
+				} catch (TimeoutException timeoutException) {
+					fail("a log submitted while closing was never completed");
+				}
+			}
+		}
+	}
+}
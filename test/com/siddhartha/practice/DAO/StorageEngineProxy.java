@@ -0,0 +1,45 @@
+package com.siddhartha.practice.DAO;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+/**
+ * Wraps a storage engine so a test can answer or watch chosen calls, every other call going to the wrapped engine.
+ *
+ * @author sid
+ */
+final class StorageEngineProxy {
+	/**
+	 * Returned by an interceptor to hand the call to the wrapped engine.
+	 */
+	static final Object PROCEED = new Object();
+
+	private StorageEngineProxy() {
+	}
+
+	/**
+	 * Sees every call made to the proxy.
+	 */
+	@FunctionalInterface
+	interface Interceptor {
+		/**
+		 * @return value the call returns, PROCEED to hand the call to the wrapped engine.
+		 */
+		Object intercept(String method, Object[] args) throws Throwable;
+	}
+
+	static PTLogStorageEngine wrap(PTLogStorageEngine storageEngine, Interceptor interceptor) {
+		return (PTLogStorageEngine) Proxy.newProxyInstance(PTLogStorageEngine.class.getClassLoader(),
+				new Class<?>[]{PTLogStorageEngine.class}, (proxy, method, args) -> {
+					Object result = interceptor.intercept(method.getName(), args);
+					if (result != PROCEED) {
+						return result;
+					}
+					try {
+						return method.invoke(storageEngine, args);
+					} catch (InvocationTargetException invocationTargetException) {
+						throw invocationTargetException.getCause();
+					}
+				});
+	}
+}
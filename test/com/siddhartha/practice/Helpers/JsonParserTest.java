@@ -0,0 +1,87 @@
+package com.siddhartha.practice.Helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of JsonParser values and rejection of malformed input.
+ *
+ * @author sid
+ */
+class JsonParserTest {
+
+	@Test
+	void parsesEveryValueType() {
+		LinkedHashMap<String, Object> object = JsonParser.parseObject(
+				" {\"id\": 7, \"score\": -1.5e2, \"name\": \"a\\\"b\\u0041\", \"ok\": true, \"no\": false," +
+						" \"none\": null, \"list\": [1, [], {}]} ");
+		assertEquals(7L, object.get("id"));
+		assertEquals(-150.0, object.get("score"));
+		assertEquals("a\"bA", object.get("name"));
+		assertEquals(Boolean.TRUE, object.get("ok"));
+		assertEquals(Boolean.FALSE, object.get("no"));
+		assertTrue(object.containsKey("none"));
+		assertNull(object.get("none"));
+		assertEquals(new ArrayList<>(Arrays.asList(1L, new ArrayList<>(), new LinkedHashMap<>())), object.get("list"));
+	}
+
+	@Test
+	void keepsMemberOrder() {
+		LinkedHashMap<String, Object> object = JsonParser.parseObject("{\"b\":1,\"a\":2}");
+		assertEquals(Arrays.asList("b", "a"), new ArrayList<>(object.keySet()));
+	}
+
+	@Test
+	void rejectsMalformedInput() {
+		String[] malformed = {
+				"",
+				"   ",
+				"{",
+				"{\"a\":1,}",
+				"{\"a\" 1}",
+				"{a:1}",
+				"[1,]",
+				"[1 2]",
+				"\"unterminated",
+				"\"bad \\x escape\"",
+				"\"\\u12\"",
+				"\"tab\there\"",
+				"tru",
+				"nul",
+				"-",
+				"1.2.3",
+				"99999999999999999999",
+				"{} {}",
+				"@"
+		};
+		for (String text : malformed) {
+			assertThrows(IllegalArgumentException.class, () -> JsonParser.parse(text), "accepted " + text);
+		}
+	}
+
+	@Test
+	void rejectsNonObjectWhereObjectExpected() {
+		assertThrows(IllegalArgumentException.class, () -> JsonParser.parseObject("[]"));
+		assertThrows(IllegalArgumentException.class, () -> JsonParser.parseObject("1"));
+	}
+
+	@Test
+	void rejectsNestingBeyondLimit() {
+		String deep = "[".repeat(65) + "]".repeat(65);
+		assertThrows(IllegalArgumentException.class, () -> JsonParser.parse(deep));
+		String allowed = "[".repeat(64) + "]".repeat(64);
+		assertNotNull(JsonParser.parse(allowed));
+	}
+
+	@Test
+	void reportsPositionOfError() {
+		IllegalArgumentException exception =
+				assertThrows(IllegalArgumentException.class, () -> JsonParser.parse("[1, @]"));
+		assertTrue(exception.getMessage().endsWith("at position 4"), exception.getMessage());
+	}
+}
@@ -0,0 +1,69 @@
+package com.siddhartha.practice.Helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of PageToken round trips and rejection of tokens that were not created by encode.
+ *
+ * @author sid
+ */
+class PageTokenTest {
+
+	@Test
+	void roundTripsPTLogPosition() {
+		PageToken position = PageToken.decode(PageToken.encode(Date.valueOf("2024-02-29"), 42));
+		assertEquals(Date.valueOf("2024-02-29"), position.getLoggedDate());
+		assertEquals(42, position.getId());
+	}
+
+	@Test
+	void roundTripsEmployeePosition() {
+		PageToken position = PageToken.decode(PageToken.encode(Integer.MAX_VALUE));
+		assertNull(position.getLoggedDate());
+		assertEquals(Integer.MAX_VALUE, position.getId());
+	}
+
+	@Test
+	void encodesUrlSafeWithoutPadding() {
+		String token = PageToken.encode(Date.valueOf("1970-01-01"), 7);
+		assertFalse(token.contains("="));
+		assertFalse(token.contains("+"));
+		assertFalse(token.contains("/"));
+	}
+
+	@Test
+	void rejectsOtherVersion() {
+		assertThrows(IllegalArgumentException.class, () -> PageToken.decode(encodeRaw("2:19000:5")));
+	}
+
+	@Test
+	void rejectsTamperedFields() {
+		assertThrows(IllegalArgumentException.class, () -> PageToken.decode(encodeRaw("1:19000")));
+		assertThrows(IllegalArgumentException.class, () -> PageToken.decode(encodeRaw("1:19000:5:6")));
+		assertThrows(IllegalArgumentException.class, () -> PageToken.decode(encodeRaw("1:day:5")));
+		assertThrows(IllegalArgumentException.class, () -> PageToken.decode(encodeRaw("1:19000:")));
+		assertThrows(IllegalArgumentException.class, () -> PageToken.decode(encodeRaw("1::99999999999")));
+	}
+
+	@Test
+	void rejectsTextThatIsNotBase64() {
+		assertThrows(IllegalArgumentException.class, () -> PageToken.decode("not a token!"));
+		assertThrows(IllegalArgumentException.class, () -> PageToken.decode(""));
+	}
+
+	@Test
+	void rejectsTruncatedToken() {
+		String token = PageToken.encode(Date.valueOf("2024-01-01"), 12345);
+		assertThrows(IllegalArgumentException.class, () -> PageToken.decode(token.substring(0, 3)));
+	}
+
+	private static String encodeRaw(String value) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,147 @@
+package com.siddhartha.practice.Service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of ConnectionPool borrowing, validation and acquire timeout against FakeConnections.
+ *
+ * @author sid
+ */
+class ConnectionPoolTest {
+	private final ArrayList<FakeConnection> opened = new ArrayList<>();
+	private ConnectionPool pool;
+
+	@AfterEach
+	void closePool() {
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+	private ConnectionPool newPool(int minSize, int maxSize, long acquireTimeoutMillis) throws SQLException {
+		pool = new ConnectionPool(() -> {
+			FakeConnection fakeConnection = new FakeConnection();
+			opened.add(fakeConnection);
+			return fakeConnection.connection;
+		}, minSize, maxSize, 60_000, acquireTimeoutMillis, 1, 4);
+		return pool;
+	}
+
+	@Test
+	void opensMinimumSizeUpFront() throws SQLException {
+		newPool(2, 4, 100);
+		assertEquals(2, opened.size());
+		assertEquals(2, pool.getStats().getIdleConnections());
+		assertEquals(0, pool.getStats().getActiveConnections());
+	}
+
+	@Test
+	void reusesReturnedConnection() throws SQLException {
+		newPool(0, 2, 100);
+		PooledConnection first = pool.borrow();
+		first.close();
+		PooledConnection second = pool.borrow();
+		assertSame(first, second);
+		assertEquals(1, opened.size());
+		assertEquals(2, pool.getStats().getBorrowCount());
+		second.close();
+	}
+
+	@Test
+	void replacesConnectionFailingValidation() throws SQLException {
+		newPool(1, 1, 100);
+		opened.get(0).valid = false;
+		PooledConnection pooledConnection = pool.borrow();
+		assertTrue(opened.get(0).closed);
+		assertEquals(2, opened.size());
+		assertSame(opened.get(1).connection, pooledConnection.getConnection());
+		assertEquals(1, pool.getStats().getTotalConnections());
+		pooledConnection.close();
+	}
+
+	@Test
+	void timesOutWhenPoolIsExhausted() throws SQLException {
+		newPool(0, 1, 50);
+		PooledConnection borrowed = pool.borrow();
+		long start = System.nanoTime();
+		assertThrows(SQLException.class, pool::borrow);
+		assertTrue(System.nanoTime() - start >= 40_000_000L, "borrow returned before the acquire timeout");
+		assertEquals(1, pool.getStats().getTimeoutCount());
+		borrowed.close();
+		PooledConnection next = pool.borrow();
+		assertSame(borrowed, next);
+		next.close();
+	}
+
+	@Test
+	void waiterGetsConnectionReturnedBeforeTimeout() throws Exception {
+		newPool(0, 1, 5_000);
+		PooledConnection borrowed = pool.borrow();
+		Thread returner = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException interruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			borrowed.close();
+		});
+		returner.start();
+		PooledConnection next = pool.borrow();
+		assertSame(borrowed, next);
+		next.close();
+		returner.join();
+	}
+
+	@Test
+	void rollsBackUnfinishedTransactionOnReturn() throws SQLException {
+		newPool(0, 1, 100);
+		PooledConnection pooledConnection = pool.borrow();
+		pooledConnection.getConnection().setAutoCommit(false);
+		pooledConnection.close();
+		assertEquals(1, opened.get(0).rollbacks);
+		assertTrue(opened.get(0).autoCommit);
+	}
+
+	@Test
+	void closingTwiceReturnsConnectionOnce() throws SQLException {
+		newPool(0, 2, 100);
+		PooledConnection pooledConnection = pool.borrow();
+		pooledConnection.close();
+		pooledConnection.close();
+		assertEquals(1, pool.getStats().getIdleConnections());
+	}
+
+	@Test
+	void refusesBorrowAfterClose() throws SQLException {
+		newPool(1, 1, 100);
+		pool.close();
+		assertTrue(opened.get(0).closed);
+		assertThrows(SQLException.class, pool::borrow);
+	}
+
+	@Test
+	void closesUncachedStatementsWhenConnectionIsReturned() throws SQLException {
+		pool = new ConnectionPool(() -> {
+			FakeConnection fakeConnection = new FakeConnection();
+			opened.add(fakeConnection);
+			return fakeConnection.connection;
+		}, 0, 1, 60_000, 100, 1, 0);
+		try (PooledConnection pooledConnection = pool.borrow()) {
+			pooledConnection.prepareStatement("select 1");
+			assertFalse(opened.get(0).statements.get(0).closed);
+		}
+		assertTrue(opened.get(0).statements.get(0).closed);
+	}
+
+	@Test
+	void rejectsInvalidSizes() {
+		assertThrows(IllegalArgumentException.class, () -> newPool(3, 2, 100));
+		assertThrows(IllegalArgumentException.class, () -> newPool(0, 0, 100));
+	}
+}
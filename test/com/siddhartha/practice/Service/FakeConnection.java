@@ -0,0 +1,75 @@
+package com.siddhartha.practice.Service;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+
+/**
+ * In memory stand in for a JDBC connection, recording what the pool and the statement cache do with it. Only the
+ * methods they call are answered, any other call fails the test.
+ *
+ * @author sid
+ */
+final class FakeConnection {
+	boolean valid = true;
+	boolean closed = false;
+	boolean autoCommit = true;
+	int rollbacks = 0;
+	final ArrayList<FakeStatement> statements = new ArrayList<>();
+	final Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+			new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "isValid":
+						return valid && !closed;
+					case "isClosed":
+						return closed;
+					case "close":
+						closed = true;
+						return null;
+					case "getAutoCommit":
+						return autoCommit;
+					case "setAutoCommit":
+						autoCommit = (Boolean) args[0];
+						return null;
+					case "rollback":
+						rollbacks++;
+						return null;
+					case "prepareStatement":
+						FakeStatement statement = new FakeStatement((String) args[0]);
+						statements.add(statement);
+						return statement.statement;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			});
+
+	/**
+	 * Prepared statement of a FakeConnection.
+	 */
+	static final class FakeStatement {
+		final String query;
+		boolean closed = false;
+		int clearedParameters = 0;
+		final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(
+				PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "isClosed":
+							return closed;
+						case "close":
+							closed = true;
+							return null;
+						case "clearParameters":
+							clearedParameters++;
+							return null;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+
+		private FakeStatement(String query) {
+			this.query = query;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.siddhartha.practice.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of StatementCache reuse and least recently used eviction.
+ *
+ * @author sid
+ */
+class StatementCacheTest {
+	private final FakeConnection fakeConnection = new FakeConnection();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	@Test
+	void reusesStatementOfSameQuery() throws SQLException {
+		StatementCache statementCache = new StatementCache(fakeConnection.connection, 2, hits, misses);
+		PreparedStatement first = statementCache.prepare("select 1", Statement.NO_GENERATED_KEYS);
+		PreparedStatement second = statementCache.prepare("select 1", Statement.NO_GENERATED_KEYS);
+		assertSame(first, second);
+		assertEquals(1, hits.sum());
+		assertEquals(1, misses.sum());
+		assertEquals(1, fakeConnection.statements.get(0).clearedParameters);
+	}
+
+	@Test
+	void keysGeneratedKeyStatementsSeparately() throws SQLException {
+		StatementCache statementCache = new StatementCache(fakeConnection.connection, 2, hits, misses);
+		PreparedStatement plain = statementCache.prepare("insert", Statement.NO_GENERATED_KEYS);
+		PreparedStatement returningKeys = statementCache.prepare("insert", Statement.RETURN_GENERATED_KEYS);
+		assertNotSame(plain, returningKeys);
+		assertEquals(2, statementCache.size());
+	}
+
+	@Test
+	void evictsAndClosesLeastRecentlyUsed() throws SQLException {
+		StatementCache statementCache = new StatementCache(fakeConnection.connection, 2, hits, misses);
+		statementCache.prepare("a", Statement.NO_GENERATED_KEYS);
+		statementCache.prepare("b", Statement.NO_GENERATED_KEYS);
+		statementCache.prepare("a", Statement.NO_GENERATED_KEYS);
+		statementCache.prepare("c", Statement.NO_GENERATED_KEYS);
+		assertEquals(2, statementCache.size());
+		assertFalse(fakeConnection.statements.get(0).closed);
+		assertTrue(fakeConnection.statements.get(1).closed);
+		statementCache.prepare("a", Statement.NO_GENERATED_KEYS);
+		assertEquals(3, fakeConnection.statements.size());
+	}
+
+	@Test
+	void preparesAgainAfterStatementWasClosed() throws SQLException {
+		StatementCache statementCache = new StatementCache(fakeConnection.connection, 2, hits, misses);
+		statementCache.prepare("a", Statement.NO_GENERATED_KEYS).close();
+		PreparedStatement again = statementCache.prepare("a", Statement.NO_GENERATED_KEYS);
+		assertSame(fakeConnection.statements.get(1).statement, again);
+		assertEquals(2, misses.sum());
+	}
+
+	@Test
+	void zeroSizeDisablesCaching() throws SQLException {
+		StatementCache statementCache = new StatementCache(fakeConnection.connection, 0, hits, misses);
+		statementCache.prepare("a", Statement.NO_GENERATED_KEYS);
+		statementCache.prepare("a", Statement.NO_GENERATED_KEYS);
+		assertEquals(0, statementCache.size());
+		assertEquals(2, fakeConnection.statements.size());
+	}
+
+	@Test
+	void zeroSizeClosesStatementsOnRelease() throws SQLException {
+		StatementCache statementCache = new StatementCache(fakeConnection.connection, 0, hits, misses);
+		statementCache.prepare("a", Statement.NO_GENERATED_KEYS);
+		statementCache.prepare("b", Statement.RETURN_GENERATED_KEYS);
+		assertFalse(fakeConnection.statements.get(0).closed);
+		statementCache.release();
+		assertTrue(fakeConnection.statements.get(0).closed);
+		assertTrue(fakeConnection.statements.get(1).closed);
+		statementCache.prepare("c", Statement.NO_GENERATED_KEYS);
+		statementCache.close();
+		assertTrue(fakeConnection.statements.get(2).closed);
+	}
+
+	@Test
+	void releaseKeepsCachedStatementsOpen() throws SQLException {
+		StatementCache statementCache = new StatementCache(fakeConnection.connection, 2, hits, misses);
+		statementCache.prepare("a", Statement.NO_GENERATED_KEYS);
+		statementCache.release();
+		assertFalse(fakeConnection.statements.get(0).closed);
+		assertEquals(1, statementCache.size());
+	}
+
+	@Test
+	void closeClosesEveryCachedStatement() throws SQLException {
+		StatementCache statementCache = new StatementCache(fakeConnection.connection, 4, hits, misses);
+		statementCache.prepare("a", Statement.NO_GENERATED_KEYS);
+		statementCache.prepare("b", Statement.NO_GENERATED_KEYS);
+		statementCache.close();
+		assertEquals(0, statementCache.size());
+		assertTrue(fakeConnection.statements.get(0).closed);
+		assertTrue(fakeConnection.statements.get(1).closed);
+	}
+}